@@ -44,6 +44,20 @@ public interface CompilerParticipant {
         return;
     }
 
+    /**
+     * Run after compiling batch was failed.
+     * In this case, {@link #afterBatch(BatchCompiler.Context, Batch, BatchReference)} is never called,
+     * so that participants should release the resources which were acquired in
+     * {@link #beforeBatch(BatchCompiler.Context, Batch)}.
+     * @param context the current context
+     * @param batch the target batch
+     * @param cause the failure cause
+     * @since 0.5.5
+     */
+    default void abortBatch(BatchCompiler.Context context, Batch batch, Throwable cause) {
+        return;
+    }
+
     /**
      * Run before compiling jobflow.
      * @param context the current context
@@ -18,8 +18,15 @@ package com.asakusafw.lang.compiler.core.basic;
 import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,20 +53,36 @@ import com.asakusafw.utils.graph.Graphs;
 
 /**
  * A basic implementation of {@link BatchCompiler}.
+ * @version 0.5.5
  */
 public class BasicBatchCompiler implements BatchCompiler {
 
     static final Logger LOG = LoggerFactory.getLogger(BasicBatchCompiler.class);
 
+    /**
+     * The compiler option key of the max number of jobflows which are compiled concurrently.
+     * Note that, all {@link CompilerParticipant participants} and processors must be thread-safe
+     * if this is greater than {@code 1}.
+     * @since 0.5.5
+     */
+    public static final String KEY_JOBFLOW_PARALLELISM = "batch.jobflow.parallelism"; //$NON-NLS-1$
+
+    /**
+     * The default value of {@link #KEY_JOBFLOW_PARALLELISM}.
+     * @since 0.5.5
+     */
+    public static final int DEFAULT_JOBFLOW_PARALLELISM = 1;
+
     private final JobflowCompiler jobflowCompiler;
 
     private final JobflowPackager jobflowPackager = new JobflowPackager();
 
     /**
      * Creates a new instance.
+     * @see CachingJobflowCompiler
      */
     public BasicBatchCompiler() {
-        this(new BasicJobflowCompiler());
+        this(new CachingJobflowCompiler(new BasicJobflowCompiler()));
     }
 
     /**
@@ -74,16 +97,24 @@ public class BasicBatchCompiler implements BatchCompiler {
     public void compile(Context context, Batch batch) {
         LOG.debug("start batch compiler: {}={}", batch.getBatchId(), batch.getDescriptionClass()); //$NON-NLS-1$
         before(context, batch);
-        JobflowContainer container = new JobflowContainer();
-        for (BatchElement element : sort(batch.getElements())) {
-            TaskReferenceMap tasks = compileJobflow(context, element);
-            container.add(new BasicJobflowReference(
-                    element.getJobflow(),
-                    tasks,
-                    getBlockerJobflows(container, element)));
+        BatchReference reference;
+        try {
+            List<BatchElement> elements = sort(batch.getElements());
+            Map<BatchElement, TaskReferenceMap> compiled = compileJobflows(context, elements);
+            JobflowContainer container = new JobflowContainer();
+            for (BatchElement element : elements) {
+                // only jobflow references depend on their blockers, jobflow compilation does not
+                container.add(new BasicJobflowReference(
+                        element.getJobflow(),
+                        compiled.get(element),
+                        getBlockerJobflows(container, element)));
+            }
+            reference = new BasicBatchReference(batch, container);
+            runBatchProcessor(context, batch, reference);
+        } catch (RuntimeException | Error e) {
+            abort(context, batch, e);
+            throw e;
         }
-        BatchReference reference = new BasicBatchReference(batch, container);
-        runBatchProcessor(context, batch, reference);
         after(context, batch, reference);
     }
 
@@ -99,6 +130,118 @@ public class BasicBatchCompiler implements BatchCompiler {
         return sorted;
     }
 
+    private Map<BatchElement, TaskReferenceMap> compileJobflows(Context context, List<BatchElement> elements) {
+        Map<BatchElement, TaskReferenceMap> results = new HashMap<>();
+        int parallelism = Math.min(getJobflowParallelism(context), elements.size());
+        if (parallelism <= 1) {
+            for (BatchElement element : elements) {
+                results.put(element, compileJobflow(context, element));
+            }
+            return results;
+        }
+        LOG.debug("compiling jobflows in parallel: jobflows={}, parallelism={}", //$NON-NLS-1$
+                elements.size(), parallelism);
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        Map<BatchElement, ForkJoinTask<TaskReferenceMap>> tasks = new LinkedHashMap<>();
+        try {
+            for (BatchElement element : elements) {
+                tasks.put(element, pool.submit(() -> {
+                    Thread current = Thread.currentThread();
+                    ClassLoader escaped = current.getContextClassLoader();
+                    current.setContextClassLoader(contextClassLoader);
+                    try {
+                        return compileJobflow(context, element);
+                    } finally {
+                        current.setContextClassLoader(escaped);
+                    }
+                }));
+            }
+            List<Diagnostic> diagnostics = new ArrayList<>();
+            Throwable failure = null;
+            for (Map.Entry<BatchElement, ForkJoinTask<TaskReferenceMap>> entry : tasks.entrySet()) {
+                ForkJoinTask<TaskReferenceMap> task = entry.getValue();
+                try {
+                    results.put(entry.getKey(), task.join());
+                } catch (DiagnosticException e) {
+                    diagnostics.addAll(e.getDiagnostics());
+                } catch (RuntimeException | Error e) {
+                    if (task.isCancelled()) {
+                        // cancelled by the preceding failure
+                        continue;
+                    }
+                    if (failure == null) {
+                        failure = e;
+                        cancel(tasks.values());
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+            if (failure != null) {
+                if (diagnostics.isEmpty() == false) {
+                    failure.addSuppressed(new DiagnosticException(diagnostics));
+                }
+                if (failure instanceof Error) {
+                    throw (Error) failure;
+                }
+                throw (RuntimeException) failure;
+            }
+            if (diagnostics.isEmpty() == false) {
+                throw new DiagnosticException(diagnostics);
+            }
+            return results;
+        } finally {
+            // ForkJoinPool never interrupts the running tasks, so that we must wait for them
+            // before the caller cleans up the outputs
+            cancel(tasks.values());
+            pool.shutdown();
+            awaitTermination(pool);
+        }
+    }
+
+    private static void cancel(Collection<? extends ForkJoinTask<?>> tasks) {
+        for (ForkJoinTask<?> task : tasks) {
+            task.cancel(false);
+        }
+    }
+
+    private static void awaitTermination(ForkJoinPool pool) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    if (pool.awaitTermination(1, TimeUnit.SECONDS)) {
+                        return;
+                    }
+                    LOG.debug("waiting for running jobflow compilations"); //$NON-NLS-1$
+                } catch (InterruptedException e) {
+                    // the running tasks may still write their outputs
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static int getJobflowParallelism(Context context) {
+        String value = context.getOptions().get(KEY_JOBFLOW_PARALLELISM, null);
+        if (value == null || value.trim().isEmpty()) {
+            return DEFAULT_JOBFLOW_PARALLELISM;
+        }
+        try {
+            return Math.max(Integer.parseInt(value.trim()), 1);
+        } catch (NumberFormatException e) {
+            throw new DiagnosticException(Diagnostic.Level.ERROR, MessageFormat.format(
+                    "invalid compiler option: {0}={1} (must be an integer)",
+                    KEY_JOBFLOW_PARALLELISM,
+                    value), e);
+        }
+    }
+
     private TaskReferenceMap compileJobflow(Context context, BatchElement element) {
         try (FileContainerCleaner cleaner = new FileContainerCleaner(createJobflowOutput(context, element))) {
             FileContainer jobflowOutput = cleaner.getContainer();
@@ -166,6 +309,15 @@ public class BasicBatchCompiler implements BatchCompiler {
         participant.beforeBatch(context, batch);
     }
 
+    private static void abort(Context context, Batch batch, Throwable cause) {
+        CompilerParticipant participant = context.getTools().getParticipant();
+        try {
+            participant.abortBatch(context, batch, cause);
+        } catch (RuntimeException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
     private static void after(Context context, Batch batch, BatchReference reference) {
         CompilerParticipant participant = context.getTools().getParticipant();
         participant.afterBatch(context, batch, reference);
@@ -0,0 +1,465 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.lang.compiler.core.basic;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.asakusafw.lang.compiler.api.basic.TaskContainerMap;
+import com.asakusafw.lang.compiler.api.reference.CommandTaskReference;
+import com.asakusafw.lang.compiler.api.reference.CommandToken;
+import com.asakusafw.lang.compiler.api.reference.TaskReference;
+import com.asakusafw.lang.compiler.common.Diagnostic;
+import com.asakusafw.lang.compiler.common.DiagnosticException;
+import com.asakusafw.lang.compiler.common.Location;
+import com.asakusafw.lang.compiler.core.CompilerParticipant;
+import com.asakusafw.lang.compiler.core.JobflowCompiler;
+import com.asakusafw.lang.compiler.model.graph.Jobflow;
+import com.asakusafw.lang.compiler.model.info.BatchInfo;
+import com.asakusafw.lang.compiler.packaging.FileContainer;
+import com.asakusafw.lang.compiler.packaging.ResourceRepository;
+import com.asakusafw.lang.compiler.packaging.ResourceSink;
+import com.asakusafw.lang.compiler.packaging.ResourceUtil;
+import com.asakusafw.runtime.core.context.RuntimeContext;
+
+/**
+ * A {@link JobflowCompiler} which reuses the previously generated jobflow artifacts.
+ * This is enabled only if {@link #KEY_CACHE_DIRECTORY} is set.
+ *
+ * <p>
+ * The cache entries are keyed by fingerprints of the individual jobflows:
+ * it covers the structure of operator graph, the class files referred from the graph,
+ * the compiler options (except the build ID), and the compiler tools with their libraries.
+ * On cache hits, this restores the jobflow output and its tasks without running the delegate compiler,
+ * and {@link JobflowCompiler.Context#getExternalPorts() the external ports} are left empty.
+ * The {@link CompilerParticipant participants} for jobflows are always invoked,
+ * and the cached artifacts are restored after them without overwriting the files which they have created.
+ * The jobflow outputs are cached except {@link RuntimeContext#PATH_APPLICATION_INFO the application info},
+ * which is always regenerated with the current build ID.
+ * </p>
+ *
+ * <p>
+ * Jobflows which contain tasks other than attribute-free {@link CommandTaskReference}s are never cached.
+ * The cache entries which are not used for {@link #KEY_CACHE_MAX_AGE} days are removed,
+ * and only the recently used {@link #KEY_CACHE_MAX_ENTRIES} entries are kept.
+ * </p>
+ * @since 0.5.5
+ */
+public class CachingJobflowCompiler implements JobflowCompiler {
+
+    static final Logger LOG = LoggerFactory.getLogger(CachingJobflowCompiler.class);
+
+    /**
+     * The compiler option key of the jobflow artifact cache directory.
+     * If this is not set, the artifact cache is disabled.
+     */
+    public static final String KEY_CACHE_DIRECTORY = "jobflow.cache.directory"; //$NON-NLS-1$
+
+    /**
+     * The compiler option key of the max number of jobflow artifact cache entries.
+     */
+    public static final String KEY_CACHE_MAX_ENTRIES = "jobflow.cache.maxEntries"; //$NON-NLS-1$
+
+    /**
+     * The compiler option key of the max days to keep unused jobflow artifact cache entries.
+     */
+    public static final String KEY_CACHE_MAX_AGE = "jobflow.cache.maxAge"; //$NON-NLS-1$
+
+    static final int DEFAULT_CACHE_MAX_ENTRIES = 1000;
+
+    static final int DEFAULT_CACHE_MAX_AGE = 30;
+
+    /**
+     * The recently used entries are never evicted, because other compilers may be restoring them.
+     */
+    static final long EVICTION_GRACE_PERIOD = TimeUnit.MINUTES.toMillis(10);
+
+    static final String PATH_CONTENTS = "contents"; //$NON-NLS-1$
+
+    static final String PATH_TASKS = "tasks.bin"; //$NON-NLS-1$
+
+    static final String SUFFIX_TEMPORARY = ".tmp"; //$NON-NLS-1$
+
+    static final Location LOCATION_APPLICATION_INFO = Location.of(RuntimeContext.PATH_APPLICATION_INFO);
+
+    private static final int TASKS_FORMAT_VERSION = 3;
+
+    private final JobflowCompiler delegate;
+
+    /**
+     * Creates a new instance.
+     * @param delegate the jobflow compiler which actually compiles jobflows on cache misses
+     */
+    public CachingJobflowCompiler(JobflowCompiler delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void compile(Context context, BatchInfo batch, Jobflow jobflow) {
+        File root = getCacheDirectory(context);
+        if (root == null) {
+            delegate.compile(context, batch, jobflow);
+            return;
+        }
+        String key;
+        try {
+            key = JobflowFingerprint.compute(context, delegate, batch, jobflow);
+        } catch (IOException e) {
+            LOG.warn(MessageFormat.format(
+                    "failed to compute jobflow fingerprint: {0}",
+                    jobflow.getFlowId()), e);
+            delegate.compile(context, batch, jobflow);
+            return;
+        }
+        File entry = new File(root, key);
+        Map<TaskReference.Phase, List<TaskReference>> tasks = load(entry);
+        if (tasks != null) {
+            LOG.info(MessageFormat.format(
+                    "reusing cached jobflow artifacts: {0} ({1})",
+                    jobflow.getFlowId(),
+                    key));
+            CompilerParticipant participant = context.getTools().getParticipant();
+            participant.beforeJobflow(context, batch, jobflow);
+            participant.afterJobflow(context, batch, jobflow);
+            restore(context, jobflow, entry, tasks);
+            if (entry.setLastModified(System.currentTimeMillis()) == false) {
+                LOG.debug("failed to update jobflow artifact cache timestamp: {}", entry); //$NON-NLS-1$
+            }
+            return;
+        }
+        delegate.compile(context, batch, jobflow);
+        store(context, jobflow, root, entry);
+        evict(context, root);
+    }
+
+    private static File getCacheDirectory(Context context) {
+        String value = context.getOptions().get(KEY_CACHE_DIRECTORY, null);
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        return new File(value.trim());
+    }
+
+    private static Map<TaskReference.Phase, List<TaskReference>> load(File entry) {
+        File tasksFile = new File(entry, PATH_TASKS);
+        if (tasksFile.isFile() == false) {
+            return null;
+        }
+        try {
+            return readTasks(tasksFile);
+        } catch (IOException e) {
+            LOG.warn(MessageFormat.format(
+                    "ignored broken jobflow artifact cache: {0}",
+                    entry), e);
+            return null;
+        }
+    }
+
+    private static void restore(
+            Context context, Jobflow jobflow, File entry, Map<TaskReference.Phase, List<TaskReference>> tasks) {
+        FileContainer output = context.getOutput();
+        try (ResourceRepository.Cursor cursor = new FileContainer(new File(entry, PATH_CONTENTS)).createCursor()) {
+            while (cursor.next()) {
+                Location location = cursor.getLocation();
+                // keeps the files which the participants have just created
+                if (output.toFile(location).exists()) {
+                    LOG.debug("skip restoring jobflow artifact: {}", location); //$NON-NLS-1$
+                    continue;
+                }
+                try (InputStream input = cursor.openResource()) {
+                    output.addResource(location, input);
+                }
+            }
+        } catch (IOException e) {
+            throw new DiagnosticException(Diagnostic.Level.ERROR, MessageFormat.format(
+                    "error occurred while restoring jobflow artifacts: jobflow={0}, cache={1}",
+                    jobflow.getFlowId(),
+                    entry), e);
+        }
+        TaskContainerMap containers = context.getTaskContainerMap();
+        for (Map.Entry<TaskReference.Phase, List<TaskReference>> phase : tasks.entrySet()) {
+            for (TaskReference task : phase.getValue()) {
+                containers.getTaskContainer(phase.getKey()).add(task);
+            }
+        }
+    }
+
+    private static void store(Context context, Jobflow jobflow, File root, File entry) {
+        if (isCacheable(context.getTaskContainerMap()) == false) {
+            LOG.debug("jobflow artifacts are not cacheable: {}", jobflow.getFlowId()); //$NON-NLS-1$
+            return;
+        }
+        File temporary = new File(root, String.format("%s.%s%s", //$NON-NLS-1$
+                entry.getName(), UUID.randomUUID(), SUFFIX_TEMPORARY));
+        try {
+            if (temporary.mkdirs() == false && temporary.isDirectory() == false) {
+                throw new IOException(MessageFormat.format(
+                        "failed to create a directory: {0}",
+                        temporary));
+            }
+            FileContainer contents = new FileContainer(new File(temporary, PATH_CONTENTS));
+            try (ResourceSink sink = contents.createSink();
+                    ResourceRepository.Cursor cursor = context.getOutput().createCursor()) {
+                while (cursor.next()) {
+                    // the application info will be created again on cache hits
+                    if (cursor.getLocation().equals(LOCATION_APPLICATION_INFO)) {
+                        continue;
+                    }
+                    try (InputStream input = cursor.openResource()) {
+                        sink.add(cursor.getLocation(), input);
+                    }
+                }
+            }
+            writeTasks(new File(temporary, PATH_TASKS), context.getTaskContainerMap());
+            commit(temporary, entry);
+        } catch (IOException e) {
+            LOG.warn(MessageFormat.format(
+                    "failed to store jobflow artifact cache: {0}",
+                    jobflow.getFlowId()), e);
+        } finally {
+            if (temporary.exists()) {
+                ResourceUtil.delete(temporary);
+            }
+        }
+    }
+
+    private static void evict(Context context, File root) {
+        int maxEntries = getIntOption(context, KEY_CACHE_MAX_ENTRIES, DEFAULT_CACHE_MAX_ENTRIES);
+        int maxAge = getIntOption(context, KEY_CACHE_MAX_AGE, DEFAULT_CACHE_MAX_AGE);
+        File[] files = root.listFiles();
+        if (files == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long expired = now - TimeUnit.DAYS.toMillis(maxAge);
+        long grace = now - EVICTION_GRACE_PERIOD;
+        List<File> entries = new ArrayList<>();
+        for (File file : files) {
+            long lastModified = file.lastModified();
+            if (lastModified < expired) {
+                // also removes temporary files which were left by crashed compilers
+                delete(file);
+            } else if (file.getName().endsWith(SUFFIX_TEMPORARY) == false) {
+                entries.add(file);
+            }
+        }
+        if (entries.size() <= maxEntries) {
+            return;
+        }
+        entries.sort((a, b) -> Long.compare(b.lastModified(), a.lastModified()));
+        for (File file : entries.subList(maxEntries, entries.size())) {
+            if (file.lastModified() < grace) {
+                delete(file);
+            }
+        }
+    }
+
+    private static void delete(File file) {
+        LOG.debug("removing jobflow artifact cache: {}", file); //$NON-NLS-1$
+        if (ResourceUtil.delete(file) == false) {
+            LOG.warn(MessageFormat.format(
+                    "failed to remove jobflow artifact cache: {0}",
+                    file));
+        }
+    }
+
+    private static int getIntOption(Context context, String key, int defaultValue) {
+        String value = context.getOptions().get(key, null);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Math.max(Integer.parseInt(value.trim()), 0);
+        } catch (NumberFormatException e) {
+            throw new DiagnosticException(Diagnostic.Level.ERROR, MessageFormat.format(
+                    "invalid compiler option: {0}={1} (must be an integer)",
+                    key,
+                    value), e);
+        }
+    }
+
+    private static void commit(File temporary, File entry) throws IOException {
+        try {
+            Files.move(temporary.toPath(), entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            LOG.debug("jobflow artifact cache already exists: {}", entry); //$NON-NLS-1$
+        } catch (AtomicMoveNotSupportedException e) {
+            if (entry.exists() == false) {
+                Files.move(temporary.toPath(), entry.toPath());
+            }
+        } catch (IOException e) {
+            // some platforms raise a generic error if the target directory is not empty
+            if (entry.exists() == false) {
+                throw e;
+            }
+            LOG.debug("jobflow artifact cache already exists: {}", entry); //$NON-NLS-1$
+        }
+    }
+
+    private static boolean isCacheable(TaskContainerMap tasks) {
+        for (TaskReference.Phase phase : TaskReference.Phase.values()) {
+            for (TaskReference task : tasks.getTasks(phase)) {
+                if ((task instanceof CommandTaskReference) == false) {
+                    return false;
+                }
+                if (((CommandTaskReference) task).getAttributeTypes().isEmpty() == false) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void writeTasks(File file, TaskContainerMap tasks) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            output.writeInt(TASKS_FORMAT_VERSION);
+            for (TaskReference.Phase phase : TaskReference.Phase.values()) {
+                List<? extends TaskReference> elements = new ArrayList<>(tasks.getTasks(phase));
+                Map<TaskReference, Integer> indices = new HashMap<>();
+                output.writeInt(elements.size());
+                for (TaskReference element : elements) {
+                    CommandTaskReference task = (CommandTaskReference) element;
+                    writeString(output, task.getModuleName());
+                    writeString(output, task.getProfileName());
+                    writeString(output, task.getCommand() == null ? null : task.getCommand().toPath());
+                    output.writeInt(task.getArguments().size());
+                    for (CommandToken token : task.getArguments()) {
+                        output.writeByte(token.getTokenKind().ordinal());
+                        writeString(output, token.getImage());
+                    }
+                    output.writeInt(task.getExtensions().size());
+                    for (String extension : task.getExtensions()) {
+                        writeString(output, extension);
+                    }
+                    output.writeInt(task.getBlockers().size());
+                    for (TaskReference blocker : task.getBlockers()) {
+                        Integer index = indices.get(blocker);
+                        if (index == null) {
+                            throw new IOException(MessageFormat.format(
+                                    "blocker task is not found in {0} phase: {1}",
+                                    phase,
+                                    blocker));
+                        }
+                        output.writeInt(index);
+                    }
+                    indices.put(task, indices.size());
+                }
+            }
+        }
+    }
+
+    private static Map<TaskReference.Phase, List<TaskReference>> readTasks(File file) throws IOException {
+        Map<TaskReference.Phase, List<TaskReference>> results = new EnumMap<>(TaskReference.Phase.class);
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int version = input.readInt();
+            if (version != TASKS_FORMAT_VERSION) {
+                throw new IOException(MessageFormat.format(
+                        "unsupported task list format: {0}",
+                        version));
+            }
+            CommandToken.TokenKind[] tokenKinds = CommandToken.TokenKind.values();
+            for (TaskReference.Phase phase : TaskReference.Phase.values()) {
+                int count = input.readInt();
+                List<TaskReference> elements = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    String moduleName = readString(input);
+                    String profileName = readString(input);
+                    String command = readString(input);
+                    List<CommandToken> arguments = new ArrayList<>();
+                    for (int j = 0, n = input.readInt(); j < n; j++) {
+                        CommandToken.TokenKind kind = tokenKinds[input.readByte()];
+                        String image = readString(input);
+                        arguments.add(toToken(kind, image));
+                    }
+                    List<String> extensions = new ArrayList<>();
+                    for (int j = 0, n = input.readInt(); j < n; j++) {
+                        extensions.add(readString(input));
+                    }
+                    List<TaskReference> blockers = new ArrayList<>();
+                    for (int j = 0, n = input.readInt(); j < n; j++) {
+                        blockers.add(elements.get(input.readInt()));
+                    }
+                    elements.add(new CommandTaskReference(
+                            moduleName,
+                            profileName,
+                            command == null ? null : Location.of(command),
+                            arguments,
+                            extensions,
+                            blockers));
+                }
+                results.put(phase, elements);
+            }
+        } catch (RuntimeException e) {
+            throw new IOException(MessageFormat.format(
+                    "invalid task list: {0}",
+                    file), e);
+        }
+        return results;
+    }
+
+    private static CommandToken toToken(CommandToken.TokenKind kind, String image) {
+        switch (kind) {
+        case TEXT:
+            return CommandToken.of(image);
+        case BATCH_ID:
+            return CommandToken.BATCH_ID;
+        case FLOW_ID:
+            return CommandToken.FLOW_ID;
+        case EXECUTION_ID:
+            return CommandToken.EXECUTION_ID;
+        case BATCH_ARGUMENTS:
+            return CommandToken.BATCH_ARGUMENTS;
+        default:
+            throw new AssertionError(kind);
+        }
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        if (input.readBoolean()) {
+            return input.readUTF();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,463 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.lang.compiler.core.basic;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Collects classes referred from class files.
+ * This analyzes the constant pool, the descriptors and generic signatures of the class and its members,
+ * and the annotations on them.
+ * Note that, the local variables and the annotations inside method bodies are not analyzed.
+ * @since 0.5.5
+ */
+final class ClassReferences {
+
+    private static final int MAGIC = 0xcafebabe;
+
+    private static final int CONSTANT_UTF8 = 1;
+
+    private static final int CONSTANT_INTEGER = 3;
+
+    private static final int CONSTANT_FLOAT = 4;
+
+    private static final int CONSTANT_LONG = 5;
+
+    private static final int CONSTANT_DOUBLE = 6;
+
+    private static final int CONSTANT_CLASS = 7;
+
+    private static final int CONSTANT_STRING = 8;
+
+    private static final int CONSTANT_FIELD_REF = 9;
+
+    private static final int CONSTANT_METHOD_REF = 10;
+
+    private static final int CONSTANT_INTERFACE_METHOD_REF = 11;
+
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+
+    private static final int CONSTANT_METHOD_TYPE = 16;
+
+    private static final int CONSTANT_DYNAMIC = 17;
+
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+
+    private static final int CONSTANT_MODULE = 19;
+
+    private static final int CONSTANT_PACKAGE = 20;
+
+    private static final String ATTRIBUTE_SIGNATURE = "Signature"; //$NON-NLS-1$
+
+    private static final String ATTRIBUTE_ANNOTATION_DEFAULT = "AnnotationDefault"; //$NON-NLS-1$
+
+    private static final Set<String> ATTRIBUTES_ANNOTATIONS = new HashSet<>(Arrays.asList(
+            "RuntimeVisibleAnnotations", //$NON-NLS-1$
+            "RuntimeInvisibleAnnotations")); //$NON-NLS-1$
+
+    private static final Set<String> ATTRIBUTES_PARAMETER_ANNOTATIONS = new HashSet<>(Arrays.asList(
+            "RuntimeVisibleParameterAnnotations", //$NON-NLS-1$
+            "RuntimeInvisibleParameterAnnotations")); //$NON-NLS-1$
+
+    private static final Set<String> ATTRIBUTES_TYPE_ANNOTATIONS = new HashSet<>(Arrays.asList(
+            "RuntimeVisibleTypeAnnotations", //$NON-NLS-1$
+            "RuntimeInvisibleTypeAnnotations")); //$NON-NLS-1$
+
+    private ClassReferences() {
+        return;
+    }
+
+    /**
+     * Returns the internal names of classes referred from the given class file.
+     * The result does not contain the class itself.
+     * @param contents the class file contents
+     * @return the internal names of the referred classes
+     * @throws IOException if the contents is not a valid class file
+     */
+    static Set<String> collect(byte[] contents) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(contents));
+        if (input.readInt() != MAGIC) {
+            throw new IOException("invalid class file magic"); //$NON-NLS-1$
+        }
+        input.readUnsignedShort(); // minor version
+        input.readUnsignedShort(); // major version
+        int count = input.readUnsignedShort();
+        String[] strings = new String[count];
+        int[] classes = new int[count];
+        List<Integer> descriptors = new ArrayList<>();
+        for (int i = 1; i < count; i++) {
+            int tag = input.readUnsignedByte();
+            switch (tag) {
+            case CONSTANT_UTF8:
+                strings[i] = input.readUTF();
+                break;
+            case CONSTANT_CLASS:
+                classes[i] = input.readUnsignedShort();
+                break;
+            case CONSTANT_NAME_AND_TYPE:
+                input.readUnsignedShort();
+                descriptors.add(input.readUnsignedShort());
+                break;
+            case CONSTANT_METHOD_TYPE:
+                descriptors.add(input.readUnsignedShort());
+                break;
+            case CONSTANT_STRING:
+            case CONSTANT_MODULE:
+            case CONSTANT_PACKAGE:
+                skip(input, 2);
+                break;
+            case CONSTANT_METHOD_HANDLE:
+                skip(input, 3);
+                break;
+            case CONSTANT_INTEGER:
+            case CONSTANT_FLOAT:
+            case CONSTANT_FIELD_REF:
+            case CONSTANT_METHOD_REF:
+            case CONSTANT_INTERFACE_METHOD_REF:
+            case CONSTANT_DYNAMIC:
+            case CONSTANT_INVOKE_DYNAMIC:
+                skip(input, 4);
+                break;
+            case CONSTANT_LONG:
+            case CONSTANT_DOUBLE:
+                skip(input, 8);
+                i++; // occupies two entries
+                break;
+            default:
+                throw new IOException(MessageFormat.format(
+                        "unknown constant pool tag: {0}",
+                        tag));
+            }
+        }
+        input.readUnsignedShort(); // access flags
+        int self = input.readUnsignedShort();
+        input.readUnsignedShort(); // super class, which is also in the constant pool
+        skip(input, input.readUnsignedShort() * 2); // interfaces, which are also in the constant pool
+        for (int kind = 0; kind < 2; kind++) { // fields, and then methods
+            for (int i = 0, n = input.readUnsignedShort(); i < n; i++) {
+                input.readUnsignedShort(); // access flags
+                input.readUnsignedShort(); // name
+                descriptors.add(input.readUnsignedShort());
+                collectAttributes(input, strings, descriptors);
+            }
+        }
+        collectAttributes(input, strings, descriptors);
+        Set<String> results = new TreeSet<>();
+        for (int index : classes) {
+            if (index == 0) {
+                continue;
+            }
+            String name = get(strings, index);
+            if (name.startsWith("[")) { //$NON-NLS-1$
+                collectSignature(name, results);
+            } else {
+                results.add(name);
+            }
+        }
+        for (int index : descriptors) {
+            collectSignature(get(strings, index), results);
+        }
+        if (self <= 0 || self >= count) {
+            throw new IOException(MessageFormat.format(
+                    "invalid this class index: {0}",
+                    self));
+        }
+        results.remove(get(strings, classes[self]));
+        return results;
+    }
+
+    private static String get(String[] strings, int index) throws IOException {
+        if (index <= 0 || index >= strings.length || strings[index] == null) {
+            throw new IOException(MessageFormat.format(
+                    "invalid constant pool index: {0}",
+                    index));
+        }
+        return strings[index];
+    }
+
+    private static void collectAttributes(
+            DataInputStream input, String[] strings, List<Integer> descriptors) throws IOException {
+        for (int i = 0, n = input.readUnsignedShort(); i < n; i++) {
+            String name = get(strings, input.readUnsignedShort());
+            byte[] contents = new byte[input.readInt()];
+            input.readFully(contents);
+            DataInputStream attribute = new DataInputStream(new ByteArrayInputStream(contents));
+            if (name.equals(ATTRIBUTE_SIGNATURE)) {
+                descriptors.add(attribute.readUnsignedShort());
+            } else if (name.equals(ATTRIBUTE_ANNOTATION_DEFAULT)) {
+                collectElementValue(attribute, descriptors);
+            } else if (ATTRIBUTES_ANNOTATIONS.contains(name)) {
+                collectAnnotations(attribute, descriptors);
+            } else if (ATTRIBUTES_PARAMETER_ANNOTATIONS.contains(name)) {
+                for (int j = 0, m = attribute.readUnsignedByte(); j < m; j++) {
+                    collectAnnotations(attribute, descriptors);
+                }
+            } else if (ATTRIBUTES_TYPE_ANNOTATIONS.contains(name)) {
+                for (int j = 0, m = attribute.readUnsignedShort(); j < m; j++) {
+                    skipTypeAnnotationTarget(attribute);
+                    collectAnnotation(attribute, descriptors);
+                }
+            }
+        }
+    }
+
+    private static void collectAnnotations(DataInputStream input, List<Integer> descriptors) throws IOException {
+        for (int i = 0, n = input.readUnsignedShort(); i < n; i++) {
+            collectAnnotation(input, descriptors);
+        }
+    }
+
+    private static void collectAnnotation(DataInputStream input, List<Integer> descriptors) throws IOException {
+        descriptors.add(input.readUnsignedShort());
+        for (int i = 0, n = input.readUnsignedShort(); i < n; i++) {
+            input.readUnsignedShort(); // element name
+            collectElementValue(input, descriptors);
+        }
+    }
+
+    private static void collectElementValue(DataInputStream input, List<Integer> descriptors) throws IOException {
+        int tag = input.readUnsignedByte();
+        switch (tag) {
+        case 'B':
+        case 'C':
+        case 'D':
+        case 'F':
+        case 'I':
+        case 'J':
+        case 'S':
+        case 'Z':
+        case 's':
+            input.readUnsignedShort(); // constant value
+            break;
+        case 'e':
+            descriptors.add(input.readUnsignedShort());
+            input.readUnsignedShort(); // constant name
+            break;
+        case 'c':
+            descriptors.add(input.readUnsignedShort());
+            break;
+        case '@':
+            collectAnnotation(input, descriptors);
+            break;
+        case '[':
+            for (int i = 0, n = input.readUnsignedShort(); i < n; i++) {
+                collectElementValue(input, descriptors);
+            }
+            break;
+        default:
+            throw new IOException(MessageFormat.format(
+                    "unknown element value tag: {0}",
+                    tag));
+        }
+    }
+
+    private static void skipTypeAnnotationTarget(DataInputStream input) throws IOException {
+        int targetType = input.readUnsignedByte();
+        switch (targetType) {
+        case 0x00: // type parameter
+        case 0x01:
+        case 0x16: // formal parameter
+            skip(input, 1);
+            break;
+        case 0x10: // super type
+        case 0x17: // throws
+        case 0x42: // catch
+        case 0x43: // offset
+        case 0x44:
+        case 0x45:
+        case 0x46:
+            skip(input, 2);
+            break;
+        case 0x11: // type parameter bound
+        case 0x12:
+            skip(input, 2);
+            break;
+        case 0x13: // empty
+        case 0x14:
+        case 0x15:
+            break;
+        case 0x40: // local variable
+        case 0x41:
+            skip(input, input.readUnsignedShort() * 6);
+            break;
+        case 0x47: // type argument
+        case 0x48:
+        case 0x49:
+        case 0x4a:
+        case 0x4b:
+            skip(input, 3);
+            break;
+        default:
+            throw new IOException(MessageFormat.format(
+                    "unknown type annotation target: {0}",
+                    targetType));
+        }
+        skip(input, input.readUnsignedByte() * 2); // type path
+    }
+
+    private static void collectSignature(String signature, Set<String> results) throws IOException {
+        try {
+            new SignatureScanner(signature, results).scan();
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(MessageFormat.format(
+                    "invalid signature: {0}",
+                    signature), e);
+        }
+    }
+
+    private static void skip(DataInputStream input, int bytes) throws IOException {
+        int rest = bytes;
+        while (rest > 0) {
+            int skipped = input.skipBytes(rest);
+            if (skipped <= 0) {
+                throw new IOException("unexpected end of class file"); //$NON-NLS-1$
+            }
+            rest -= skipped;
+        }
+    }
+
+    /**
+     * Scans class names in field descriptors, method descriptors, and generic signatures.
+     */
+    private static final class SignatureScanner {
+
+        private final String signature;
+
+        private final Set<String> results;
+
+        private int position;
+
+        SignatureScanner(String signature, Set<String> results) {
+            this.signature = signature;
+            this.results = results;
+        }
+
+        void scan() {
+            if (signature.isEmpty() == false && peek() == '<') {
+                scanFormalTypeParameters();
+            }
+            while (position < signature.length()) {
+                char c = peek();
+                if (c == 'L') {
+                    scanClassType();
+                } else if (c == 'T') {
+                    scanTypeVariable();
+                } else {
+                    // primitive types, array dimensions, or method delimiters
+                    position++;
+                }
+            }
+        }
+
+        private void scanFormalTypeParameters() {
+            position++; // '<'
+            while (peek() != '>') {
+                position = signature.indexOf(':', position);
+                if (position < 0) {
+                    throw new IndexOutOfBoundsException();
+                }
+                while (peek() == ':') {
+                    position++;
+                    char c = peek();
+                    if (c != ':' && c != '>') {
+                        scanReferenceType();
+                    }
+                }
+            }
+            position++; // '>'
+        }
+
+        private void scanReferenceType() {
+            char c = peek();
+            if (c == 'L') {
+                scanClassType();
+            } else if (c == 'T') {
+                scanTypeVariable();
+            } else if (c == '[') {
+                position++;
+                char component = peek();
+                if (component == 'L' || component == 'T' || component == '[') {
+                    scanReferenceType();
+                } else {
+                    position++;
+                }
+            } else {
+                throw new IndexOutOfBoundsException();
+            }
+        }
+
+        private void scanClassType() {
+            position++; // 'L'
+            StringBuilder buf = new StringBuilder();
+            while (true) {
+                char c = peek();
+                if (c == ';') {
+                    position++;
+                    break;
+                } else if (c == '<') {
+                    scanTypeArguments();
+                } else if (c == '.') {
+                    // inner class of parameterized type
+                    buf.append('$');
+                    position++;
+                } else {
+                    buf.append(c);
+                    position++;
+                }
+            }
+            results.add(buf.toString());
+        }
+
+        private void scanTypeArguments() {
+            position++; // '<'
+            while (peek() != '>') {
+                char c = peek();
+                if (c == '*') {
+                    position++;
+                } else {
+                    if (c == '+' || c == '-') {
+                        position++;
+                    }
+                    scanReferenceType();
+                }
+            }
+            position++; // '>'
+        }
+
+        private void scanTypeVariable() {
+            int end = signature.indexOf(';', position);
+            if (end < 0) {
+                throw new IndexOutOfBoundsException();
+            }
+            position = end + 1;
+        }
+
+        private char peek() {
+            return signature.charAt(position);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.lang.compiler.core.basic;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.asakusafw.lang.compiler.packaging.ResourceUtil;
+
+/**
+ * Computes content digests of the code sources of classes.
+ * The digests of library archives are cached while their size and timestamp are not changed.
+ * @since 0.5.5
+ */
+final class CodeSourceDigests {
+
+    private static final String ALGORITHM = "SHA-256"; //$NON-NLS-1$
+
+    private static final ConcurrentMap<String, String> ARCHIVE_DIGESTS = new ConcurrentHashMap<>();
+
+    private CodeSourceDigests() {
+        return;
+    }
+
+    /**
+     * Returns the digest of the code source of the given class.
+     * If the class is loaded from an archive file, this returns the digest of the whole archive.
+     * Otherwise, this returns the digest of the class file itself.
+     * @param aClass the target class
+     * @return the digest as a hexadecimal string, or {@code null} if it is not available
+     * @throws IOException if error occurred while reading the code source
+     */
+    static String get(Class<?> aClass) throws IOException {
+        File archive = ResourceUtil.findLibraryByClass(aClass);
+        if (archive != null && archive.isFile()) {
+            String key = String.format("%s:%d:%d", //$NON-NLS-1$
+                    archive.getAbsolutePath(), archive.length(), archive.lastModified());
+            String cached = ARCHIVE_DIGESTS.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            String digest;
+            try (InputStream input = new FileInputStream(archive)) {
+                digest = digest(input);
+            }
+            ARCHIVE_DIGESTS.putIfAbsent(key, digest);
+            return digest;
+        }
+        ClassLoader loader = aClass.getClassLoader();
+        if (loader == null) {
+            // bootstrap classes
+            return null;
+        }
+        String path = aClass.getName().replace('.', '/') + ".class"; //$NON-NLS-1$
+        try (InputStream input = loader.getResourceAsStream(path)) {
+            if (input == null) {
+                return null;
+            }
+            return digest(input);
+        }
+    }
+
+    private static String digest(InputStream input) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buf = new byte[8192];
+        while (true) {
+            int read = input.read(buf);
+            if (read < 0) {
+                break;
+            }
+            digest.update(buf, 0, read);
+        }
+        StringBuilder results = new StringBuilder();
+        for (byte b : digest.digest()) {
+            results.append(Character.forDigit((b >> 4) & 0x0f, 16));
+            results.append(Character.forDigit(b & 0x0f, 16));
+        }
+        return results.toString();
+    }
+}
@@ -0,0 +1,330 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.lang.compiler.core.basic;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.asakusafw.lang.compiler.core.CompilerContext;
+import com.asakusafw.lang.compiler.core.JobflowCompiler;
+import com.asakusafw.lang.compiler.core.ToolRepository;
+import com.asakusafw.lang.compiler.core.util.CompositeElement;
+import com.asakusafw.lang.compiler.model.description.AnnotationDescription;
+import com.asakusafw.lang.compiler.model.description.ClassDescription;
+import com.asakusafw.lang.compiler.model.description.ReifiableTypeDescription;
+import com.asakusafw.lang.compiler.model.description.TypeDescription;
+import com.asakusafw.lang.compiler.model.graph.ExternalPort;
+import com.asakusafw.lang.compiler.model.graph.FlowOperator;
+import com.asakusafw.lang.compiler.model.graph.Jobflow;
+import com.asakusafw.lang.compiler.model.graph.Operator;
+import com.asakusafw.lang.compiler.model.graph.OperatorArgument;
+import com.asakusafw.lang.compiler.model.graph.OperatorGraph;
+import com.asakusafw.lang.compiler.model.graph.OperatorInput;
+import com.asakusafw.lang.compiler.model.graph.OperatorOutput;
+import com.asakusafw.lang.compiler.model.graph.UserOperator;
+import com.asakusafw.lang.compiler.model.info.BatchInfo;
+import com.asakusafw.lang.compiler.model.info.ExternalPortInfo;
+
+/**
+ * Computes content fingerprints of jobflows.
+ * The fingerprint covers the structure of operator graph, the bytes of classes referred from it,
+ * the compiler options except the build ID, and the compiler tools with their code sources.
+ * The referred classes also include project classes which are transitively referred from them,
+ * so that changing a helper class of operators also changes the fingerprint.
+ * @since 0.5.5
+ */
+final class JobflowFingerprint {
+
+    private static final String ALGORITHM = "SHA-256"; //$NON-NLS-1$
+
+    private static final String FORMAT_VERSION = "jobflow-fingerprint-3"; //$NON-NLS-1$
+
+    private final CompilerContext context;
+
+    private final Set<ClassDescription> classes = new TreeSet<>((a, b) -> a.getBinaryName().compareTo(b.getBinaryName()));
+
+    private final Map<Operator, String> operatorDigests = new HashMap<>();
+
+    private JobflowFingerprint(CompilerContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Computes the fingerprint of the target jobflow.
+     * @param context the current context
+     * @param compiler the jobflow compiler which actually compiles the target jobflow
+     * @param batch the owner batch
+     * @param jobflow the target jobflow
+     * @return the fingerprint as a hexadecimal string
+     * @throws IOException if error occurred while reading class files
+     */
+    static String compute(
+            CompilerContext context, JobflowCompiler compiler,
+            BatchInfo batch, Jobflow jobflow) throws IOException {
+        return new JobflowFingerprint(context).digest(compiler, batch, jobflow);
+    }
+
+    private String digest(JobflowCompiler compiler, BatchInfo batch, Jobflow jobflow) throws IOException {
+        MessageDigest digest = newDigest();
+        update(digest, FORMAT_VERSION);
+        update(digest, batch.getBatchId());
+        update(digest, batch.getDescriptionClass().getBinaryName());
+        update(digest, jobflow.getFlowId());
+        classes.add(jobflow.getDescriptionClass());
+        update(digest, digestGraph(jobflow.getOperatorGraph()));
+        for (Map.Entry<String, String> entry : new TreeMap<>(context.getOptions().getRawProperties()).entrySet()) {
+            update(digest, entry.getKey());
+            update(digest, entry.getValue());
+        }
+        update(digest, context.getOptions().getRuntimeWorkingDirectory());
+        ToolRepository tools = context.getTools();
+        // the compiler core itself
+        updateTool(digest, this);
+        updateTool(digest, compiler);
+        updateTool(digest, tools.getDataModelProcessor());
+        updateTool(digest, tools.getJobflowProcessor());
+        updateTool(digest, tools.getExternalPortProcessor());
+        updateTool(digest, tools.getParticipant());
+        for (Map.Entry<String, byte[]> entry : collectClassFiles().entrySet()) {
+            update(digest, entry.getKey());
+            byte[] contents = entry.getValue();
+            if (contents == null) {
+                update(digest, "-"); //$NON-NLS-1$
+            } else {
+                update(digest, "+"); //$NON-NLS-1$
+                digest.update(contents);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private String digestGraph(OperatorGraph graph) {
+        List<String> digests = new ArrayList<>();
+        for (Operator operator : graph.getOperators(false)) {
+            digests.add(digestOperator(operator));
+        }
+        Collections.sort(digests);
+        MessageDigest digest = newDigest();
+        for (String element : digests) {
+            update(digest, element);
+        }
+        return toHex(digest.digest());
+    }
+
+    private String digestOperator(Operator operator) {
+        String cached = operatorDigests.get(operator);
+        if (cached != null) {
+            return cached;
+        }
+        MessageDigest digest = newDigest();
+        update(digest, operator.getOperatorKind().name());
+        update(digest, operator.toString());
+        switch (operator.getOperatorKind()) {
+        case USER: {
+            UserOperator op = (UserOperator) operator;
+            AnnotationDescription annotation = op.getAnnotation();
+            update(digest, annotation.toString());
+            update(digest, op.getMethod().toString());
+            classes.add(annotation.getDeclaringClass());
+            classes.add(op.getMethod().getDeclaringClass());
+            classes.add(op.getImplementationClass());
+            update(digest, op.getImplementationClass().getBinaryName());
+            break;
+        }
+        case FLOW: {
+            FlowOperator op = (FlowOperator) operator;
+            classes.add(op.getDescriptionClass());
+            update(digest, digestGraph(op.getOperatorGraph()));
+            break;
+        }
+        case INPUT:
+        case OUTPUT: {
+            ExternalPortInfo info = ((ExternalPort) operator).getInfo();
+            if (info != null) {
+                update(digest, info.getModuleName());
+                update(digest, String.valueOf(new TreeSet<>(info.getParameterNames())));
+                update(digest, String.valueOf(info.getContents()));
+                classes.add(info.getDescriptionClass());
+                classes.add(info.getDataModelClass());
+            }
+            break;
+        }
+        default:
+            break;
+        }
+        for (OperatorArgument argument : operator.getArguments()) {
+            update(digest, argument.toString());
+        }
+        List<Class<?>> attributeTypes = new ArrayList<>(operator.getAttributeTypes());
+        attributeTypes.sort((a, b) -> a.getName().compareTo(b.getName()));
+        for (Class<?> type : attributeTypes) {
+            update(digest, type.getName());
+            update(digest, String.valueOf(operator.getAttribute(type)));
+        }
+        for (String constraint : toSortedStrings(operator.getConstraints())) {
+            update(digest, constraint);
+        }
+        for (OperatorInput input : operator.getInputs()) {
+            update(digest, input.getName());
+            update(digest, input.getInputUnit().name());
+            update(digest, String.valueOf(input.getGroup()));
+            updateType(digest, input.getDataType());
+            List<String> upstreams = new ArrayList<>();
+            for (OperatorOutput upstream : input.getOpposites()) {
+                upstreams.add(digestOperator(upstream.getOwner()) + ':' + upstream.getName());
+            }
+            Collections.sort(upstreams);
+            for (String upstream : upstreams) {
+                update(digest, upstream);
+            }
+        }
+        for (OperatorOutput output : operator.getOutputs()) {
+            update(digest, output.getName());
+            updateType(digest, output.getDataType());
+        }
+        String result = toHex(digest.digest());
+        operatorDigests.put(operator, result);
+        return result;
+    }
+
+    private void updateType(MessageDigest digest, TypeDescription type) {
+        update(digest, String.valueOf(type));
+        ReifiableTypeDescription erasure = type.getErasure();
+        if (erasure instanceof ClassDescription) {
+            classes.add((ClassDescription) erasure);
+        }
+    }
+
+    private static void updateTool(MessageDigest digest, Object tool) throws IOException {
+        Class<?> aClass = tool.getClass();
+        update(digest, aClass.getName());
+        Package pkg = aClass.getPackage();
+        update(digest, pkg == null ? null : pkg.getImplementationVersion());
+        update(digest, CodeSourceDigests.get(aClass));
+        if (tool instanceof CompositeElement<?>) {
+            for (Object element : ((CompositeElement<?>) tool).getElements()) {
+                updateTool(digest, element);
+            }
+        }
+    }
+
+    private Map<String, byte[]> collectClassFiles() throws IOException {
+        ClassLoader loader = context.getProject().getClassLoader();
+        ClassLoader parent = loader.getParent();
+        Map<String, byte[]> results = new TreeMap<>();
+        Deque<String> work = new ArrayDeque<>();
+        for (ClassDescription aClass : classes) {
+            work.add(aClass.getInternalName());
+        }
+        while (work.isEmpty() == false) {
+            String name = work.removeFirst();
+            if (results.containsKey(name)) {
+                continue;
+            }
+            String path = name + ".class"; //$NON-NLS-1$
+            byte[] contents = readClassFile(loader, path);
+            results.put(name, contents);
+            // classes from the compiler class path (e.g. JDK and framework) are not changed by projects
+            if (contents == null || (parent != null && parent.getResource(path) != null)) {
+                continue;
+            }
+            for (String reference : ClassReferences.collect(contents)) {
+                if (results.containsKey(reference) == false) {
+                    work.add(reference);
+                }
+            }
+        }
+        return results;
+    }
+
+    private static byte[] readClassFile(ClassLoader loader, String path) throws IOException {
+        try (InputStream input = loader.getResourceAsStream(path)) {
+            if (input == null) {
+                return null;
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buf = new byte[4096];
+            while (true) {
+                int read = input.read(buf);
+                if (read < 0) {
+                    break;
+                }
+                output.write(buf, 0, read);
+            }
+            return output.toByteArray();
+        }
+    }
+
+    private static List<String> toSortedStrings(Set<?> values) {
+        List<String> results = new ArrayList<>();
+        for (Object value : values) {
+            results.add(String.valueOf(value));
+        }
+        Collections.sort(results);
+        return results;
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value == null) {
+            digest.update((byte) 0);
+        } else {
+            digest.update((byte) 1);
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            digest.update(toBytes(bytes.length));
+            digest.update(bytes);
+        }
+    }
+
+    private static byte[] toBytes(int value) {
+        return new byte[] {
+                (byte) (value >>> 24),
+                (byte) (value >>> 16),
+                (byte) (value >>> 8),
+                (byte) value,
+        };
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder buf = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            buf.append(Character.forDigit((b >> 4) & 0x0f, 16));
+            buf.append(Character.forDigit(b & 0x0f, 16));
+        }
+        return buf.toString();
+    }
+}
@@ -19,19 +19,27 @@ import java.io.File;
 import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.asakusafw.lang.compiler.api.reference.BatchReference;
 import com.asakusafw.lang.compiler.common.Diagnostic;
 import com.asakusafw.lang.compiler.common.DiagnosticException;
+import com.asakusafw.lang.compiler.core.BatchCompiler;
 import com.asakusafw.lang.compiler.core.JobflowCompiler.Context;
 import com.asakusafw.lang.compiler.core.basic.AbstractCompilerParticipant;
 import com.asakusafw.lang.compiler.javac.BasicJavaCompilerSupport;
 import com.asakusafw.lang.compiler.javac.JavaCompilerUtil;
+import com.asakusafw.lang.compiler.javac.JavaFileManagerPool;
 import com.asakusafw.lang.compiler.javac.JavaSourceExtension;
+import com.asakusafw.lang.compiler.model.graph.Batch;
 import com.asakusafw.lang.compiler.model.graph.Jobflow;
 import com.asakusafw.lang.compiler.model.info.BatchInfo;
 import com.asakusafw.lang.compiler.model.info.JobflowInfo;
@@ -55,8 +63,12 @@ import com.asakusafw.lang.compiler.packaging.ResourceUtil;
  *   </ul>
  * </li>
  * </ul>
+ * <p>
+ * Within a batch, this shares the compiler class path and {@link JavaFileManagerPool Java file managers}
+ * between jobflows, so that each jobflow compilation need not re-read the whole class path libraries.
+ * </p>
  * @since 0.1.0
- * @version 0.5.4
+ * @version 0.5.5
  */
 public class JavaSourceExtensionParticipant extends AbstractCompilerParticipant {
 
@@ -100,6 +112,32 @@ public class JavaSourceExtensionParticipant extends AbstractCompilerParticipant
      */
     public static final boolean DEFAULT_INCLUDE_EXTENSION_LIBRARIES = false;
 
+    private final AtomicReference<BatchSession> session = new AtomicReference<>();
+
+    @Override
+    public void beforeBatch(BatchCompiler.Context context, Batch batch) {
+        BatchSession last = session.getAndSet(new BatchSession());
+        if (last != null) {
+            last.close();
+        }
+    }
+
+    @Override
+    public void afterBatch(BatchCompiler.Context context, Batch batch, BatchReference reference) {
+        BatchSession last = session.getAndSet(null);
+        if (last != null) {
+            last.close();
+        }
+    }
+
+    @Override
+    public void abortBatch(BatchCompiler.Context context, Batch batch, Throwable cause) {
+        BatchSession last = session.getAndSet(null);
+        if (last != null) {
+            last.close();
+        }
+    }
+
     @Override
     public void beforeJobflow(Context context, BatchInfo batch, Jobflow jobflow) {
         LOG.debug("enabling {}", JavaSourceExtension.class.getName()); //$NON-NLS-1$
@@ -107,14 +145,22 @@ public class JavaSourceExtensionParticipant extends AbstractCompilerParticipant
                 .get(KEY_INCLUDE_EXTENSION_LIBRARIES, DEFAULT_INCLUDE_EXTENSION_LIBRARIES);
         boolean manifestClasspath = context.getOptions()
                 .get(KEY_INCLUDE_MANIFEST_CLASSPATH, DEFAULT_INCLUDE_MANIFEST_CLASSPATH);
-        List<File> classPath = JavaCompilerUtil.getLibraries(
-                context.getProject().getClassLoader(),
-                extensionClasspath, manifestClasspath);
+        ClassLoader classLoader = context.getProject().getClassLoader();
+        BatchSession current = session.get();
+        List<File> classPath;
+        if (current == null) {
+            classPath = JavaCompilerUtil.getLibraries(classLoader, extensionClasspath, manifestClasspath);
+        } else {
+            classPath = current.getLibraries(classLoader, extensionClasspath, manifestClasspath);
+        }
         File sourcePath = createTemporaryOutput(context, jobflow);
         BasicJavaCompilerSupport extension = new BasicJavaCompilerSupport(
                 sourcePath,
                 classPath,
                 context.getOutput().getBasePath());
+        if (current != null) {
+            extension.withFileManagerPool(current.fileManagers);
+        }
         configure(context, extension);
         context.registerExtension(JavaSourceExtension.class, extension);
     }
@@ -163,4 +209,30 @@ public class JavaSourceExtensionParticipant extends AbstractCompilerParticipant
                     context.getTemporaryOutputs().getRoot()));
         }
     }
+
+    private static final class BatchSession {
+
+        final JavaFileManagerPool fileManagers = new JavaFileManagerPool();
+
+        private final Map<List<Object>, List<File>> libraries = new ConcurrentHashMap<>();
+
+        BatchSession() {
+            return;
+        }
+
+        List<File> getLibraries(ClassLoader classLoader, boolean extension, boolean manifest) {
+            return libraries.computeIfAbsent(
+                    Arrays.asList(classLoader, extension, manifest),
+                    k -> JavaCompilerUtil.getLibraries(classLoader, extension, manifest));
+        }
+
+        void close() {
+            libraries.clear();
+            try {
+                fileManagers.close();
+            } catch (IOException e) {
+                LOG.warn("failed to close Java file managers", e);
+            }
+        }
+    }
 }
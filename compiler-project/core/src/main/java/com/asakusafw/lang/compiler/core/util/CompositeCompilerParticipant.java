@@ -100,6 +100,19 @@ public class CompositeCompilerParticipant extends AbstractCompositeElement<Compi
         }
     }
 
+    @Override
+    public void abortBatch(BatchCompiler.Context context, Batch batch, Throwable cause) {
+        for (CompilerParticipant element : reverse) {
+            try {
+                element.abortBatch(context, batch, cause);
+            } catch (RuntimeException e) {
+                if (e != cause) {
+                    cause.addSuppressed(e);
+                }
+            }
+        }
+    }
+
     @Override
     public void beforeJobflow(JobflowCompiler.Context context, BatchInfo batch, Jobflow jobflow) {
         boolean error = false;
@@ -18,18 +18,28 @@ package com.asakusafw.lang.compiler.core.basic;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import org.junit.Test;
 
 import com.asakusafw.lang.compiler.api.reference.BatchReference;
 import com.asakusafw.lang.compiler.api.reference.JobflowReference;
+import com.asakusafw.lang.compiler.common.DiagnosticException;
 import com.asakusafw.lang.compiler.core.BatchCompiler;
+import com.asakusafw.lang.compiler.core.CompilerParticipant;
 import com.asakusafw.lang.compiler.core.CompilerTestRoot;
+import com.asakusafw.lang.compiler.core.JobflowCompiler;
 import com.asakusafw.lang.compiler.core.dummy.SimpleBatchProcessor;
 import com.asakusafw.lang.compiler.core.dummy.SimpleCompilerParticipant;
 import com.asakusafw.lang.compiler.core.dummy.SimpleJobflowProcessor;
 import com.asakusafw.lang.compiler.core.util.BatchReferenceCollector;
 import com.asakusafw.lang.compiler.model.graph.Batch;
 import com.asakusafw.lang.compiler.model.graph.BatchElement;
+import com.asakusafw.lang.compiler.model.graph.Jobflow;
+import com.asakusafw.lang.compiler.model.info.BatchInfo;
 import com.asakusafw.lang.compiler.packaging.FileContainer;
 
 /**
@@ -102,6 +112,94 @@ public class BasicBatchCompilerTest extends CompilerTestRoot {
         assertThat(rj3.getBlockers(), containsInAnyOrder(rj1, rj2));
     }
 
+    /**
+     * compile jobflows in parallel.
+     */
+    @Test
+    public void parallel() {
+        batchProcessors.add(new SimpleBatchProcessor());
+        jobflowProcessors.add(new SimpleJobflowProcessor());
+        compilerParticipants.add(new BatchReferenceCollector());
+        options.withProperty(BasicBatchCompiler.KEY_JOBFLOW_PARALLELISM, "4");
+
+        Batch batch = new Batch(batchInfo("testing"));
+        BatchElement bj0 = batch.addElement(jobflow("j0"));
+        BatchElement bj1 = batch.addElement(jobflow("j1"));
+        BatchElement bj2 = batch.addElement(jobflow("j2"));
+        BatchElement bj3 = batch.addElement(jobflow("j3"));
+        bj1.addBlockerElement(bj0);
+        bj2.addBlockerElement(bj0);
+        bj3.addBlockerElement(bj1);
+        bj3.addBlockerElement(bj2);
+
+        FileContainer output = container();
+        BatchCompiler.Context context = new BatchCompiler.Context(context(true), output);
+        new BasicBatchCompiler().compile(context, batch);
+
+        assertThat(SimpleJobflowProcessor.contains(context, "j0"), is(true));
+        assertThat(SimpleJobflowProcessor.contains(context, "j1"), is(true));
+        assertThat(SimpleJobflowProcessor.contains(context, "j2"), is(true));
+        assertThat(SimpleJobflowProcessor.contains(context, "j3"), is(true));
+
+        BatchReference result = BatchReferenceCollector.get(context);
+        JobflowReference rj0 = result.find("j0");
+        JobflowReference rj1 = result.find("j1");
+        JobflowReference rj2 = result.find("j2");
+        JobflowReference rj3 = result.find("j3");
+        assertThat(rj0.getBlockers(), is(empty()));
+        assertThat(rj1.getBlockers(), containsInAnyOrder(rj0));
+        assertThat(rj2.getBlockers(), containsInAnyOrder(rj0));
+        assertThat(rj3.getBlockers(), containsInAnyOrder(rj1, rj2));
+    }
+
+    /**
+     * compile jobflows in parallel, and one of them was failed.
+     */
+    @Test
+    public void parallel_failure() {
+        jobflowProcessors.add((context, source) -> {
+            if (source.getFlowId().equals("j0")) {
+                throw new IllegalStateException("testing");
+            }
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+            new SimpleJobflowProcessor().process(context, source);
+        });
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        compilerParticipants.add(new CompilerParticipant() {
+            @Override
+            public void afterJobflow(JobflowCompiler.Context context, BatchInfo batch, Jobflow jobflow) {
+                events.add(jobflow.getFlowId());
+            }
+            @Override
+            public void abortBatch(BatchCompiler.Context context, Batch batch, Throwable cause) {
+                events.add("abort");
+            }
+        });
+        options.withProperty(BasicBatchCompiler.KEY_JOBFLOW_PARALLELISM, "4");
+
+        Batch batch = new Batch(batchInfo("testing"));
+        batch.addElement(jobflow("j0"));
+        batch.addElement(jobflow("j1"));
+        batch.addElement(jobflow("j2"));
+        batch.addElement(jobflow("j3"));
+
+        FileContainer output = container();
+        BatchCompiler.Context context = new BatchCompiler.Context(context(true), output);
+        try {
+            new BasicBatchCompiler().compile(context, batch);
+            fail();
+        } catch (IllegalStateException e) {
+            // ok.
+        }
+        // the running jobflows must be finished before the batch was aborted
+        assertThat(events, hasItem("abort"));
+        assertThat(events.get(events.size() - 1), is("abort"));
+    }
+
     /**
      * w/ compiler participants.
      */
@@ -124,4 +222,43 @@ public class BasicBatchCompilerTest extends CompilerTestRoot {
         assertThat(SimpleCompilerParticipant.contains(context), is(true));
         assertThat(context.getExtension(BatchReference.class), is(notNullValue()));
     }
+
+    /**
+     * compiler participants are notified when the batch compilation was failed.
+     */
+    @Test
+    public void participants_abort() {
+        batchProcessors.add((context, source) -> {
+            throw new IOException("testing");
+        });
+        jobflowProcessors.add(new SimpleJobflowProcessor());
+        List<String> events = new ArrayList<>();
+        compilerParticipants.add(new CompilerParticipant() {
+            @Override
+            public void beforeBatch(BatchCompiler.Context context, Batch batch) {
+                events.add("before");
+            }
+            @Override
+            public void afterBatch(BatchCompiler.Context context, Batch batch, BatchReference reference) {
+                events.add("after");
+            }
+            @Override
+            public void abortBatch(BatchCompiler.Context context, Batch batch, Throwable cause) {
+                events.add("abort");
+            }
+        });
+
+        Batch batch = new Batch(batchInfo("testing"));
+        batch.addElement(jobflow("j0"));
+
+        FileContainer output = container();
+        BatchCompiler.Context context = new BatchCompiler.Context(context(true), output);
+        try {
+            new BasicBatchCompiler().compile(context, batch);
+            fail();
+        } catch (DiagnosticException e) {
+            // ok.
+        }
+        assertThat(events, contains("before", "abort"));
+    }
 }
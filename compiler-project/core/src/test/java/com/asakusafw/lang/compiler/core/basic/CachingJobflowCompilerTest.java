@@ -0,0 +1,280 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.lang.compiler.core.basic;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.asakusafw.lang.compiler.common.Location;
+import com.asakusafw.lang.compiler.core.CompilerParticipant;
+import com.asakusafw.lang.compiler.core.CompilerTestRoot;
+import com.asakusafw.lang.compiler.core.JobflowCompiler;
+import com.asakusafw.lang.compiler.core.dummy.SimpleJobflowProcessor;
+import com.asakusafw.lang.compiler.core.participant.JavaSourceExtensionParticipant;
+import com.asakusafw.lang.compiler.core.participant.RuntimeContextParticipant;
+import com.asakusafw.lang.compiler.javac.JavaSourceExtension;
+import com.asakusafw.lang.compiler.model.description.ClassDescription;
+import com.asakusafw.lang.compiler.model.graph.Jobflow;
+import com.asakusafw.lang.compiler.model.info.BatchInfo;
+import com.asakusafw.lang.compiler.model.graph.OperatorGraph;
+import com.asakusafw.lang.compiler.packaging.FileContainer;
+import com.asakusafw.runtime.core.context.RuntimeContext;
+
+/**
+ * Test for {@link CachingJobflowCompiler}.
+ */
+public class CachingJobflowCompilerTest extends CompilerTestRoot {
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    private final JobflowCompiler compiler = new CachingJobflowCompiler((context, batch, jobflow) -> {
+        count.incrementAndGet();
+        new BasicJobflowCompiler().compile(context, batch, jobflow);
+    });
+
+    /**
+     * w/o cache directory.
+     */
+    @Test
+    public void disabled() {
+        jobflowProcessors.add(new SimpleJobflowProcessor());
+
+        assertThat(compile(jobflow("testing")), is(true));
+        assertThat(compile(jobflow("testing")), is(true));
+        assertThat(count.get(), is(2));
+    }
+
+    /**
+     * reuses cached artifacts.
+     * @throws Exception if failed
+     */
+    @Test
+    public void hit() throws Exception {
+        jobflowProcessors.add(new SimpleJobflowProcessor());
+        File cache = cache();
+
+        assertThat(compile(jobflow("testing")), is(true));
+        assertThat(count.get(), is(1));
+        assertThat(cache.list(), is(arrayWithSize(1)));
+
+        assertThat(compile(jobflow("testing")), is(true));
+        assertThat(count.get(), is(1));
+    }
+
+    /**
+     * build ID is not a part of cache keys.
+     * @throws Exception if failed
+     */
+    @Test
+    public void hit_build_id() throws Exception {
+        jobflowProcessors.add(new SimpleJobflowProcessor());
+        cache();
+
+        options.withBuildId("a");
+        assertThat(compile(jobflow("testing")), is(true));
+        options.withBuildId("b");
+        assertThat(compile(jobflow("testing")), is(true));
+        assertThat(count.get(), is(1));
+    }
+
+    /**
+     * restored artifacts have the current build ID.
+     * @throws Exception if failed
+     */
+    @Test
+    public void hit_runtime_context() throws Exception {
+        jobflowProcessors.add(new SimpleJobflowProcessor());
+        compilerParticipants.add(new RuntimeContextParticipant());
+        cache();
+
+        options.withBuildId("a");
+        assertThat(buildId(compileWithOutput(jobflow("testing"))), is("a"));
+        options.withBuildId("b");
+        assertThat(buildId(compileWithOutput(jobflow("testing"))), is("b"));
+        assertThat(count.get(), is(1));
+    }
+
+    /**
+     * participants are invoked on cache hits, and their outputs are kept.
+     * @throws Exception if failed
+     */
+    @Test
+    public void hit_participant() throws Exception {
+        AtomicInteger participated = new AtomicInteger();
+        jobflowProcessors.add(new SimpleJobflowProcessor());
+        compilerParticipants.add(new CompilerParticipant() {
+            @Override
+            public void afterJobflow(JobflowCompiler.Context context, BatchInfo batch, Jobflow jobflow) {
+                participated.incrementAndGet();
+                try (OutputStream output = context.getOutput().addResource(Location.of("participant.txt"))) {
+                    output.write(1);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        cache();
+
+        assertThat(compileWithOutput(jobflow("testing")).toFile(Location.of("participant.txt")).isFile(), is(true));
+        assertThat(compileWithOutput(jobflow("testing")).toFile(Location.of("participant.txt")).isFile(), is(true));
+        assertThat(count.get(), is(1));
+        assertThat(participated.get(), is(2));
+    }
+
+    /**
+     * restores classes which were compiled from the generated Java source files.
+     * @throws Exception if failed
+     */
+    @Test
+    public void hit_java_source() throws Exception {
+        ClassDescription aClass = new ClassDescription("com.example.Cached");
+        Location location = Location.of(aClass.getInternalName() + ".class");
+        jobflowProcessors.add(new SimpleJobflowProcessor());
+        jobflowProcessors.add((context, source) -> {
+            JavaSourceExtension extension = context.getExtension(JavaSourceExtension.class);
+            try (PrintWriter pw = new PrintWriter(extension.addJavaFile(aClass))) {
+                pw.println("package com.example;");
+                pw.println("public class Cached {}");
+            }
+        });
+        compilerParticipants.add(new JavaSourceExtensionParticipant());
+        cache();
+
+        assertThat(compileWithOutput(jobflow("testing")).toFile(location).isFile(), is(true));
+        assertThat(compileWithOutput(jobflow("testing")).toFile(location).isFile(), is(true));
+        assertThat(count.get(), is(1));
+    }
+
+    /**
+     * operator graph was changed.
+     * @throws Exception if failed
+     */
+    @Test
+    public void miss_graph() throws Exception {
+        jobflowProcessors.add(new SimpleJobflowProcessor());
+        File cache = cache();
+
+        assertThat(compile(jobflow("testing")), is(true));
+        Jobflow jobflow = jobflow("testing");
+        OperatorGraph graph = jobflow.getOperatorGraph();
+        graph.getOutputs().get("out").disconnectAll();
+        assertThat(compile(jobflow), is(true));
+        assertThat(count.get(), is(2));
+        assertThat(cache.list(), is(arrayWithSize(2)));
+    }
+
+    /**
+     * compiler options were changed.
+     * @throws Exception if failed
+     */
+    @Test
+    public void miss_options() throws Exception {
+        jobflowProcessors.add(new SimpleJobflowProcessor());
+        cache();
+
+        assertThat(compile(jobflow("testing")), is(true));
+        options.withProperty("testing", "changed");
+        assertThat(compile(jobflow("testing")), is(true));
+        assertThat(count.get(), is(2));
+    }
+
+    /**
+     * evicts least recently used entries.
+     * @throws Exception if failed
+     */
+    @Test
+    public void evict_entries() throws Exception {
+        jobflowProcessors.add(new SimpleJobflowProcessor());
+        File cache = cache();
+        options.withProperty(CachingJobflowCompiler.KEY_CACHE_MAX_ENTRIES, "1");
+
+        assertThat(compile(jobflow("testing")), is(true));
+        File[] entries = cache.listFiles();
+        assertThat(entries, is(arrayWithSize(1)));
+        long past = System.currentTimeMillis() - CachingJobflowCompiler.EVICTION_GRACE_PERIOD * 2;
+        assertThat(entries[0].setLastModified(past), is(true));
+
+        options.withProperty("testing", "changed");
+        assertThat(compile(jobflow("testing")), is(true));
+        assertThat(count.get(), is(2));
+        assertThat(cache.list(), is(arrayWithSize(1)));
+        assertThat(entries[0].exists(), is(false));
+    }
+
+    /**
+     * evicts expired entries.
+     * @throws Exception if failed
+     */
+    @Test
+    public void evict_expired() throws Exception {
+        jobflowProcessors.add(new SimpleJobflowProcessor());
+        File cache = cache();
+
+        assertThat(compile(jobflow("testing")), is(true));
+        File[] entries = cache.listFiles();
+        assertThat(entries, is(arrayWithSize(1)));
+        long past = System.currentTimeMillis()
+                - TimeUnit.DAYS.toMillis(CachingJobflowCompiler.DEFAULT_CACHE_MAX_AGE + 1);
+        assertThat(entries[0].setLastModified(past), is(true));
+
+        options.withProperty("testing", "changed");
+        assertThat(compile(jobflow("testing")), is(true));
+        assertThat(cache.list(), is(arrayWithSize(1)));
+        assertThat(entries[0].exists(), is(false));
+    }
+
+    private File cache() throws IOException {
+        File cache = root.newFolder();
+        options.withProperty(CachingJobflowCompiler.KEY_CACHE_DIRECTORY, cache.getPath());
+        return cache;
+    }
+
+    private FileContainer compileWithOutput(Jobflow jobflow) {
+        FileContainer output = container();
+        JobflowCompiler.Context context = new JobflowCompiler.Context(context(true), output);
+        compiler.compile(context, batchInfo("b"), jobflow);
+        assertThat(SimpleJobflowProcessor.contains(context), is(true));
+        return output;
+    }
+
+    private static String buildId(FileContainer output) throws IOException {
+        File file = output.toFile(CachingJobflowCompiler.LOCATION_APPLICATION_INFO);
+        assertThat(file.isFile(), is(true));
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        }
+        return properties.getProperty(RuntimeContext.KEY_BUILD_ID);
+    }
+
+    private boolean compile(Jobflow jobflow) {
+        JobflowCompiler.Context context = new JobflowCompiler.Context(context(true), container());
+        compiler.compile(context, batchInfo("b"), jobflow);
+        return SimpleJobflowProcessor.contains(context);
+    }
+}
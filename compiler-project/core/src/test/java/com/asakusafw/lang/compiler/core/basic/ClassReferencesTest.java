@@ -0,0 +1,137 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.lang.compiler.core.basic;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link ClassReferences}.
+ */
+public class ClassReferencesTest {
+
+    /**
+     * simple case.
+     * @throws Exception if failed
+     */
+    @Test
+    public void simple() throws Exception {
+        Set<String> results = ClassReferences.collect(bytes(Caller.class));
+        assertThat(results, hasItem(internal(Callee.class)));
+        assertThat(results, hasItem(internal(Object.class)));
+        assertThat(results, not(hasItem(internal(Caller.class))));
+    }
+
+    /**
+     * classes only in descriptors.
+     * @throws Exception if failed
+     */
+    @Test
+    public void descriptors() throws Exception {
+        Set<String> results = ClassReferences.collect(bytes(Holder.class));
+        assertThat(results, hasItem(internal(Callee.class)));
+        assertThat(results, hasItem(internal(StringBuilder.class)));
+    }
+
+    /**
+     * classes only in generic signatures and annotations.
+     * @throws Exception if failed
+     */
+    @Test
+    public void signatures_annotations() throws Exception {
+        Set<String> results = ClassReferences.collect(bytes(Generic.class));
+        assertThat(results, hasItem(internal(Callee.class)));
+        assertThat(results, hasItem(internal(Caller.class)));
+        assertThat(results, hasItem(internal(Marker.class)));
+        assertThat(results, hasItem(internal(Holder.class)));
+    }
+
+    /**
+     * broken class file.
+     * @throws Exception if failed
+     */
+    @Test(expected = IOException.class)
+    public void broken() throws Exception {
+        ClassReferences.collect(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10 });
+    }
+
+    private static String internal(Class<?> aClass) {
+        return aClass.getName().replace('.', '/');
+    }
+
+    private static byte[] bytes(Class<?> aClass) throws IOException {
+        String path = internal(aClass) + ".class"; //$NON-NLS-1$
+        try (InputStream input = aClass.getClassLoader().getResourceAsStream(path)) {
+            assertThat(input, is(notNullValue()));
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buf = new byte[256];
+            while (true) {
+                int read = input.read(buf);
+                if (read < 0) {
+                    break;
+                }
+                output.write(buf, 0, read);
+            }
+            return output.toByteArray();
+        }
+    }
+
+    @SuppressWarnings("javadoc")
+    public static class Callee {
+
+        public static int call() {
+            return 1;
+        }
+    }
+
+    @SuppressWarnings("javadoc")
+    public static class Caller {
+
+        public int run() {
+            return Callee.call();
+        }
+    }
+
+    @SuppressWarnings("javadoc")
+    public abstract static class Holder {
+
+        public abstract Callee get(StringBuilder buffer);
+    }
+
+    @SuppressWarnings("javadoc")
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Marker {
+
+        Class<?> value();
+    }
+
+    @SuppressWarnings("javadoc")
+    @Marker(Holder.class)
+    public abstract static class Generic<T extends Caller> {
+
+        public List<Callee> values;
+    }
+}
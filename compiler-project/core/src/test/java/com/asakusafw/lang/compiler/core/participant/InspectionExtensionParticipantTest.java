@@ -22,6 +22,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.Test;
 
+import com.asakusafw.lang.compiler.common.Location;
 import com.asakusafw.lang.compiler.core.BatchCompiler;
 import com.asakusafw.lang.compiler.core.CompilerTestRoot;
 import com.asakusafw.lang.compiler.core.basic.BasicBatchCompiler;
@@ -30,6 +31,7 @@ import com.asakusafw.lang.compiler.core.dummy.SimpleJobflowProcessor;
 import com.asakusafw.lang.compiler.inspection.InspectionExtension;
 import com.asakusafw.lang.compiler.model.graph.Batch;
 import com.asakusafw.lang.compiler.packaging.FileContainer;
+import com.asakusafw.lang.inspection.InspectionNodeRepository;
 
 /**
  * Test for {@link InspectionExtensionParticipant}.
@@ -67,6 +69,8 @@ public class InspectionExtensionParticipantTest extends CompilerTestRoot {
 
         assertThat(output.toFile(InspectionExtensionParticipant.OUTPUT_DSL).isFile(), is(true));
         assertThat(output.toFile(InspectionExtensionParticipant.OUTPUT_TASK).isFile(), is(true));
+        assertThat(output.toFile(index(InspectionExtensionParticipant.OUTPUT_DSL)).isFile(), is(true));
+        assertThat(output.toFile(index(InspectionExtensionParticipant.OUTPUT_TASK)).isFile(), is(true));
     }
 
     /**
@@ -105,6 +109,10 @@ public class InspectionExtensionParticipantTest extends CompilerTestRoot {
         assertThat(output.toFile(InspectionExtensionParticipant.OUTPUT_TASK).isFile(), is(false));
     }
 
+    private static Location index(Location location) {
+        return new Location(location.getParent(), location.getName() + InspectionNodeRepository.INDEX_FILE_SUFFIX);
+    }
+
     private Batch batch() {
         Batch batch = new Batch(batchInfo("testing"));
         batch.addElement(jobflow("j0"));
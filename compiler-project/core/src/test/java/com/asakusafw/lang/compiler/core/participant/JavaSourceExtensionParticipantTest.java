@@ -28,12 +28,15 @@ import java.util.concurrent.Callable;
 import org.junit.Test;
 
 import com.asakusafw.lang.compiler.common.DiagnosticException;
+import com.asakusafw.lang.compiler.core.BatchCompiler;
+import com.asakusafw.lang.compiler.core.CompilerContext;
 import com.asakusafw.lang.compiler.core.CompilerTestRoot;
 import com.asakusafw.lang.compiler.core.JobflowCompiler;
 import com.asakusafw.lang.compiler.core.basic.BasicJobflowCompiler;
 import com.asakusafw.lang.compiler.core.dummy.SimpleExternalPortProcessor;
 import com.asakusafw.lang.compiler.javac.JavaSourceExtension;
 import com.asakusafw.lang.compiler.model.description.ClassDescription;
+import com.asakusafw.lang.compiler.model.graph.Batch;
 import com.asakusafw.lang.compiler.packaging.FileContainer;
 
 /**
@@ -69,6 +72,40 @@ public class JavaSourceExtensionParticipantTest extends CompilerTestRoot {
         }
     }
 
+    /**
+     * compiles multiple jobflows in the same batch.
+     * @throws Exception if failed
+     */
+    @Test
+    public void batch() throws Exception {
+        ClassDescription aClass = new ClassDescription("com.example.JavaSourceExtension");
+        initialize(aClass, new String[] {
+                "package com.example;",
+                String.format(
+                        "public class %s implements java.util.concurrent.Callable<String> {",
+                        aClass.getSimpleName()),
+                "    public String call() { return \"a\"; }",
+                "}",
+        });
+        CompilerContext root = context(true);
+        Batch batch = new Batch(batchInfo("b"));
+        BatchCompiler.Context batchContext = new BatchCompiler.Context(root, container());
+        root.getTools().getParticipant().beforeBatch(batchContext, batch);
+        for (int i = 0; i < 2; i++) {
+            FileContainer output = container();
+            JobflowCompiler.Context context = new JobflowCompiler.Context(root, output);
+            new BasicJobflowCompiler().compile(
+                    context,
+                    batch,
+                    jobflow("testing" + i));
+            try (URLClassLoader loader = loader(output.getBasePath())) {
+                Object result = aClass.resolve(loader).asSubclass(Callable.class).newInstance().call();
+                assertThat(result, is((Object) "a"));
+            }
+        }
+        root.getTools().getParticipant().afterBatch(batchContext, batch, null);
+    }
+
     /**
      * w/ invalid version
      * @throws Exception if failed
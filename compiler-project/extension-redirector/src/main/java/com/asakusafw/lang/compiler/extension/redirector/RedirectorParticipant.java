@@ -19,6 +19,7 @@ import java.io.File;
 import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.Map;
+import java.util.TreeMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,6 +41,7 @@ import com.asakusafw.lang.compiler.redirector.ZipRewriter;
 /**
  * Redirects API accesses into another classes.
  * An implementation of {@link BatchProcessor} for redirecting API invocations.
+ * @version 0.5.5
  */
 public class RedirectorParticipant extends AbstractCompilerParticipant {
 
@@ -50,13 +52,26 @@ public class RedirectorParticipant extends AbstractCompilerParticipant {
      */
     public static final String KEY_RULE_PREFIX = "redirector.rule."; //$NON-NLS-1$
 
+    /**
+     * The compiler option property key of the max number of class files which are rewritten concurrently.
+     * If this is not specified, the number of available processors is used.
+     * @since 0.5.5
+     */
+    public static final String KEY_PARALLELISM = "redirector.parallelism"; //$NON-NLS-1$
+
+    // reuses the last rewriter between batches, to skip JAR files which have been already redirected
+    private Map<String, String> lastProperties;
+
+    private ZipRewriter lastRewriter;
+
     @Override
     public void afterBatch(Context context, Batch batch, BatchReference reference) {
-        RedirectRule rule = extractRule(context.getOptions());
+        Map<String, String> properties = new TreeMap<>(context.getOptions().getProperties(KEY_RULE_PREFIX));
+        RedirectRule rule = extractRule(properties);
         if (rule.isEmpty()) {
             return;
         }
-        ZipRewriter rewriter = new ZipRewriter(rule);
+        ZipRewriter rewriter = getRewriter(properties, rule, getParallelism(context.getOptions()));
         LOG.debug("redirecting API invocations: {}", batch.getBatchId()); //$NON-NLS-1$
         for (JobflowReference jobflow : reference.getJobflows()) {
             Location location = JobflowPackager.getLibraryLocation(jobflow.getFlowId());
@@ -77,9 +92,32 @@ public class RedirectorParticipant extends AbstractCompilerParticipant {
         }
     }
 
-    private static RedirectRule extractRule(CompilerOptions options) {
+    private synchronized ZipRewriter getRewriter(Map<String, String> properties, RedirectRule rule, int parallelism) {
+        if (lastRewriter == null || properties.equals(lastProperties) == false) {
+            lastProperties = properties;
+            lastRewriter = new ZipRewriter(rule, parallelism);
+        }
+        return lastRewriter;
+    }
+
+    private static int getParallelism(CompilerOptions options) {
+        String value = options.get(KEY_PARALLELISM, null);
+        if (value == null || value.trim().isEmpty()) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        try {
+            return Math.max(Integer.parseInt(value.trim()), 1);
+        } catch (NumberFormatException e) {
+            throw new DiagnosticException(Diagnostic.Level.ERROR, MessageFormat.format(
+                    "invalid compiler option: {0}={1} (must be an integer)",
+                    KEY_PARALLELISM,
+                    value), e);
+        }
+    }
+
+    private static RedirectRule extractRule(Map<String, String> properties) {
         RedirectRule results = new RedirectRule();
-        for (Map.Entry<String, String> entry : options.getProperties(KEY_RULE_PREFIX).entrySet()) {
+        for (Map.Entry<String, String> entry : properties.entrySet()) {
             String from = entry.getKey().substring(KEY_RULE_PREFIX.length());
             String to = entry.getValue();
             results.add(from, to);
@@ -28,12 +28,16 @@ import com.asakusafw.lang.compiler.common.Diagnostic;
 import com.asakusafw.lang.compiler.common.DiagnosticException;
 import com.asakusafw.lang.compiler.common.Location;
 import com.asakusafw.lang.compiler.common.ResourceContainer;
-import com.asakusafw.lang.inspection.InspectionNode;
 import com.asakusafw.lang.inspection.InspectionNodeRepository;
+import com.asakusafw.lang.inspection.InspectionNodeWriter;
 import com.asakusafw.lang.inspection.json.JsonInspectionNodeRepository;
 
 /**
  * An abstract implementation of {@link InspectionExtension}.
+ * This writes the inspection objects incrementally, and also puts their offset index next to them
+ * (the file name is suffixed by {@link InspectionNodeRepository#INDEX_FILE_SUFFIX}).
+ * @since 0.1.0
+ * @version 0.5.5
  */
 public abstract class AbstractInspectionExtension extends InspectionExtension implements ResourceContainer {
 
@@ -68,26 +72,36 @@ public abstract class AbstractInspectionExtension extends InspectionExtension im
     @Override
     public void inspect(Location location, Object element) {
         LOG.debug("saving inspection info to package: {}", location); //$NON-NLS-1$
-        InspectionNode node = inspector.inspect(element);
-        try (OutputStream output = addResource(location)) {
-            repository.store(output, node);
+        Location indexLocation = new Location(
+                location.getParent(),
+                location.getName() + InspectionNodeRepository.INDEX_FILE_SUFFIX);
+        try (OutputStream output = addResource(location);
+                OutputStream index = addResource(indexLocation)) {
+            store(output, index, element);
         } catch (IOException e) {
             throw new DiagnosticException(Diagnostic.Level.ERROR, MessageFormat.format(
                     "failed to save inspection object: {0}",
-                    node), e);
+                    element), e);
         }
     }
 
     @Override
     public void inspect(Path path, Object element) {
         LOG.debug("saving inspection info to path: {}", path); //$NON-NLS-1$
-        InspectionNode node = inspector.inspect(element);
-        try (OutputStream output = Files.newOutputStream(path)) {
-            repository.store(output, node);
+        Path indexPath = path.resolveSibling(path.getFileName() + InspectionNodeRepository.INDEX_FILE_SUFFIX);
+        try (OutputStream output = Files.newOutputStream(path);
+                OutputStream index = Files.newOutputStream(indexPath)) {
+            store(output, index, element);
         } catch (IOException e) {
             throw new DiagnosticException(Diagnostic.Level.ERROR, MessageFormat.format(
                     "failed to save inspection object: {0}",
-                    node), e);
+                    element), e);
+        }
+    }
+
+    private void store(OutputStream output, OutputStream index, Object element) throws IOException {
+        try (InspectionNodeWriter writer = repository.open(output, index)) {
+            inspector.inspect(element, writer);
         }
     }
 }
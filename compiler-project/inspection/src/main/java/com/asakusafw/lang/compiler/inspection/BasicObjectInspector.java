@@ -15,6 +15,7 @@
  */
 package com.asakusafw.lang.compiler.inspection;
 
+import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.List;
@@ -28,6 +29,7 @@ import com.asakusafw.lang.compiler.model.graph.Jobflow;
 import com.asakusafw.lang.compiler.model.graph.OperatorGraph;
 import com.asakusafw.lang.compiler.planning.Plan;
 import com.asakusafw.lang.inspection.InspectionNode;
+import com.asakusafw.lang.inspection.InspectionNodeWriter;
 
 /**
  * The default implementation of {@link ObjectInspector}.
@@ -53,6 +55,11 @@ public class BasicObjectInspector implements ObjectInspector {
             public InspectionNode perform(Batch object) {
                 return new DslDriver().inspect(object);
             }
+
+            @Override
+            public void perform(Batch object, InspectionNodeWriter writer) throws IOException {
+                new DslDriver().inspect(object, writer);
+            }
         });
         list.add(new Inspector<Jobflow>(Jobflow.class) {
             @Override
@@ -83,6 +90,11 @@ public class BasicObjectInspector implements ObjectInspector {
             public InspectionNode perform(Plan object) {
                 return new PlanDriver().inspect("plan", object); //$NON-NLS-1$
             }
+
+            @Override
+            public void perform(Plan object, InspectionNodeWriter writer) throws IOException {
+                new PlanDriver().inspect("plan", object, writer); //$NON-NLS-1$
+            }
         });
         INSPECTORS = list;
     }
@@ -100,10 +112,19 @@ public class BasicObjectInspector implements ObjectInspector {
 
     @Override
     public InspectionNode inspect(Object element) {
+        return find(element).inspect(element);
+    }
+
+    @Override
+    public void inspect(Object element, InspectionNodeWriter writer) throws IOException {
+        find(element).inspect(element, writer);
+    }
+
+    private static Inspector<?> find(Object element) {
         Class<?> aClass = element.getClass();
         for (Inspector<?> inspector : INSPECTORS) {
             if (inspector.isSupported(aClass)) {
-                return inspector.inspect(element);
+                return inspector;
             }
         }
         throw new DiagnosticException(Diagnostic.Level.ERROR, MessageFormat.format(
@@ -127,6 +148,14 @@ public class BasicObjectInspector implements ObjectInspector {
             return perform(supported.cast(object));
         }
 
+        public void inspect(Object object, InspectionNodeWriter writer) throws IOException {
+            perform(supported.cast(object), writer);
+        }
+
         public abstract InspectionNode perform(T object);
+
+        public void perform(T object, InspectionNodeWriter writer) throws IOException {
+            writer.write(perform(object));
+        }
     }
 }
@@ -17,8 +17,11 @@ package com.asakusafw.lang.compiler.inspection;
 
 import static com.asakusafw.lang.compiler.inspection.Util.*;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import com.asakusafw.lang.compiler.model.graph.Batch;
@@ -42,6 +45,7 @@ import com.asakusafw.lang.compiler.model.graph.UserOperator;
 import com.asakusafw.lang.compiler.model.info.ExternalInputInfo;
 import com.asakusafw.lang.compiler.model.info.ExternalOutputInfo;
 import com.asakusafw.lang.inspection.InspectionNode;
+import com.asakusafw.lang.inspection.InspectionNodeWriter;
 
 /**
  * Inspects Asakusa DSL elements.
@@ -68,6 +72,42 @@ public class DslDriver {
         return node;
     }
 
+    /**
+     * Inspects the target batch and writes it into the given writer.
+     * This writes each jobflow as soon as it is inspected, instead of building the whole batch in memory.
+     * @param object the target batch
+     * @param writer the destination writer
+     * @throws IOException if failed to write the inspection object
+     * @since 0.5.5
+     */
+    public void inspect(Batch object, InspectionNodeWriter writer) throws IOException {
+        InspectionNode node = new InspectionNode(id(object), "Batch"); //$NON-NLS-1$
+        node.getProperties().putAll(extract(object));
+        writer.begin(node);
+        Map<BatchElement, List<BatchElement>> successors = new LinkedHashMap<>();
+        for (BatchElement element : object.getElements()) {
+            successors.put(element, new ArrayList<>());
+        }
+        for (BatchElement element : object.getElements()) {
+            for (BatchElement blocker : element.getBlockerElements()) {
+                successors.get(blocker).add(element);
+            }
+        }
+        for (Map.Entry<BatchElement, List<BatchElement>> entry : successors.entrySet()) {
+            BatchElement element = entry.getKey();
+            InspectionNode jobflow = inspect(element.getJobflow());
+            addDependencyPorts(jobflow);
+            for (BatchElement blocker : element.getBlockerElements()) {
+                addPredecessor(jobflow, id(blocker.getJobflow()));
+            }
+            for (BatchElement blocking : entry.getValue()) {
+                addSuccessor(jobflow, id(blocking.getJobflow()));
+            }
+            writer.write(jobflow);
+        }
+        writer.end();
+    }
+
     Map<BatchElement, InspectionNode> inspectJobflows(Collection<BatchElement> elements) {
         Map<BatchElement, InspectionNode> results = new LinkedHashMap<>();
         for (BatchElement element : elements) {
@@ -152,6 +192,10 @@ public class DslDriver {
         return results;
     }
 
+    static String nameOf(Operator operator) {
+        return new OperatorNamer().id(operator);
+    }
+
     InspectionNode inspect(String id, Operator object) {
         InspectionNode node = inspectFlat(id, object);
         node.withProperty("serialNumber", String.valueOf(object.getSerialNumber())); //$NON-NLS-1$
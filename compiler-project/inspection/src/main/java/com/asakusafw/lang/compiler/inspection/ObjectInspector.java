@@ -15,8 +15,11 @@
  */
 package com.asakusafw.lang.compiler.inspection;
 
+import java.io.IOException;
+
 import com.asakusafw.lang.compiler.common.DiagnosticException;
 import com.asakusafw.lang.inspection.InspectionNode;
+import com.asakusafw.lang.inspection.InspectionNodeWriter;
 
 /**
  * Inspects the internal compiler model objects.
@@ -38,4 +41,18 @@ public interface ObjectInspector {
      */
     InspectionNode inspect(Object element);
 
+    /**
+     * Inspects the target element and writes the resulting node into the given writer.
+     * Implementations may write the node elements as soon as they are inspected,
+     * without building the whole node tree in memory.
+     * @param element the target element
+     * @param writer the destination writer
+     * @throws IOException if failed to write the inspection node
+     * @throws DiagnosticException if failed to inspect the target element
+     * @since 0.5.5
+     */
+    default void inspect(Object element, InspectionNodeWriter writer) throws IOException {
+        writer.write(inspect(element));
+    }
+
 }
\ No newline at end of file
@@ -17,7 +17,9 @@ package com.asakusafw.lang.compiler.inspection;
 
 import static com.asakusafw.lang.compiler.inspection.Util.*;
 
+import java.io.IOException;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -25,6 +27,7 @@ import com.asakusafw.lang.compiler.model.graph.Operator;
 import com.asakusafw.lang.compiler.planning.Plan;
 import com.asakusafw.lang.compiler.planning.SubPlan;
 import com.asakusafw.lang.inspection.InspectionNode;
+import com.asakusafw.lang.inspection.InspectionNodeWriter;
 
 /**
  * Inspects execution plans.
@@ -50,6 +53,49 @@ public class PlanDriver {
         return result;
     }
 
+    /**
+     * Inspects the target plan and writes it into the given writer.
+     * This writes each sub-plan as soon as it is inspected, instead of building the whole plan in memory.
+     * @param id the target ID
+     * @param object the target plan
+     * @param writer the destination writer
+     * @throws IOException if failed to write the inspection object
+     * @since 0.5.5
+     */
+    public void inspect(String id, Plan object, InspectionNodeWriter writer) throws IOException {
+        String title = "Plan"; //$NON-NLS-1$
+        InspectionNode result = new InspectionNode(id, title);
+        result.withProperty(PROPERTY_KIND, "Plan"); //$NON-NLS-1$
+        result.getProperties().putAll(extractAttributes(object));
+        writer.begin(result);
+        Map<SubPlan, String> ids = new HashMap<>();
+        for (SubPlan element : object.getElements()) {
+            ids.put(element, String.format("sub-%d", ids.size())); //$NON-NLS-1$
+        }
+        for (SubPlan element : object.getElements()) {
+            SubPlanInfo info = inspect(ids.get(element), element);
+            // the port IDs of the opposite sub-plans are just their operator IDs
+            for (Map.Entry<SubPlan.Input, InspectionNode.Port> entry : info.inputs.entrySet()) {
+                for (SubPlan.Output opposite : entry.getKey().getOpposites()) {
+                    String oNode = ids.get(opposite.getOwner());
+                    assert oNode != null;
+                    entry.getValue().withOpposite(
+                            new InspectionNode.PortReference(oNode, DslDriver.nameOf(opposite.getOperator())));
+                }
+            }
+            for (Map.Entry<SubPlan.Output, InspectionNode.Port> entry : info.outputs.entrySet()) {
+                for (SubPlan.Input opposite : entry.getKey().getOpposites()) {
+                    String oNode = ids.get(opposite.getOwner());
+                    assert oNode != null;
+                    entry.getValue().withOpposite(
+                            new InspectionNode.PortReference(oNode, DslDriver.nameOf(opposite.getOperator())));
+                }
+            }
+            writer.write(info.node);
+        }
+        writer.end();
+    }
+
     Map<SubPlan, InspectionNode> inspect(Collection<? extends SubPlan> elements) {
         Map<SubPlan, SubPlanInfo> map = new LinkedHashMap<>();
         for (SubPlan element : elements) {
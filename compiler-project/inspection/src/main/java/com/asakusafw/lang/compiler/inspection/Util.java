@@ -70,6 +70,18 @@ final class Util {
         downstream.withOpposite(new InspectionNode.PortReference(pred.getId(), upstream.getId()));
     }
 
+    static void addPredecessor(InspectionNode node, String predecessorId) {
+        InspectionNode.Port port = node.getInputs().get(NAME_PREDECESSORS);
+        assert port != null;
+        port.withOpposite(new InspectionNode.PortReference(predecessorId, NAME_SUCCESSORS));
+    }
+
+    static void addSuccessor(InspectionNode node, String successorId) {
+        InspectionNode.Port port = node.getOutputs().get(NAME_SUCCESSORS);
+        assert port != null;
+        port.withOpposite(new InspectionNode.PortReference(successorId, NAME_PREDECESSORS));
+    }
+
     static Map<String, String> extract(BatchInfo batch) {
         Map<String, String> results = new LinkedHashMap<>();
         results.put("batchId", batch.getBatchId()); //$NON-NLS-1$
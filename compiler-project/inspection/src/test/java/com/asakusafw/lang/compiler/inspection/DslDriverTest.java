@@ -19,6 +19,10 @@ import static com.asakusafw.lang.compiler.model.description.Descriptions.*;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Map;
 import java.util.Set;
 
@@ -45,6 +49,9 @@ import com.asakusafw.lang.compiler.planning.PlanMarkers;
 import com.asakusafw.lang.inspection.InspectionNode;
 import com.asakusafw.lang.inspection.InspectionNode.Port;
 import com.asakusafw.lang.inspection.InspectionNode.PortReference;
+import com.asakusafw.lang.inspection.InspectionNodeRepository;
+import com.asakusafw.lang.inspection.InspectionNodeWriter;
+import com.asakusafw.lang.inspection.json.JsonInspectionNodeRepository;
 
 /**
  * Test for {@link DslDriver}.
@@ -227,6 +234,45 @@ public class DslDriverTest {
         assertThat(getSuccs(node.getElements().get("d")), hasSize(0));
     }
 
+    /**
+     * inspects batch incrementally.
+     * @throws Exception if failed
+     */
+    @Test
+    public void inspect_batch_stream() throws Exception {
+        Jobflow a = jobflow("a");
+        Jobflow b = jobflow("b");
+        Jobflow c = jobflow("c");
+        Jobflow d = jobflow("d");
+
+        Batch batch = new Batch(new BatchInfo.Basic("B", new ClassDescription("B")));
+        BatchElement eA = batch.addElement(a);
+        BatchElement eB = batch.addElement(b);
+        BatchElement eC = batch.addElement(c);
+        BatchElement eD = batch.addElement(d);
+        eB.addBlockerElement(eA);
+        eC.addBlockerElement(eA);
+        eD.addBlockerElement(eB);
+        eD.addBlockerElement(eC);
+
+        InspectionNode node = stream(batch);
+        assertThat(node.getId(), is("B"));
+        assertThat(node.getProperties(), is(driver.inspect(batch).getProperties()));
+        assertThat(node.getElements().keySet(), contains("a", "b", "c", "d"));
+        assertThat(node.getElements().get("a").getElements().keySet(), hasSize(2));
+        validateConnections(node.getElements());
+
+        assertThat(getPreds(node.getElements().get("a")), hasSize(0));
+        assertThat(getPreds(node.getElements().get("b")), containsInAnyOrder(succ("a")));
+        assertThat(getPreds(node.getElements().get("c")), containsInAnyOrder(succ("a")));
+        assertThat(getPreds(node.getElements().get("d")), containsInAnyOrder(succ("b"), succ("c")));
+
+        assertThat(getSuccs(node.getElements().get("a")), containsInAnyOrder(pred("b"), pred("c")));
+        assertThat(getSuccs(node.getElements().get("b")), containsInAnyOrder(pred("d")));
+        assertThat(getSuccs(node.getElements().get("c")), containsInAnyOrder(pred("d")));
+        assertThat(getSuccs(node.getElements().get("d")), hasSize(0));
+    }
+
     /**
      * inspects operator graph via {@link BasicObjectInspector}.
      */
@@ -313,6 +359,17 @@ public class DslDriverTest {
         assertThat(getSuccs(node.getElements().get("d")), hasSize(0));
     }
 
+    private static InspectionNode stream(Object element) throws IOException {
+        InspectionNodeRepository repository = new JsonInspectionNodeRepository();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InspectionNodeWriter writer = repository.open(output, null)) {
+            new BasicObjectInspector().inspect(element, writer);
+        }
+        try (InputStream input = new ByteArrayInputStream(output.toByteArray())) {
+            return repository.load(input);
+        }
+    }
+
     private void validateConnections(Map<String, InspectionNode> elements) {
         for (InspectionNode element : elements.values()) {
             for (Port port : element.getInputs().values()) {
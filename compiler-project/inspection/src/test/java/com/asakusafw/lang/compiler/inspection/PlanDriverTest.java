@@ -18,6 +18,10 @@ package com.asakusafw.lang.compiler.inspection;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -30,6 +34,9 @@ import com.asakusafw.lang.compiler.planning.PlanDetail;
 import com.asakusafw.lang.compiler.planning.PlanMarker;
 import com.asakusafw.lang.compiler.planning.SubPlan;
 import com.asakusafw.lang.inspection.InspectionNode;
+import com.asakusafw.lang.inspection.InspectionNodeRepository;
+import com.asakusafw.lang.inspection.InspectionNodeWriter;
+import com.asakusafw.lang.inspection.json.JsonInspectionNodeRepository;
 
 /**
  * Test for {@link PlanDriver}.
@@ -149,6 +156,49 @@ public class PlanDriverTest {
         validateMappings(detail.getPlan(), node);
     }
 
+    /**
+     * inspects plans incrementally.
+     * @throws Exception if failed
+     */
+    @Test
+    public void stream() throws Exception {
+        MockOperators mock = new MockOperators()
+            .marker("begin", PlanMarker.BEGIN)
+            .operator("o0")
+            .operator("o1")
+            .operator("o2")
+            .operator("o3")
+            .marker("cp0", PlanMarker.CHECKPOINT)
+            .marker("cp1", PlanMarker.CHECKPOINT)
+            .marker("cp2", PlanMarker.CHECKPOINT)
+            .marker("end", PlanMarker.END)
+            .connect("begin", "o0")
+            .connect("o0", "cp0")
+            .connect("cp0", "o1")
+            .connect("cp0", "o2")
+            .connect("o1", "cp1")
+            .connect("o2", "cp2")
+            .connect("cp1", "o3")
+            .connect("cp2", "o3")
+            .connect("o3", "end");
+
+        PlanDetail detail = PlanBuilder.from(mock.all())
+            .add(mock.getAsSet("begin"), mock.getAsSet("cp0"))
+            .add(mock.getAsSet("cp0"), mock.getAsSet("cp1"))
+            .add(mock.getAsSet("cp0"), mock.getAsSet("cp2"))
+            .add(mock.getAsSet("cp1", "cp2"), mock.getAsSet("end"))
+            .build();
+        bless(detail);
+
+        InspectionNodeRepository repository = new JsonInspectionNodeRepository();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InspectionNodeWriter writer = repository.open(output, null)) {
+            new BasicObjectInspector().inspect(detail.getPlan(), writer);
+        }
+        InspectionNode node = load(repository, output.toByteArray());
+        validateMappings(detail.getPlan(), node);
+    }
+
     /**
      * via {@link BasicObjectInspector}.
      */
@@ -177,6 +227,12 @@ public class PlanDriverTest {
         return new PlanDriver().inspect("plan", detail.getPlan());
     }
 
+    private static InspectionNode load(InspectionNodeRepository repository, byte[] contents) throws IOException {
+        try (InputStream input = new ByteArrayInputStream(contents)) {
+            return repository.load(input);
+        }
+    }
+
     private void bless(PlanDetail detail) {
         int index = 0;
         for (SubPlan sub : detail.getPlan().getElements()) {
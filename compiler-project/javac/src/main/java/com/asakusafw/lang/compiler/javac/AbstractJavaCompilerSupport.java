@@ -48,6 +48,7 @@ import com.asakusafw.lang.compiler.model.description.ClassDescription;
 
 /**
  * An abstract implementation of {@link JavaCompilerSupport} using JSR-199.
+ * @version 0.5.5
  */
 public abstract class AbstractJavaCompilerSupport implements JavaCompilerSupport {
 
@@ -135,6 +136,18 @@ public abstract class AbstractJavaCompilerSupport implements JavaCompilerSupport
             JavaCompiler compiler,
             DiagnosticListener<JavaFileObject> listener) throws IOException;
 
+    /**
+     * Releases the {@link JavaFileManager} which was created by
+     * {@link #getJavaFileManager(JavaCompiler, DiagnosticListener)}.
+     * This closes the file manager by default.
+     * @param fileManager the target file manager
+     * @throws IOException if failed to release the file manager
+     * @since 0.5.5
+     */
+    protected void releaseJavaFileManager(JavaFileManager fileManager) throws IOException {
+        fileManager.close();
+    }
+
     /**
      * Returns the source and target version.
      * @return the source and target version
@@ -169,7 +182,10 @@ public abstract class AbstractJavaCompilerSupport implements JavaCompilerSupport
     private void doCompile(JavaCompiler compiler) throws IOException {
         assert compiler != null;
         DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
-        try (JavaFileManager fileManager = getJavaFileManager(compiler, diagnostics)) {
+        long start = System.currentTimeMillis();
+        JavaFileManager fileManager = getJavaFileManager(compiler, diagnostics);
+        try {
+            long prepared = System.currentTimeMillis();
             List<String> arguments = new ArrayList<>();
             String compliance = getCompliantVersion();
             if (compliance != null) {
@@ -181,17 +197,20 @@ public abstract class AbstractJavaCompilerSupport implements JavaCompilerSupport
 
             StringWriter errors = new StringWriter();
             boolean success;
+            long collected;
             try (PrintWriter pw = new PrintWriter(errors)) {
                 CompilationTask task;
                 try {
                     LOG.debug("javac options: {}", arguments); //$NON-NLS-1$
+                    Iterable<? extends JavaFileObject> sources = getSourceFiles(fileManager);
+                    collected = System.currentTimeMillis();
                     task = compiler.getTask(
                             pw,
                             fileManager,
                             diagnostics,
                             arguments,
                             getAnnotationProcessors(),
-                            getSourceFiles(fileManager));
+                            sources);
                 } catch (RuntimeException e) {
                     throw new DiagnosticException(
                             com.asakusafw.lang.compiler.common.Diagnostic.Level.ERROR,
@@ -202,6 +221,15 @@ public abstract class AbstractJavaCompilerSupport implements JavaCompilerSupport
                 }
                 success = task.call();
             }
+            long compiled = System.currentTimeMillis();
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(MessageFormat.format(
+                        "javac finished: prepare={0}ms, sources={1}ms, compile={2}ms, success={3}", //$NON-NLS-1$
+                        prepared - start,
+                        collected - prepared,
+                        compiled - collected,
+                        success));
+            }
             List<com.asakusafw.lang.compiler.common.Diagnostic> results = new ArrayList<>();
             for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
                 dumpDiagnostic(diagnostic);
@@ -241,6 +269,8 @@ public abstract class AbstractJavaCompilerSupport implements JavaCompilerSupport
                     throw new DiagnosticException(results);
                 }
             }
+        } finally {
+            releaseJavaFileManager(fileManager);
         }
     }
 
@@ -38,6 +38,7 @@ import com.asakusafw.lang.compiler.common.Location;
 
 /**
  * A basic implementation of {@link JavaCompilerSupport}.
+ * @version 0.5.5
  */
 public class BasicJavaCompilerSupport extends AbstractJavaCompilerSupport {
 
@@ -51,6 +52,8 @@ public class BasicJavaCompilerSupport extends AbstractJavaCompilerSupport {
 
     private volatile String compliantVersion;
 
+    private volatile JavaFileManagerPool fileManagerPool;
+
     /**
      * Creates a new instance.
      * @param sourcePath the source path
@@ -83,6 +86,17 @@ public class BasicJavaCompilerSupport extends AbstractJavaCompilerSupport {
         return this;
     }
 
+    /**
+     * Sets the pool of {@link JavaFileManager} to share class path indexes with other compilations.
+     * @param newValue the file manager pool, or {@code null} to create a new file manager for each compilation
+     * @return this
+     * @since 0.5.5
+     */
+    public BasicJavaCompilerSupport withFileManagerPool(JavaFileManagerPool newValue) {
+        this.fileManagerPool = newValue;
+        return this;
+    }
+
     /**
      * Returns the source path.
      * @return the source path
@@ -167,6 +181,18 @@ public class BasicJavaCompilerSupport extends AbstractJavaCompilerSupport {
                     "failed to create Java compiler output directory: {0}",
                     destinationPath));
         }
+        JavaFileManagerPool pool = fileManagerPool;
+        if (pool != null) {
+            StandardJavaFileManager files = pool.acquire(compiler, listener, getEncoding(), classPath, bootClassPath);
+            try {
+                files.setLocation(StandardLocation.SOURCE_PATH, Arrays.asList(sourcePath));
+                files.setLocation(StandardLocation.CLASS_OUTPUT, Arrays.asList(destinationPath));
+            } catch (IOException | RuntimeException e) {
+                pool.release(files);
+                throw e;
+            }
+            return files;
+        }
         StandardJavaFileManager files = compiler.getStandardFileManager(
                 listener,
                 Locale.getDefault(),
@@ -181,6 +207,16 @@ public class BasicJavaCompilerSupport extends AbstractJavaCompilerSupport {
         return files;
     }
 
+    @Override
+    protected void releaseJavaFileManager(JavaFileManager fileManager) throws IOException {
+        JavaFileManagerPool pool = fileManagerPool;
+        if (pool != null && fileManager instanceof StandardJavaFileManager) {
+            pool.release((StandardJavaFileManager) fileManager);
+        } else {
+            super.releaseJavaFileManager(fileManager);
+        }
+    }
+
     @Override
     protected List<String> getCompilerOptions() {
         List<String> results = new ArrayList<>();
@@ -0,0 +1,255 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.lang.compiler.javac;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A pool of {@link StandardJavaFileManager} for sharing them between individual compilations.
+ * Each file manager keeps its class path indexes, so that the latter compilations need not re-read
+ * the class path libraries.
+ * File managers are never shared between concurrent compilations, and each file manager reports its diagnostics
+ * to the listener of the current compilation.
+ * @since 0.5.5
+ */
+public class JavaFileManagerPool implements Closeable {
+
+    static final Logger LOG = LoggerFactory.getLogger(JavaFileManagerPool.class);
+
+    private final Map<Key, Deque<Entry>> idle = new HashMap<>();
+
+    private final Map<StandardJavaFileManager, Entry> leased = new IdentityHashMap<>();
+
+    private boolean closed;
+
+    /**
+     * Acquires a file manager.
+     * The returned file manager must be returned via {@link #release(StandardJavaFileManager)} after use.
+     * @param compiler the current Java compiler
+     * @param listener the diagnostic listener of the current compilation, or {@code null} to use the default one
+     * @param encoding the source encoding
+     * @param classPath the class path
+     * @param bootClassPath the boot class path, or {@code null} to use the default one
+     * @return the acquired file manager
+     * @throws IOException if failed to configure the file manager
+     */
+    public StandardJavaFileManager acquire(
+            JavaCompiler compiler,
+            DiagnosticListener<? super JavaFileObject> listener,
+            Charset encoding,
+            List<File> classPath,
+            List<File> bootClassPath) throws IOException {
+        Key key = new Key(compiler, encoding, classPath, bootClassPath);
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException();
+            }
+            Deque<Entry> candidates = idle.get(key);
+            Entry reuse = candidates == null ? null : candidates.pollFirst();
+            if (reuse != null) {
+                reuse.listener.delegate = listener;
+                leased.put(reuse.manager, reuse);
+                LOG.debug("reusing Java file manager: {}", reuse.manager); //$NON-NLS-1$
+                return reuse.manager;
+            }
+        }
+        ForwardingListener forward = new ForwardingListener();
+        forward.delegate = listener;
+        StandardJavaFileManager result = compiler.getStandardFileManager(forward, Locale.getDefault(), encoding);
+        result.setLocation(StandardLocation.CLASS_PATH, classPath);
+        if (bootClassPath != null) {
+            result.setLocation(StandardLocation.PLATFORM_CLASS_PATH, bootClassPath);
+        }
+        synchronized (this) {
+            if (closed) {
+                result.close();
+                throw new IllegalStateException();
+            }
+            leased.put(result, new Entry(key, result, forward));
+        }
+        LOG.debug("created Java file manager: {}", result); //$NON-NLS-1$
+        return result;
+    }
+
+    /**
+     * Releases the acquired file manager.
+     * @param fileManager the file manager, which was created by
+     *      {@link #acquire(JavaCompiler, DiagnosticListener, Charset, List, List)}
+     * @throws IOException if failed to release the file manager
+     */
+    public void release(StandardJavaFileManager fileManager) throws IOException {
+        fileManager.flush();
+        synchronized (this) {
+            Entry entry = leased.remove(fileManager);
+            if (entry == null) {
+                throw new IllegalStateException();
+            }
+            entry.listener.delegate = null;
+            if (closed == false) {
+                idle.computeIfAbsent(entry.key, k -> new ArrayDeque<>()).addFirst(entry);
+                return;
+            }
+        }
+        fileManager.close();
+    }
+
+    @Override
+    public void close() throws IOException {
+        List<StandardJavaFileManager> rest = new ArrayList<>();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (Deque<Entry> entries : idle.values()) {
+                for (Entry entry : entries) {
+                    rest.add(entry.manager);
+                }
+            }
+            idle.clear();
+        }
+        IOException occurred = null;
+        for (StandardJavaFileManager manager : rest) {
+            try {
+                manager.close();
+            } catch (IOException e) {
+                if (occurred == null) {
+                    occurred = e;
+                } else {
+                    occurred.addSuppressed(e);
+                }
+            }
+        }
+        if (occurred != null) {
+            throw occurred;
+        }
+    }
+
+    private static final class Entry {
+
+        final Key key;
+
+        final StandardJavaFileManager manager;
+
+        final ForwardingListener listener;
+
+        Entry(Key key, StandardJavaFileManager manager, ForwardingListener listener) {
+            this.key = key;
+            this.manager = manager;
+            this.listener = listener;
+        }
+    }
+
+    private static final class ForwardingListener implements DiagnosticListener<JavaFileObject> {
+
+        volatile DiagnosticListener<? super JavaFileObject> delegate;
+
+        ForwardingListener() {
+            return;
+        }
+
+        @Override
+        public void report(Diagnostic<? extends JavaFileObject> diagnostic) {
+            DiagnosticListener<? super JavaFileObject> current = delegate;
+            if (current != null) {
+                current.report(diagnostic);
+            } else {
+                LOG.debug("{}", diagnostic); //$NON-NLS-1$
+            }
+        }
+    }
+
+    private static final class Key {
+
+        private final Class<?> compiler;
+
+        private final Charset encoding;
+
+        private final List<File> classPath;
+
+        private final List<File> bootClassPath;
+
+        Key(JavaCompiler compiler, Charset encoding, List<File> classPath, List<File> bootClassPath) {
+            this.compiler = compiler.getClass();
+            this.encoding = encoding;
+            this.classPath = Collections.unmodifiableList(new ArrayList<>(classPath));
+            this.bootClassPath = bootClassPath == null
+                    ? null
+                    : Collections.unmodifiableList(new ArrayList<>(bootClassPath));
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + compiler.hashCode();
+            result = prime * result + Objects.hashCode(encoding);
+            result = prime * result + Objects.hashCode(classPath);
+            result = prime * result + Objects.hashCode(bootClassPath);
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            Key other = (Key) obj;
+            if (compiler != other.compiler) {
+                return false;
+            }
+            if (!Objects.equals(encoding, other.encoding)) {
+                return false;
+            }
+            if (!Objects.equals(classPath, other.classPath)) {
+                return false;
+            }
+            if (!Objects.equals(bootClassPath, other.bootClassPath)) {
+                return false;
+            }
+            return true;
+        }
+    }
+}
@@ -107,6 +107,33 @@ public class BasicJavaCompilerSupportTest {
         }
     }
 
+    /**
+     * w/ file manager pool.
+     * @throws Exception if failed
+     */
+    @Test
+    public void file_manager_pool() throws Exception {
+        File lib = deployer.copy("example.jar", "classpath/example.jar");
+        try (JavaFileManagerPool pool = new JavaFileManagerPool()) {
+            for (int i = 0; i < 2; i++) {
+                File source = deployer.getFile("source" + i);
+                File target = deployer.getFile("target" + i);
+                JavaCompilerSupport compiler = new BasicJavaCompilerSupport(source, Arrays.asList(lib), target)
+                        .withFileManagerPool(pool);
+                String className = "com.example.Inherit" + i;
+                put(compiler, className, new String[] {
+                        "package com.example;",
+                        String.format("public class Inherit%d extends com.example.Hello {}", i),
+                });
+                compiler.process();
+                try (URLClassLoader loader = loader(lib, target)) {
+                    Class<?> built = loader.loadClass(className);
+                    assertThat(built.getSuperclass().getName(), is("com.example.Hello"));
+                }
+            }
+        }
+    }
+
     /**
      * empty sources.
      * @throws Exception if failed
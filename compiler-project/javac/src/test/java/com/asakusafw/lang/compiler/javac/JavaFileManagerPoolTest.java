@@ -0,0 +1,110 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.lang.compiler.javac;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link JavaFileManagerPool}.
+ */
+public class JavaFileManagerPoolTest {
+
+    private final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+
+    /**
+     * simple case.
+     * @throws Exception if failed
+     */
+    @Test
+    public void simple() throws Exception {
+        try (JavaFileManagerPool pool = new JavaFileManagerPool()) {
+            StandardJavaFileManager a = pool.acquire(
+                    compiler, null, StandardCharsets.UTF_8, Collections.emptyList(), null);
+            pool.release(a);
+            StandardJavaFileManager b = pool.acquire(
+                    compiler, null, StandardCharsets.UTF_8, Collections.emptyList(), null);
+            assertThat(b, is(sameInstance(a)));
+            pool.release(b);
+        }
+    }
+
+    /**
+     * file managers are not shared while they are leased.
+     * @throws Exception if failed
+     */
+    @Test
+    public void leased() throws Exception {
+        try (JavaFileManagerPool pool = new JavaFileManagerPool()) {
+            StandardJavaFileManager a = pool.acquire(
+                    compiler, null, StandardCharsets.UTF_8, Collections.emptyList(), null);
+            StandardJavaFileManager b = pool.acquire(
+                    compiler, null, StandardCharsets.UTF_8, Collections.emptyList(), null);
+            assertThat(b, is(not(sameInstance(a))));
+            pool.release(a);
+            pool.release(b);
+        }
+    }
+
+    /**
+     * file managers are shared between compilations with different diagnostic listeners.
+     * @throws Exception if failed
+     */
+    @Test
+    public void different_listener() throws Exception {
+        try (JavaFileManagerPool pool = new JavaFileManagerPool()) {
+            DiagnosticCollector<JavaFileObject> first = new DiagnosticCollector<>();
+            StandardJavaFileManager a = pool.acquire(
+                    compiler, first, StandardCharsets.UTF_8, Collections.emptyList(), null);
+            pool.release(a);
+            DiagnosticCollector<JavaFileObject> second = new DiagnosticCollector<>();
+            StandardJavaFileManager b = pool.acquire(
+                    compiler, second, StandardCharsets.UTF_8, Collections.emptyList(), null);
+            assertThat(b, is(sameInstance(a)));
+            pool.release(b);
+        }
+    }
+
+    /**
+     * file managers are not shared between different class path.
+     * @throws Exception if failed
+     */
+    @Test
+    public void different_classpath() throws Exception {
+        try (JavaFileManagerPool pool = new JavaFileManagerPool()) {
+            StandardJavaFileManager a = pool.acquire(
+                    compiler, null, StandardCharsets.UTF_8, Collections.emptyList(), null);
+            pool.release(a);
+            StandardJavaFileManager b = pool.acquire(
+                    compiler, null, StandardCharsets.UTF_8, Arrays.asList(new File("testing.jar")), null);
+            assertThat(b, is(not(sameInstance(a))));
+            pool.release(b);
+        }
+    }
+}
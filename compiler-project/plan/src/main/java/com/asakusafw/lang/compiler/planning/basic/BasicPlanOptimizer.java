@@ -15,17 +15,32 @@
  */
 package com.asakusafw.lang.compiler.planning.basic;
 
+import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.asakusafw.lang.compiler.planning.OperatorEquivalence;
 
 /**
  * Optimizes {@link BasicPlan}s.
+ * This only revisits sub-plans which are affected by the previous rewrite operations, that is,
+ * the rewritten sub-plans and their neighbors.
+ * @since 0.1.0
+ * @version 0.5.5
  */
 public class BasicPlanOptimizer {
 
+    static final Logger LOG = LoggerFactory.getLogger(BasicPlanOptimizer.class);
+
     private final Set<Option> options = EnumSet.noneOf(Option.class);
 
     private final OperatorEquivalence equivalence;
@@ -48,72 +63,96 @@ public class BasicPlanOptimizer {
         if (options.isEmpty()) {
             return;
         }
+        long start = System.currentTimeMillis();
         BasicPlanEditor editor = new BasicPlanEditor(plan, equivalence);
-        boolean changed;
-        do {
-            changed = doOptimize(editor);
-        } while (changed);
+        Set<BasicSubPlanEditor> targets = new LinkedHashSet<>(editor.getSubEditorsForward());
+        int rounds = 0;
+        long visits = 0;
+        while (targets.isEmpty() == false) {
+            rounds++;
+            visits += targets.size();
+            targets = doOptimize(editor, targets);
+        }
         if (options.contains(Option.SORT_RESULT)) {
             plan.sort();
         }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(MessageFormat.format(
+                    "optimized plan: sub-plans={0}, rounds={1}, visits={2}, elapsed={3}ms", //$NON-NLS-1$
+                    plan.getElements().size(),
+                    rounds,
+                    visits,
+                    System.currentTimeMillis() - start));
+        }
     }
 
-    private boolean doOptimize(BasicPlanEditor editor) {
-        boolean changed = false;
+    private Set<BasicSubPlanEditor> doOptimize(BasicPlanEditor editor, Set<BasicSubPlanEditor> targets) {
+        Set<BasicSubPlanEditor> next = new LinkedHashSet<>();
+        // the targets are ordered as the sub-plans were added, which is the forward order in the first round
+        List<BasicSubPlanEditor> forward = new ArrayList<>(targets);
         if (options.contains(Option.REDUNDANT_OUTPUT_ELIMINATION)) {
-            changed |= applyRedundantOutputElimination(editor);
+            apply(editor, forward, next,
+                    sub -> applyForward(sub, OperatorGroup::applyRedundantOutputElimination));
         }
         if (options.contains(Option.UNION_PUSH_DOWN)) {
-            changed |= applyUnionPushDown(editor);
+            List<BasicSubPlanEditor> backward = new ArrayList<>(forward);
+            Collections.reverse(backward);
+            apply(editor, backward, next,
+                    sub -> applyBackward(sub, OperatorGroup::applyUnionPushDown));
         }
         if (options.contains(Option.TRIVIAL_OUTPUT_ELIMINATION)) {
-            changed |= applyTrivialOutputElimination(editor);
+            apply(editor, forward, next,
+                    sub -> applyForward(sub, OperatorGroup::applyTrivialOutputElimination));
         }
         if (options.contains(Option.DUPLICATE_CHECKPOINT_ELIMINATION)) {
-            changed |= applyDuplicateCheckpointElimination(editor);
+            apply(editor, forward, next,
+                    sub -> applyForward(sub, OperatorGroup::applyDuplicateCheckpointElimination));
         }
-        changed |= editor.revalidate();
-        return changed;
+        apply(editor, forward, next, BasicSubPlanEditor::revalidate);
+        removeEmpty(editor, forward, next);
+        return next;
     }
 
-    private boolean applyRedundantOutputElimination(BasicPlanEditor editor) {
-        boolean changed = false;
-        for (BasicSubPlanEditor sub : editor.getSubEditorsForward()) {
-            for (OperatorGroup group : sub.getOperatorGroupsForward()) {
-                changed |= group.applyRedundantOutputElimination();
+    private static void apply(
+            BasicPlanEditor editor, List<BasicSubPlanEditor> targets, Set<BasicSubPlanEditor> next,
+            Predicate<BasicSubPlanEditor> action) {
+        for (BasicSubPlanEditor sub : targets) {
+            // rewrite operations may re-connect ports between the target and its neighbors
+            Set<BasicSubPlanEditor> neighbors = editor.getNeighbors(sub);
+            if (action.test(sub)) {
+                next.add(sub);
+                next.addAll(neighbors);
+                next.addAll(editor.getNeighbors(sub));
             }
         }
-        return changed;
     }
 
-    private boolean applyUnionPushDown(BasicPlanEditor editor) {
+    private static boolean applyForward(BasicSubPlanEditor sub, Predicate<OperatorGroup> rule) {
         boolean changed = false;
-        for (BasicSubPlanEditor sub : editor.getSubEditorsBackward()) {
-            for (OperatorGroup group : sub.getOperatorGroupsBackward()) {
-                changed |= group.applyUnionPushDown();
-            }
+        for (OperatorGroup group : sub.getOperatorGroupsForward()) {
+            changed |= rule.test(group);
         }
         return changed;
     }
 
-    private boolean applyTrivialOutputElimination(BasicPlanEditor editor) {
+    private static boolean applyBackward(BasicSubPlanEditor sub, Predicate<OperatorGroup> rule) {
         boolean changed = false;
-        for (BasicSubPlanEditor sub : editor.getSubEditorsForward()) {
-            for (OperatorGroup group : sub.getOperatorGroupsForward()) {
-                changed |= group.applyTrivialOutputElimination();
-            }
+        for (OperatorGroup group : sub.getOperatorGroupsBackward()) {
+            changed |= rule.test(group);
         }
         return changed;
     }
 
-    private boolean applyDuplicateCheckpointElimination(BasicPlanEditor editor) {
-        boolean changed = false;
-        for (BasicSubPlanEditor sub : editor.getSubEditorsForward()) {
-            for (OperatorGroup group : sub.getOperatorGroupsForward()) {
-                changed |= group.applyDuplicateCheckpointElimination();
+    private static void removeEmpty(
+            BasicPlanEditor editor, List<BasicSubPlanEditor> targets, Set<BasicSubPlanEditor> next) {
+        // only revalidated sub-plans can become empty
+        for (BasicSubPlanEditor sub : targets) {
+            if (sub.isEmpty()) {
+                next.addAll(editor.getNeighbors(sub));
+                editor.remove(sub);
+                next.remove(sub);
             }
         }
-        return changed;
     }
 
     /**
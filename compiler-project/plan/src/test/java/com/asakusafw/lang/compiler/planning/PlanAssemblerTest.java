@@ -236,6 +236,40 @@ s0 --- c0 --- c1 --- d0
         assertThat(getDuplications(s1), hasSize(0));
     }
 
+    /**
+     * w/ duplicate checkpoint elimination for chained checkpoints.
+<pre>{@code
+s0 --- c0 --- c1 --- c2 --- c3 --- d0
+}</pre>
+     */
+    @Test
+    public void with_duplicate_checkpoint_elimination_chain() {
+        MockOperators mock = new MockOperators()
+            .input("s0")
+            .marker("c0", PlanMarker.CHECKPOINT).connect("s0", "c0")
+            .marker("c1", PlanMarker.CHECKPOINT).connect("c0", "c1")
+            .marker("c2", PlanMarker.CHECKPOINT).connect("c1", "c2")
+            .marker("c3", PlanMarker.CHECKPOINT).connect("c2", "c3")
+            .output("d0").connect("c3", "d0");
+        PlanDetail origin = prepare(mock);
+        assertThat(origin.getPlan().getElements(), hasSize(5));
+
+        PlanAssembler assembler = Planning.startAssemblePlan(origin);
+        assembler.withDuplicateCheckpointElimination(true);
+        for (SubPlan s : origin.getPlan().getElements()) {
+            assembler.add(Collections.singleton(s));
+        }
+        PlanDetail detail = assembler.build();
+        assertThat(detail.getPlan().getElements(), hasSize(2));
+        assertThat(detail.getCopies(mock.get("c1")), hasSize(0));
+        assertThat(detail.getCopies(mock.get("c2")), hasSize(0));
+
+        SubPlan s0 = ownerOf(detail, mock.get("c0"));
+        SubPlan s1 = ownerOf(detail, mock.get("c3"));
+        assertThat(succ(s0), containsInAnyOrder(s1));
+        assertThat(pred(s1), containsInAnyOrder(s0));
+    }
+
     /**
      * w/ crossing.
 <pre>{@code
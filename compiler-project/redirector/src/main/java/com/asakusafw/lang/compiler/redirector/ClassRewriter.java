@@ -31,6 +31,8 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Rewrites a class file binary to redirect API invocations.
+ * This class is thread-safe if the {@link RedirectRule rule} is not modified while rewriting.
+ * @version 0.5.5
  */
 public class ClassRewriter {
 
@@ -63,8 +65,27 @@ public class ClassRewriter {
         output.write(writer.toByteArray());
     }
 
+    /**
+     * Rewrite the class binary.
+     * @param contents the original class binary
+     * @return the modified class binary, or the given array itself if no API invocations were redirected
+     * @since 0.5.5
+     */
+    public byte[] rewrite(byte[] contents) {
+        ClassReader reader = new ClassReader(contents);
+        ClassWriter writer = new ClassWriter(0);
+        ClassEditor editor = new ClassEditor(writer);
+        reader.accept(editor, 0);
+        if (editor.redirected == false) {
+            return contents;
+        }
+        return writer.toByteArray();
+    }
+
     private class ClassEditor extends ClassVisitor {
 
+        boolean redirected;
+
         ClassEditor(ClassVisitor forward) {
             super(Opcodes.ASM5, forward);
         }
@@ -72,14 +93,17 @@ public class ClassRewriter {
         @Override
         public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
             MethodVisitor forward = super.visitMethod(access, name, desc, signature, exceptions);
-            return new MethodEditor(forward);
+            return new MethodEditor(this, forward);
         }
     }
 
     private class MethodEditor extends MethodVisitor {
 
-        MethodEditor(MethodVisitor forward) {
+        private final ClassEditor parent;
+
+        MethodEditor(ClassEditor parent, MethodVisitor forward) {
             super(Opcodes.ASM5, forward);
+            this.parent = parent;
         }
 
         @Override
@@ -89,6 +113,9 @@ public class ClassRewriter {
             } else {
                 Type type = Type.getObjectType(owner);
                 Type target = rule.redirect(type);
+                if (type.equals(target) == false) {
+                    parent.redirected = true;
+                }
                 if (LOG.isDebugEnabled() && type.equals(target) == false) {
                     LOG.debug("rewrite invocation: ({} => {}).{}{}", new Object[] { //$NON-NLS-1$
                             type.getClassName(),
@@ -0,0 +1,410 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.lang.compiler.redirector;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * Copies entries of a ZIP archive into another one without decompressing them.
+ * Only the replaced entries are compressed again.
+ * This only supports single disk archives without ZIP64 extensions or encryption.
+ * Entries with data descriptors are copied with the sizes in the central directory, and then their data descriptors
+ * are dropped.
+ * @since 0.5.5
+ */
+final class ZipArchiveCopier {
+
+    private static final int SIGNATURE_LOCAL = 0x04034b50;
+
+    private static final int SIGNATURE_CENTRAL = 0x02014b50;
+
+    private static final int SIGNATURE_END = 0x06054b50;
+
+    private static final int SIGNATURE_ZIP64_LOCATOR = 0x07064b50;
+
+    private static final int LOCAL_HEADER_SIZE = 30;
+
+    private static final int CENTRAL_HEADER_SIZE = 46;
+
+    private static final int END_SIZE = 22;
+
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+
+    private static final int MAX_U16 = 0xffff;
+
+    private static final long MAX_U32 = 0xffffffffL;
+
+    private static final int FLAG_ENCRYPTED = 1;
+
+    private static final int FLAG_DATA_DESCRIPTOR = 1 << 3;
+
+    private static final int EXTRA_ZIP64 = 0x0001;
+
+    private ZipArchiveCopier() {
+        return;
+    }
+
+    /**
+     * Copies the source ZIP archive into the destination file.
+     * @param source the source ZIP archive
+     * @param replacements the replaced entry contents, as a map of entry name and its contents
+     * @param destination the destination file
+     * @return {@code true} if the archive was copied, or {@code false} if the source archive is not supported
+     * @throws IOException if I/O error was occurred while copying the archive
+     */
+    static boolean copy(File source, Map<String, byte[]> replacements, File destination) throws IOException {
+        try (RandomAccessFile input = new RandomAccessFile(source, "r")) { //$NON-NLS-1$
+            Archive archive = Archive.read(input);
+            if (archive == null) {
+                return false;
+            }
+            try (Writer output = new Writer(new BufferedOutputStream(new FileOutputStream(destination)))) {
+                for (Entry entry : archive.entries) {
+                    byte[] contents = replacements.get(entry.getName());
+                    if (contents == null) {
+                        if (output.copy(input, entry) == false) {
+                            return false;
+                        }
+                    } else {
+                        output.write(entry, contents);
+                    }
+                }
+                return output.finish(archive.comment);
+            }
+        }
+    }
+
+    static int u16(ByteBuffer buffer, int offset) {
+        return buffer.getShort(offset) & MAX_U16;
+    }
+
+    static long u32(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset) & MAX_U32;
+    }
+
+    static boolean hasZip64Extra(ByteBuffer buffer, int offset, int length) {
+        int limit = offset + length;
+        for (int current = offset; current + 4 <= limit;) {
+            if (u16(buffer, current) == EXTRA_ZIP64) {
+                return true;
+            }
+            current += 4 + u16(buffer, current + 2);
+        }
+        return false;
+    }
+
+    static ByteBuffer read(RandomAccessFile input, long position, int size) throws IOException {
+        byte[] bytes = new byte[size];
+        input.seek(position);
+        input.readFully(bytes);
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static final class Archive {
+
+        final List<Entry> entries;
+
+        final byte[] comment;
+
+        Archive(List<Entry> entries, byte[] comment) {
+            this.entries = entries;
+            this.comment = comment;
+        }
+
+        static Archive read(RandomAccessFile input) throws IOException {
+            long length = input.length();
+            if (length < END_SIZE) {
+                return null;
+            }
+            int tailSize = (int) Math.min(length, END_SIZE + MAX_U16);
+            ByteBuffer tail = ZipArchiveCopier.read(input, length - tailSize, tailSize);
+            int end = -1;
+            for (int offset = tailSize - END_SIZE; offset >= 0; offset--) {
+                if (tail.getInt(offset) == SIGNATURE_END
+                        && offset + END_SIZE + u16(tail, offset + 20) == tailSize) {
+                    end = offset;
+                    break;
+                }
+            }
+            if (end < 0) {
+                return null;
+            }
+            if (end >= ZIP64_LOCATOR_SIZE && tail.getInt(end - ZIP64_LOCATOR_SIZE) == SIGNATURE_ZIP64_LOCATOR) {
+                return null;
+            }
+            int disk = u16(tail, end + 4);
+            int directoryDisk = u16(tail, end + 6);
+            int diskEntries = u16(tail, end + 8);
+            int totalEntries = u16(tail, end + 10);
+            long directorySize = u32(tail, end + 12);
+            long directoryOffset = u32(tail, end + 16);
+            if (disk != 0 || directoryDisk != 0 || diskEntries != totalEntries || totalEntries == MAX_U16
+                    || directorySize >= Integer.MAX_VALUE || directoryOffset + directorySize > length) {
+                return null;
+            }
+            byte[] comment = new byte[u16(tail, end + 20)];
+            tail.position(end + END_SIZE);
+            tail.get(comment);
+            ByteBuffer directory = ZipArchiveCopier.read(input, directoryOffset, (int) directorySize);
+            List<Entry> entries = new ArrayList<>();
+            int offset = 0;
+            for (int i = 0; i < totalEntries; i++) {
+                if (offset + CENTRAL_HEADER_SIZE > directory.limit()
+                        || directory.getInt(offset) != SIGNATURE_CENTRAL) {
+                    return null;
+                }
+                int size = CENTRAL_HEADER_SIZE
+                        + u16(directory, offset + 28) + u16(directory, offset + 30) + u16(directory, offset + 32);
+                if (offset + size > directory.limit()) {
+                    return null;
+                }
+                byte[] header = new byte[size];
+                directory.position(offset);
+                directory.get(header);
+                Entry entry = new Entry(header);
+                if ((entry.getFlags() & FLAG_ENCRYPTED) != 0
+                        || entry.getCompressedSize() == MAX_U32
+                        || entry.getSize() == MAX_U32
+                        || entry.getLocalOffset() == MAX_U32
+                        || entry.getDisk() != 0
+                        || entry.hasZip64Extra()) {
+                    return null;
+                }
+                entries.add(entry);
+                offset += size;
+            }
+            return new Archive(entries, comment);
+        }
+    }
+
+    private static final class Entry {
+
+        final ByteBuffer header;
+
+        Entry(byte[] header) {
+            this.header = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        String getName() {
+            return new String(header.array(), CENTRAL_HEADER_SIZE, u16(header, 28), StandardCharsets.UTF_8);
+        }
+
+        int getVersionNeeded() {
+            return u16(header, 6);
+        }
+
+        int getFlags() {
+            return u16(header, 8);
+        }
+
+        int getMethod() {
+            return u16(header, 10);
+        }
+
+        long getCompressedSize() {
+            return u32(header, 20);
+        }
+
+        long getSize() {
+            return u32(header, 24);
+        }
+
+        int getDisk() {
+            return u16(header, 34);
+        }
+
+        long getLocalOffset() {
+            return u32(header, 42);
+        }
+
+        boolean hasZip64Extra() {
+            return ZipArchiveCopier.hasZip64Extra(header, CENTRAL_HEADER_SIZE + u16(header, 28), u16(header, 30));
+        }
+
+        Entry relocate(long localOffset, int method, long crc, long compressedSize, long size) {
+            Entry copy = new Entry(header.array().clone());
+            copy.header.putShort(8, (short) (getFlags() & ~FLAG_DATA_DESCRIPTOR));
+            copy.header.putShort(10, (short) method);
+            copy.header.putInt(16, (int) crc);
+            copy.header.putInt(20, (int) compressedSize);
+            copy.header.putInt(24, (int) size);
+            copy.header.putInt(42, (int) localOffset);
+            return copy;
+        }
+
+        Entry relocate(long localOffset) {
+            return relocate(localOffset, getMethod(), u32(header, 16), getCompressedSize(), getSize());
+        }
+
+        ByteBuffer newLocalHeader(byte[] extra) {
+            int nameLength = u16(header, 28);
+            ByteBuffer local = ByteBuffer.allocate(LOCAL_HEADER_SIZE + nameLength + extra.length)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            local.putInt(SIGNATURE_LOCAL);
+            local.putShort((short) getVersionNeeded());
+            local.putShort((short) getFlags());
+            local.putShort((short) getMethod());
+            local.putInt(header.getInt(12)); // time and date
+            local.putInt(header.getInt(16)); // CRC-32
+            local.putInt((int) getCompressedSize());
+            local.putInt((int) getSize());
+            local.putShort((short) nameLength);
+            local.putShort((short) extra.length);
+            local.put(header.array(), CENTRAL_HEADER_SIZE, nameLength);
+            local.put(extra);
+            return local;
+        }
+    }
+
+    private static final class Writer implements Closeable {
+
+        private final OutputStream output;
+
+        private final List<Entry> written = new ArrayList<>();
+
+        private final byte[] buffer = new byte[8192];
+
+        private long position;
+
+        Writer(OutputStream output) {
+            this.output = output;
+        }
+
+        boolean copy(RandomAccessFile input, Entry entry) throws IOException {
+            ByteBuffer local = read(input, entry.getLocalOffset(), LOCAL_HEADER_SIZE);
+            if (local.getInt(0) != SIGNATURE_LOCAL) {
+                throw new IOException("invalid ZIP local file header");
+            }
+            long dataOffset = entry.getLocalOffset() + LOCAL_HEADER_SIZE + u16(local, 26);
+            byte[] extra = new byte[u16(local, 28)];
+            input.seek(dataOffset);
+            input.readFully(extra);
+            if (hasZip64Extra(ByteBuffer.wrap(extra).order(ByteOrder.LITTLE_ENDIAN), 0, extra.length)) {
+                // the local header may have ZIP64 sizes
+                return false;
+            }
+            // sizes in the local header are available, so that the data descriptor is not necessary
+            Entry next = entry.relocate(position);
+            put(next.newLocalHeader(extra));
+            long rest = entry.getCompressedSize();
+            while (rest > 0) {
+                int read = input.read(buffer, 0, (int) Math.min(rest, buffer.length));
+                if (read < 0) {
+                    throw new IOException("unexpected end of ZIP entry");
+                }
+                put(buffer, 0, read);
+                rest -= read;
+            }
+            written.add(next);
+            return true;
+        }
+
+        void write(Entry entry, byte[] contents) throws IOException {
+            CRC32 crc = new CRC32();
+            crc.update(contents);
+            byte[] data;
+            int method;
+            if (entry.getMethod() == ZipEntry.STORED) {
+                method = ZipEntry.STORED;
+                data = contents;
+            } else {
+                method = ZipEntry.DEFLATED;
+                data = deflate(contents);
+            }
+            Entry next = entry.relocate(position, method, crc.getValue(), data.length, contents.length);
+            put(next.newLocalHeader(new byte[0]));
+            put(data, 0, data.length);
+            written.add(next);
+        }
+
+        private static byte[] deflate(byte[] contents) {
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            try {
+                deflater.setInput(contents);
+                deflater.finish();
+                byte[] results = new byte[Math.max(contents.length, 64)];
+                int size = 0;
+                while (deflater.finished() == false) {
+                    if (size == results.length) {
+                        byte[] grown = new byte[results.length * 2];
+                        System.arraycopy(results, 0, grown, 0, size);
+                        results = grown;
+                    }
+                    size += deflater.deflate(results, size, results.length - size);
+                }
+                byte[] trimmed = new byte[size];
+                System.arraycopy(results, 0, trimmed, 0, size);
+                return trimmed;
+            } finally {
+                deflater.end();
+            }
+        }
+
+        boolean finish(byte[] comment) throws IOException {
+            long directoryOffset = position;
+            for (Entry entry : written) {
+                byte[] header = entry.header.array();
+                put(header, 0, header.length);
+            }
+            long directorySize = position - directoryOffset;
+            if (directoryOffset > MAX_U32 || directorySize > MAX_U32) {
+                // requires ZIP64 extensions
+                return false;
+            }
+            ByteBuffer end = ByteBuffer.allocate(END_SIZE + comment.length).order(ByteOrder.LITTLE_ENDIAN);
+            end.putInt(SIGNATURE_END);
+            end.putShort((short) 0);
+            end.putShort((short) 0);
+            end.putShort((short) written.size());
+            end.putShort((short) written.size());
+            end.putInt((int) directorySize);
+            end.putInt((int) directoryOffset);
+            end.putShort((short) comment.length);
+            end.put(comment);
+            put(end);
+            return true;
+        }
+
+        private void put(ByteBuffer contents) throws IOException {
+            put(contents.array(), 0, contents.position());
+        }
+
+        private void put(byte[] bytes, int offset, int length) throws IOException {
+            output.write(bytes, offset, length);
+            position += length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            output.close();
+        }
+    }
+}
@@ -15,14 +15,34 @@
  */
 package com.asakusafw.lang.compiler.redirector;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
@@ -31,6 +51,10 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Rewrite ZIP/JAR file to redirect API invocations.
+ * This class remembers the contents digest of the JAR files which have been recently redirected,
+ * and skips rewriting such files.
+ * Only the modified class files are compressed again, and other entries are copied as is if it is possible.
+ * @version 0.5.5
  */
 public class ZipRewriter {
 
@@ -38,14 +62,33 @@ public class ZipRewriter {
 
     static final String CLASS_EXTENSION = ".class"; //$NON-NLS-1$
 
+    static final String DIGEST_ALGORITHM = "SHA-256"; //$NON-NLS-1$
+
+    static final int MAX_DIGESTS = 1024;
+
     final ClassRewriter classRewriter;
 
+    private final int parallelism;
+
+    private final Map<String, Boolean> redirected = Collections.synchronizedMap(new DigestCache(MAX_DIGESTS));
+
     /**
      * Creates a new instance.
      * @param rule the redirect rule
      */
     public ZipRewriter(RedirectRule rule) {
+        this(rule, 1);
+    }
+
+    /**
+     * Creates a new instance.
+     * @param rule the redirect rule
+     * @param parallelism the max number of class files which are rewritten concurrently
+     * @since 0.5.5
+     */
+    public ZipRewriter(RedirectRule rule, int parallelism) {
         this.classRewriter = new ClassRewriter(rule);
+        this.parallelism = Math.max(parallelism, 1);
     }
 
     /**
@@ -83,20 +126,40 @@ public class ZipRewriter {
 
     /**
      * Rewrite entries in the ZIP archive file.
+     * The file is replaced only if any class files in it are actually modified.
      * @param file the target ZIP file
      * @throws IOException if failed to rewrite by I/O error
      */
     public void rewrite(File file) throws IOException {
-        LOG.debug("rewrting JAR file: {}", file); //$NON-NLS-1$
-        File temporary = File.createTempFile("redirect-", ".zip"); //$NON-NLS-1$ //$NON-NLS-2$
+        String digest = digest(file);
+        if (redirected.containsKey(digest)) {
+            LOG.debug("skip rewriting JAR file (already redirected): {}", file); //$NON-NLS-1$
+            return;
+        }
+        LOG.debug("rewriting JAR file: {}", file); //$NON-NLS-1$
+        // creates the temporary file next to the target to replace it atomically
+        File temporary = File.createTempFile(
+                "redirect-", ".zip", //$NON-NLS-1$ //$NON-NLS-2$
+                file.getAbsoluteFile().getParentFile());
         try {
-            try (ZipInputStream input = new ZipInputStream(new FileInputStream(file));
-                    ZipOutputStream output = new ZipOutputStream(new FileOutputStream(temporary))) {
-                rewrite(input, output);
+            boolean changed;
+            try (ZipFile input = new ZipFile(file)) {
+                Map<String, byte[]> classes = rewriteClasses(input);
+                changed = classes.isEmpty() == false;
+                if (changed && ZipArchiveCopier.copy(file, classes, temporary) == false) {
+                    LOG.debug("cannot copy raw ZIP entries, recompress all entries instead: {}", file); //$NON-NLS-1$
+                    try (ZipOutputStream output = new ZipOutputStream(
+                            new BufferedOutputStream(new FileOutputStream(temporary)))) {
+                        write(input, classes, output);
+                    }
+                }
             }
-            try (InputStream input = new FileInputStream(temporary);
-                    OutputStream output = new FileOutputStream(file)) {
-                Util.copy(input, output);
+            if (changed) {
+                replace(temporary, file);
+                redirected.put(digest(file), Boolean.TRUE);
+            } else {
+                LOG.debug("no API invocations are redirected: {}", file); //$NON-NLS-1$
+                redirected.put(digest, Boolean.TRUE);
             }
         } catch (IOException e) {
             throw new IOException(MessageFormat.format(
@@ -111,7 +174,155 @@ public class ZipRewriter {
         }
     }
 
+    private Map<String, byte[]> rewriteClasses(ZipFile input) throws IOException {
+        List<ZipEntry> targets = new ArrayList<>();
+        for (Enumeration<? extends ZipEntry> iter = input.entries(); iter.hasMoreElements();) {
+            ZipEntry entry = iter.nextElement();
+            if (entry.isDirectory() == false && isTarget(entry)) {
+                targets.add(entry);
+            }
+        }
+        Map<String, byte[]> results = new HashMap<>();
+        int threads = Math.min(parallelism, targets.size());
+        if (threads <= 1) {
+            for (ZipEntry entry : targets) {
+                rewriteClass(input, entry, results);
+            }
+            return results;
+        }
+        Map<String, byte[]> concurrent = new ConcurrentHashMap<>();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (ZipEntry entry : targets) {
+                tasks.add(pool.submit(() -> {
+                    try {
+                        rewriteClass(input, entry, concurrent);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            }
+            for (ForkJoinTask<?> task : tasks) {
+                try {
+                    task.join();
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        results.putAll(concurrent);
+        return results;
+    }
+
+    private void rewriteClass(ZipFile input, ZipEntry entry, Map<String, byte[]> results) throws IOException {
+        byte[] contents;
+        try (InputStream in = input.getInputStream(entry)) {
+            contents = read(in, entry.getSize());
+        }
+        byte[] rewritten = classRewriter.rewrite(contents);
+        if (rewritten != contents) {
+            LOG.trace("rewrite class: {}", entry.getName()); //$NON-NLS-1$
+            results.put(entry.getName(), rewritten);
+        }
+    }
+
+    private static void write(ZipFile input, Map<String, byte[]> classes, ZipOutputStream output) throws IOException {
+        for (Enumeration<? extends ZipEntry> iter = input.entries(); iter.hasMoreElements();) {
+            ZipEntry entry = iter.nextElement();
+            byte[] rewritten = classes.get(entry.getName());
+            ZipEntry next = new ZipEntry(entry.getName());
+            next.setTime(entry.getTime());
+            next.setMethod(entry.getMethod());
+            if (entry.getExtra() != null) {
+                next.setExtra(entry.getExtra());
+            }
+            next.setComment(entry.getComment());
+            if (entry.getMethod() == ZipEntry.STORED) {
+                if (rewritten == null) {
+                    next.setSize(entry.getSize());
+                    next.setCompressedSize(entry.getCompressedSize());
+                    next.setCrc(entry.getCrc());
+                } else {
+                    CRC32 crc = new CRC32();
+                    crc.update(rewritten);
+                    next.setSize(rewritten.length);
+                    next.setCompressedSize(rewritten.length);
+                    next.setCrc(crc.getValue());
+                }
+            }
+            output.putNextEntry(next);
+            if (entry.isDirectory()) {
+                continue;
+            }
+            if (rewritten != null) {
+                output.write(rewritten);
+            } else {
+                LOG.trace("    copy file: {}", entry.getName()); //$NON-NLS-1$
+                try (InputStream in = input.getInputStream(entry)) {
+                    Util.copy(in, output);
+                }
+            }
+        }
+    }
+
+    private static void replace(File source, File destination) throws IOException {
+        try {
+            Files.move(source.toPath(), destination.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            LOG.debug("atomic move is not supported: {}", destination, e); //$NON-NLS-1$
+            Files.move(source.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static byte[] read(InputStream input, long size) throws IOException {
+        int capacity = size < 0 || size > Integer.MAX_VALUE ? 1024 : (int) size;
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(capacity);
+        Util.copy(input, buffer);
+        return buffer.toByteArray();
+    }
+
+    private static String digest(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream input = new DigestInputStream(new FileInputStream(file), digest)) {
+            byte[] buf = new byte[8192];
+            while (input.read(buf) >= 0) {
+                continue;
+            }
+        }
+        StringBuilder buf = new StringBuilder();
+        for (byte b : digest.digest()) {
+            buf.append(String.format("%02x", b & 0xff)); //$NON-NLS-1$
+        }
+        return buf.toString();
+    }
+
     private boolean isTarget(ZipEntry entry) {
         return entry.getName().endsWith(CLASS_EXTENSION);
     }
+
+    private static final class DigestCache extends LinkedHashMap<String, Boolean> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        DigestCache(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > capacity;
+        }
+    }
 }
@@ -72,6 +72,40 @@ public class ClassRewriterTest {
         assertThat(apply(rule), is("0:2:3"));
     }
 
+    /**
+     * rewrite byte arrays.
+     * @throws Exception if failed
+     */
+    @Test
+    public void bytes() throws Exception {
+        RedirectRule rule = new RedirectRule();
+        rule.add(Type.getType(MockCallee0.class), Type.getType(MockCallee2.class));
+        ClassRewriter rewriter = new ClassRewriter(rule);
+
+        byte[] contents = VolatileClassLoader.dump(MockCaller.class);
+        byte[] rewritten = rewriter.rewrite(contents);
+        assertThat(rewritten, is(not(sameInstance(contents))));
+
+        VolatileClassLoader loader = new VolatileClassLoader(getClass().getClassLoader());
+        Class<?> aClass = loader.forceLoad(rewritten);
+        assertThat(aClass.newInstance().toString(), is("0:2:1"));
+    }
+
+    /**
+     * rewrite byte arrays w/o any redirections.
+     * @throws Exception if failed
+     */
+    @Test
+    public void bytes_not_redirected() throws Exception {
+        RedirectRule rule = new RedirectRule();
+        rule.add(Type.getType(MockCallee3.class), Type.getType(MockCallee2.class));
+        ClassRewriter rewriter = new ClassRewriter(rule);
+
+        byte[] contents = VolatileClassLoader.dump(MockCaller.class);
+        byte[] rewritten = rewriter.rewrite(contents);
+        assertThat(rewritten, is(sameInstance(contents)));
+    }
+
     private String apply(RedirectRule rule) throws IOException {
         ClassRewriter rewriter = new ClassRewriter(rule);
 
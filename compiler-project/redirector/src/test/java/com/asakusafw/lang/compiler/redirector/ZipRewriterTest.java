@@ -23,8 +23,13 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
@@ -43,6 +48,8 @@ import com.asakusafw.lang.compiler.redirector.mock.MockCaller;
  */
 public class ZipRewriterTest {
 
+    private static final int FLAG_DATA_DESCRIPTOR = 1 << 3;
+
     /**
      * temporary folder for testing.
      */
@@ -90,6 +97,213 @@ public class ZipRewriterTest {
         assertThat(dump(file), hasEntry("a.bin", new byte[] { 1, 2, 3 }));
     }
 
+    /**
+     * rewrite class files in parallel.
+     * @throws Exception if failed
+     */
+    @Test
+    public void parallel() throws Exception {
+        Map<String, byte[]> contents = new LinkedHashMap<>();
+        contents.put("a.bin", new byte[] { 1, 2, 3 });
+        addClass(contents, MockCaller.class);
+        addClass(contents, MockCallee0.class);
+        addClass(contents, MockCallee1.class);
+        contents.put("b.bin", new byte[] { 4, 5, 6 });
+
+        RedirectRule rule = new RedirectRule();
+        rule.add(MockCallee0.class.getName(), MockCallee2.class.getName());
+        rule.add(MockCallee1.class.getName(), MockCallee3.class.getName());
+
+        File file = save(contents);
+        new ZipRewriter(rule, 4).rewrite(file);
+
+        assertThat(apply(file), is("0:2:3"));
+        Map<String, byte[]> results = dump(file);
+        assertThat(results.keySet(), contains(contents.keySet().toArray()));
+        assertThat(results, hasEntry("a.bin", new byte[] { 1, 2, 3 }));
+        assertThat(results, hasEntry("b.bin", new byte[] { 4, 5, 6 }));
+    }
+
+    /**
+     * keep files which have no redirection targets.
+     * @throws Exception if failed
+     */
+    @Test
+    public void not_redirected() throws Exception {
+        Map<String, byte[]> contents = new LinkedHashMap<>();
+        contents.put("a.bin", new byte[] { 1, 2, 3 });
+        addClass(contents, MockCaller.class);
+
+        RedirectRule rule = new RedirectRule();
+        rule.add(MockCallee3.class.getName(), MockCallee2.class.getName());
+
+        File file = save(contents);
+        byte[] original = Files.readAllBytes(file.toPath());
+        new ZipRewriter(rule).rewrite(file);
+
+        assertThat(Files.readAllBytes(file.toPath()), is(original));
+        assertThat(apply(file), is("0:0:1"));
+    }
+
+    /**
+     * skip files which have been already redirected.
+     * @throws Exception if failed
+     */
+    @Test
+    public void already_redirected() throws Exception {
+        Map<String, byte[]> contents = new LinkedHashMap<>();
+        addClass(contents, MockCaller.class);
+
+        RedirectRule rule = new RedirectRule();
+        rule.add(MockCallee0.class.getName(), MockCallee2.class.getName());
+        ZipRewriter rewriter = new ZipRewriter(rule);
+
+        File file = save(contents);
+        rewriter.rewrite(file);
+        byte[] redirected = Files.readAllBytes(file.toPath());
+
+        File copy = temporary.newFile();
+        Files.write(copy.toPath(), redirected);
+        long lastModified = copy.lastModified();
+        rewriter.rewrite(copy);
+
+        assertThat(copy.lastModified(), is(lastModified));
+        assertThat(Files.readAllBytes(copy.toPath()), is(redirected));
+        assertThat(apply(copy), is("0:2:1"));
+    }
+
+    /**
+     * entries except rewritten classes are not compressed again.
+     * @throws Exception if failed
+     */
+    @Test
+    public void raw_copy() throws Exception {
+        Map<String, byte[]> contents = new LinkedHashMap<>();
+        Random random = new Random(6502);
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            buf.append((char) ('a' + random.nextInt(4))).append(random.nextInt(8) == 0 ? '\n' : ' ');
+        }
+        byte[] text = buf.toString().getBytes("UTF-8");
+        contents.put("a.txt", text);
+        addClass(contents, MockCaller.class);
+
+        File file = temporary.newFile();
+        try (ZipOutputStream output = new ZipOutputStream(new FileOutputStream(file))) {
+            output.setLevel(Deflater.BEST_SPEED);
+            ZipUtil.load(output, contents);
+        }
+        long compressed = getCompressedSize(file, "a.txt");
+
+        RedirectRule rule = new RedirectRule();
+        rule.add(MockCallee0.class.getName(), MockCallee2.class.getName());
+        new ZipRewriter(rule).rewrite(file);
+
+        assertThat(apply(file), is("0:2:1"));
+        assertThat(dump(file), hasEntry("a.txt", text));
+        assertThat(getCompressedSize(file, "a.txt"), is(compressed));
+    }
+
+    /**
+     * entries with data descriptors are copied without them.
+     * @throws Exception if failed
+     */
+    @Test
+    public void raw_copy_data_descriptor() throws Exception {
+        Map<String, byte[]> contents = new LinkedHashMap<>();
+        byte[] text = "Hello, world!".getBytes("UTF-8");
+        contents.put("a.txt", text);
+        addClass(contents, MockCaller.class);
+        File file = save(contents);
+        assertThat(getLocalFlags(file) & FLAG_DATA_DESCRIPTOR, is(FLAG_DATA_DESCRIPTOR));
+
+        RedirectRule rule = new RedirectRule();
+        rule.add(MockCallee0.class.getName(), MockCallee2.class.getName());
+        new ZipRewriter(rule).rewrite(file);
+
+        assertThat(getLocalFlags(file) & FLAG_DATA_DESCRIPTOR, is(0));
+        assertThat(apply(file), is("0:2:1"));
+        assertThat(dump(file), hasEntry("a.txt", text));
+        try (ZipFile zip = new ZipFile(file)) {
+            assertThat(ZipUtil.consume(zip.getInputStream(zip.getEntry("a.txt"))), is(text));
+        }
+    }
+
+    /**
+     * archives with ZIP64 end of central directory are rewritten via {@link ZipOutputStream}.
+     * @throws Exception if failed
+     */
+    @Test
+    public void zip64_archive() throws Exception {
+        Map<String, byte[]> contents = new LinkedHashMap<>();
+        for (int i = 0; i < 0x10000; i++) {
+            contents.put(String.format("e%05x", i), new byte[] { (byte) i });
+        }
+        addClass(contents, MockCaller.class);
+        File file = save(contents);
+
+        RedirectRule rule = new RedirectRule();
+        rule.add(MockCallee0.class.getName(), MockCallee2.class.getName());
+        new ZipRewriter(rule).rewrite(file);
+
+        assertThat(apply(file), is("0:2:1"));
+        Map<String, byte[]> results = dump(file);
+        assertThat(results.size(), is(contents.size()));
+        assertThat(results, hasEntry("e0ffff", new byte[] { (byte) 0xff }));
+    }
+
+    /**
+     * entries with ZIP64 extra fields are rewritten via {@link ZipOutputStream}.
+     * @throws Exception if failed
+     */
+    @Test
+    public void zip64_extra() throws Exception {
+        byte[] text = "Hello, world!".getBytes("UTF-8");
+        File file = temporary.newFile();
+        try (ZipOutputStream output = new ZipOutputStream(new FileOutputStream(file))) {
+            ZipEntry entry = new ZipEntry("a.txt");
+            // ZipOutputStream drops ZIP64 extra fields, so that we put a placeholder and then replace it later
+            entry.setExtra(new byte[] { (byte) 0xfe, (byte) 0xca, 0, 0 });
+            output.putNextEntry(entry);
+            output.write(text);
+            String path = VolatileClassLoader.toPath(MockCaller.class);
+            output.putNextEntry(new ZipEntry(path));
+            output.write(VolatileClassLoader.dump(MockCaller.class));
+        }
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        int replaced = 0;
+        for (int i = 0; i + 1 < bytes.length; i++) {
+            if (bytes[i] == (byte) 0xfe && bytes[i + 1] == (byte) 0xca) {
+                bytes[i] = 0x01;
+                bytes[i + 1] = 0x00;
+                replaced++;
+            }
+        }
+        assertThat(replaced, is(2));
+        Files.write(file.toPath(), bytes);
+
+        RedirectRule rule = new RedirectRule();
+        rule.add(MockCallee0.class.getName(), MockCallee2.class.getName());
+        new ZipRewriter(rule).rewrite(file);
+
+        assertThat(apply(file), is("0:2:1"));
+        assertThat(dump(file), hasEntry("a.txt", text));
+    }
+
+    private static int getLocalFlags(File file) throws IOException {
+        // returns the flags of the first local file header
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        return (bytes[6] & 0xff) | (bytes[7] & 0xff) << 8;
+    }
+
+    private static long getCompressedSize(File file, String name) throws IOException {
+        try (ZipFile zip = new ZipFile(file)) {
+            ZipEntry entry = zip.getEntry(name);
+            assertThat(entry, is(notNullValue()));
+            return entry.getCompressedSize();
+        }
+    }
+
     private String apply(File file) throws IOException {
         Map<String, byte[]> contents = dump(file);
         String name = VolatileClassLoader.toPath(MockCaller.class);
@@ -15,8 +15,8 @@
  */
 package com.asakusafw.dag.compiler.codegen;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
@@ -28,7 +28,9 @@ import com.asakusafw.lang.utils.common.Tuple;
 
 /**
  * A basic implementation of class name providers.
+ * This class is thread-safe.
  * @since 0.4.0
+ * @version 0.5.5
  */
 public class ClassNameMap {
 
@@ -38,7 +40,7 @@ public class ClassNameMap {
 
     private final String prefix;
 
-    private final Map<Tuple<String, String>, AtomicInteger> counters = new HashMap<>();
+    private final Map<Tuple<String, String>, AtomicInteger> counters = new ConcurrentHashMap<>();
 
     /**
      * Creates a new instance.
@@ -0,0 +1,181 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.compiler.codegen;
+
+import static com.asakusafw.dag.compiler.codegen.AsmUtil.*;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.util.Collection;
+
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import com.asakusafw.dag.compiler.codegen.AsmUtil.FieldRef;
+import com.asakusafw.dag.compiler.codegen.AsmUtil.LocalVarRef;
+import com.asakusafw.dag.runtime.io.CompactValueOptionSerDe;
+import com.asakusafw.dag.runtime.io.NullBitmap;
+import com.asakusafw.lang.compiler.api.reference.PropertyReference;
+import com.asakusafw.lang.compiler.model.description.ClassDescription;
+import com.asakusafw.lang.compiler.model.description.Descriptions;
+import com.asakusafw.runtime.value.ValueOption;
+
+/**
+ * Utilities about generating serializers with the compact row format.
+ * @since 0.5.5
+ * @see CompactValueOptionSerDe
+ */
+final class CompactRowSupport {
+
+    static final ClassDescription SERDE = Descriptions.classOf(CompactValueOptionSerDe.class);
+
+    private static final Type TYPE_NULL_BITMAP = typeOf(NullBitmap.class);
+
+    private CompactRowSupport() {
+        return;
+    }
+
+    /**
+     * Defines a field of {@link NullBitmap}.
+     * @param writer the target class writer
+     * @param target the target class
+     * @return the defined field
+     */
+    static FieldRef defineNullBitmap(ClassVisitor writer, ClassDescription target) {
+        return defineField(writer, target, "nulls", TYPE_NULL_BITMAP);
+    }
+
+    /**
+     * Initializes the {@link NullBitmap} field.
+     * @param v the target method
+     * @param nulls the target field
+     */
+    static void initNullBitmap(MethodVisitor v, FieldRef nulls) {
+        v.visitVarInsn(Opcodes.ALOAD, 0);
+        getNew(v, Descriptions.typeOf(NullBitmap.class));
+        putField(v, nulls);
+    }
+
+    /**
+     * Serializes the properties in the compact row format.
+     * @param v the target method
+     * @param nulls the {@link NullBitmap} field
+     * @param object the source data model object
+     * @param output the target {@link DataOutput}
+     * @param properties the target properties
+     */
+    static void putSerialize(
+            MethodVisitor v, FieldRef nulls,
+            LocalVarRef object, LocalVarRef output, Collection<? extends PropertyReference> properties) {
+        LocalVarRef self = new LocalVarRef(Opcodes.ALOAD, 0);
+
+        // nulls.reset();
+        self.load(v);
+        getField(v, nulls);
+        v.visitMethodInsn(
+                Opcodes.INVOKEVIRTUAL,
+                TYPE_NULL_BITMAP.getInternalName(),
+                "reset",
+                Type.getMethodDescriptor(Type.VOID_TYPE),
+                false);
+        for (PropertyReference property : properties) {
+            // nulls.add(object.getXOption());
+            self.load(v);
+            getField(v, nulls);
+            object.load(v);
+            getOption(v, property);
+            v.visitMethodInsn(
+                    Opcodes.INVOKEVIRTUAL,
+                    TYPE_NULL_BITMAP.getInternalName(),
+                    "add",
+                    Type.getMethodDescriptor(Type.VOID_TYPE, typeOf(ValueOption.class)),
+                    false);
+        }
+
+        // nulls.writeTo(output);
+        self.load(v);
+        getField(v, nulls);
+        output.load(v);
+        v.visitMethodInsn(
+                Opcodes.INVOKEVIRTUAL,
+                TYPE_NULL_BITMAP.getInternalName(),
+                "writeTo",
+                Type.getMethodDescriptor(Type.VOID_TYPE, typeOf(DataOutput.class)),
+                false);
+
+        for (PropertyReference property : properties) {
+            // CompactValueOptionSerDe.serialize(object.getXOption(), output);
+            object.load(v);
+            getOption(v, property);
+            output.load(v);
+            v.visitMethodInsn(
+                    Opcodes.INVOKESTATIC,
+                    SERDE.getInternalName(),
+                    "serialize",
+                    Type.getMethodDescriptor(
+                            Type.VOID_TYPE,
+                            typeOf(property.getType()),
+                            typeOf(DataOutput.class)),
+                    false);
+        }
+    }
+
+    /**
+     * Deserializes the properties in the compact row format.
+     * @param v the target method
+     * @param nulls the {@link NullBitmap} field
+     * @param object the destination data model object
+     * @param input the source {@link DataInput}
+     * @param properties the target properties
+     */
+    static void putDeserialize(
+            MethodVisitor v, FieldRef nulls,
+            LocalVarRef object, LocalVarRef input, Collection<? extends PropertyReference> properties) {
+        LocalVarRef self = new LocalVarRef(Opcodes.ALOAD, 0);
+
+        // nulls.readFrom(input, N);
+        self.load(v);
+        getField(v, nulls);
+        input.load(v);
+        getInt(v, properties.size());
+        v.visitMethodInsn(
+                Opcodes.INVOKEVIRTUAL,
+                TYPE_NULL_BITMAP.getInternalName(),
+                "readFrom",
+                Type.getMethodDescriptor(Type.VOID_TYPE, typeOf(DataInput.class), Type.INT_TYPE),
+                false);
+        for (PropertyReference property : properties) {
+            // CompactValueOptionSerDe.deserialize(object.getXOption(), nulls, input);
+            object.load(v);
+            getOption(v, property);
+            self.load(v);
+            getField(v, nulls);
+            input.load(v);
+            v.visitMethodInsn(
+                    Opcodes.INVOKESTATIC,
+                    SERDE.getInternalName(),
+                    "deserialize",
+                    Type.getMethodDescriptor(
+                            Type.VOID_TYPE,
+                            typeOf(property.getType()),
+                            TYPE_NULL_BITMAP,
+                            typeOf(DataInput.class)),
+                    false);
+        }
+    }
+}
@@ -19,6 +19,7 @@ import static com.asakusafw.dag.compiler.codegen.AsmUtil.*;
 
 import java.io.DataInput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -31,9 +32,11 @@ import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 
+import com.asakusafw.dag.api.common.ByteBufferComparator;
 import com.asakusafw.dag.api.common.DataComparator;
 import com.asakusafw.dag.compiler.codegen.AsmUtil.LocalVarRef;
 import com.asakusafw.dag.compiler.model.ClassData;
+import com.asakusafw.dag.runtime.io.ValueOptionBuffers;
 import com.asakusafw.dag.runtime.io.ValueOptionSerDe;
 import com.asakusafw.lang.compiler.api.reference.DataModelReference;
 import com.asakusafw.lang.compiler.api.reference.PropertyReference;
@@ -57,7 +60,9 @@ import com.asakusafw.runtime.value.StringOption;
 
 /**
  * Generates {@link DataComparator}.
+ * The generated classes also implement {@link ByteBufferComparator}.
  * @since 0.4.0
+ * @version 0.5.5
  */
 public final class DataComparatorGenerator {
 
@@ -70,6 +75,26 @@ public final class DataComparatorGenerator {
     private static final String DESC_COMPARE = Type.getMethodDescriptor(
             typeOf(int.class), TYPE_DATA_INPUT, TYPE_DATA_INPUT);
 
+    private static final Type TYPE_BYTE_BUFFER = typeOf(ByteBuffer.class);
+
+    private static final String DESC_COMPARE_BUFFER = Type.getMethodDescriptor(
+            typeOf(int.class),
+            TYPE_BYTE_BUFFER, typeOf(int.class), typeOf(int.class),
+            TYPE_BYTE_BUFFER, typeOf(int.class), typeOf(int.class));
+
+    private static final String DESC_COMPARE_BUFFER_TERM = Type.getMethodDescriptor(
+            typeOf(int.class),
+            TYPE_BYTE_BUFFER, typeOf(int.class),
+            TYPE_BYTE_BUFFER, typeOf(int.class));
+
+    private static final String DESC_SIZE_OF_BUFFER_TERM = Type.getMethodDescriptor(
+            typeOf(int.class),
+            TYPE_BYTE_BUFFER, typeOf(int.class));
+
+    private static final String PREFIX_COMPARE = "compare"; //$NON-NLS-1$
+
+    private static final String PREFIX_SIZE_OF = "sizeOf"; //$NON-NLS-1$
+
     private static final Map<TypeDescription, String> METHOD_NAMES;
     static {
         Map<TypeDescription, String> map = new HashMap<>();
@@ -121,9 +146,10 @@ public final class DataComparatorGenerator {
 
     private static ClassData generate0(
             DataModelReference reference, List<Group.Ordering> orderings, ClassDescription target) {
-        ClassWriter writer = newWriter(target, Object.class, DataComparator.class);
+        ClassWriter writer = newWriter(target, Object.class, ByteBufferComparator.class);
         defineEmptyConstructor(writer, Object.class);
         defineCompare(writer, reference, orderings);
+        defineCompareBuffer(writer, reference, orderings);
         writer.visitEnd();
         return new ClassData(target, writer::toByteArray);
     }
@@ -181,6 +207,86 @@ public final class DataComparatorGenerator {
         v.visitEnd();
     }
 
+    private static void defineCompareBuffer(
+            ClassWriter writer, DataModelReference reference, List<Group.Ordering> orderings) {
+        MethodVisitor v = writer.visitMethod(
+                Opcodes.ACC_PUBLIC,
+                "compare",
+                DESC_COMPARE_BUFFER,
+                null,
+                null);
+        LocalVarRef a = new LocalVarRef(Opcodes.ALOAD, 1);
+        LocalVarRef aOffset = new LocalVarRef(Opcodes.ILOAD, 2);
+        LocalVarRef b = new LocalVarRef(Opcodes.ALOAD, 4);
+        LocalVarRef bOffset = new LocalVarRef(Opcodes.ILOAD, 5);
+        for (int i = 0, n = orderings.size(); i < n; i++) {
+            Group.Ordering ordering = orderings.get(i);
+            PropertyReference property = Invariants.requireNonNull(reference.findProperty(ordering.getPropertyName()));
+            String compareName = Invariants.requireNonNull(METHOD_NAMES.get(property.getType()));
+
+            // int diff = ValueOptionBuffers.compareT({a, b}, {aOffset, bOffset}, {b, a}, {bOffset, aOffset});
+            switch (ordering.getDirection()) {
+            case ASCENDANT:
+                a.load(v);
+                aOffset.load(v);
+                b.load(v);
+                bOffset.load(v);
+                break;
+            case DESCENDANT:
+                b.load(v);
+                bOffset.load(v);
+                a.load(v);
+                aOffset.load(v);
+                break;
+            default:
+                throw new AssertionError(ordering);
+            }
+            v.visitMethodInsn(Opcodes.INVOKESTATIC,
+                    typeOf(ValueOptionBuffers.class).getInternalName(),
+                    compareName,
+                    DESC_COMPARE_BUFFER_TERM,
+                    false);
+            LocalVarRef cmp = putLocalVar(v, Type.INT, 7);
+            Label eq = new Label();
+
+            // if (diff != 0) {
+            cmp.load(v);
+            v.visitJumpInsn(Opcodes.IFEQ, eq);
+
+            // return diff;
+            cmp.load(v);
+            v.visitInsn(Opcodes.IRETURN);
+
+            // } @ eq
+            v.visitLabel(eq);
+
+            if (i < n - 1) {
+                // aOffset += ValueOptionBuffers.sizeOfT(a, aOffset);
+                // bOffset += ValueOptionBuffers.sizeOfT(b, bOffset);
+                String sizeOfName = PREFIX_SIZE_OF + compareName.substring(PREFIX_COMPARE.length());
+                advance(v, sizeOfName, 1, 2);
+                advance(v, sizeOfName, 4, 5);
+            }
+        }
+        getConst(v, 0);
+        v.visitInsn(Opcodes.IRETURN);
+        v.visitMaxs(0, 0);
+        v.visitEnd();
+    }
+
+    private static void advance(MethodVisitor v, String sizeOfName, int bufferIndex, int offsetIndex) {
+        v.visitVarInsn(Opcodes.ILOAD, offsetIndex);
+        v.visitVarInsn(Opcodes.ALOAD, bufferIndex);
+        v.visitVarInsn(Opcodes.ILOAD, offsetIndex);
+        v.visitMethodInsn(Opcodes.INVOKESTATIC,
+                typeOf(ValueOptionBuffers.class).getInternalName(),
+                sizeOfName,
+                DESC_SIZE_OF_BUFFER_TERM,
+                false);
+        v.visitInsn(Opcodes.IADD);
+        v.visitVarInsn(Opcodes.ISTORE, offsetIndex);
+    }
+
     private static class Key {
 
         private final TypeDescription type;
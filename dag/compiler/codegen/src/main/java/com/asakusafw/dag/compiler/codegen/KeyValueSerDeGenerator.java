@@ -21,6 +21,7 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
@@ -31,10 +32,14 @@ import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 
+import com.asakusafw.dag.api.common.BinarySortKeyComparator;
 import com.asakusafw.dag.api.common.KeyValueSerDe;
+import com.asakusafw.dag.api.common.PrimitiveKeySerializer;
 import com.asakusafw.dag.compiler.codegen.AsmUtil.FieldRef;
 import com.asakusafw.dag.compiler.codegen.AsmUtil.LocalVarRef;
 import com.asakusafw.dag.compiler.model.ClassData;
+import com.asakusafw.dag.runtime.io.CompactValueOptionSerDe;
+import com.asakusafw.dag.runtime.io.SortKeyBuffer;
 import com.asakusafw.dag.runtime.io.ValueOptionSerDe;
 import com.asakusafw.lang.compiler.api.reference.DataModelReference;
 import com.asakusafw.lang.compiler.api.reference.PropertyReference;
@@ -45,10 +50,17 @@ import com.asakusafw.lang.compiler.model.description.TypeDescription;
 import com.asakusafw.lang.compiler.model.graph.Group;
 import com.asakusafw.lang.utils.common.Invariants;
 import com.asakusafw.lang.utils.common.Lang;
+import com.asakusafw.runtime.value.DateOption;
+import com.asakusafw.runtime.value.DateTimeOption;
+import com.asakusafw.runtime.value.IntOption;
+import com.asakusafw.runtime.value.LongOption;
 
 /**
  * Generates {@link KeyValueSerDe} class.
+ * If the key consists of a single primitive property, the generated class also implements
+ * {@link PrimitiveKeySerializer} (except the compact row format).
  * @since 0.4.0
+ * @version 0.5.5
  */
 public final class KeyValueSerDeGenerator {
 
@@ -70,7 +82,64 @@ public final class KeyValueSerDeGenerator {
      * @return the generated class
      */
     public static ClassDescription get(ClassGeneratorContext context, TypeDescription type, Group grouping) {
-        return context.addClassFile(generate(context, type, grouping));
+        return get(context, type, grouping, false);
+    }
+
+    /**
+     * Generates {@link KeyValueSerDe} class.
+     * If {@code binarySortKey} is enabled, each serialized value starts with a binary sort key of the ordering
+     * properties, and it can be compared by {@link BinarySortKeyComparator}.
+     * @param context the current context
+     * @param type the target data model type
+     * @param grouping the grouping information
+     * @param binarySortKey {@code true} to put binary sort keys into the serialized values, otherwise {@code false}
+     * @return the generated class
+     * @since 0.5.5
+     */
+    public static ClassDescription get(
+            ClassGeneratorContext context, TypeDescription type, Group grouping, boolean binarySortKey) {
+        return get(context, type, grouping, binarySortKey, false);
+    }
+
+    /**
+     * Generates {@link KeyValueSerDe} class.
+     * If {@code compactRow} is enabled, the generated class uses the compact row format, which consists of
+     * a leading null bitmap and the bodies of the non-null properties, for the keys and the values.
+     * Note that, the ordering properties in values are still serialized by {@link ValueOptionSerDe}
+     * unless {@code binarySortKey} is enabled, because they are compared by the generated data comparators.
+     * @param context the current context
+     * @param type the target data model type
+     * @param grouping the grouping information
+     * @param binarySortKey {@code true} to put binary sort keys into the serialized values, otherwise {@code false}
+     * @param compactRow {@code true} to use the compact row format, otherwise {@code false}
+     * @return the generated class
+     * @since 0.5.5
+     * @see CompactValueOptionSerDe
+     */
+    public static ClassDescription get(
+            ClassGeneratorContext context, TypeDescription type, Group grouping,
+            boolean binarySortKey, boolean compactRow) {
+        return get(context, type, grouping, binarySortKey, compactRow, null);
+    }
+
+    /**
+     * Generates {@link KeyValueSerDe} class.
+     * If {@code projection} is specified, the generated class only serializes the projected properties
+     * in addition to the grouping and ordering properties, and the other properties of the deserialized objects
+     * are always {@code null}.
+     * @param context the current context
+     * @param type the target data model type
+     * @param grouping the grouping information
+     * @param binarySortKey {@code true} to put binary sort keys into the serialized values, otherwise {@code false}
+     * @param compactRow {@code true} to use the compact row format, otherwise {@code false}
+     * @param projection the properties to serialize, or {@code null} to serialize all properties
+     * @return the generated class
+     * @since 0.5.5
+     */
+    public static ClassDescription get(
+            ClassGeneratorContext context, TypeDescription type, Group grouping,
+            boolean binarySortKey, boolean compactRow, Set<PropertyName> projection) {
+        return context.addClassFile(generate(context, type, grouping, binarySortKey, compactRow, projection));
     }
 
     /**
@@ -81,32 +150,150 @@ public final class KeyValueSerDeGenerator {
      * @return the generated class data
      */
     public static ClassData generate(ClassGeneratorContext context, TypeDescription type, Group grouping) {
-        return context.cache(new Key(type, grouping), () -> {
+        return generate(context, type, grouping, false);
+    }
+
+    /**
+     * Generates {@link KeyValueSerDe} class.
+     * @param context the current context
+     * @param type the target data model type
+     * @param grouping the grouping information
+     * @param binarySortKey {@code true} to put binary sort keys into the serialized values, otherwise {@code false}
+     * @return the generated class data
+     * @see #get(ClassGeneratorContext, TypeDescription, Group, boolean)
+     * @since 0.5.5
+     */
+    public static ClassData generate(
+            ClassGeneratorContext context, TypeDescription type, Group grouping, boolean binarySortKey) {
+        return generate(context, type, grouping, binarySortKey, false);
+    }
+
+    /**
+     * Generates {@link KeyValueSerDe} class.
+     * @param context the current context
+     * @param type the target data model type
+     * @param grouping the grouping information
+     * @param binarySortKey {@code true} to put binary sort keys into the serialized values, otherwise {@code false}
+     * @param compactRow {@code true} to use the compact row format, otherwise {@code false}
+     * @return the generated class data
+     * @see #get(ClassGeneratorContext, TypeDescription, Group, boolean, boolean)
+     * @since 0.5.5
+     */
+    public static ClassData generate(
+            ClassGeneratorContext context, TypeDescription type, Group grouping,
+            boolean binarySortKey, boolean compactRow) {
+        return generate(context, type, grouping, binarySortKey, compactRow, null);
+    }
+
+    /**
+     * Generates {@link KeyValueSerDe} class.
+     * @param context the current context
+     * @param type the target data model type
+     * @param grouping the grouping information
+     * @param binarySortKey {@code true} to put binary sort keys into the serialized values, otherwise {@code false}
+     * @param compactRow {@code true} to use the compact row format, otherwise {@code false}
+     * @param projection the properties to serialize, or {@code null} to serialize all properties
+     * @return the generated class data
+     * @see #get(ClassGeneratorContext, TypeDescription, Group, boolean, boolean, Set)
+     * @since 0.5.5
+     */
+    public static ClassData generate(
+            ClassGeneratorContext context, TypeDescription type, Group grouping,
+            boolean binarySortKey, boolean compactRow, Set<PropertyName> projection) {
+        return context.cache(new Key(type, grouping, binarySortKey, compactRow, projection), () -> {
             DataModelReference ref = context.getDataModelLoader().load(type);
             ClassDescription target = context.getClassName(CATEGORY, NameUtil.getSimpleNameHint(type, SUFFIX));
-            return generate0(ref, grouping, target);
+            return generate0(ref, grouping, binarySortKey, compactRow, projection, target);
         });
     }
 
-    private static ClassData generate0(DataModelReference reference, Group grouping, ClassDescription target) {
+    private static ClassData generate0(
+            DataModelReference reference, Group grouping,
+            boolean binarySortKey, boolean compactRow, Set<PropertyName> projection,
+            ClassDescription target) {
         List<PropertyReference> keys = Lang.project(
                 grouping.getGrouping(),
                 n -> Invariants.requireNonNull(reference.findProperty(n)));
-        List<PropertyReference> values = collectValues(reference, grouping);
-        ClassWriter writer = newWriter(target, Object.class, KeyValueSerDe.class);
+        List<PropertyReference> values = collectValues(reference, grouping, projection);
+        Row keyRow;
+        Row valueRow;
+        if (compactRow) {
+            // ordering properties must be compatible with the generated data comparators
+            int prefix = binarySortKey ? 0 : grouping.getOrdering().size();
+            keyRow = new Row(Collections.emptyList(), keys);
+            valueRow = new Row(values.subList(0, prefix), values.subList(prefix, values.size()));
+        } else {
+            keyRow = new Row(keys, Collections.emptyList());
+            valueRow = new Row(values, Collections.emptyList());
+        }
+        PrimitiveKeySerializer.Format keyFormat = compactRow ? null : findKeyFormat(keys);
+        ClassWriter writer = keyFormat == null
+                ? newWriter(target, Object.class, KeyValueSerDe.class)
+                : newWriter(target, Object.class, KeyValueSerDe.class, PrimitiveKeySerializer.class);
         FieldRef buffer = defineField(writer, target, "buffer", typeOf(reference));
+        FieldRef sortKeys = binarySortKey
+                ? defineField(writer, target, "sortKeys", typeOf(SortKeyBuffer.class))
+                : null;
+        FieldRef nulls = compactRow ? CompactRowSupport.defineNullBitmap(writer, target) : null;
         defineEmptyConstructor(writer, Object.class, v -> {
             v.visitVarInsn(Opcodes.ALOAD, 0);
             getNew(v, reference.getDeclaration());
             putField(v, buffer);
+            if (sortKeys != null) {
+                v.visitVarInsn(Opcodes.ALOAD, 0);
+                getNew(v, Descriptions.typeOf(SortKeyBuffer.class));
+                putField(v, sortKeys);
+            }
+            if (nulls != null) {
+                CompactRowSupport.initNullBitmap(v, nulls);
+            }
         });
-        putSerialize("serializeKey", reference, keys, writer);
-        putSerialize("serializeValue", reference, values, writer);
-        putDeserialize(reference, keys, values, buffer, writer);
+        putSerialize("serializeKey", reference, keyRow, nulls, writer);
+        if (sortKeys == null) {
+            putSerialize("serializeValue", reference, valueRow, nulls, writer);
+        } else {
+            putSerializeWithSortKey(reference, grouping.getOrdering(), valueRow, sortKeys, nulls, writer);
+        }
+        putDeserialize(reference, keyRow, valueRow, buffer, sortKeys != null, nulls, writer);
+        if (keyFormat != null) {
+            putGetKeyFormat(keyFormat, writer);
+        }
         return new ClassData(target, writer::toByteArray);
     }
 
-    private static List<PropertyReference> collectValues(DataModelReference reference, Group grouping) {
+    private static PrimitiveKeySerializer.Format findKeyFormat(List<PropertyReference> keys) {
+        if (keys.size() != 1) {
+            return null;
+        }
+        // must be consistent with ValueOptionSerDe.serialize(...)
+        TypeDescription type = keys.get(0).getType();
+        if (type.equals(Descriptions.typeOf(IntOption.class))) {
+            return PrimitiveKeySerializer.Format.NULLABLE_INT;
+        } else if (type.equals(Descriptions.typeOf(LongOption.class))) {
+            return PrimitiveKeySerializer.Format.NULLABLE_LONG;
+        } else if (type.equals(Descriptions.typeOf(DateOption.class))) {
+            return PrimitiveKeySerializer.Format.INT;
+        } else if (type.equals(Descriptions.typeOf(DateTimeOption.class))) {
+            return PrimitiveKeySerializer.Format.LONG;
+        }
+        return null;
+    }
+
+    private static void putGetKeyFormat(PrimitiveKeySerializer.Format format, ClassWriter writer) {
+        MethodVisitor v = writer.visitMethod(
+                Opcodes.ACC_PUBLIC,
+                "getKeyFormat",
+                Type.getMethodDescriptor(typeOf(PrimitiveKeySerializer.Format.class)),
+                null,
+                null);
+        getEnumConstant(v, format);
+        v.visitInsn(Opcodes.ARETURN);
+        v.visitMaxs(0, 0);
+        v.visitEnd();
+    }
+
+    private static List<PropertyReference> collectValues(
+            DataModelReference reference, Group grouping, Set<PropertyName> projection) {
         List<PropertyReference> results = new ArrayList<>();
         Set<PropertyName> saw = new HashSet<>();
         saw.addAll(grouping.getGrouping());
@@ -117,13 +304,14 @@ public final class KeyValueSerDeGenerator {
             .forEach(results::add);
         reference.getProperties().stream()
             .filter(p -> saw.contains(p.getName()) == false)
+            .filter(p -> projection == null || projection.contains(p.getName()))
             .forEach(results::add);
         return results;
     }
 
     private static void putSerialize(
             String methodName,
-            DataModelReference reference, List<PropertyReference> properties,
+            DataModelReference reference, Row properties, FieldRef nulls,
             ClassWriter writer) {
         MethodVisitor v = writer.visitMethod(
                 Opcodes.ACC_PUBLIC,
@@ -134,6 +322,73 @@ public final class KeyValueSerDeGenerator {
                         typeOf(IOException.class).getInternalName(),
                         typeOf(InterruptedException.class).getInternalName(),
                 });
+        putSerializeBody(v, reference, properties, nulls);
+        v.visitInsn(Opcodes.RETURN);
+        v.visitMaxs(0, 0);
+        v.visitEnd();
+    }
+
+    private static void putSerializeWithSortKey(
+            DataModelReference reference, List<Group.Ordering> orderings, Row properties,
+            FieldRef sortKeys, FieldRef nulls, ClassWriter writer) {
+        MethodVisitor v = writer.visitMethod(
+                Opcodes.ACC_PUBLIC,
+                "serializeValue",
+                Type.getMethodDescriptor(Type.VOID_TYPE, typeOf(Object.class), typeOf(DataOutput.class)),
+                null,
+                new String[] {
+                        typeOf(IOException.class).getInternalName(),
+                        typeOf(InterruptedException.class).getInternalName(),
+                });
+        LocalVarRef self = new LocalVarRef(Opcodes.ALOAD, 0);
+        LocalVarRef output = new LocalVarRef(Opcodes.ALOAD, 2);
+
+        // sortKeys.reset();
+        self.load(v);
+        getField(v, sortKeys);
+        v.visitMethodInsn(
+                Opcodes.INVOKEVIRTUAL,
+                typeOf(SortKeyBuffer.class).getInternalName(),
+                "reset",
+                Type.getMethodDescriptor(Type.VOID_TYPE),
+                false);
+        LocalVarRef object = cast(v, 1, reference.getDeclaration());
+        for (Group.Ordering ordering : orderings) {
+            PropertyReference property = Invariants.requireNonNull(reference.findProperty(ordering.getPropertyName()));
+
+            // sortKeys.put(object.getXOption(), descending);
+            self.load(v);
+            getField(v, sortKeys);
+            object.load(v);
+            getOption(v, property);
+            getConst(v, ordering.getDirection() == Group.Direction.DESCENDANT);
+            v.visitMethodInsn(
+                    Opcodes.INVOKEVIRTUAL,
+                    typeOf(SortKeyBuffer.class).getInternalName(),
+                    "put",
+                    Type.getMethodDescriptor(Type.VOID_TYPE, typeOf(property.getType()), Type.BOOLEAN_TYPE),
+                    false);
+        }
+
+        // sortKeys.writeTo(output);
+        self.load(v);
+        getField(v, sortKeys);
+        output.load(v);
+        v.visitMethodInsn(
+                Opcodes.INVOKEVIRTUAL,
+                typeOf(SortKeyBuffer.class).getInternalName(),
+                "writeTo",
+                Type.getMethodDescriptor(Type.VOID_TYPE, typeOf(DataOutput.class)),
+                false);
+
+        putSerializeBody(v, reference, properties, nulls);
+        v.visitInsn(Opcodes.RETURN);
+        v.visitMaxs(0, 0);
+        v.visitEnd();
+    }
+
+    private static void putSerializeBody(
+            MethodVisitor v, DataModelReference reference, Row properties, FieldRef nulls) {
         if (properties.isEmpty()) {
             LocalVarRef output = new LocalVarRef(Opcodes.ALOAD, 2);
             output.load(v);
@@ -147,7 +402,7 @@ public final class KeyValueSerDeGenerator {
         } else {
             LocalVarRef object = cast(v, 1, reference.getDeclaration());
             LocalVarRef output = new LocalVarRef(Opcodes.ALOAD, 2);
-            for (PropertyReference property : properties) {
+            for (PropertyReference property : properties.standard) {
                 object.load(v);
                 getOption(v, property);
                 output.load(v);
@@ -161,16 +416,16 @@ public final class KeyValueSerDeGenerator {
                                 typeOf(DataOutput.class)),
                         false);
             }
+            if (properties.compact.isEmpty() == false) {
+                CompactRowSupport.putSerialize(v, nulls, object, output, properties.compact);
+            }
         }
-        v.visitInsn(Opcodes.RETURN);
-        v.visitMaxs(0, 0);
-        v.visitEnd();
     }
 
     private static void putDeserialize(
             DataModelReference reference,
-            List<PropertyReference> keys, List<PropertyReference> values,
-            FieldRef buffer, ClassWriter writer) {
+            Row keys, Row values,
+            FieldRef buffer, boolean sortKey, FieldRef nulls, ClassWriter writer) {
         MethodVisitor v = writer.visitMethod(
                 Opcodes.ACC_PUBLIC,
                 "deserializePair",
@@ -186,15 +441,25 @@ public final class KeyValueSerDeGenerator {
         self.load(v);
         getField(v, buffer);
         LocalVarRef object = putLocalVar(v, Type.OBJECT, 3);
-        putDeserializeBody(v, keys, keyInput, object);
-        putDeserializeBody(v, values, valueInput, object);
+        putDeserializeBody(v, keys, nulls, keyInput, object);
+        if (sortKey) {
+            // SortKeyBuffer.skip(valueInput);
+            valueInput.load(v);
+            v.visitMethodInsn(
+                    Opcodes.INVOKESTATIC,
+                    typeOf(SortKeyBuffer.class).getInternalName(),
+                    "skip",
+                    Type.getMethodDescriptor(Type.VOID_TYPE, typeOf(DataInput.class)),
+                    false);
+        }
+        putDeserializeBody(v, values, nulls, valueInput, object);
         object.load(v);
         v.visitInsn(Opcodes.ARETURN);
         v.visitMaxs(0, 0);
         v.visitEnd();
     }
 
-    private static void putDeserializeBody(MethodVisitor v, List<PropertyReference> props,
+    private static void putDeserializeBody(MethodVisitor v, Row props, FieldRef nulls,
             LocalVarRef input, LocalVarRef object) {
         if (props.isEmpty()) {
             input.load(v);
@@ -206,7 +471,7 @@ public final class KeyValueSerDeGenerator {
                     true);
             v.visitInsn(Opcodes.POP);
         } else {
-            for (PropertyReference property : props) {
+            for (PropertyReference property : props.standard) {
                 object.load(v);
                 getOption(v, property);
                 input.load(v);
@@ -220,6 +485,30 @@ public final class KeyValueSerDeGenerator {
                                 typeOf(DataInput.class)),
                         false);
             }
+            if (props.compact.isEmpty() == false) {
+                CompactRowSupport.putDeserialize(v, nulls, object, input, props.compact);
+            }
+        }
+    }
+
+    /**
+     * Properties in a serialized key or value.
+     * The standard properties are serialized by {@link ValueOptionSerDe}, and the rest are serialized in
+     * the compact row format.
+     */
+    private static final class Row {
+
+        final List<PropertyReference> standard;
+
+        final List<PropertyReference> compact;
+
+        Row(List<PropertyReference> standard, List<PropertyReference> compact) {
+            this.standard = standard;
+            this.compact = compact;
+        }
+
+        boolean isEmpty() {
+            return standard.isEmpty() && compact.isEmpty();
         }
     }
 
@@ -229,9 +518,19 @@ public final class KeyValueSerDeGenerator {
 
         private final Group group;
 
-        Key(TypeDescription type, Group group) {
+        private final boolean binarySortKey;
+
+        private final boolean compactRow;
+
+        private final Set<PropertyName> projection;
+
+        Key(TypeDescription type, Group group,
+                boolean binarySortKey, boolean compactRow, Set<PropertyName> projection) {
             this.type = type;
             this.group = group;
+            this.binarySortKey = binarySortKey;
+            this.compactRow = compactRow;
+            this.projection = projection;
         }
 
         @Override
@@ -240,6 +539,9 @@ public final class KeyValueSerDeGenerator {
             int result = Key.class.hashCode();
             result = prime * result + Objects.hashCode(type);
             result = prime * result + Objects.hashCode(group);
+            result = prime * result + Boolean.hashCode(binarySortKey);
+            result = prime * result + Boolean.hashCode(compactRow);
+            result = prime * result + Objects.hashCode(projection);
             return result;
         }
 
@@ -261,6 +563,15 @@ public final class KeyValueSerDeGenerator {
             if (!Objects.equals(group, other.group)) {
                 return false;
             }
+            if (binarySortKey != other.binarySortKey) {
+                return false;
+            }
+            if (compactRow != other.compactRow) {
+                return false;
+            }
+            if (!Objects.equals(projection, other.projection)) {
+                return false;
+            }
             return true;
         }
     }
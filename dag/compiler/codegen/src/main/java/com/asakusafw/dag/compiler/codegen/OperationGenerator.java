@@ -19,6 +19,7 @@ import static com.asakusafw.dag.compiler.codegen.AsmUtil.*;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -40,6 +41,7 @@ import com.asakusafw.dag.runtime.adapter.Operation;
 import com.asakusafw.dag.runtime.adapter.OperationAdapter;
 import com.asakusafw.dag.runtime.table.BasicDataTable;
 import com.asakusafw.lang.compiler.model.description.ClassDescription;
+import com.asakusafw.lang.compiler.model.description.Descriptions;
 import com.asakusafw.lang.compiler.model.description.EnumConstantDescription;
 import com.asakusafw.lang.compiler.model.description.ImmediateDescription;
 import com.asakusafw.lang.compiler.model.description.TypeDescription;
@@ -49,6 +51,7 @@ import com.asakusafw.runtime.core.Result;
 /**
  * Generates {@link Operation} classes.
  * @since 0.4.0
+ * @version 0.5.5
  */
 public class OperationGenerator {
 
@@ -69,7 +72,7 @@ public class OperationGenerator {
 
         addContextField(writer);
         addElementFields(writer, target, elements, graph::getId);
-        addElementMethods(writer, target, elements, graph::getId);
+        addElementMethods(writer, target, elements, graph::getId, graph::findLabel);
         addConstructor(writer, target, elements, graph::getId);
         addProcessMethod(writer, target, graph);
         return new ClassData(target, writer::toByteArray);
@@ -155,7 +158,8 @@ public class OperationGenerator {
 
     private static void addElementMethods(
             ClassWriter writer, ClassDescription target,
-            List<VertexElement> elements, Function<VertexElement, String> ids) {
+            List<VertexElement> elements, Function<VertexElement, String> ids,
+            Function<VertexElement, Optional<String>> labels) {
         for (VertexElement element : elements) {
             String id = ids.apply(element);
             MethodVisitor method = writer.visitMethod(
@@ -172,6 +176,9 @@ public class OperationGenerator {
             case OPERATOR:
             case AGGREGATE:
                 getClass(method, target, (ClassNode) element, ids);
+                if (isResult(element)) {
+                    labels.apply(element).ifPresent(label -> decorate(method, target, label, ids));
+                }
                 break;
             case OUTPUT:
                 getOutput(method, target, (OutputNode) element, ids);
@@ -199,6 +206,10 @@ public class OperationGenerator {
         }
     }
 
+    private static boolean isResult(VertexElement element) {
+        return element.getRuntimeType().equals(Descriptions.typeOf(Result.class));
+    }
+
     private static void getContext(
             MethodVisitor method, ClassDescription target, Function<VertexElement, String> ids) {
         method.visitVarInsn(Opcodes.ALOAD, 0);
@@ -255,6 +266,21 @@ public class OperationGenerator {
                 false);
     }
 
+    private static void decorate(
+            MethodVisitor method, ClassDescription target,
+            String label, Function<VertexElement, String> ids) {
+        // operator -> context.decorate(operator, label)
+        getContext(method, target, ids);
+        method.visitInsn(Opcodes.SWAP);
+        getConst(method, label);
+        method.visitMethodInsn(
+                Opcodes.INVOKEINTERFACE,
+                typeOf(OperationAdapter.Context.class).getInternalName(),
+                "decorate", //$NON-NLS-1$
+                Type.getMethodDescriptor(typeOf(Result.class), typeOf(Result.class), typeOf(String.class)),
+                true);
+    }
+
     private static void getOutput(
             MethodVisitor method, ClassDescription target,
             OutputNode element, Function<VertexElement, String> ids) {
@@ -20,7 +20,11 @@ import static com.asakusafw.dag.compiler.codegen.AsmUtil.*;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.MethodVisitor;
@@ -31,9 +35,11 @@ import com.asakusafw.dag.api.common.ValueSerDe;
 import com.asakusafw.dag.compiler.codegen.AsmUtil.FieldRef;
 import com.asakusafw.dag.compiler.codegen.AsmUtil.LocalVarRef;
 import com.asakusafw.dag.compiler.model.ClassData;
+import com.asakusafw.dag.runtime.io.CompactValueOptionSerDe;
 import com.asakusafw.dag.runtime.io.ValueOptionSerDe;
 import com.asakusafw.lang.compiler.api.reference.DataModelReference;
 import com.asakusafw.lang.compiler.api.reference.PropertyReference;
+import com.asakusafw.lang.compiler.model.PropertyName;
 import com.asakusafw.lang.compiler.model.description.ClassDescription;
 import com.asakusafw.lang.compiler.model.description.Descriptions;
 import com.asakusafw.lang.compiler.model.description.TypeDescription;
@@ -41,6 +47,7 @@ import com.asakusafw.lang.compiler.model.description.TypeDescription;
 /**
  * Generates {@link ValueSerDe}.
  * @since 0.4.0
+ * @version 0.5.5
  */
 public final class ValueSerDeGenerator {
 
@@ -61,7 +68,39 @@ public final class ValueSerDeGenerator {
      * @return the generated class
      */
     public static ClassDescription get(ClassGeneratorContext context, TypeDescription type) {
-        return context.addClassFile(generate(context, type));
+        return get(context, type, false);
+    }
+
+    /**
+     * Generates {@link ValueSerDe} class.
+     * If {@code compactRow} is enabled, the generated class uses the compact row format, which consists of
+     * a leading null bitmap and the bodies of the non-null properties.
+     * @param context the current context
+     * @param type the target data model type
+     * @param compactRow {@code true} to use the compact row format, otherwise {@code false}
+     * @return the generated class
+     * @since 0.5.5
+     * @see CompactValueOptionSerDe
+     */
+    public static ClassDescription get(ClassGeneratorContext context, TypeDescription type, boolean compactRow) {
+        return get(context, type, compactRow, null);
+    }
+
+    /**
+     * Generates {@link ValueSerDe} class.
+     * If {@code projection} is specified, the generated class only serializes the projected properties,
+     * and the other properties of the deserialized objects are always {@code null}.
+     * @param context the current context
+     * @param type the target data model type
+     * @param compactRow {@code true} to use the compact row format, otherwise {@code false}
+     * @param projection the properties to serialize, or {@code null} to serialize all properties
+     * @return the generated class
+     * @since 0.5.5
+     */
+    public static ClassDescription get(
+            ClassGeneratorContext context, TypeDescription type,
+            boolean compactRow, Set<PropertyName> projection) {
+        return context.addClassFile(generate(context, type, compactRow, projection));
     }
 
     /**
@@ -71,27 +110,74 @@ public final class ValueSerDeGenerator {
      * @return the generated class data
      */
     public static ClassData generate(ClassGeneratorContext context, TypeDescription type) {
-        return context.cache(new Key(type), () -> {
+        return generate(context, type, false);
+    }
+
+    /**
+     * Generates {@link ValueSerDe} class.
+     * @param context the current context
+     * @param type the target data model type
+     * @param compactRow {@code true} to use the compact row format, otherwise {@code false}
+     * @return the generated class data
+     * @see #get(ClassGeneratorContext, TypeDescription, boolean)
+     * @since 0.5.5
+     */
+    public static ClassData generate(ClassGeneratorContext context, TypeDescription type, boolean compactRow) {
+        return generate(context, type, compactRow, null);
+    }
+
+    /**
+     * Generates {@link ValueSerDe} class.
+     * @param context the current context
+     * @param type the target data model type
+     * @param compactRow {@code true} to use the compact row format, otherwise {@code false}
+     * @param projection the properties to serialize, or {@code null} to serialize all properties
+     * @return the generated class data
+     * @see #get(ClassGeneratorContext, TypeDescription, boolean, Set)
+     * @since 0.5.5
+     */
+    public static ClassData generate(
+            ClassGeneratorContext context, TypeDescription type,
+            boolean compactRow, Set<PropertyName> projection) {
+        return context.cache(new Key(type, compactRow, projection), () -> {
             DataModelReference ref = context.getDataModelLoader().load(type);
             ClassDescription target = context.getClassName(CATEGORY, NameUtil.getSimpleNameHint(type, SUFFIX));
-            return generate0(ref, target);
+            return generate0(ref, compactRow, project(ref, projection), target);
         });
     }
 
-    private static ClassData generate0(DataModelReference reference, ClassDescription target) {
+    private static List<PropertyReference> project(DataModelReference reference, Set<PropertyName> projection) {
+        return reference.getProperties().stream()
+                .filter(p -> projection == null || projection.contains(p.getName()))
+                .collect(Collectors.toList());
+    }
+
+    private static ClassData generate0(
+            DataModelReference reference, boolean compactRow,
+            List<PropertyReference> properties, ClassDescription target) {
         ClassWriter writer = newWriter(target, Object.class, ValueSerDe.class);
         FieldRef buffer = defineField(writer, target, "buffer", typeOf(reference));
+        FieldRef nulls = compactRow ? CompactRowSupport.defineNullBitmap(writer, target) : null;
         defineEmptyConstructor(writer, Object.class, v -> {
             v.visitVarInsn(Opcodes.ALOAD, 0);
             getNew(v, reference.getDeclaration());
             putField(v, buffer);
+            if (nulls != null) {
+                CompactRowSupport.initNullBitmap(v, nulls);
+            }
         });
-        putSerialize(reference, writer);
-        putDeserialize(reference, buffer, writer);
+        if (nulls == null) {
+            putSerialize(reference, properties, writer);
+            putDeserialize(reference, properties, buffer, writer);
+        } else {
+            putCompactSerialize(reference, properties, nulls, writer);
+            putCompactDeserialize(reference, properties, buffer, nulls, writer);
+        }
         return new ClassData(target, writer::toByteArray);
     }
 
-    private static void putSerialize(DataModelReference reference, ClassWriter writer) {
+    private static void putSerialize(
+            DataModelReference reference, Collection<PropertyReference> properties, ClassWriter writer) {
         MethodVisitor v = writer.visitMethod(
                 Opcodes.ACC_PUBLIC,
                 "serialize",
@@ -103,7 +189,7 @@ public final class ValueSerDeGenerator {
                 });
         LocalVarRef object = cast(v, 1, reference.getDeclaration());
         LocalVarRef output = new LocalVarRef(Opcodes.ALOAD, 2);
-        for (PropertyReference property : reference.getProperties()) {
+        for (PropertyReference property : properties) {
             object.load(v);
             getOption(v, property);
             output.load(v);
@@ -122,7 +208,9 @@ public final class ValueSerDeGenerator {
         v.visitEnd();
     }
 
-    private static void putDeserialize(DataModelReference reference, FieldRef buffer, ClassWriter writer) {
+    private static void putDeserialize(
+            DataModelReference reference, Collection<PropertyReference> properties,
+            FieldRef buffer, ClassWriter writer) {
         MethodVisitor v = writer.visitMethod(
                 Opcodes.ACC_PUBLIC,
                 "deserialize",
@@ -138,7 +226,7 @@ public final class ValueSerDeGenerator {
         self.load(v);
         getField(v, buffer);
         LocalVarRef object = putLocalVar(v, Type.OBJECT, 2);
-        for (PropertyReference property : reference.getProperties()) {
+        for (PropertyReference property : properties) {
             object.load(v);
             getOption(v, property);
             input.load(v);
@@ -158,12 +246,63 @@ public final class ValueSerDeGenerator {
         v.visitEnd();
     }
 
+    private static void putCompactSerialize(
+            DataModelReference reference, Collection<PropertyReference> properties,
+            FieldRef nulls, ClassWriter writer) {
+        MethodVisitor v = writer.visitMethod(
+                Opcodes.ACC_PUBLIC,
+                "serialize",
+                Type.getMethodDescriptor(Type.VOID_TYPE, typeOf(Object.class), typeOf(DataOutput.class)),
+                null,
+                new String[] {
+                        typeOf(IOException.class).getInternalName(),
+                        typeOf(InterruptedException.class).getInternalName(),
+                });
+        LocalVarRef object = cast(v, 1, reference.getDeclaration());
+        LocalVarRef output = new LocalVarRef(Opcodes.ALOAD, 2);
+        CompactRowSupport.putSerialize(v, nulls, object, output, properties);
+        v.visitInsn(Opcodes.RETURN);
+        v.visitMaxs(0, 0);
+        v.visitEnd();
+    }
+
+    private static void putCompactDeserialize(
+            DataModelReference reference, Collection<PropertyReference> properties,
+            FieldRef buffer, FieldRef nulls, ClassWriter writer) {
+        MethodVisitor v = writer.visitMethod(
+                Opcodes.ACC_PUBLIC,
+                "deserialize",
+                Type.getMethodDescriptor(typeOf(Object.class), typeOf(DataInput.class)),
+                null,
+                new String[] {
+                        typeOf(IOException.class).getInternalName(),
+                        typeOf(InterruptedException.class).getInternalName(),
+                });
+        LocalVarRef self = new LocalVarRef(Opcodes.ALOAD, 0);
+        LocalVarRef input = new LocalVarRef(Opcodes.ALOAD, 1);
+
+        self.load(v);
+        getField(v, buffer);
+        LocalVarRef object = putLocalVar(v, Type.OBJECT, 2);
+        CompactRowSupport.putDeserialize(v, nulls, object, input, properties);
+        object.load(v);
+        v.visitInsn(Opcodes.ARETURN);
+        v.visitMaxs(0, 0);
+        v.visitEnd();
+    }
+
     private static class Key {
 
         private final TypeDescription type;
 
-        Key(TypeDescription type) {
+        private final boolean compactRow;
+
+        private final Set<PropertyName> projection;
+
+        Key(TypeDescription type, boolean compactRow, Set<PropertyName> projection) {
             this.type = type;
+            this.compactRow = compactRow;
+            this.projection = projection;
         }
 
         @Override
@@ -171,6 +310,8 @@ public final class ValueSerDeGenerator {
             final int prime = 31;
             int result = 1;
             result = prime * result + Objects.hashCode(type);
+            result = prime * result + Boolean.hashCode(compactRow);
+            result = prime * result + Objects.hashCode(projection);
             return result;
         }
 
@@ -186,7 +327,9 @@ public final class ValueSerDeGenerator {
                 return false;
             }
             Key other = (Key) obj;
-            return Objects.equals(type, other.type);
+            return Objects.equals(type, other.type)
+                    && compactRow == other.compactRow
+                    && Objects.equals(projection, other.projection);
         }
 
         @Override
@@ -20,11 +20,13 @@ import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import org.hamcrest.Matcher;
 import org.junit.Test;
 
+import com.asakusafw.dag.api.common.ByteBufferComparator;
 import com.asakusafw.dag.api.common.DataComparator;
 import com.asakusafw.dag.api.common.KeyValueSerDe;
 import com.asakusafw.dag.compiler.model.ClassData;
@@ -115,6 +117,13 @@ public class DataComparatorGeneratorTest extends ClassGeneratorTestRoot {
             DataBuffer bBuf = serialize(ser, b);
 
             DataComparator cmp = (DataComparator) comparator.resolve(cl).newInstance();
+            assertThat(cmp, is(instanceOf(ByteBufferComparator.class)));
+            ByteBuffer aBytes = ByteBuffer.wrap(aBuf.getData(), aBuf.getReadPosition(), aBuf.getReadRemaining());
+            ByteBuffer bBytes = ByteBuffer.wrap(bBuf.getData(), bBuf.getReadPosition(), bBuf.getReadRemaining());
+            assertThat(((ByteBufferComparator) cmp).compare(
+                    aBytes, aBytes.position(), aBytes.remaining(),
+                    bBytes, bBytes.position(), bBytes.remaining()), predicate);
+
             assertThat(cmp.compare(aBuf, bBuf), predicate);
         });
 
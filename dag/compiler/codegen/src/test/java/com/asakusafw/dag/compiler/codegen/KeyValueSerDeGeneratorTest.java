@@ -19,14 +19,21 @@ import static com.asakusafw.lang.compiler.model.description.Descriptions.*;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.Collections;
 
 import org.junit.Test;
 
+import com.asakusafw.dag.api.common.BinarySortKeyComparator;
+import com.asakusafw.dag.api.common.DataComparator;
 import com.asakusafw.dag.api.common.KeyValueSerDe;
+import com.asakusafw.dag.api.common.PrimitiveKeySerializer;
 import com.asakusafw.dag.compiler.model.ClassData;
+import com.asakusafw.dag.runtime.io.ValueOptionSerDe;
 import com.asakusafw.dag.runtime.testing.MockDataModel;
 import com.asakusafw.dag.runtime.testing.MockKeyValueModel;
+import com.asakusafw.lang.compiler.model.PropertyName;
 import com.asakusafw.lang.compiler.model.description.ClassDescription;
 import com.asakusafw.lang.compiler.model.graph.Group;
 import com.asakusafw.runtime.io.util.DataBuffer;
@@ -168,6 +175,214 @@ public class KeyValueSerDeGeneratorTest extends ClassGeneratorTestRoot {
         });
     }
 
+    /**
+     * w/ binary sort keys.
+     */
+    @Test
+    public void binary_sort_key() {
+        Group group = group("=key", "+sort", "-value");
+        ClassDescription gen = KeyValueSerDeGenerator.get(context(), classOf(MockDataModel.class), group, true);
+        loading(cl -> {
+            KeyValueSerDe object = (KeyValueSerDe) gen.resolve(cl).newInstance();
+            DataComparator cmp = new BinarySortKeyComparator();
+
+            MockDataModel a = new MockDataModel();
+            a.getKeyOption().modify(100);
+            a.getSortOption().modify(new BigDecimal("3.14"));
+            a.getValueOption().modify("Hello, world!");
+
+            MockDataModel b = new MockDataModel();
+            b.getKeyOption().modify(100);
+            b.getSortOption().modify(new BigDecimal("3.140"));
+            b.getValueOption().modify("Hello, world");
+
+            MockDataModel c = new MockDataModel();
+            c.getKeyOption().modify(100);
+            c.getSortOption().modify(new BigDecimal("10"));
+            c.getValueOption().modify("Hello, world!");
+
+            DataBuffer kBuffer = new DataBuffer();
+            DataBuffer aBuffer = new DataBuffer();
+            object.serializeKey(a, kBuffer);
+            object.serializeValue(a, aBuffer);
+
+            MockDataModel copy = (MockDataModel) object.deserializePair(kBuffer, aBuffer);
+            assertThat(kBuffer.getReadRemaining(), is(0));
+            assertThat(aBuffer.getReadRemaining(), is(0));
+            assertThat(copy.getKeyOption(), is(a.getKeyOption()));
+            assertThat(copy.getSortOption(), is(a.getSortOption()));
+            assertThat(copy.getValueOption(), is(a.getValueOption()));
+
+            assertThat(compare(object, cmp, a, b), is(lessThan(0)));
+            assertThat(compare(object, cmp, b, a), is(greaterThan(0)));
+            assertThat(compare(object, cmp, a, c), is(lessThan(0)));
+            assertThat(compare(object, cmp, c, b), is(greaterThan(0)));
+            assertThat(compare(object, cmp, a, a), is(0));
+        });
+    }
+
+    /**
+     * w/ compact row format.
+     */
+    @Test
+    public void compact() {
+        Group group = group("=key", "+sort", "-value");
+        ClassDescription gen = KeyValueSerDeGenerator.get(
+                context(), classOf(MockDataModel.class), group, false, true);
+        loading(cl -> {
+            KeyValueSerDe object = (KeyValueSerDe) gen.resolve(cl).newInstance();
+
+            MockDataModel model = new MockDataModel();
+            model.getKeyOption().modify(100);
+            model.getSortOption().modify(new BigDecimal("3.14"));
+            model.getValueOption().modify("Hello, world!");
+
+            DataBuffer kBuffer = new DataBuffer();
+            DataBuffer vBuffer = new DataBuffer();
+            object.serializeKey(model, kBuffer);
+            object.serializeValue(model, vBuffer);
+
+            assertThat(kBuffer.getReadRemaining(), is(greaterThan(0)));
+            assertThat(vBuffer.getReadRemaining(), is(greaterThan(0)));
+
+            MockDataModel copy = (MockDataModel) object.deserializePair(kBuffer, vBuffer);
+            assertThat(kBuffer.getReadRemaining(), is(0));
+            assertThat(vBuffer.getReadRemaining(), is(0));
+            assertThat(copy, is(not(sameInstance(model))));
+            assertThat(copy.getKeyOption(), is(model.getKeyOption()));
+            assertThat(copy.getSortOption(), is(model.getSortOption()));
+            assertThat(copy.getValueOption(), is(model.getValueOption()));
+        });
+    }
+
+    /**
+     * w/ projection.
+     */
+    @Test
+    public void projection() {
+        Group group = group("=key");
+        ClassDescription gen = KeyValueSerDeGenerator.get(
+                context(), classOf(MockDataModel.class), group, false, false,
+                Collections.singleton(PropertyName.of("sort")));
+        loading(cl -> {
+            KeyValueSerDe object = (KeyValueSerDe) gen.resolve(cl).newInstance();
+
+            MockDataModel model = new MockDataModel();
+            model.getKeyOption().modify(100);
+            model.getSortOption().modify(new BigDecimal("3.14"));
+            model.getValueOption().modify("Hello, world!");
+
+            DataBuffer kBuffer = new DataBuffer();
+            DataBuffer vBuffer = new DataBuffer();
+            object.serializeKey(model, kBuffer);
+            object.serializeValue(model, vBuffer);
+
+            MockDataModel copy = (MockDataModel) object.deserializePair(kBuffer, vBuffer);
+            assertThat(kBuffer.getReadRemaining(), is(0));
+            assertThat(vBuffer.getReadRemaining(), is(0));
+            assertThat(copy.getKeyOption(), is(model.getKeyOption()));
+            assertThat(copy.getSortOption(), is(model.getSortOption()));
+            assertThat(copy.getValueOption().isNull(), is(true));
+        });
+    }
+
+    /**
+     * w/ projection, the serialized values only contain the projected properties.
+     */
+    @Test
+    public void projection_shrink() {
+        Group group = group("=key");
+        ClassDescription all = KeyValueSerDeGenerator.get(context(), classOf(MockDataModel.class), group);
+        ClassDescription projected = KeyValueSerDeGenerator.get(
+                context(), classOf(MockDataModel.class), group, false, false,
+                Collections.singleton(PropertyName.of("sort")));
+        loading(cl -> {
+            MockDataModel model = new MockDataModel();
+            model.getKeyOption().modify(100);
+            model.getSortOption().modify(new BigDecimal("3.14"));
+            model.getValueOption().modify("Hello, world!");
+
+            DataBuffer allBuffer = new DataBuffer();
+            ((KeyValueSerDe) all.resolve(cl).newInstance()).serializeValue(model, allBuffer);
+            DataBuffer projectedBuffer = new DataBuffer();
+            ((KeyValueSerDe) projected.resolve(cl).newInstance()).serializeValue(model, projectedBuffer);
+
+            DataBuffer sortBuffer = new DataBuffer();
+            ValueOptionSerDe.serialize(model.getSortOption(), sortBuffer);
+            assertThat(projectedBuffer.getReadRemaining(), is(sortBuffer.getReadRemaining()));
+            assertThat(projectedBuffer.getReadRemaining(), is(lessThan(allBuffer.getReadRemaining())));
+        });
+    }
+
+    /**
+     * w/ compact row format, ordering properties must be compatible with the generated comparators.
+     */
+    @Test
+    public void compact_ordering() {
+        Group group = group("=key", "+sort", "-value");
+        ClassDescription gen = KeyValueSerDeGenerator.get(
+                context(), classOf(MockDataModel.class), group, false, true);
+        ClassDescription comparator = DataComparatorGenerator.get(
+                context(), classOf(MockDataModel.class), group.getOrdering());
+        loading(cl -> {
+            KeyValueSerDe object = (KeyValueSerDe) gen.resolve(cl).newInstance();
+            DataComparator cmp = (DataComparator) comparator.resolve(cl).newInstance();
+
+            MockDataModel a = new MockDataModel();
+            a.getKeyOption().modify(100);
+            a.getSortOption().modify(new BigDecimal("3.14"));
+            a.getValueOption().modify("Hello, world!");
+
+            MockDataModel b = new MockDataModel();
+            b.getKeyOption().modify(100);
+            b.getSortOption().modify(new BigDecimal("3.14"));
+            b.getValueOption().modify("Hello, world?");
+
+            assertThat(compare(object, cmp, a, a), is(0));
+            assertThat(compare(object, cmp, a, b), is(greaterThan(0)));
+            assertThat(compare(object, cmp, b, a), is(lessThan(0)));
+        });
+    }
+
+    /**
+     * w/ single primitive key.
+     */
+    @Test
+    public void primitive_key() {
+        Group group = group("=key", "+sort");
+        ClassDescription gen = KeyValueSerDeGenerator.get(context(), classOf(MockDataModel.class), group);
+        loading(cl -> {
+            KeyValueSerDe object = (KeyValueSerDe) gen.resolve(cl).newInstance();
+            assertThat(object, is(instanceOf(PrimitiveKeySerializer.class)));
+            PrimitiveKeySerializer.Format format = ((PrimitiveKeySerializer) object).getKeyFormat();
+            assertThat(format, is(PrimitiveKeySerializer.Format.NULLABLE_INT));
+
+            MockDataModel model = new MockDataModel();
+            model.getKeyOption().modify(100);
+            DataBuffer kBuffer = new DataBuffer();
+            object.serializeKey(model, kBuffer);
+            assertThat(kBuffer.getReadRemaining(), is(format.getKeySize()));
+        });
+    }
+
+    /**
+     * w/ non-primitive keys.
+     */
+    @Test
+    public void primitive_key_not_supported() {
+        ClassDescription multiple = KeyValueSerDeGenerator.get(
+                context(), classOf(MockDataModel.class), group("=key", "=sort"));
+        ClassDescription decimal = KeyValueSerDeGenerator.get(
+                context(), classOf(MockDataModel.class), group("=sort"));
+        ClassDescription compact = KeyValueSerDeGenerator.get(
+                context(), classOf(MockDataModel.class), group("=key"), false, true);
+        loading(cl -> {
+            assertThat(multiple.resolve(cl).newInstance(), is(not(instanceOf(PrimitiveKeySerializer.class))));
+            assertThat(decimal.resolve(cl).newInstance(), is(not(instanceOf(PrimitiveKeySerializer.class))));
+            assertThat(compact.resolve(cl).newInstance(), is(not(instanceOf(PrimitiveKeySerializer.class))));
+        });
+    }
+
     /**
      * cache - equivalent.
      */
@@ -188,6 +403,40 @@ public class KeyValueSerDeGeneratorTest extends ClassGeneratorTestRoot {
         assertThat(b, is(not(cacheOf(a))));
     }
 
+    /**
+     * cache w/ different sort key format.
+     */
+    @Test
+    public void cache_diff_binary_sort_key() {
+        ClassData a = KeyValueSerDeGenerator.generate(context(), typeOf(MockDataModel.class), group("=key", "+sort"));
+        ClassData b = KeyValueSerDeGenerator.generate(
+                context(), typeOf(MockDataModel.class), group("=key", "+sort"), true);
+        assertThat(b, is(not(cacheOf(a))));
+    }
+
+    /**
+     * cache w/ different row formats.
+     */
+    @Test
+    public void cache_diff_compact() {
+        ClassData a = KeyValueSerDeGenerator.generate(context(), typeOf(MockDataModel.class), group("=key", "+sort"));
+        ClassData b = KeyValueSerDeGenerator.generate(
+                context(), typeOf(MockDataModel.class), group("=key", "+sort"), false, true);
+        assertThat(b, is(not(cacheOf(a))));
+    }
+
+    /**
+     * cache w/ different projections.
+     */
+    @Test
+    public void cache_diff_projection() {
+        ClassData a = KeyValueSerDeGenerator.generate(context(), typeOf(MockDataModel.class), group("=key", "+sort"));
+        ClassData b = KeyValueSerDeGenerator.generate(
+                context(), typeOf(MockDataModel.class), group("=key", "+sort"), false, false,
+                Collections.singleton(PropertyName.of("sort")));
+        assertThat(b, is(not(cacheOf(a))));
+    }
+
     /**
      * cache w/ different groupings.
      */
@@ -197,4 +446,14 @@ public class KeyValueSerDeGeneratorTest extends ClassGeneratorTestRoot {
         ClassData b = KeyValueSerDeGenerator.generate(context(), typeOf(MockDataModel.class), group("=key", "-sort"));
         assertThat(b, is(not(cacheOf(a))));
     }
+
+    private static int compare(
+            KeyValueSerDe serde, DataComparator cmp,
+            MockDataModel a, MockDataModel b) throws IOException, InterruptedException {
+        DataBuffer aBuffer = new DataBuffer();
+        DataBuffer bBuffer = new DataBuffer();
+        serde.serializeValue(a, aBuffer);
+        serde.serializeValue(b, bBuffer);
+        return cmp.compare(aBuffer, bBuffer);
+    }
 }
@@ -185,8 +185,35 @@ public class OperationGeneratorTest extends ClassGeneratorTestRoot {
         assertThat(context.get("testing"), contains("Hello, world!TABLE"));
     }
 
+    /**
+     * w/ labeled operators.
+     */
+    @Test
+    public void operator_label() {
+        OutputNode output = new OutputNode("testing", typeOf(Result.class), typeOf(String.class));
+        OperatorNode second = new OperatorNode(
+                classOf(SimpleOp.class), typeOf(Result.class), typeOf(String.class),
+                output);
+        OperatorNode first = new OperatorNode(
+                classOf(SimpleOp.class), typeOf(Result.class), typeOf(String.class),
+                second);
+        InputNode root = new InputNode(first);
+        Map<VertexElement, String> labels = new HashMap<>();
+        labels.put(first, "a");
+        labels.put(second, "b");
+        MockContext context = new MockContext();
+        testing(new OperationSpec(root, labels), context, op -> {
+            op.process("Hello, world!");
+        });
+        assertThat(context.get("testing"), contains("Hello, world!<a>?<b>?"));
+    }
+
     private void testing(InputNode node, OperationAdapter.Context context, Action<Operation<Object>, ?> action) {
-        ClassDescription aClass = add(c -> new OperationGenerator().generate(context(), new OperationSpec(node), c));
+        testing(new OperationSpec(node), context, action);
+    }
+
+    private void testing(OperationSpec spec, OperationAdapter.Context context, Action<Operation<Object>, ?> action) {
+        ClassDescription aClass = add(c -> new OperationGenerator().generate(context(), spec, c));
         loading(cl -> {
             Constructor<?> ctor = aClass.resolve(cl).getConstructor(OperationAdapter.Context.class);
             @SuppressWarnings("unchecked")
@@ -233,6 +260,12 @@ public class OperationGeneratorTest extends ClassGeneratorTestRoot {
             return (Result<T>) results.computeIfAbsent(id, v -> new MockResult<>());
         }
 
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T> Result<T> decorate(Result<T> operator, String label) {
+            return value -> operator.add((T) (value + "<" + label + ">"));
+        }
+
         @Override
         public ProcessorContext getDetached() {
             throw new UnsupportedOperationException();
@@ -20,13 +20,16 @@ import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 
 import java.math.BigDecimal;
+import java.util.Collections;
 
 import org.junit.Test;
 
 import com.asakusafw.dag.api.common.ValueSerDe;
 import com.asakusafw.dag.compiler.model.ClassData;
+import com.asakusafw.dag.runtime.io.ValueOptionSerDe;
 import com.asakusafw.dag.runtime.testing.MockDataModel;
 import com.asakusafw.dag.runtime.testing.MockKeyValueModel;
+import com.asakusafw.lang.compiler.model.PropertyName;
 import com.asakusafw.lang.compiler.model.description.ClassDescription;
 import com.asakusafw.runtime.io.util.DataBuffer;
 
@@ -62,6 +65,96 @@ public class ValueSerDeGeneratorTest extends ClassGeneratorTestRoot {
         });
     }
 
+    /**
+     * w/ compact row format.
+     */
+    @Test
+    public void compact() {
+        ClassDescription gen = ValueSerDeGenerator.get(context(), classOf(MockDataModel.class), true);
+        loading(cl -> {
+            ValueSerDe object = (ValueSerDe) gen.resolve(cl).newInstance();
+
+            MockDataModel model = new MockDataModel();
+            model.getKeyOption().modify(100);
+            model.getSortOption().modify(new BigDecimal("3.14"));
+            model.getValueOption().modify("Hello, world!");
+
+            DataBuffer buffer = new DataBuffer();
+            object.serialize(model, buffer);
+
+            MockDataModel copy = (MockDataModel) object.deserialize(buffer);
+            assertThat(buffer.getReadRemaining(), is(0));
+            assertThat(copy, is(not(sameInstance(model))));
+            assertThat(copy.getKeyOption(), is(model.getKeyOption()));
+            assertThat(copy.getSortOption(), is(model.getSortOption()));
+            assertThat(copy.getValueOption(), is(model.getValueOption()));
+
+            model.getKeyOption().setNull();
+            model.getValueOption().setNull();
+            object.serialize(model, buffer);
+
+            copy = (MockDataModel) object.deserialize(buffer);
+            assertThat(buffer.getReadRemaining(), is(0));
+            assertThat(copy.getKeyOption(), is(model.getKeyOption()));
+            assertThat(copy.getSortOption(), is(model.getSortOption()));
+            assertThat(copy.getValueOption(), is(model.getValueOption()));
+        });
+    }
+
+    /**
+     * w/ projection.
+     */
+    @Test
+    public void projection() {
+        ClassDescription gen = ValueSerDeGenerator.get(
+                context(), classOf(MockDataModel.class), false,
+                Collections.singleton(PropertyName.of("value")));
+        loading(cl -> {
+            ValueSerDe object = (ValueSerDe) gen.resolve(cl).newInstance();
+
+            MockDataModel model = new MockDataModel();
+            model.getKeyOption().modify(100);
+            model.getSortOption().modify(new BigDecimal("3.14"));
+            model.getValueOption().modify("Hello, world!");
+
+            DataBuffer buffer = new DataBuffer();
+            object.serialize(model, buffer);
+
+            MockDataModel copy = (MockDataModel) object.deserialize(buffer);
+            assertThat(buffer.getReadRemaining(), is(0));
+            assertThat(copy.getKeyOption().isNull(), is(true));
+            assertThat(copy.getSortOption().isNull(), is(true));
+            assertThat(copy.getValueOption(), is(model.getValueOption()));
+        });
+    }
+
+    /**
+     * w/ projection, the serialized objects only contain the projected properties.
+     */
+    @Test
+    public void projection_shrink() {
+        ClassDescription all = ValueSerDeGenerator.get(context(), classOf(MockDataModel.class), false);
+        ClassDescription projected = ValueSerDeGenerator.get(
+                context(), classOf(MockDataModel.class), false,
+                Collections.singleton(PropertyName.of("key")));
+        loading(cl -> {
+            MockDataModel model = new MockDataModel();
+            model.getKeyOption().modify(100);
+            model.getSortOption().modify(new BigDecimal("3.14"));
+            model.getValueOption().modify("Hello, world!");
+
+            DataBuffer allBuffer = new DataBuffer();
+            ((ValueSerDe) all.resolve(cl).newInstance()).serialize(model, allBuffer);
+            DataBuffer projectedBuffer = new DataBuffer();
+            ((ValueSerDe) projected.resolve(cl).newInstance()).serialize(model, projectedBuffer);
+
+            DataBuffer keyBuffer = new DataBuffer();
+            ValueOptionSerDe.serialize(model.getKeyOption(), keyBuffer);
+            assertThat(projectedBuffer.getReadRemaining(), is(keyBuffer.getReadRemaining()));
+            assertThat(projectedBuffer.getReadRemaining(), is(lessThan(allBuffer.getReadRemaining())));
+        });
+    }
+
     /**
      * cache - equivalent.
      */
@@ -81,4 +174,25 @@ public class ValueSerDeGeneratorTest extends ClassGeneratorTestRoot {
         ClassData b = ValueSerDeGenerator.generate(context(), typeOf(MockKeyValueModel.class));
         assertThat(b, is(not(cacheOf(a))));
     }
+
+    /**
+     * cache w/ different row formats.
+     */
+    @Test
+    public void cache_diff_compact() {
+        ClassData a = ValueSerDeGenerator.generate(context(), typeOf(MockDataModel.class));
+        ClassData b = ValueSerDeGenerator.generate(context(), typeOf(MockDataModel.class), true);
+        assertThat(b, is(not(cacheOf(a))));
+    }
+
+    /**
+     * cache w/ different projections.
+     */
+    @Test
+    public void cache_diff_projection() {
+        ClassData a = ValueSerDeGenerator.generate(context(), typeOf(MockDataModel.class));
+        ClassData b = ValueSerDeGenerator.generate(context(), typeOf(MockDataModel.class), false,
+                Collections.singleton(PropertyName.of("value")));
+        assertThat(b, is(not(cacheOf(a))));
+    }
 }
@@ -15,9 +15,12 @@
  */
 package com.asakusafw.dag.compiler.flow;
 
+import java.util.Set;
+
 import com.asakusafw.dag.api.model.EdgeDescriptor;
 import com.asakusafw.dag.api.model.VertexDescriptor;
 import com.asakusafw.dag.api.processor.VertexProcessor;
+import com.asakusafw.lang.compiler.model.PropertyName;
 import com.asakusafw.lang.compiler.model.description.ClassDescription;
 import com.asakusafw.lang.compiler.model.description.TypeDescription;
 import com.asakusafw.lang.compiler.model.graph.Group;
@@ -25,6 +28,7 @@ import com.asakusafw.lang.compiler.model.graph.Group;
 /**
  * Provides descriptors of DAG API.
  * @since 0.4.0
+ * @version 0.5.5
  */
 public interface DagDescriptorFactory {
 
@@ -88,4 +92,40 @@ public interface DagDescriptorFactory {
      */
     EdgeDescriptor newScatterGatherEdge(TypeDescription dataType, Group group);
 
-}
\ No newline at end of file
+    /**
+     * Creates a new one-to-one {@link EdgeDescriptor}, which only must carry the projected properties.
+     * The default implementation just carries all properties.
+     * @param dataType the target data type
+     * @param projection the properties referred in the downstream, or {@code null} if all properties are referred
+     * @return the created descriptor
+     * @since 0.5.5
+     */
+    default EdgeDescriptor newOneToOneEdge(TypeDescription dataType, Set<PropertyName> projection) {
+        return newOneToOneEdge(dataType);
+    }
+
+    /**
+     * Creates a new scatter-gather {@link EdgeDescriptor}, which only must carry the projected properties.
+     * The default implementation just carries all properties.
+     * @param dataType the data type
+     * @param group the grouping information
+     * @param projection the properties referred in the downstream, or {@code null} if all properties are referred
+     * @return the created descriptor
+     * @since 0.5.5
+     */
+    default EdgeDescriptor newScatterGatherEdge(TypeDescription dataType, Group group, Set<PropertyName> projection) {
+        return newScatterGatherEdge(dataType, group);
+    }
+
+    /**
+     * Creates a new broadcast {@link EdgeDescriptor}.
+     * The default implementation just ignores whether the data is invariant or not.
+     * @param dataType the data type
+     * @param invariant {@code true} if the data is invariant between iterative rounds, otherwise {@code false}
+     * @return the created descriptor
+     * @since 0.5.5
+     */
+    default EdgeDescriptor newBroadcastEdge(TypeDescription dataType, boolean invariant) {
+        return newBroadcastEdge(dataType);
+    }
+}
@@ -97,6 +97,7 @@ import com.asakusafw.lang.compiler.extension.operator.info.PlanAttributeStore;
 import com.asakusafw.lang.compiler.model.description.ClassDescription;
 import com.asakusafw.lang.compiler.model.description.Descriptions;
 import com.asakusafw.lang.compiler.model.description.TypeDescription;
+import com.asakusafw.lang.compiler.model.graph.CoreOperator;
 import com.asakusafw.lang.compiler.model.graph.ExternalInput;
 import com.asakusafw.lang.compiler.model.graph.ExternalOutput;
 import com.asakusafw.lang.compiler.model.graph.Group;
@@ -125,7 +126,7 @@ import com.asakusafw.utils.graph.Graphs;
 /**
  * Generates data flow classes.
  * @since 0.4.0
- * @version 0.4.1
+ * @version 0.5.5
  */
 public final class DataFlowGenerator {
 
@@ -154,6 +155,8 @@ public final class DataFlowGenerator {
 
     private final ExternalPortDriver externalPortDriver;
 
+    private final RoundInvariants invariants;
+
     private DataFlowGenerator(
             JobflowProcessor.Context processorContext,
             ClassGeneratorContext generatorContext,
@@ -163,6 +166,7 @@ public final class DataFlowGenerator {
         this.processorContext = processorContext;
         this.generatorContext = generatorContext;
         this.descriptors = descriptors;
+        this.invariants = new RoundInvariants(plan);
 
         JobflowProcessor.Context root = processorContext;
         this.genericOperators = CompositeOperatorNodeGenerator.load(root.getClassLoader());
@@ -401,10 +405,11 @@ public final class DataFlowGenerator {
     private ClassDescription resolveOperationAdapter(Map<Operator, VertexElement> resolved, VertexSpec vertex) {
         return generate(vertex, "adapter.operation", c -> {
             OperationSpec operation = null;
+            Map<VertexElement, String> labels = collectLabels(resolved);
             for (VertexElement element : resolved.values()) {
                 if (element instanceof InputNode) {
                     Invariants.require(operation == null);
-                    operation = new OperationSpec((InputNode) element);
+                    operation = new OperationSpec((InputNode) element, labels);
                 }
             }
             Invariants.requireNonNull(operation);
@@ -412,6 +417,35 @@ public final class DataFlowGenerator {
         });
     }
 
+    private static Map<VertexElement, String> collectLabels(Map<Operator, VertexElement> resolved) {
+        Map<VertexElement, String> results = new HashMap<>();
+        resolved.forEach((operator, element) -> {
+            if (element.getElementKind() != ElementKind.OPERATOR
+                    && element.getElementKind() != ElementKind.AGGREGATE) {
+                return;
+            }
+            switch (operator.getOperatorKind()) {
+            case USER: {
+                UserOperator op = (UserOperator) operator;
+                results.put(element, String.format(
+                        "@%s:%s.%s", //$NON-NLS-1$
+                        op.getAnnotation().getDeclaringClass().getSimpleName(),
+                        op.getMethod().getDeclaringClass().getSimpleName(),
+                        op.getMethod().getName()));
+                break;
+            }
+            case CORE:
+                results.put(element, String.format(
+                        "@%s", //$NON-NLS-1$
+                        ((CoreOperator) operator).getCoreOperatorKind().getAnnotationType().getSimpleName()));
+                break;
+            default:
+                break;
+            }
+        });
+        return results;
+    }
+
     private void resolveBodyOperator(Map<Operator, VertexElement> resolved, VertexSpec vertex, Operator operator) {
         switch (operator.getOperatorKind()) {
         case CORE:
@@ -527,7 +561,7 @@ public final class DataFlowGenerator {
                 ResolvedInputInfo info = new ResolvedInputInfo(
                         spec.getId(),
                         new ResolvedEdgeInfo(
-                                descriptors.newOneToOneEdge(spec.getDataType()),
+                                descriptors.newOneToOneEdge(spec.getDataType(), spec.getProjection()),
                                 ResolvedEdgeInfo.Movement.ONE_TO_ONE,
                                 spec.getDataType(),
                                 null));
@@ -536,7 +570,7 @@ public final class DataFlowGenerator {
                 ResolvedInputInfo info = new ResolvedInputInfo(
                         spec.getId(),
                         new ResolvedEdgeInfo(
-                                descriptors.newBroadcastEdge(spec.getDataType()),
+                                descriptors.newBroadcastEdge(spec.getDataType(), invariants.isInvariant(port)),
                                 ResolvedEdgeInfo.Movement.BROADCAST,
                                 spec.getDataType(),
                                 null));
@@ -556,7 +590,8 @@ public final class DataFlowGenerator {
                 ResolvedInputInfo info = new ResolvedInputInfo(
                         spec.getId(),
                         new ResolvedEdgeInfo(
-                                descriptors.newScatterGatherEdge(spec.getDataType(), spec.getPartitionInfo()),
+                                descriptors.newScatterGatherEdge(
+                                        spec.getDataType(), spec.getPartitionInfo(), spec.getProjection()),
                                 combinerType == null
                                         ? ResolvedEdgeInfo.Movement.SCATTER_GATHER
                                         : ResolvedEdgeInfo.Movement.AGGREGATE,
@@ -0,0 +1,115 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.compiler.flow;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.asakusafw.lang.compiler.model.graph.Operator;
+import com.asakusafw.lang.compiler.model.iterative.IterativeExtension;
+import com.asakusafw.lang.compiler.planning.Plan;
+import com.asakusafw.lang.compiler.planning.SubPlan;
+
+/**
+ * Analyzes whether the data sets of broadcast inputs are invariant between iterative rounds.
+ * The iterative elements, which have {@link IterativeExtension}, declare that they depend on the round parameters.
+ * So that a broadcast input is invariant only if the plan contains such elements,
+ * and none of its upstream sub-plans (including transitive ones) contains them.
+ * Every broadcast input which shares an upstream port with the other has the same result,
+ * because all edges on the same port must have the same descriptor.
+ * @since 0.5.5
+ */
+final class RoundInvariants {
+
+    private final boolean iterative;
+
+    private final Map<SubPlan, Boolean> dependents = new HashMap<>();
+
+    private final Map<SubPlan.Input, Boolean> results = new HashMap<>();
+
+    /**
+     * Creates a new instance.
+     * @param plan the target plan
+     */
+    RoundInvariants(Plan plan) {
+        this.iterative = plan.getElements().stream()
+                .flatMap(s -> s.getOperators().stream())
+                .anyMatch(RoundInvariants::isIterative);
+    }
+
+    /**
+     * Returns whether the data set of the given broadcast input is invariant between iterative rounds.
+     * @param port the target input
+     * @return {@code true} if it is invariant, otherwise {@code false}
+     */
+    boolean isInvariant(SubPlan.Input port) {
+        Boolean cached = results.get(port);
+        if (cached != null) {
+            return cached;
+        }
+        Set<SubPlan.Input> inputs = new HashSet<>();
+        Set<SubPlan.Output> outputs = new HashSet<>();
+        Deque<SubPlan.Input> work = new ArrayDeque<>();
+        work.add(port);
+        while (work.isEmpty() == false) {
+            SubPlan.Input next = work.removeFirst();
+            if (inputs.add(next)) {
+                for (SubPlan.Output upstream : next.getOpposites()) {
+                    if (outputs.add(upstream)) {
+                        work.addAll(upstream.getOpposites());
+                    }
+                }
+            }
+        }
+        boolean result = iterative && outputs.stream().noneMatch(p -> isDependent(p.getOwner()));
+        inputs.forEach(p -> results.put(p, result));
+        return result;
+    }
+
+    private boolean isDependent(SubPlan sub) {
+        Boolean cached = dependents.get(sub);
+        if (cached != null) {
+            return cached;
+        }
+        boolean result = false;
+        Set<SubPlan> saw = new HashSet<>();
+        Deque<SubPlan> work = new ArrayDeque<>();
+        work.add(sub);
+        while (work.isEmpty() == false) {
+            SubPlan next = work.removeFirst();
+            if (saw.add(next) == false) {
+                continue;
+            }
+            if (next.getOperators().stream().anyMatch(RoundInvariants::isIterative)) {
+                result = true;
+                break;
+            }
+            for (SubPlan.Input input : next.getInputs()) {
+                input.getOpposites().forEach(p -> work.add(p.getOwner()));
+            }
+        }
+        dependents.put(sub, result);
+        return result;
+    }
+
+    private static boolean isIterative(Operator operator) {
+        return operator.getAttribute(IterativeExtension.class) != null;
+    }
+}
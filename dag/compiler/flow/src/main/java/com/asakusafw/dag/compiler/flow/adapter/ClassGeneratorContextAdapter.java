@@ -18,9 +18,9 @@ package com.asakusafw.dag.compiler.flow.adapter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.text.MessageFormat;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.asakusafw.dag.compiler.codegen.ClassGeneratorContext;
 import com.asakusafw.dag.compiler.codegen.ClassNameMap;
@@ -36,7 +36,9 @@ import com.asakusafw.lang.utils.common.Optionals;
 
 /**
  * An adapter implementation of {@link ClassGeneratorContext}.
+ * This class is thread-safe if the parent context is also thread-safe.
  * @since 0.4.0
+ * @version 0.5.5
  */
 public class ClassGeneratorContextAdapter implements ClassGeneratorContext {
 
@@ -44,7 +46,7 @@ public class ClassGeneratorContextAdapter implements ClassGeneratorContext {
 
     private final ClassNameMap namer;
 
-    private final Map<Object, ClassDescription> cache = new HashMap<>();
+    private final Map<Object, ClassDescription> cache = new ConcurrentHashMap<>();
 
     /**
      * Creates a new instance.
@@ -21,6 +21,7 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
 
@@ -32,6 +33,7 @@ import com.asakusafw.utils.graph.Graphs;
 /**
  * Represents information of operations.
  * @since 0.4.0
+ * @version 0.5.5
  */
 public class OperationSpec {
 
@@ -43,15 +45,29 @@ public class OperationSpec {
 
     private final Map<VertexElement, String> idMap;
 
+    private final Map<VertexElement, String> labelMap;
+
     /**
      * Creates a new instance.
      * @param input the main input
      */
     public OperationSpec(InputNode input) {
+        this(input, Collections.emptyMap());
+    }
+
+    /**
+     * Creates a new instance.
+     * @param input the main input
+     * @param labels the human readable labels of individual elements
+     * @since 0.5.5
+     */
+    public OperationSpec(InputNode input, Map<? extends VertexElement, String> labels) {
         Arguments.requireNonNull(input);
+        Arguments.requireNonNull(labels);
         this.input = input;
         this.dependencies = toGraph(input);
         this.idMap = Collections.unmodifiableMap(collectIds(dependencies));
+        this.labelMap = Arguments.freeze(labels);
     }
 
     private static Graph<VertexElement> toGraph(VertexElement root) {
@@ -107,4 +123,15 @@ public class OperationSpec {
         Invariants.require(idMap.containsKey(element));
         return idMap.get(element);
     }
+
+    /**
+     * Returns the label for the target element.
+     * @param element the target element
+     * @return the element label, or empty if it is not defined
+     * @since 0.5.5
+     */
+    public Optional<String> findLabel(VertexElement element) {
+        Arguments.requireNonNull(element);
+        return Optional.ofNullable(labelMap.get(element));
+    }
 }
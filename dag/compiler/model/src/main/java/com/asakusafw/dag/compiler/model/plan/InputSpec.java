@@ -16,11 +16,14 @@
 package com.asakusafw.dag.compiler.model.plan;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 
 import com.asakusafw.lang.compiler.common.util.EnumUtil;
+import com.asakusafw.lang.compiler.model.PropertyName;
 import com.asakusafw.lang.compiler.model.description.TypeDescription;
 import com.asakusafw.lang.compiler.model.graph.Group;
 import com.asakusafw.lang.compiler.planning.SubPlan;
@@ -31,6 +34,7 @@ import com.asakusafw.lang.utils.common.Optionals;
 /**
  * Extra information for {@link com.asakusafw.lang.compiler.planning.SubPlan.Input SubPlan.Input}.
  * @since 0.4.0
+ * @version 0.5.5
  */
 public class InputSpec implements ElementSpec<SubPlan.Input> {
 
@@ -46,6 +50,8 @@ public class InputSpec implements ElementSpec<SubPlan.Input> {
 
     private final Group partitionInfo;
 
+    private final Set<PropertyName> projection;
+
     /**
      * Returns the spec of the target element.
      * @param origin the target element
@@ -72,6 +78,29 @@ public class InputSpec implements ElementSpec<SubPlan.Input> {
             InputType inputType,
             Collection<InputOption> inputOptions,
             Group partitionInfo) {
+        this(origin, id, dataType, inputType, inputOptions, partitionInfo, null);
+    }
+
+    /**
+     * Creates a new instance.
+     * @param origin the original sub-plan input
+     * @param id the input ID
+     * @param dataType the input data type
+     * @param inputType the input operation type
+     * @param inputOptions the extra input options
+     * @param partitionInfo the input partitioning information (nullable)
+     * @param projection the properties which are referred in the downstream operations,
+     *     or {@code null} if they may refer all properties
+     * @since 0.5.5
+     */
+    public InputSpec(
+            SubPlan.Input origin,
+            String id,
+            TypeDescription dataType,
+            InputType inputType,
+            Collection<InputOption> inputOptions,
+            Group partitionInfo,
+            Collection<PropertyName> projection) {
         Arguments.requireNonNull(origin);
         Arguments.requireNonNull(id);
         Arguments.requireNonNull(dataType);
@@ -83,6 +112,9 @@ public class InputSpec implements ElementSpec<SubPlan.Input> {
         this.inputType = inputType;
         this.inputOptions = EnumUtil.freeze(inputOptions);
         this.partitionInfo = partitionInfo;
+        this.projection = projection == null
+                ? null
+                : Collections.unmodifiableSet(new LinkedHashSet<>(projection));
     }
 
     @Override
@@ -127,6 +159,16 @@ public class InputSpec implements ElementSpec<SubPlan.Input> {
         return partitionInfo;
     }
 
+    /**
+     * Returns the properties which are referred in the downstream operations.
+     * Engines can omit the other properties from the data on the corresponded edge.
+     * @return the referred properties, or {@code null} if the downstream operations may refer all properties
+     * @since 0.5.5
+     */
+    public Set<PropertyName> getProjection() {
+        return projection;
+    }
+
     @Override
     public Map<String, ?> toMap() {
         Map<String, Object> results = new LinkedHashMap<>();
@@ -135,6 +177,7 @@ public class InputSpec implements ElementSpec<SubPlan.Input> {
         results.put("data", getDataType()); //$NON-NLS-1$
         results.put("options", getInputOptions()); //$NON-NLS-1$
         Optionals.put(results, "partition", getPartitionInfo()); //$NON-NLS-1$
+        Optionals.put(results, "projection", getProjection()); //$NON-NLS-1$
         return results;
     }
 
@@ -102,7 +102,7 @@ import com.asakusafw.utils.graph.Graphs;
  * </li>
  * </ul>
  * @since 0.4.0
- * @version 0.5.2
+ * @version 0.5.5
  */
 public final class DagPlanning {
 
@@ -200,8 +200,19 @@ public final class DagPlanning {
      * @return the detail of created plan
      */
     public static PlanDetail plan(PlanningContext context, OperatorGraph operators) {
+        long start = System.currentTimeMillis();
         prepareOperatorGraph(context, operators);
+        long prepared = System.currentTimeMillis();
         PlanDetail result = createPlan(context, operators);
+        long finished = System.currentTimeMillis();
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(MessageFormat.format(
+                    "planning finished: operators={0}, sub-plans={1}, prepare={2}ms, plan={3}ms", //$NON-NLS-1$
+                    operators.getOperators(false).size(),
+                    result.getPlan().getElements().size(),
+                    prepared - start,
+                    finished - prepared));
+        }
         return result;
     }
 
@@ -445,14 +456,28 @@ public final class DagPlanning {
     }
 
     static PlanDetail createPlan(PlanningContext context, OperatorGraph normalized) {
+        long start = System.currentTimeMillis();
         PlanDetail primitive = createPrimitivePlan(context, normalized);
         validate(primitive);
+        long primitiveFinished = System.currentTimeMillis();
 
         PlanDetail unified = unifySubPlans(context, primitive);
         validate(unified);
+        long unifyFinished = System.currentTimeMillis();
 
         SubPlanAnalyzer analyzer = SubPlanAnalyzer.newInstance(context, unified, normalized);
         decoratePlan(context, unified.getPlan(), analyzer);
+        long decorateFinished = System.currentTimeMillis();
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(MessageFormat.format(
+                    "planning phases: primitive={0}ms ({1} sub-plans), " //$NON-NLS-1$
+                    + "unify={2}ms ({3} sub-plans), decorate={4}ms", //$NON-NLS-1$
+                    primitiveFinished - start,
+                    primitive.getPlan().getElements().size(),
+                    unifyFinished - primitiveFinished,
+                    unified.getPlan().getElements().size(),
+                    decorateFinished - unifyFinished));
+        }
         return unified;
     }
 
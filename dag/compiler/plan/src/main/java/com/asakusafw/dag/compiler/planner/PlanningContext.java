@@ -125,7 +125,7 @@ public class PlanningContext {
     /**
      * Represents an option for planning.
      * @since 0.4.0
-     * @version 0.5.2
+     * @version 0.5.5
      */
     public enum Option {
 
@@ -149,6 +149,12 @@ public class PlanningContext {
          * Enables {@link GraphStatistics}.
          */
         GRAPH_STATISTICS(true),
+
+        /**
+         * Omits properties which are never referred in the downstream operations from the sub-plan inputs.
+         * @since 0.5.5
+         */
+        PROJECTION_PUSHDOWN(true),
         ;
 
         private String symbol;
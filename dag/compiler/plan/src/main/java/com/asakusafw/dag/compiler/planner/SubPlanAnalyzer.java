@@ -18,9 +18,13 @@ package com.asakusafw.dag.compiler.planner;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import com.asakusafw.dag.compiler.model.plan.InputSpec;
 import com.asakusafw.dag.compiler.model.plan.InputSpec.InputOption;
@@ -31,14 +35,27 @@ import com.asakusafw.dag.compiler.model.plan.OutputSpec.OutputType;
 import com.asakusafw.dag.compiler.model.plan.VertexSpec;
 import com.asakusafw.dag.compiler.model.plan.VertexSpec.OperationOption;
 import com.asakusafw.dag.compiler.model.plan.VertexSpec.OperationType;
+import com.asakusafw.dag.compiler.planner.PlanningContext.Option;
+import com.asakusafw.lang.compiler.analyzer.util.JoinedModelUtil;
+import com.asakusafw.lang.compiler.analyzer.util.MasterJoinOperatorUtil;
+import com.asakusafw.lang.compiler.analyzer.util.PropertyMapping;
+import com.asakusafw.lang.compiler.api.DataModelLoader;
+import com.asakusafw.lang.compiler.api.reference.DataModelReference;
+import com.asakusafw.lang.compiler.api.reference.PropertyReference;
+import com.asakusafw.lang.compiler.model.PropertyName;
+import com.asakusafw.lang.compiler.model.description.ClassDescription;
 import com.asakusafw.lang.compiler.model.description.Descriptions;
 import com.asakusafw.lang.compiler.model.description.TypeDescription;
+import com.asakusafw.lang.compiler.model.graph.CoreOperator;
+import com.asakusafw.lang.compiler.model.graph.CoreOperator.CoreOperatorKind;
 import com.asakusafw.lang.compiler.model.graph.Group;
 import com.asakusafw.lang.compiler.model.graph.Operator;
 import com.asakusafw.lang.compiler.model.graph.Operator.OperatorKind;
 import com.asakusafw.lang.compiler.model.graph.OperatorGraph;
 import com.asakusafw.lang.compiler.model.graph.OperatorInput;
+import com.asakusafw.lang.compiler.model.graph.OperatorOutput;
 import com.asakusafw.lang.compiler.model.graph.Operators;
+import com.asakusafw.lang.compiler.model.graph.UserOperator;
 import com.asakusafw.lang.compiler.optimizer.OperatorCharacterizers;
 import com.asakusafw.lang.compiler.optimizer.basic.OperatorClass;
 import com.asakusafw.lang.compiler.optimizer.basic.OperatorClass.InputAttribute;
@@ -46,17 +63,35 @@ import com.asakusafw.lang.compiler.planning.Plan;
 import com.asakusafw.lang.compiler.planning.PlanDetail;
 import com.asakusafw.lang.compiler.planning.SubPlan;
 import com.asakusafw.lang.utils.common.Invariants;
+import com.asakusafw.vocabulary.operator.MasterCheck;
+import com.asakusafw.vocabulary.operator.MasterJoin;
 
 /**
  * Provides helpful information for consequent code generation phase about {@link SubPlan}.
  * @since 0.4.0
+ * @version 0.5.5
  */
 public final class SubPlanAnalyzer {
 
     private static final TypeDescription VOID_TYPE = Descriptions.typeOf(void.class);
 
+    private static final ClassDescription MASTER_JOIN = Descriptions.classOf(MasterJoin.class);
+
+    private static final ClassDescription MASTER_CHECK = Descriptions.classOf(MasterCheck.class);
+
+    private static final Set<CoreOperatorKind> PROJECTIVE_OPERATORS = EnumSet.of(
+            CoreOperatorKind.PROJECT,
+            CoreOperatorKind.EXTEND,
+            CoreOperatorKind.RESTRUCTURE);
+
     private final PlanDetail detail;
 
+    private final DataModelLoader dataModelLoader;
+
+    private final ClassLoader classLoader;
+
+    private final boolean projection;
+
     private final Map<Operator, OperatorClass> operatorClasses;
 
     private final GroupKeyUnifier groupKeys = new GroupKeyUnifier();
@@ -73,13 +108,21 @@ public final class SubPlanAnalyzer {
 
     private final Map<SubPlan.Output, OutputSpec> outputSpecs = new HashMap<>();
 
+    private final Map<SubPlan.Input, Set<PropertyName>> projections = new HashMap<>();
+
     private SubPlanAnalyzer(
             PlanDetail detail,
+            DataModelLoader dataModelLoader,
+            ClassLoader classLoader,
+            boolean projection,
             Map<Operator, OperatorClass> operatorClasses,
             Map<SubPlan, String> vertexIds,
             Map<SubPlan.Input, String> inputIds,
             Map<SubPlan.Output, String> outputIds) {
         this.detail = detail;
+        this.dataModelLoader = dataModelLoader;
+        this.classLoader = classLoader;
+        this.projection = projection;
         this.operatorClasses = operatorClasses;
         this.vertexIds = vertexIds;
         this.inputIds = inputIds;
@@ -106,7 +149,12 @@ public final class SubPlanAnalyzer {
         Map<SubPlan, String> vIds = Util.computeIds("v", Util.sortElements(plan));
         Map<SubPlan.Input, String> iIds = Util.computeIds("i", plan.getElements(), Util::sortInputs);
         Map<SubPlan.Output, String> oIds = Util.computeIds("o", plan.getElements(), Util::sortOutputs);
-        return new SubPlanAnalyzer(detail, characteristics, vIds, iIds, oIds);
+        return new SubPlanAnalyzer(
+                detail,
+                context.getOptimizerContext().getDataModelLoader(),
+                context.getOptimizerContext().getClassLoader(),
+                context.getOptions().contains(Option.PROJECTION_PUSHDOWN),
+                characteristics, vIds, iIds, oIds);
     }
 
     /**
@@ -230,11 +278,14 @@ public final class SubPlanAnalyzer {
         TypeDescription dataType = computeInputDataType(input, type);
         switch (type) {
         case NO_DATA:
-        case EXTRACT:
             return new InputSpec(input, id, dataType, type, options, null);
+        case EXTRACT:
+            return new InputSpec(input, id, dataType, type, options, null, computeProjection(input));
         case BROADCAST:
-        case CO_GROUP:
             return new InputSpec(input, id, dataType, type, options, computeInputGroup(input));
+        case CO_GROUP:
+            return new InputSpec(input, id, dataType, type, options, computeInputGroup(input),
+                    computeProjection(input));
         default:
             throw new AssertionError(type);
         }
@@ -313,6 +364,152 @@ public final class SubPlanAnalyzer {
         return result;
     }
 
+    private Set<PropertyName> computeProjection(SubPlan.Input input) {
+        if (projection == false) {
+            return null;
+        }
+        if (projections.containsKey(input)) {
+            return projections.get(input);
+        }
+        // the sub-plan inputs which share the same upstream outputs must also share their edge format
+        Set<SubPlan.Input> members = collectEdgeMembers(input);
+        Set<PropertyName> results = computeProjection(members);
+        for (SubPlan.Input member : members) {
+            projections.put(member, results);
+        }
+        return results;
+    }
+
+    private static Set<SubPlan.Input> collectEdgeMembers(SubPlan.Input input) {
+        Set<SubPlan.Input> results = new LinkedHashSet<>();
+        Set<SubPlan.Output> saw = new HashSet<>();
+        LinkedList<SubPlan.Input> work = new LinkedList<>();
+        work.add(input);
+        while (work.isEmpty() == false) {
+            SubPlan.Input next = work.removeFirst();
+            if (results.add(next) == false) {
+                continue;
+            }
+            for (SubPlan.Output upstream : next.getOpposites()) {
+                if (saw.add(upstream)) {
+                    work.addAll(upstream.getOpposites());
+                }
+            }
+        }
+        return results;
+    }
+
+    private Set<PropertyName> computeProjection(Set<SubPlan.Input> members) {
+        Set<PropertyName> results = new HashSet<>();
+        TypeDescription dataType = null;
+        for (SubPlan.Input member : members) {
+            InputType type = computeInputType(member);
+            if (type == InputType.EXTRACT) {
+                // no extra properties
+            } else if (type == InputType.CO_GROUP && isAggregate(member) == false) {
+                // grouping and ordering properties are always required to build key-value pairs
+                results.addAll(getKeyProperties(computeInputGroup(member)));
+            } else {
+                return null;
+            }
+            if (dataType == null) {
+                dataType = member.getOperator().getDataType();
+            } else if (dataType.equals(member.getOperator().getDataType()) == false) {
+                return null;
+            }
+            for (OperatorInput consumer : member.getOperator().getOutput().getOpposites()) {
+                Set<PropertyName> referred = computeReferredProperties(consumer);
+                if (referred == null) {
+                    return null;
+                }
+                results.addAll(referred);
+            }
+        }
+        if (dataType == null) {
+            return null;
+        }
+        Set<PropertyName> properties = dataModelLoader.load(dataType).getProperties().stream()
+                .map(PropertyReference::getName)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (results.containsAll(properties)) {
+            return null;
+        }
+        properties.retainAll(results);
+        return properties;
+    }
+
+    private Set<PropertyName> computeReferredProperties(OperatorInput consumer) {
+        Operator owner = consumer.getOwner();
+        if (owner.getOperatorKind() == OperatorKind.CORE) {
+            return computeProjectiveReferredProperties(owner);
+        } else if (MasterJoinOperatorUtil.isSupported(owner)) {
+            return computeMasterJoinReferredProperties(consumer);
+        }
+        // other operators are opaque
+        return null;
+    }
+
+    private Set<PropertyName> computeProjectiveReferredProperties(Operator consumer) {
+        // only projective operators can tell which properties they refer
+        if (PROJECTIVE_OPERATORS.contains(((CoreOperator) consumer).getCoreOperatorKind()) == false
+                || consumer.getOutputs().size() != 1) {
+            return null;
+        }
+        // projective operators only refer the properties which have the same name in their output
+        DataModelReference output = dataModelLoader.load(consumer.getOutputs().get(0).getDataType());
+        return output.getProperties().stream()
+                .map(PropertyReference::getName)
+                .collect(Collectors.toSet());
+    }
+
+    private Set<PropertyName> computeMasterJoinReferredProperties(OperatorInput consumer) {
+        UserOperator owner = (UserOperator) consumer.getOwner();
+        // master selection methods may refer any properties of masters and transactions
+        if (MasterJoinOperatorUtil.hasSelection(owner) || isPassThrough(consumer)) {
+            return null;
+        }
+        Group group = consumer.getGroup();
+        if (group == null) {
+            return null;
+        }
+        ClassDescription kind = owner.getAnnotation().getDeclaringClass();
+        Set<PropertyName> results = new HashSet<>(getKeyProperties(group));
+        if (kind.equals(MASTER_JOIN)) {
+            // joined models only refer the mapped properties
+            List<PropertyMapping> mappings = Invariants.safe(
+                    () -> JoinedModelUtil.getPropertyMappings(classLoader, owner));
+            for (PropertyMapping mapping : mappings) {
+                if (mapping.getSourcePort().getName().equals(consumer.getName())) {
+                    results.add(mapping.getSourceProperty());
+                }
+            }
+            return results;
+        } else if (kind.equals(MASTER_CHECK)) {
+            // master check only tests whether the master exists or not
+            return results;
+        }
+        // the other master-join kind operators pass the records into user methods
+        return null;
+    }
+
+    private static boolean isPassThrough(OperatorInput consumer) {
+        // the consumed records may be passed to the downstream as is
+        for (OperatorOutput output : consumer.getOwner().getOutputs()) {
+            if (output.hasOpposites() && output.getDataType().equals(consumer.getDataType())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Set<PropertyName> getKeyProperties(Group group) {
+        Set<PropertyName> results = new HashSet<>(group.getGrouping());
+        group.getOrdering().stream()
+                .map(Group.Ordering::getPropertyName)
+                .forEach(results::add);
+        return results;
+    }
+
     /**
      * Analyzes output of sub-plan.
      * @param output the target output
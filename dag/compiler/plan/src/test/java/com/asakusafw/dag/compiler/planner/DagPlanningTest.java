@@ -15,6 +15,7 @@
  */
 package com.asakusafw.dag.compiler.planner;
 
+import static com.asakusafw.lang.compiler.model.description.Descriptions.*;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 
@@ -32,8 +33,10 @@ import com.asakusafw.dag.compiler.model.plan.OutputSpec.OutputOption;
 import com.asakusafw.dag.compiler.model.plan.OutputSpec.OutputType;
 import com.asakusafw.dag.compiler.model.plan.VertexSpec.OperationOption;
 import com.asakusafw.dag.compiler.model.plan.VertexSpec.OperationType;
+import com.asakusafw.lang.compiler.model.PropertyName;
 import com.asakusafw.lang.compiler.model.graph.CoreOperator;
 import com.asakusafw.lang.compiler.model.graph.CoreOperator.CoreOperatorKind;
+import com.asakusafw.lang.compiler.model.graph.ExternalOutput;
 import com.asakusafw.lang.compiler.model.graph.Group;
 import com.asakusafw.lang.compiler.model.graph.Operator;
 import com.asakusafw.lang.compiler.model.graph.OperatorInput.InputUnit;
@@ -44,13 +47,17 @@ import com.asakusafw.lang.compiler.model.testing.OperatorExtractor;
 import com.asakusafw.lang.compiler.planning.Plan;
 import com.asakusafw.lang.compiler.planning.PlanDetail;
 import com.asakusafw.lang.compiler.planning.SubPlan;
+import com.asakusafw.runtime.model.DataModel;
+import com.asakusafw.runtime.value.IntOption;
 import com.asakusafw.vocabulary.attribute.ViewInfo;
 import com.asakusafw.vocabulary.flow.processor.InputBuffer;
 import com.asakusafw.vocabulary.flow.processor.PartialAggregation;
 import com.asakusafw.vocabulary.operator.CoGroup;
 import com.asakusafw.vocabulary.operator.Extract;
 import com.asakusafw.vocabulary.operator.Fold;
+import com.asakusafw.vocabulary.operator.MasterCheck;
 import com.asakusafw.vocabulary.operator.MasterJoinUpdate;
+import com.asakusafw.vocabulary.operator.Project;
 
 /**
  * Test for {@link DagPlanning}.
@@ -138,6 +145,100 @@ in --- *C --- o0 --- *C --- out
         assertThat(output(s1), outputAggregation(is(nullValue())));
     }
 
+    /**
+     * projection pushdown.
+<pre>{@code
+in --- c0 --- o0 --- out
+==>
+in --- *C --- o0 --- *C --- out
+}</pre>
+     */
+    @Test
+    public void projection() {
+        MockOperators m = new MockOperators(typeOf(WideModel.class));
+        PlanDetail detail = DagPlanning.plan(context(), m
+            .input("in", DataSize.LARGE)
+            .operator(cp(), "c0").connect("in", "c0")
+            .bless("o0", CoreOperator.builder(CoreOperatorKind.PROJECT)
+                    .input(Project.ID_INPUT, m.getCommonDataType())
+                    .output(Project.ID_OUTPUT, typeOf(NarrowModel.class)))
+            .connect("c0", "o0")
+            .bless("out", ExternalOutput.newInstance("out", typeOf(NarrowModel.class)))
+            .connect("o0", "out")
+            .toGraph());
+        MockOperators mock = restore(detail);
+
+        SubPlan s1 = ownerOf(detail, mock.get("o0"));
+        SubPlan s2 = ownerOf(detail, mock.get("out"));
+        assertThat(info(input(s1)).getProjection(), contains(PropertyName.of("a")));
+        assertThat(info(input(s2)).getProjection(), is(nullValue()));
+    }
+
+    /**
+     * projection pushdown for co-group edges.
+<pre>{@code
+in0 --- o0 --- out
+in1 --/
+==>
+in0 --- *G --- o0 --- *C --- out
+in1 --- *G --/
+}</pre>
+     */
+    @Test
+    public void projection_cogroup() {
+        MockOperators m = new MockOperators(typeOf(WideModel.class));
+        PlanDetail detail = DagPlanning.plan(context(), m
+            .input("in0", DataSize.LARGE)
+            .input("in1", DataSize.LARGE)
+            .bless("o0", op(MasterCheck.class, "check")
+                    .input("m", m.getCommonDataType(), group("=a"))
+                    .input("t", m.getCommonDataType(), group("=a"))
+                    .output("found", m.getCommonDataType())
+                    .output("missed", m.getCommonDataType()))
+                .connect("in0", "o0.m")
+                .connect("in1", "o0.t")
+            .output("out").connect("o0.found", "out")
+            .toGraph());
+        MockOperators mock = restore(detail);
+
+        SubPlan s0 = ownerOf(detail, mock.get("in0"));
+        SubPlan s1 = ownerOf(detail, mock.get("in1"));
+        assertThat(output(s0).getOpposites(), hasSize(1));
+        assertThat(output(s1).getOpposites(), hasSize(1));
+        SubPlan.Input master = output(s0).getOpposites().iterator().next();
+        SubPlan.Input transaction = output(s1).getOpposites().iterator().next();
+
+        assertThat(master, inputType(is(InputType.CO_GROUP)));
+        assertThat(info(master).getProjection(), contains(PropertyName.of("a")));
+
+        // transactions are passed to the downstream
+        assertThat(transaction, inputType(is(InputType.CO_GROUP)));
+        assertThat(info(transaction).getProjection(), is(nullValue()));
+    }
+
+    /**
+     * projection pushdown is disabled.
+     */
+    @Test
+    public void projection_disabled() {
+        MockOperators m = new MockOperators(typeOf(WideModel.class));
+        PlanDetail detail = DagPlanning.plan(context(
+                DagPlanning.KEY_OPTION_PREFIX + PlanningContext.Option.PROJECTION_PUSHDOWN.getSymbol(), "false"), m
+            .input("in", DataSize.LARGE)
+            .operator(cp(), "c0").connect("in", "c0")
+            .bless("o0", CoreOperator.builder(CoreOperatorKind.PROJECT)
+                    .input(Project.ID_INPUT, m.getCommonDataType())
+                    .output(Project.ID_OUTPUT, typeOf(NarrowModel.class)))
+            .connect("c0", "o0")
+            .bless("out", ExternalOutput.newInstance("out", typeOf(NarrowModel.class)))
+            .connect("o0", "out")
+            .toGraph());
+        MockOperators mock = restore(detail);
+
+        SubPlan s1 = ownerOf(detail, mock.get("o0"));
+        assertThat(info(input(s1)).getProjection(), is(nullValue()));
+    }
+
     /**
      * co-group kind.
 <pre>{@code
@@ -1180,5 +1281,58 @@ in1 -/------/------/
 
         @MasterJoinUpdate
         public abstract void join();
+
+        @MasterCheck
+        public abstract void check();
+    }
+
+    @SuppressWarnings("javadoc")
+    public static class WideModel implements DataModel<WideModel> {
+
+        private final IntOption a = new IntOption();
+
+        private final IntOption b = new IntOption();
+
+        public IntOption getAOption() {
+            return a;
+        }
+
+        public IntOption getBOption() {
+            return b;
+        }
+
+        @Override
+        public void reset() {
+            a.setNull();
+            b.setNull();
+        }
+
+        @SuppressWarnings("deprecation")
+        @Override
+        public void copyFrom(WideModel other) {
+            a.copyFrom(other.a);
+            b.copyFrom(other.b);
+        }
+    }
+
+    @SuppressWarnings("javadoc")
+    public static class NarrowModel implements DataModel<NarrowModel> {
+
+        private final IntOption a = new IntOption();
+
+        public IntOption getAOption() {
+            return a;
+        }
+
+        @Override
+        public void reset() {
+            a.setNull();
+        }
+
+        @SuppressWarnings("deprecation")
+        @Override
+        public void copyFrom(NarrowModel other) {
+            a.copyFrom(other.a);
+        }
     }
 }
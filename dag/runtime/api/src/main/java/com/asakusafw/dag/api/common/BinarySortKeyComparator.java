@@ -0,0 +1,77 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.api.common;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link DataComparator} for serialized values which start with a binary sort key.
+ * Each value must begin with the length of its sort key as written by {@link java.io.DataOutput#writeInt(int)},
+ * and the sort key body follows it.
+ * The sort key bodies are compared as unsigned byte sequences, so that engines can sort such values without
+ * any type specific comparators.
+ * @since 0.5.5
+ */
+public final class BinarySortKeyComparator implements ByteBufferComparator {
+
+    /**
+     * The size of sort key length header in bytes.
+     */
+    public static final int HEADER_SIZE = Integer.BYTES;
+
+    @Override
+    public int compare(DataInput a, DataInput b) throws IOException {
+        int aLength = a.readInt();
+        int bLength = b.readInt();
+        for (int i = 0, n = Math.min(aLength, bLength); i < n; i++) {
+            int aByte = a.readUnsignedByte();
+            int bByte = b.readUnsignedByte();
+            if (aByte != bByte) {
+                skip(a, aLength - (i + 1));
+                skip(b, bLength - (i + 1));
+                return aByte - bByte;
+            }
+        }
+        if (aLength < bLength) {
+            skip(b, bLength - aLength);
+        } else {
+            skip(a, aLength - bLength);
+        }
+        return Integer.compare(aLength, bLength);
+    }
+
+    @Override
+    public int compare(ByteBuffer a, int aOffset, int aLength, ByteBuffer b, int bOffset, int bLength) {
+        return ByteBufferComparator.compareBytes(
+                a, aOffset + HEADER_SIZE, a.getInt(aOffset),
+                b, bOffset + HEADER_SIZE, b.getInt(bOffset));
+    }
+
+    private static void skip(DataInput input, int length) throws IOException {
+        int rest = length;
+        while (rest > 0) {
+            int skipped = input.skipBytes(rest);
+            if (skipped <= 0) {
+                input.readByte();
+                rest--;
+            } else {
+                rest -= skipped;
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.api.common;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A {@link DataComparator} which can also compare serialized data sequences on {@link ByteBuffer} directly.
+ * Engines should prefer {@link #compare(ByteBuffer, int, int, ByteBuffer, int, int)} if the serialized data
+ * sequences are already on buffers.
+ * @since 0.5.5
+ */
+public interface ByteBufferComparator extends DataComparator {
+
+    /**
+     * Compares between the two serialized data sequences on the given {@link ByteBuffer}s.
+     * Each data sequence must have been serialized in the byte order of the corresponded buffer.
+     * This never changes the position, limit, nor mark of the given buffers.
+     * @param a the buffer which contains the first data sequence
+     * @param aOffset the offset of the first data sequence in the buffer
+     * @param aLength the length of the first data sequence in bytes
+     * @param b the buffer which contains the second data sequence
+     * @param bOffset the offset of the second data sequence in the buffer
+     * @param bLength the length of the second data sequence in bytes
+     * @return {@code 0} - the two values are both equivalent,
+     *   {@code < 0} - the first value is less than the second one, or
+     *   {@code > 0} - the second value is less than the second one
+     */
+    int compare(ByteBuffer a, int aOffset, int aLength, ByteBuffer b, int bOffset, int bLength);
+
+    /**
+     * Compares between the two byte sequences as unsigned bytes in lexicographical order.
+     * This compares 8 bytes at a time, and never changes the position, limit, nor mark of the given buffers.
+     * @param a the buffer which contains the first byte sequence
+     * @param aOffset the offset of the first byte sequence in the buffer
+     * @param aLength the length of the first byte sequence
+     * @param b the buffer which contains the second byte sequence
+     * @param bOffset the offset of the second byte sequence in the buffer
+     * @param bLength the length of the second byte sequence
+     * @return {@code 0} - the two sequences are both equivalent,
+     *   {@code < 0} - the first sequence is less than the second one, or
+     *   {@code > 0} - the second sequence is less than the second one
+     */
+    static int compareBytes(ByteBuffer a, int aOffset, int aLength, ByteBuffer b, int bOffset, int bLength) {
+        int length = Math.min(aLength, bLength);
+        boolean aSwap = a.order() != ByteOrder.BIG_ENDIAN;
+        boolean bSwap = b.order() != ByteOrder.BIG_ENDIAN;
+        int index = 0;
+        for (int n = length - Long.BYTES; index <= n; index += Long.BYTES) {
+            long aWord = a.getLong(aOffset + index);
+            long bWord = b.getLong(bOffset + index);
+            if (aWord != bWord || aSwap != bSwap) {
+                // compares words as big-endian to keep the lexicographical order
+                if (aSwap) {
+                    aWord = Long.reverseBytes(aWord);
+                }
+                if (bSwap) {
+                    bWord = Long.reverseBytes(bWord);
+                }
+                if (aWord != bWord) {
+                    return Long.compareUnsigned(aWord, bWord);
+                }
+            }
+        }
+        for (; index < length; index++) {
+            int aByte = Byte.toUnsignedInt(a.get(aOffset + index));
+            int bByte = Byte.toUnsignedInt(b.get(bOffset + index));
+            if (aByte != bByte) {
+                return aByte - bByte;
+            }
+        }
+        return Integer.compare(aLength, bLength);
+    }
+}
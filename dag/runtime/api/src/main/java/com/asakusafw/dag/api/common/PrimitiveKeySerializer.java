@@ -0,0 +1,94 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.api.common;
+
+/**
+ * An optional interface of {@link KeyValueSerializer} which serializes each key as a single primitive value.
+ * Engines can compare and hash such serialized keys as primitive values, instead of byte sequences.
+ * @since 0.5.5
+ */
+public interface PrimitiveKeySerializer extends KeyValueSerializer {
+
+    /**
+     * Returns the format of serialized keys.
+     * @return the key format
+     */
+    Format getKeyFormat();
+
+    /**
+     * Represents a format of serialized primitive keys.
+     * Each key consists of an optional header byte and a big-endian primitive value.
+     * If the key has a header, the key only consists of the header byte {@code 0x00} if it represents {@code null},
+     * or the header byte {@code 0x01} and the value body.
+     * @since 0.5.5
+     */
+    enum Format {
+
+        /**
+         * A 4-byte value with a header byte.
+         */
+        NULLABLE_INT(true, Integer.BYTES),
+
+        /**
+         * An 8-byte value with a header byte.
+         */
+        NULLABLE_LONG(true, Long.BYTES),
+
+        /**
+         * A 4-byte value without any header bytes.
+         */
+        INT(false, Integer.BYTES),
+
+        /**
+         * An 8-byte value without any header bytes.
+         */
+        LONG(false, Long.BYTES),
+        ;
+
+        private final boolean header;
+
+        private final int bodySize;
+
+        Format(boolean header, int bodySize) {
+            this.header = header;
+            this.bodySize = bodySize;
+        }
+
+        /**
+         * Returns whether or not each key has a header byte.
+         * @return {@code true} if it has a header byte, otherwise {@code false}
+         */
+        public boolean hasHeader() {
+            return header;
+        }
+
+        /**
+         * Returns the value body size.
+         * @return the value body size in bytes
+         */
+        public int getBodySize() {
+            return bodySize;
+        }
+
+        /**
+         * Returns the size of non-null keys.
+         * @return the key size in bytes
+         */
+        public int getKeySize() {
+            return (header ? 1 : 0) + bodySize;
+        }
+    }
+}
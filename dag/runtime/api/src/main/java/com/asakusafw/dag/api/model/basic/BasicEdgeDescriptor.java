@@ -28,6 +28,7 @@ import com.asakusafw.lang.utils.common.Arguments;
 /**
  * A basic implementation of {@link EdgeDescriptor}.
  * @since 0.4.2
+ * @version 0.5.5
  */
 public class BasicEdgeDescriptor implements EdgeDescriptor {
 
@@ -39,6 +40,8 @@ public class BasicEdgeDescriptor implements EdgeDescriptor {
 
     private final SupplierInfo comparator;
 
+    private final boolean invariant;
+
     /**
      * Creates a new instance.
      * @param movement the movement type
@@ -47,7 +50,22 @@ public class BasicEdgeDescriptor implements EdgeDescriptor {
      * @param comparator information of supplier which provides {@link DataComparator} (nullable)
      */
     public BasicEdgeDescriptor(Movement movement, SupplierInfo serde, SupplierInfo comparator) {
+        this(movement, serde, comparator, false);
+    }
+
+    /**
+     * Creates a new instance.
+     * @param movement the movement type
+     * @param serde information of supplier which provides
+     *     either {@link ValueSerDe} or {@link KeyValueSerDe} (nullable)
+     * @param comparator information of supplier which provides {@link DataComparator} (nullable)
+     * @param invariant {@code true} if the data on this edge is invariant between iterative rounds,
+     *     this is only available for {@link Movement#BROADCAST}
+     * @since 0.5.5
+     */
+    public BasicEdgeDescriptor(Movement movement, SupplierInfo serde, SupplierInfo comparator, boolean invariant) {
         Arguments.requireNonNull(movement);
+        Arguments.require(invariant == false || movement == Movement.BROADCAST);
         switch (movement) {
         case ONE_TO_ONE:
         case BROADCAST:
@@ -67,6 +85,7 @@ public class BasicEdgeDescriptor implements EdgeDescriptor {
         this.movement = movement;
         this.serde = serde;
         this.comparator = comparator;
+        this.invariant = invariant;
     }
 
     /**
@@ -93,6 +112,15 @@ public class BasicEdgeDescriptor implements EdgeDescriptor {
         return comparator;
     }
 
+    /**
+     * Returns whether the data on this edge is invariant between iterative rounds or not.
+     * @return {@code true} if it is invariant, otherwise {@code false}
+     * @since 0.5.5
+     */
+    public boolean isInvariant() {
+        return invariant;
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
@@ -100,6 +128,7 @@ public class BasicEdgeDescriptor implements EdgeDescriptor {
         result = prime * result + Objects.hashCode(movement);
         result = prime * result + Objects.hashCode(serde);
         result = prime * result + Objects.hashCode(comparator);
+        result = prime * result + Boolean.hashCode(invariant);
         return result;
     }
 
@@ -124,6 +153,9 @@ public class BasicEdgeDescriptor implements EdgeDescriptor {
         if (!Objects.equals(comparator, other.comparator)) {
             return false;
         }
+        if (invariant != other.invariant) {
+            return false;
+        }
         return true;
     }
 
@@ -16,10 +16,16 @@
 package com.asakusafw.dag.api.processor;
 
 import java.io.IOException;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+import com.asakusafw.lang.utils.common.Arguments;
+import com.asakusafw.lang.utils.common.Optionals;
 
 /**
  * An abstract super interface of processor which performs edge I/Os.
  * @since 0.4.0
+ * @version 0.5.5
  */
 public interface EdgeIoProcessorContext extends ProcessorContext {
 
@@ -40,4 +46,44 @@ public interface EdgeIoProcessorContext extends ProcessorContext {
      * @throws InterruptedException if interrupted while initializing the writer
      */
     EdgeWriter getOutput(String name) throws IOException, InterruptedException;
+
+    /**
+     * Returns an identity of the data set which the specified input port reads.
+     * The input ports which have the same identity always provide the same contents in the current session,
+     * so that clients can share objects built from them instead of reading the input again.
+     * @param name the port name
+     * @return the identity, or empty if it is not available
+     * @since 0.5.5
+     */
+    default Optional<Object> getInputSource(String name) {
+        Arguments.requireNonNull(name);
+        return Optionals.empty();
+    }
+
+    /**
+     * Returns the number of vertices which read the same data set as the specified input port in the current session.
+     * Clients can release the objects built from the data set after all these vertices have finished.
+     * @param name the port name
+     * @return the number of vertices, or empty if it is not available
+     * @see #getInputSource(String)
+     * @since 0.5.5
+     */
+    default OptionalInt getInputSourceReaders(String name) {
+        Arguments.requireNonNull(name);
+        return OptionalInt.empty();
+    }
+
+    /**
+     * Returns whether the data set which the specified input port reads is invariant between iterative rounds.
+     * If it is, the input ports of the other rounds which have the same {@link #getInputSource(String) identity}
+     * also provide the same contents, so that clients can share objects built from them between the rounds.
+     * @param name the port name
+     * @return {@code true} if the data set is invariant between iterative rounds, otherwise {@code false}
+     * @see #getInputSource(String)
+     * @since 0.5.5
+     */
+    default boolean isInputSourceInvariant(String name) {
+        Arguments.requireNonNull(name);
+        return false;
+    }
 }
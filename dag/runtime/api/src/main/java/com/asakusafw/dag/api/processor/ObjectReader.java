@@ -15,12 +15,23 @@
  */
 package com.asakusafw.dag.api.processor;
 
+import java.util.OptionalLong;
+
 import com.asakusafw.dag.api.common.ObjectCursor;
 
 /**
  * An abstract super interface of reading objects from input edges.
  * @since 0.4.0
+ * @version 0.5.5
  */
 public interface ObjectReader extends EdgeReader, ObjectCursor {
-    // no special members
+
+    /**
+     * Returns the total number of objects in this reader.
+     * @return the number of objects, or empty if it is not known
+     * @since 0.5.5
+     */
+    default OptionalLong getObjectCount() {
+        return OptionalLong.empty();
+    }
 }
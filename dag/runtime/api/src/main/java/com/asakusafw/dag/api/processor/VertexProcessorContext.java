@@ -15,9 +15,15 @@
  */
 package com.asakusafw.dag.api.processor;
 
+import java.util.Optional;
+import java.util.concurrent.Executor;
+
+import com.asakusafw.lang.utils.common.Optionals;
+
 /**
  * A context object for processing vertices.
  * @since 0.4.0
+ * @version 0.5.5
  * @see TaskProcessor
  */
 public interface VertexProcessorContext extends EdgeIoProcessorContext {
@@ -27,4 +33,25 @@ public interface VertexProcessorContext extends EdgeIoProcessorContext {
      * @return the vertex ID
      */
     String getVertexId();
+
+    /**
+     * Returns an executor which can run helper tasks while this vertex is being initialized.
+     * The executor may be shared with the other vertices, so that clients must wait for their helper tasks
+     * are completed before {@link VertexProcessor#initialize(VertexProcessorContext)} returns.
+     * @return the executor, or empty if it is not available
+     * @since 0.5.5
+     */
+    default Optional<Executor> getExecutor() {
+        return Optionals.empty();
+    }
+
+    /**
+     * Returns the max number of helper tasks which {@link #getExecutor() the executor} can run concurrently.
+     * Clients should not submit more helper tasks than this at once, or the extra tasks just wait for the others.
+     * @return the number of available threads in the executor, or {@code 0} if the executor is not available
+     * @since 0.5.5
+     */
+    default int getExecutorParallelism() {
+        return getExecutor().isPresent() ? 1 : 0;
+    }
 }
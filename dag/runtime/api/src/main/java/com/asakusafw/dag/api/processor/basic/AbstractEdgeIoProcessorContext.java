@@ -16,9 +16,13 @@
 package com.asakusafw.dag.api.processor.basic;
 
 import java.io.IOException;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
@@ -32,6 +36,7 @@ import com.asakusafw.lang.utils.common.Optionals;
  * An abstract implementation of {@link EdgeIoProcessorContext}.
  * @param <S> the self type
  * @since 0.4.0
+ * @version 0.5.5
  */
 public abstract class AbstractEdgeIoProcessorContext<S extends AbstractEdgeIoProcessorContext<S>>
         extends AbstractProcessorContext<S>
@@ -41,6 +46,12 @@ public abstract class AbstractEdgeIoProcessorContext<S extends AbstractEdgeIoPro
 
     private final Map<String, Supplier<? extends EdgeWriter>> outputs = new LinkedHashMap<>();
 
+    private final Map<String, Object> sources = new LinkedHashMap<>();
+
+    private final Map<String, Integer> sourceReaders = new LinkedHashMap<>();
+
+    private final Set<String> invariantSources = new HashSet<>();
+
     @Override
     public EdgeReader getInput(String name) throws IOException, InterruptedException {
         return getPort(inputs, name);
@@ -51,6 +62,23 @@ public abstract class AbstractEdgeIoProcessorContext<S extends AbstractEdgeIoPro
         return getPort(outputs, name);
     }
 
+    @Override
+    public Optional<Object> getInputSource(String name) {
+        return Optionals.get(sources, name);
+    }
+
+    @Override
+    public OptionalInt getInputSourceReaders(String name) {
+        return Optionals.get(sourceReaders, name)
+                .map(OptionalInt::of)
+                .orElse(OptionalInt.empty());
+    }
+
+    @Override
+    public boolean isInputSourceInvariant(String name) {
+        return invariantSources.contains(name);
+    }
+
     private static <T> T getPort(Map<String, Supplier<? extends T>> ports, String name) {
         return Optionals.get(ports, name)
                 .map(s -> s.get()) // Note: JDK cannot recognize Supplier::get
@@ -87,6 +115,48 @@ public abstract class AbstractEdgeIoProcessorContext<S extends AbstractEdgeIoPro
         return withPort(outputs, name, () -> (ObjectWriter) o -> consumer.accept(o));
     }
 
+    /**
+     * Sets an identity of the data set for the input.
+     * @param name the port name
+     * @param source the identity of the input data set
+     * @return this
+     * @see #getInputSource(String)
+     * @since 0.5.5
+     */
+    public final S withInputSource(String name, Object source) {
+        return withPort(sources, name, source);
+    }
+
+    /**
+     * Sets an identity of the data set for the input.
+     * @param name the port name
+     * @param source the identity of the input data set
+     * @param readers the number of vertices which read the data set
+     * @return this
+     * @see #getInputSource(String)
+     * @see #getInputSourceReaders(String)
+     * @since 0.5.5
+     */
+    public final S withInputSource(String name, Object source, int readers) {
+        withPort(sourceReaders, name, readers);
+        return withPort(sources, name, source);
+    }
+
+    /**
+     * Sets an identity of the data set for the input, which is invariant between iterative rounds.
+     * @param name the port name
+     * @param source the identity of the input data set
+     * @return this
+     * @see #getInputSource(String)
+     * @see #isInputSourceInvariant(String)
+     * @since 0.5.5
+     */
+    public final S withInvariantInputSource(String name, Object source) {
+        withPort(sources, name, source);
+        invariantSources.add(name);
+        return self();
+    }
+
     private <T> S withPort(Map<String, T> ports, String name, T port) {
         if (ports.putIfAbsent(name, port) != null) {
             throw new IllegalStateException(name);
@@ -0,0 +1,67 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.api.processor.basic;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import com.asakusafw.dag.api.processor.extension.SharedResourceRegistry;
+import com.asakusafw.lang.utils.common.Arguments;
+import com.asakusafw.lang.utils.common.InterruptibleIo;
+import com.asakusafw.lang.utils.common.Invariants;
+
+/**
+ * A basic implementation of {@link SharedResourceRegistry}.
+ * @since 0.5.5
+ */
+public class BasicSharedResourceRegistry implements SharedResourceRegistry, InterruptibleIo {
+
+    private final Map<Class<?>, Object> resources = new LinkedHashMap<>();
+
+    private boolean closed;
+
+    @Override
+    public <T> T computeIfAbsent(Class<T> type, Supplier<? extends T> factory) {
+        Arguments.requireNonNull(type);
+        Arguments.requireNonNull(factory);
+        synchronized (resources) {
+            if (closed) {
+                throw new IllegalStateException();
+            }
+            return type.cast(resources.computeIfAbsent(type, k -> Invariants.requireNonNull(factory.get())));
+        }
+    }
+
+    /**
+     * Closes the registered resource objects in reverse order of their registration.
+     */
+    @Override
+    public void close() throws IOException, InterruptedException {
+        try (Closer closer = new Closer()) {
+            synchronized (resources) {
+                closed = true;
+                for (Object resource : resources.values()) {
+                    if (resource instanceof InterruptibleIo) {
+                        closer.add((InterruptibleIo) resource);
+                    }
+                }
+                resources.clear();
+            }
+        }
+    }
+}
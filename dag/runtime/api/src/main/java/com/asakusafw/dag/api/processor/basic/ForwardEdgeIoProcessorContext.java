@@ -16,6 +16,8 @@
 package com.asakusafw.dag.api.processor.basic;
 
 import java.io.IOException;
+import java.util.Optional;
+import java.util.OptionalInt;
 
 import com.asakusafw.dag.api.processor.EdgeIoProcessorContext;
 import com.asakusafw.dag.api.processor.EdgeReader;
@@ -24,6 +26,7 @@ import com.asakusafw.dag.api.processor.EdgeWriter;
 /**
  * An {@link EdgeIoProcessorContext} context which forwards method invocations to obtain properties and resources.
  * @since 0.4.0
+ * @version 0.5.5
  */
 public interface ForwardEdgeIoProcessorContext extends EdgeIoProcessorContext, ForwardProcessorContext {
 
@@ -39,4 +42,19 @@ public interface ForwardEdgeIoProcessorContext extends EdgeIoProcessorContext, F
     default EdgeWriter getOutput(String name) throws IOException, InterruptedException {
         return getForward().getOutput(name);
     }
+
+    @Override
+    default Optional<Object> getInputSource(String name) {
+        return getForward().getInputSource(name);
+    }
+
+    @Override
+    default OptionalInt getInputSourceReaders(String name) {
+        return getForward().getInputSourceReaders(name);
+    }
+
+    @Override
+    default boolean isInputSourceInvariant(String name) {
+        return getForward().isInputSourceInvariant(name);
+    }
 }
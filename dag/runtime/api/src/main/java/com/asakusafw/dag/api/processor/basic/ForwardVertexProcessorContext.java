@@ -15,11 +15,15 @@
  */
 package com.asakusafw.dag.api.processor.basic;
 
+import java.util.Optional;
+import java.util.concurrent.Executor;
+
 import com.asakusafw.dag.api.processor.VertexProcessorContext;
 
 /**
  * A {@link VertexProcessorContext} context which forwards method invocations to obtain properties and resources.
  * @since 0.4.0
+ * @version 0.5.5
  */
 public interface ForwardVertexProcessorContext extends VertexProcessorContext, ForwardEdgeIoProcessorContext {
 
@@ -30,4 +34,14 @@ public interface ForwardVertexProcessorContext extends VertexProcessorContext, F
     default String getVertexId() {
         return getForward().getVertexId();
     }
+
+    @Override
+    default Optional<Executor> getExecutor() {
+        return getForward().getExecutor();
+    }
+
+    @Override
+    default int getExecutorParallelism() {
+        return getForward().getExecutorParallelism();
+    }
 }
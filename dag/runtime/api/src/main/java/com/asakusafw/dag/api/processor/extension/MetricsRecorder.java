@@ -0,0 +1,84 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.api.processor.extension;
+
+import com.asakusafw.dag.api.processor.ProcessorContext;
+
+/**
+ * Records performance metrics of DAG executions.
+ * Engines obtain this as a resource of the root {@link ProcessorContext}, and then notify metrics to it.
+ * Each method may be invoked from multiple threads.
+ * @since 0.5.5
+ */
+public interface MetricsRecorder {
+
+    /**
+     * Records nothing.
+     */
+    MetricsRecorder NULL = new MetricsRecorder() {
+        // use default methods
+    };
+
+    /**
+     * Records metrics of a finished vertex.
+     * @param vertexId the vertex ID
+     * @param elapsedNanos the elapsed wall clock time in nanoseconds
+     * @param cpuNanos the total CPU time of its tasks in nanoseconds, or {@code -1} if it is not available
+     */
+    default void vertexFinished(String vertexId, long elapsedNanos, long cpuNanos) {
+        return;
+    }
+
+    /**
+     * Records metrics of a finished task.
+     * @param vertexId the owner vertex ID
+     * @param taskId the task ID
+     * @param elapsedNanos the elapsed wall clock time in nanoseconds
+     * @param cpuNanos the CPU time in nanoseconds, or {@code -1} if it is not available
+     */
+    default void taskFinished(String vertexId, String taskId, long elapsedNanos, long cpuNanos) {
+        return;
+    }
+
+    /**
+     * Records metrics of a finished output edge.
+     * @param vertexId the owner vertex ID
+     * @param portName the output port name
+     * @param records the number of written records
+     * @param bytes the written data size in bytes
+     */
+    default void outputFinished(String vertexId, String portName, long records, long bytes) {
+        return;
+    }
+
+    /**
+     * Records a task which had to wait for the other running tasks before it was admitted.
+     * @param vertexId the owner vertex ID
+     * @param elapsedNanos the elapsed time while waiting in nanoseconds
+     */
+    default void admissionStalled(String vertexId, long elapsedNanos) {
+        return;
+    }
+
+    /**
+     * Records metrics of buffers which were spilled out of memory.
+     * @param bytes the spilled data size in bytes
+     * @param elapsedNanos the elapsed time for spilling in nanoseconds
+     */
+    default void spilled(long bytes, long elapsedNanos) {
+        return;
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.api.processor.extension;
+
+import com.asakusafw.dag.api.processor.ProcessorContext;
+
+/**
+ * Profiles operators in DAG vertices by sampling.
+ * Engines obtain this as a resource of the root {@link ProcessorContext}, and then measure
+ * one in {@link #getSamplingInterval() N} records which are passed to each operator.
+ * @since 0.5.5
+ */
+public interface OperatorProfiler {
+
+    /**
+     * Profiles nothing.
+     */
+    OperatorProfiler NULL = new OperatorProfiler() {
+        @Override
+        public int getSamplingInterval() {
+            return 0;
+        }
+        @Override
+        public Probe getProbe(String vertexId, String label) {
+            return (selfNanos, totalNanos) -> {
+                return;
+            };
+        }
+    };
+
+    /**
+     * Returns the sampling interval.
+     * @return the sampling interval in records, or {@code 0} if profiling is disabled
+     */
+    int getSamplingInterval();
+
+    /**
+     * Returns a probe for the target operator.
+     * @param vertexId the owner vertex ID
+     * @param label the operator label
+     * @return the probe
+     */
+    Probe getProbe(String vertexId, String label);
+
+    /**
+     * Receives sampled elapsed time of an operator.
+     * Each method may be invoked from multiple threads.
+     * @since 0.5.5
+     */
+    @FunctionalInterface
+    interface Probe {
+
+        /**
+         * Records a sample.
+         * @param selfNanos the elapsed time in nanoseconds, excluding the succeeding profiled operators
+         * @param totalNanos the elapsed time in nanoseconds, including the succeeding operators
+         */
+        void sampled(long selfNanos, long totalNanos);
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.api.processor.extension;
+
+import java.util.function.Supplier;
+
+import com.asakusafw.dag.api.processor.ProcessorContext;
+import com.asakusafw.lang.utils.common.InterruptibleIo;
+
+/**
+ * A registry of resource objects which are shared between the iterative rounds of the same stage.
+ * Engines which run several rounds in the same Java VM put this into the root {@link ProcessorContext} of each round,
+ * and then close the registry after the last round was finished.
+ * The registered objects must not depend on the round parameters.
+ * @since 0.5.5
+ */
+@FunctionalInterface
+public interface SharedResourceRegistry {
+
+    /**
+     * Returns the registered resource object, or registers a new one if it is absent.
+     * The registered object is {@link InterruptibleIo#close() closed} after the last round if it is
+     * an {@link InterruptibleIo}.
+     * This method may be invoked from multiple threads.
+     * @param <T> the resource type
+     * @param type the resource type
+     * @param factory the resource factory, which is invoked only if the resource is absent
+     * @return the registered resource object
+     */
+    <T> T computeIfAbsent(Class<T> type, Supplier<? extends T> factory);
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.api.common;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link ByteBufferComparator}.
+ */
+public class ByteBufferComparatorTest {
+
+    private static final String[] VALUES = {
+            "",
+            "a",
+            "b",
+            "ab",
+            "abcdefg",
+            "abcdefgh",
+            "abcdefgi",
+            "abcdefghi",
+            "abcdefghijklmnopq",
+            "abcdefghijklmnopr",
+            "\u00ff",
+            "a\u00ffbcdefghi",
+            "a\u0080bcdefghi",
+    };
+
+    /**
+     * compare bytes.
+     */
+    @Test
+    public void compareBytes() {
+        check(ByteOrder.BIG_ENDIAN, ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * compare bytes in little endian buffers.
+     */
+    @Test
+    public void compareBytes_little_endian() {
+        check(ByteOrder.LITTLE_ENDIAN, ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * compare bytes in buffers with different byte orders.
+     */
+    @Test
+    public void compareBytes_mixed_order() {
+        check(ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN);
+        check(ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN);
+    }
+
+    private static void check(ByteOrder aOrder, ByteOrder bOrder) {
+        for (String a : VALUES) {
+            for (String b : VALUES) {
+                byte[] aBytes = bytes(a);
+                byte[] bBytes = bytes(b);
+                ByteBuffer aBuffer = wrap(aBytes, 3, aOrder);
+                ByteBuffer bBuffer = wrap(bBytes, 5, bOrder);
+                int result = ByteBufferComparator.compareBytes(
+                        aBuffer, 3, aBytes.length,
+                        bBuffer, 5, bBytes.length);
+                assertThat(String.format("%s <=> %s", a, b),
+                        Integer.signum(result), is(Integer.signum(compareUnsigned(aBytes, bBytes))));
+                assertThat(aBuffer.position(), is(0));
+                assertThat(bBuffer.position(), is(0));
+            }
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        byte[] results = new byte[value.length()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = (byte) value.charAt(i);
+        }
+        return results;
+    }
+
+    private static ByteBuffer wrap(byte[] bytes, int offset, ByteOrder order) {
+        // surrounds the contents with garbage
+        ByteBuffer buffer = ByteBuffer.allocate(offset + bytes.length + Long.BYTES).order(order);
+        for (int i = 0; i < buffer.capacity(); i++) {
+            buffer.put(i, (byte) 0x7f);
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            buffer.put(offset + i, bytes[i]);
+        }
+        return buffer;
+    }
+
+    private static int compareUnsigned(byte[] a, byte[] b) {
+        for (int i = 0, n = Math.min(a.length, b.length); i < n; i++) {
+            int diff = Byte.toUnsignedInt(a[i]) - Byte.toUnsignedInt(b[i]);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return a.length - b.length;
+    }
+}
@@ -17,17 +17,20 @@ package com.asakusafw.dag.runtime.directio;
 
 import java.io.IOException;
 import java.text.MessageFormat;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.asakusafw.lang.utils.common.InterruptibleIo;
+import com.asakusafw.lang.utils.common.Invariants;
 import com.asakusafw.runtime.directio.Counter;
 import com.asakusafw.runtime.directio.DataDefinition;
 import com.asakusafw.runtime.directio.DirectDataSource;
 import com.asakusafw.runtime.directio.OutputAttemptContext;
 import com.asakusafw.runtime.io.ModelOutput;
+import com.asakusafw.runtime.model.DataModel;
 
 final class DirectFileOutputDriver implements InterruptibleIo {
 
@@ -45,6 +48,12 @@ final class DirectFileOutputDriver implements InterruptibleIo {
 
     private final DirectFileCounterGroup counters;
 
+    private Executor writeBehindExecutor;
+
+    private int writeBehindRecords;
+
+    private int writeBehindBatches;
+
     private boolean sawError;
 
     private boolean initialized;
@@ -67,6 +76,23 @@ final class DirectFileOutputDriver implements InterruptibleIo {
         return context;
     }
 
+    /**
+     * Enables write-behind outputs.
+     * @param executor the executor which writes batches into output files
+     * @param records the max number of records in each batch
+     * @param batches the max number of batches for each output file
+     * @return this
+     * @see WriteBehindModelOutput
+     */
+    public DirectFileOutputDriver withWriteBehind(Executor executor, int records, int batches) {
+        if (DataModel.class.isAssignableFrom(definition.getDataClass())) {
+            this.writeBehindExecutor = executor;
+            this.writeBehindRecords = records;
+            this.writeBehindBatches = batches;
+        }
+        return this;
+    }
+
     public Counter getRecordCounter() {
         return counters.getRecordCount();
     }
@@ -77,7 +103,18 @@ final class DirectFileOutputDriver implements InterruptibleIo {
             initialized = true;
         }
         String resolved = variableResolver.apply(path);
-        return source.openOutput(context, definition, basePath, resolved, counters.getFileSize());
+        ModelOutput<Object> output = source.openOutput(
+                context, definition, basePath, resolved, counters.getFileSize());
+        if (writeBehindExecutor != null) {
+            return new WriteBehindModelOutput(
+                    output, this::newDataObject, writeBehindExecutor, resolved,
+                    writeBehindRecords, writeBehindBatches);
+        }
+        return output;
+    }
+
+    private DataModel<?> newDataObject() {
+        return (DataModel<?>) Invariants.safe(() -> definition.getDataClass().newInstance());
     }
 
     public void error(Throwable throwable) {
@@ -18,6 +18,8 @@ package com.asakusafw.dag.runtime.directio;
 import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.hadoop.conf.Configuration;
@@ -36,6 +38,7 @@ import com.asakusafw.dag.api.processor.VertexProcessorContext;
 import com.asakusafw.dag.runtime.io.HadoopObjectFactory;
 import com.asakusafw.lang.utils.common.Arguments;
 import com.asakusafw.lang.utils.common.Invariants;
+import com.asakusafw.lang.utils.common.Lang;
 import com.asakusafw.lang.utils.common.Optionals;
 import com.asakusafw.runtime.directio.Counter;
 import com.asakusafw.runtime.directio.DataDefinition;
@@ -49,6 +52,7 @@ import com.asakusafw.runtime.io.ModelOutput;
 /**
  * Prepares Direct I/O file output.
  * @since 0.4.0
+ * @version 0.5.5
  */
 public class DirectFileOutputPrepare implements VertexProcessor {
 
@@ -64,12 +68,63 @@ public class DirectFileOutputPrepare implements VertexProcessor {
      */
     public static final String INPUT_NAME = "input";
 
+    /**
+     * The configuration key of the max number of records in each write-behind batch.
+     * If this is {@code 0}, the output records are written synchronously on the task threads.
+     * @see #KEY_WRITE_BEHIND_BATCHES
+     * @see #KEY_WRITE_BEHIND_THREADS
+     * @since 0.5.5
+     */
+    public static final String KEY_WRITE_BEHIND_RECORDS =
+            "com.asakusafw.dag.directio.output.writebehind.records"; //$NON-NLS-1$
+
+    /**
+     * The configuration key of the max number of write-behind batches for each output file.
+     * @see #KEY_WRITE_BEHIND_RECORDS
+     * @since 0.5.5
+     */
+    public static final String KEY_WRITE_BEHIND_BATCHES =
+            "com.asakusafw.dag.directio.output.writebehind.batches"; //$NON-NLS-1$
+
+    /**
+     * The configuration key of the number of write-behind threads, which are shared between the output files
+     * of the individual vertex.
+     * @see #KEY_WRITE_BEHIND_RECORDS
+     * @since 0.5.5
+     */
+    public static final String KEY_WRITE_BEHIND_THREADS =
+            "com.asakusafw.dag.directio.output.writebehind.threads"; //$NON-NLS-1$
+
+    /**
+     * The default value of {@link #KEY_WRITE_BEHIND_RECORDS} (write-behind is disabled).
+     * @since 0.5.5
+     */
+    public static final int DEFAULT_WRITE_BEHIND_RECORDS = 0;
+
+    /**
+     * The default value of {@link #KEY_WRITE_BEHIND_BATCHES}.
+     * @since 0.5.5
+     */
+    public static final int DEFAULT_WRITE_BEHIND_BATCHES = 4;
+
+    /**
+     * The default value of {@link #KEY_WRITE_BEHIND_THREADS}.
+     * @since 0.5.5
+     */
+    public static final int DEFAULT_WRITE_BEHIND_THREADS = 1;
+
     private final AtomicInteger taskCounter = new AtomicInteger();
 
     private Spec spec;
 
     private IoCallable<TaskProcessor> lazy;
 
+    private ExecutorService writeBehindExecutor;
+
+    private int writeBehindRecords;
+
+    private int writeBehindBatches;
+
     /**
      * Binds an output.
      * @param id the output ID
@@ -99,6 +154,16 @@ public class DirectFileOutputPrepare implements VertexProcessor {
         DirectFileCounterGroup counters = context.getResource(CounterRepository.class)
                 .orElse(CounterRepository.DETACHED)
                 .get(DirectFileCounterGroup.CATEGORY_OUTPUT, spec.id);
+        writeBehindRecords = getProperty(context, KEY_WRITE_BEHIND_RECORDS, DEFAULT_WRITE_BEHIND_RECORDS, 0);
+        writeBehindBatches = getProperty(context, KEY_WRITE_BEHIND_BATCHES, DEFAULT_WRITE_BEHIND_BATCHES, 1);
+        if (writeBehindRecords > 0) {
+            int threads = getProperty(context, KEY_WRITE_BEHIND_THREADS, DEFAULT_WRITE_BEHIND_THREADS, 1);
+            AtomicInteger counter = new AtomicInteger();
+            writeBehindExecutor = Executors.newFixedThreadPool(threads, r -> Lang.let(new Thread(r), t -> {
+                t.setName(String.format("directio-writer-%s-%d", vertexId, counter.incrementAndGet())); //$NON-NLS-1$
+                t.setDaemon(true);
+            }));
+        }
         if (spec.outputPattern != null) {
             String outputPattern = stage.resolveUserVariables(spec.outputPattern);
             int phAt = outputPattern.lastIndexOf(PLACEHOLDER);
@@ -138,15 +203,42 @@ public class DirectFileOutputPrepare implements VertexProcessor {
                 dataSource, definition, componentPath,
                 stage::resolveUserVariables,
                 counters);
+        if (writeBehindExecutor != null) {
+            driver.withWriteBehind(writeBehindExecutor, writeBehindRecords, writeBehindBatches);
+        }
         return driver;
     }
 
+    private static int getProperty(VertexProcessorContext context, String key, int defaultValue, int minimum) {
+        return context.getProperty(key)
+                .map(value -> {
+                    try {
+                        return Integer.parseInt(value.trim());
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException(MessageFormat.format(
+                                "Direct I/O output setting must be a valid integer: {0}={1}",
+                                key, value), e);
+                    }
+                })
+                .map(value -> Math.max(value, minimum))
+                .orElse(defaultValue);
+    }
+
     @Override
     public TaskProcessor createTaskProcessor() throws IOException, InterruptedException {
         Invariants.requireNonNull(lazy);
         return lazy.call();
     }
 
+    @Override
+    public void close() throws IOException, InterruptedException {
+        // each task has already waited for its outputs
+        if (writeBehindExecutor != null) {
+            writeBehindExecutor.shutdown();
+            writeBehindExecutor = null;
+        }
+    }
+
     @Override
     public String toString() {
         return MessageFormat.format(
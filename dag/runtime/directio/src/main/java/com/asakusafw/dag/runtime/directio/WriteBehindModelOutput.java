@@ -0,0 +1,276 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.runtime.directio;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.text.MessageFormat;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import com.asakusafw.lang.utils.common.Arguments;
+import com.asakusafw.runtime.io.ModelOutput;
+import com.asakusafw.runtime.model.DataModel;
+
+/**
+ * A {@link ModelOutput} which writes copies of the given objects on a shared writer executor.
+ * The written objects are copied into fixed size batches, and a task on the executor drains them into the
+ * underlying output. If all batches are in use, {@link #write(Object)} blocks until the executor
+ * releases one of them.
+ * Each output has at most one running drain task, so that the underlying output is never used concurrently.
+ * The first drain task is submitted only after the first batch becomes full, so that small outputs are
+ * written directly on the caller thread.
+ * @since 0.5.5
+ */
+final class WriteBehindModelOutput implements ModelOutput<Object> {
+
+    private static final Batch EOF = new Batch(0);
+
+    private final ModelOutput<Object> delegate;
+
+    private final Supplier<? extends DataModel<?>> factory;
+
+    private final Executor executor;
+
+    private final String label;
+
+    private final int batchSize;
+
+    private final int maxBatches;
+
+    private final BlockingQueue<Batch> filled = new LinkedBlockingQueue<>();
+
+    private final BlockingQueue<Batch> released = new LinkedBlockingQueue<>();
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    private int allocated;
+
+    private Batch current;
+
+    private boolean submitted;
+
+    private volatile Throwable failure;
+
+    private boolean closed;
+
+    /**
+     * Creates a new instance.
+     * @param delegate the underlying output
+     * @param factory the factory of data model objects for copying the written objects
+     * @param executor the executor which writes batches into the underlying output
+     * @param label the output label
+     * @param batchSize the max number of objects in each batch
+     * @param maxBatches the max number of batches
+     */
+    WriteBehindModelOutput(
+            ModelOutput<Object> delegate, Supplier<? extends DataModel<?>> factory, Executor executor,
+            String label, int batchSize, int maxBatches) {
+        Arguments.requireNonNull(delegate);
+        Arguments.requireNonNull(factory);
+        Arguments.requireNonNull(executor);
+        Arguments.requireNonNull(label);
+        Arguments.require(batchSize >= 1);
+        Arguments.require(maxBatches >= 1);
+        this.delegate = delegate;
+        this.factory = factory;
+        this.executor = executor;
+        this.label = label;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+    }
+
+    @Override
+    public void write(Object model) throws IOException {
+        checkFailure();
+        Batch batch = current;
+        if (batch == null) {
+            batch = acquire();
+            current = batch;
+        }
+        batch.add(model, factory);
+        if (batch.size == batchSize) {
+            current = null;
+            submit(batch);
+        }
+    }
+
+    private Batch acquire() throws IOException {
+        Batch batch = released.poll();
+        if (batch == null) {
+            if (allocated < maxBatches) {
+                allocated++;
+                return new Batch(batchSize);
+            }
+            try {
+                batch = released.take();
+            } catch (InterruptedException e) {
+                throw interrupted(e);
+            }
+        }
+        if (batch == EOF) {
+            // the drain task was failed
+            released.add(EOF);
+            checkFailure();
+            throw new IllegalStateException();
+        }
+        return batch;
+    }
+
+    private void submit(Batch batch) throws IOException {
+        submitted = true;
+        filled.add(batch);
+        schedule();
+    }
+
+    private void schedule() throws IOException {
+        if (draining.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                draining.set(false);
+                throw new IOException(MessageFormat.format(
+                        "writer is not available: {0}",
+                        label), e);
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                Batch batch = filled.poll();
+                if (batch == null) {
+                    draining.set(false);
+                    // re-check: a batch may be added after the last poll, but before the flag was cleared
+                    if (filled.isEmpty() || draining.compareAndSet(false, true) == false) {
+                        return;
+                    }
+                    continue;
+                }
+                batch.writeTo(delegate);
+                released.add(batch);
+            }
+        } catch (Throwable t) {
+            // keeps the draining flag, so that the underlying output is never used after this
+            failure = t;
+            released.add(EOF);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            Batch rest = current;
+            current = null;
+            if (submitted == false) {
+                if (rest != null) {
+                    rest.writeTo(delegate);
+                }
+            } else {
+                if (rest != null && failure == null) {
+                    submit(rest);
+                }
+                awaitBatches();
+                checkFailure();
+            }
+        } finally {
+            delegate.close();
+        }
+    }
+
+    private void awaitBatches() throws IOException {
+        // the underlying output must not be closed while the drain task is using it
+        InterruptedException interrupted = null;
+        int rest = allocated;
+        while (rest > 0) {
+            try {
+                if (released.take() == EOF) {
+                    released.add(EOF);
+                    break;
+                }
+                rest--;
+            } catch (InterruptedException e) {
+                interrupted = e;
+            }
+        }
+        if (interrupted != null) {
+            Thread.currentThread().interrupt();
+            throw interrupted(interrupted);
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        Throwable t = failure;
+        if (t != null) {
+            throw new IOException(MessageFormat.format(
+                    "error occurred while writing output: {0}",
+                    label), t);
+        }
+    }
+
+    private IOException interrupted(InterruptedException e) {
+        InterruptedIOException exception = new InterruptedIOException(MessageFormat.format(
+                "interrupted while writing output: {0}",
+                label));
+        exception.initCause(e);
+        return exception;
+    }
+
+    @Override
+    public String toString() {
+        return MessageFormat.format(
+                "WriteBehind({0})", //$NON-NLS-1$
+                delegate);
+    }
+
+    private static final class Batch {
+
+        final DataModel<?>[] elements;
+
+        int size;
+
+        Batch(int capacity) {
+            this.elements = new DataModel<?>[capacity];
+        }
+
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        void add(Object model, Supplier<? extends DataModel<?>> factory) {
+            DataModel element = elements[size];
+            if (element == null) {
+                element = factory.get();
+                elements[size] = element;
+            }
+            element.copyFrom((DataModel) model);
+            size++;
+        }
+
+        void writeTo(ModelOutput<Object> output) throws IOException {
+            for (int i = 0; i < size; i++) {
+                output.write(elements[i]);
+            }
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.runtime.directio;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.asakusafw.runtime.io.ModelOutput;
+import com.asakusafw.runtime.model.DataModel;
+
+/**
+ * Test for {@link WriteBehindModelOutput}.
+ */
+public class WriteBehindModelOutputTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r);
+        t.setName("testing-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * cleanup.
+     */
+    @After
+    public void teardown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * simple case.
+     * @throws Exception if failed
+     */
+    @Test
+    public void simple() throws Exception {
+        MockOutput results = new MockOutput(-1);
+        try (WriteBehindModelOutput output = output(results)) {
+            write(output, 0, 3);
+        }
+        assertThat(results.values, is(range(0, 3)));
+        assertThat(results.threads, everyItem(is(Thread.currentThread().getName())));
+        assertThat(results.closed, is(true));
+    }
+
+    /**
+     * writes many records.
+     * @throws Exception if failed
+     */
+    @Test
+    public void large() throws Exception {
+        MockOutput results = new MockOutput(-1);
+        try (WriteBehindModelOutput output = output(results)) {
+            write(output, 0, 1000);
+        }
+        assertThat(results.values, is(range(0, 1000)));
+        assertThat(results.threads, everyItem(is(not(Thread.currentThread().getName()))));
+        assertThat(results.closed, is(true));
+    }
+
+    /**
+     * multiple outputs share the writer threads.
+     * @throws Exception if failed
+     */
+    @Test
+    public void shared() throws Exception {
+        int count = 4;
+        List<MockOutput> results = new ArrayList<>();
+        List<Future<?>> futures = new ArrayList<>();
+        ExecutorService tasks = Executors.newFixedThreadPool(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                MockOutput r = new MockOutput(-1);
+                results.add(r);
+                futures.add(tasks.submit(() -> {
+                    try (WriteBehindModelOutput output = output(r)) {
+                        write(output, 0, 1000);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            tasks.shutdownNow();
+        }
+        for (MockOutput r : results) {
+            assertThat(r.values, is(range(0, 1000)));
+            assertThat(r.threads, hasItem("testing-writer"));
+            assertThat(r.closed, is(true));
+        }
+    }
+
+    /**
+     * the writer thread was failed.
+     * @throws Exception if failed
+     */
+    @Test
+    public void failure() throws Exception {
+        MockOutput results = new MockOutput(10);
+        WriteBehindModelOutput output = output(results);
+        try {
+            write(output, 0, 1000);
+            fail();
+        } catch (IOException e) {
+            assertThat(e.getCause(), is(instanceOf(IllegalStateException.class)));
+        }
+        try {
+            output.close();
+            fail();
+        } catch (IOException e) {
+            assertThat(e.getCause(), is(instanceOf(IllegalStateException.class)));
+        }
+        assertThat(results.values, is(range(0, 10)));
+        assertThat(results.closed, is(true));
+    }
+
+    private WriteBehindModelOutput output(MockOutput results) {
+        return new WriteBehindModelOutput(results, Value::new, executor, "testing", 4, 2);
+    }
+
+    private static void write(ModelOutput<Object> output, int from, int to) throws IOException {
+        Value buffer = new Value();
+        for (int i = from; i < to; i++) {
+            buffer.value = i;
+            output.write(buffer);
+        }
+    }
+
+    private static List<Integer> range(int from, int to) {
+        return IntStream.range(from, to).boxed().collect(Collectors.toList());
+    }
+
+    private static final class Value implements DataModel<Value> {
+
+        int value;
+
+        Value() {
+            return;
+        }
+
+        @Override
+        public void reset() {
+            value = 0;
+        }
+
+        @Override
+        public void copyFrom(Value other) {
+            value = other.value;
+        }
+    }
+
+    private static final class MockOutput implements ModelOutput<Object> {
+
+        final List<Integer> values = new ArrayList<>();
+
+        final List<String> threads = new ArrayList<>();
+
+        final int limit;
+
+        volatile boolean closed;
+
+        MockOutput(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(Object model) {
+            if (values.size() == limit) {
+                throw new IllegalStateException();
+            }
+            values.add(((Value) model).value);
+            threads.add(Thread.currentThread().getName());
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.extension.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.asakusafw.dag.api.processor.extension.MetricsRecorder;
+import com.asakusafw.lang.utils.common.Arguments;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * A basic implementation of {@link MetricsRecorder}, which can write the recorded metrics as JSON.
+ * All durations in the written JSON are in milliseconds, and the vertices are ordered by their completion.
+ * @since 0.5.5
+ */
+public class BasicMetricsRecorder implements MetricsRecorder {
+
+    /**
+     * The upper bounds of individual task duration histogram buckets, in milliseconds.
+     * The last bucket of the histogram contains all tasks which exceeded the last bound.
+     */
+    static final long[] TASK_BUCKETS = {
+            1L, 10L, 100L, 1_000L, 10_000L, 60_000L, 600_000L,
+    };
+
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    private final Map<String, Vertex> vertices = new ConcurrentHashMap<>();
+
+    private final LongAdder spillBytes = new LongAdder();
+
+    private final LongAdder spillNanos = new LongAdder();
+
+    @Override
+    public void vertexFinished(String vertexId, long elapsedNanos, long cpuNanos) {
+        Vertex vertex = get(vertexId);
+        vertex.order = sequence.incrementAndGet();
+        vertex.elapsedNanos = elapsedNanos;
+        vertex.cpuNanos = cpuNanos;
+    }
+
+    @Override
+    public void taskFinished(String vertexId, String taskId, long elapsedNanos, long cpuNanos) {
+        get(vertexId).tasks.add(elapsedNanos, cpuNanos);
+    }
+
+    @Override
+    public void outputFinished(String vertexId, String portName, long records, long bytes) {
+        get(vertexId).outputs.add(new Output(portName, records, bytes));
+    }
+
+    @Override
+    public void admissionStalled(String vertexId, long elapsedNanos) {
+        Vertex vertex = get(vertexId);
+        vertex.stallCount.increment();
+        vertex.stallNanos.add(elapsedNanos);
+    }
+
+    @Override
+    public void spilled(long bytes, long elapsedNanos) {
+        spillBytes.add(bytes);
+        spillNanos.add(elapsedNanos);
+    }
+
+    private Vertex get(String vertexId) {
+        Arguments.requireNonNull(vertexId);
+        return vertices.computeIfAbsent(vertexId, Vertex::new);
+    }
+
+    /**
+     * Writes the recorded metrics as JSON.
+     * @param output the destination
+     * @param attributes the additional attributes of this report, each value must be a string or a number
+     * @throws IOException if I/O error was occurred while writing the metrics
+     */
+    public void writeTo(OutputStream output, Map<String, ?> attributes) throws IOException {
+        Arguments.requireNonNull(output);
+        Arguments.requireNonNull(attributes);
+        List<Vertex> sorted = new ArrayList<>(vertices.values());
+        sorted.sort(Comparator.comparingInt((Vertex v) -> v.order == 0 ? Integer.MAX_VALUE : v.order)
+                .thenComparing(v -> v.id));
+        try (JsonGenerator json = new JsonFactory().createGenerator(output, JsonEncoding.UTF8)) {
+            json.useDefaultPrettyPrinter();
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.writeStartObject();
+            for (Map.Entry<String, ?> entry : attributes.entrySet()) {
+                Object value = entry.getValue();
+                if (value instanceof Number) {
+                    json.writeNumberField(entry.getKey(), ((Number) value).longValue());
+                } else {
+                    json.writeStringField(entry.getKey(), String.valueOf(value));
+                }
+            }
+            json.writeArrayFieldStart("vertices"); //$NON-NLS-1$
+            for (Vertex vertex : sorted) {
+                vertex.writeTo(json);
+            }
+            json.writeEndArray();
+            json.writeObjectFieldStart("admission"); //$NON-NLS-1$
+            json.writeNumberField("stalls", sorted.stream().mapToLong(v -> v.stallCount.sum()).sum()); //$NON-NLS-1$
+            json.writeNumberField("elapsed", //$NON-NLS-1$
+                    millis(sorted.stream().mapToLong(v -> v.stallNanos.sum()).sum()));
+            json.writeEndObject();
+            json.writeObjectFieldStart("spill"); //$NON-NLS-1$
+            json.writeNumberField("bytes", spillBytes.sum()); //$NON-NLS-1$
+            json.writeNumberField("elapsed", millis(spillNanos.sum())); //$NON-NLS-1$
+            json.writeEndObject();
+            json.writeEndObject();
+        }
+    }
+
+    static long millis(long nanos) {
+        if (nanos < 0L) {
+            return -1L;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private static final class Vertex {
+
+        final String id;
+
+        final Tasks tasks = new Tasks();
+
+        final Queue<Output> outputs = new ConcurrentLinkedQueue<>();
+
+        final LongAdder stallCount = new LongAdder();
+
+        final LongAdder stallNanos = new LongAdder();
+
+        volatile int order;
+
+        volatile long elapsedNanos = -1L;
+
+        volatile long cpuNanos = -1L;
+
+        Vertex(String id) {
+            this.id = id;
+        }
+
+        void writeTo(JsonGenerator json) throws IOException {
+            json.writeStartObject();
+            json.writeStringField("id", id); //$NON-NLS-1$
+            json.writeNumberField("elapsed", millis(elapsedNanos)); //$NON-NLS-1$
+            json.writeNumberField("cpu", millis(cpuNanos)); //$NON-NLS-1$
+            tasks.writeTo(json);
+            json.writeArrayFieldStart("outputs"); //$NON-NLS-1$
+            List<Output> sorted = new ArrayList<>(outputs);
+            sorted.sort(Comparator.comparing(o -> o.port));
+            for (Output output : sorted) {
+                output.writeTo(json);
+            }
+            json.writeEndArray();
+            json.writeObjectFieldStart("admission"); //$NON-NLS-1$
+            json.writeNumberField("stalls", stallCount.sum()); //$NON-NLS-1$
+            json.writeNumberField("elapsed", millis(stallNanos.sum())); //$NON-NLS-1$
+            json.writeEndObject();
+            json.writeEndObject();
+        }
+    }
+
+    private static final class Tasks {
+
+        final LongAdder count = new LongAdder();
+
+        final LongAdder totalNanos = new LongAdder();
+
+        final LongAdder cpuNanos = new LongAdder();
+
+        final LongAccumulator minNanos = new LongAccumulator(Math::min, Long.MAX_VALUE);
+
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+        final AtomicLongArray histogram = new AtomicLongArray(TASK_BUCKETS.length + 1);
+
+        void add(long elapsedNanos, long cpu) {
+            count.increment();
+            totalNanos.add(elapsedNanos);
+            if (cpu >= 0L) {
+                cpuNanos.add(cpu);
+            }
+            minNanos.accumulate(elapsedNanos);
+            maxNanos.accumulate(elapsedNanos);
+            histogram.incrementAndGet(bucket(millis(elapsedNanos)));
+        }
+
+        private static int bucket(long millis) {
+            for (int i = 0; i < TASK_BUCKETS.length; i++) {
+                if (millis < TASK_BUCKETS[i]) {
+                    return i;
+                }
+            }
+            return TASK_BUCKETS.length;
+        }
+
+        void writeTo(JsonGenerator json) throws IOException {
+            long n = count.sum();
+            json.writeObjectFieldStart("tasks"); //$NON-NLS-1$
+            json.writeNumberField("count", n); //$NON-NLS-1$
+            json.writeNumberField("total", millis(totalNanos.sum())); //$NON-NLS-1$
+            json.writeNumberField("cpu", millis(cpuNanos.sum())); //$NON-NLS-1$
+            json.writeNumberField("min", n == 0 ? 0L : millis(minNanos.get())); //$NON-NLS-1$
+            json.writeNumberField("max", n == 0 ? 0L : millis(maxNanos.get())); //$NON-NLS-1$
+            json.writeArrayFieldStart("histogram"); //$NON-NLS-1$
+            for (int i = 0; i < histogram.length(); i++) {
+                json.writeStartObject();
+                if (i < TASK_BUCKETS.length) {
+                    json.writeNumberField("lt", TASK_BUCKETS[i]); //$NON-NLS-1$
+                } else {
+                    json.writeNullField("lt"); //$NON-NLS-1$
+                }
+                json.writeNumberField("count", histogram.get(i)); //$NON-NLS-1$
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+    }
+
+    private static final class Output {
+
+        final String port;
+
+        final long records;
+
+        final long bytes;
+
+        Output(String port, long records, long bytes) {
+            this.port = port;
+            this.records = records;
+            this.bytes = bytes;
+        }
+
+        void writeTo(JsonGenerator json) throws IOException {
+            json.writeStartObject();
+            json.writeStringField("port", port); //$NON-NLS-1$
+            json.writeNumberField("records", records); //$NON-NLS-1$
+            json.writeNumberField("bytes", bytes); //$NON-NLS-1$
+            json.writeEndObject();
+        }
+    }
+}
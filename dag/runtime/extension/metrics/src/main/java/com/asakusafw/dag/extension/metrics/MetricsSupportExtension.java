@@ -0,0 +1,103 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.extension.metrics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.MessageFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.asakusafw.bridge.stage.StageInfo;
+import com.asakusafw.dag.api.processor.ProcessorContext;
+import com.asakusafw.dag.api.processor.extension.MetricsRecorder;
+import com.asakusafw.dag.api.processor.extension.ProcessorContextExtension;
+import com.asakusafw.lang.utils.common.InterruptibleIo;
+
+/**
+ * Enables {@link MetricsRecorder}, and writes the recorded metrics as a JSON file at the end of each stage.
+ * @since 0.5.5
+ * @see BasicMetricsRecorder
+ */
+public class MetricsSupportExtension implements ProcessorContextExtension {
+
+    /**
+     * The property key of the metrics report file path.
+     * The path can contain stage variables, like <code>${batch_id}</code>, <code>${flow_id}</code>,
+     * <code>${execution_id}</code>, and <code>${stage_id}</code>.
+     * If this is not defined, this feature is disabled.
+     */
+    public static final String KEY_OUTPUT = "com.asakusafw.dag.extension.metrics"; //$NON-NLS-1$
+
+    static final Logger LOG = LoggerFactory.getLogger(MetricsSupportExtension.class);
+
+    @Override
+    public InterruptibleIo install(ProcessorContext context, ProcessorContext.Editor editor) {
+        String path = context.getProperty(KEY_OUTPUT)
+                .map(String::trim)
+                .filter(it -> it.isEmpty() == false)
+                .orElse(null);
+        if (path == null) {
+            LOG.debug("metrics report is disabled");
+            return null;
+        }
+        Optional<StageInfo> stage = context.getResource(StageInfo.class);
+        File file = new File(stage.map(it -> it.resolveSystemVariables(path)).orElse(path));
+        LOG.debug("enabling metrics report: {}", file);
+        BasicMetricsRecorder recorder = new BasicMetricsRecorder();
+        editor.addResource(MetricsRecorder.class, recorder);
+        long start = System.currentTimeMillis();
+        return () -> {
+            Map<String, Object> attributes = new LinkedHashMap<>();
+            stage.ifPresent(it -> {
+                attributes.put("batchId", it.getBatchId()); //$NON-NLS-1$
+                attributes.put("flowId", it.getFlowId()); //$NON-NLS-1$
+                attributes.put("executionId", it.getExecutionId()); //$NON-NLS-1$
+                attributes.put("stageId", it.getStageId()); //$NON-NLS-1$
+            });
+            attributes.put("started", start); //$NON-NLS-1$
+            attributes.put("finished", System.currentTimeMillis()); //$NON-NLS-1$
+            write(recorder, file, attributes);
+        };
+    }
+
+    private static void write(BasicMetricsRecorder recorder, File file, Map<String, ?> attributes) {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent.mkdirs() == false && parent.isDirectory() == false) {
+            LOG.warn(MessageFormat.format(
+                    "failed to create metrics report directory: {0}",
+                    parent));
+            return;
+        }
+        try (OutputStream output = new FileOutputStream(file)) {
+            recorder.writeTo(output, attributes);
+            LOG.info(MessageFormat.format(
+                    "metrics report was written: {0}",
+                    file));
+        } catch (IOException e) {
+            // metrics must not break the stage
+            LOG.warn(MessageFormat.format(
+                    "failed to write metrics report: {0}",
+                    file), e);
+        }
+    }
+}
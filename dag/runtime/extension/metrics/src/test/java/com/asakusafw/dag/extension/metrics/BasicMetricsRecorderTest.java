@@ -0,0 +1,196 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.extension.metrics;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.asakusafw.dag.api.processor.basic.BasicProcessorContext;
+import com.asakusafw.dag.api.processor.extension.MetricsRecorder;
+import com.asakusafw.lang.utils.common.InterruptibleIo;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Test for {@link BasicMetricsRecorder} and {@link MetricsSupportExtension}.
+ */
+public class BasicMetricsRecorderTest {
+
+    /**
+     * temporary folder.
+     */
+    @Rule
+    public final TemporaryFolder temporary = new TemporaryFolder();
+
+    /**
+     * simple case.
+     * @throws Exception if failed
+     */
+    @Test
+    public void simple() throws Exception {
+        BasicMetricsRecorder recorder = new BasicMetricsRecorder();
+        recorder.taskFinished("v1", "v1-0", ms(5), ms(3));
+        recorder.taskFinished("v1", "v1-1", ms(50), ms(30));
+        recorder.admissionStalled("v1", ms(4));
+        recorder.admissionStalled("v1", ms(6));
+        recorder.outputFinished("v1", "out", 100, 1000);
+        recorder.vertexFinished("v1", ms(60), ms(33));
+        recorder.taskFinished("v0", "v0-0", ms(2000), -1);
+        recorder.vertexFinished("v0", ms(2100), -1);
+        recorder.spilled(4096, ms(7));
+
+        List<String> fields = write(recorder);
+        assertThat(fields, hasItem("batchId=b"));
+        assertThat(fields.indexOf("id=v1"), lessThan(fields.indexOf("id=v0")));
+
+        List<String> v1 = fields.subList(fields.indexOf("id=v1"), fields.indexOf("id=v0"));
+        assertThat(v1.subList(0, 3), contains("id=v1", "elapsed=60", "cpu=33"));
+        assertThat(v1, hasItems("count=2", "total=55", "min=5", "max=50"));
+        assertThat(v1, hasItems("port=out", "records=100", "bytes=1000"));
+        List<String> v1Stalls = v1.subList(v1.indexOf("admission"), v1.size());
+        assertThat(v1Stalls, contains("admission", "stalls=2", "elapsed=10"));
+
+        List<String> v0 = fields.subList(fields.indexOf("id=v0"), fields.lastIndexOf("admission"));
+        assertThat(v0.subList(0, 3), contains("id=v0", "elapsed=2100", "cpu=-1"));
+        assertThat(v0, hasItems("count=1", "min=2000", "max=2000", "stalls=0"));
+
+        List<String> stalls = fields.subList(fields.lastIndexOf("admission"), fields.indexOf("spill"));
+        assertThat(stalls, contains("admission", "stalls=2", "elapsed=10"));
+
+        List<String> spill = fields.subList(fields.indexOf("spill"), fields.size());
+        assertThat(spill, contains("spill", "bytes=4096", "elapsed=7"));
+    }
+
+    /**
+     * task duration histogram.
+     * @throws Exception if failed
+     */
+    @Test
+    public void histogram() throws Exception {
+        BasicMetricsRecorder recorder = new BasicMetricsRecorder();
+        recorder.taskFinished("v0", "v0-0", ms(0), -1);
+        recorder.taskFinished("v0", "v0-1", ms(5), -1);
+        recorder.taskFinished("v0", "v0-2", ms(6), -1);
+        recorder.taskFinished("v0", "v0-3", ms(1_000_000), -1);
+        recorder.vertexFinished("v0", ms(1_000_000), -1);
+
+        List<String> fields = write(recorder);
+        List<String> buckets = fields.subList(fields.indexOf("histogram"), fields.indexOf("outputs"));
+        assertThat(buckets, contains(
+                "histogram",
+                "lt=1", "count=1",
+                "lt=10", "count=2",
+                "lt=100", "count=0",
+                "lt=1000", "count=0",
+                "lt=10000", "count=0",
+                "lt=60000", "count=0",
+                "lt=600000", "count=0",
+                "lt=null", "count=1"));
+    }
+
+    /**
+     * extension.
+     * @throws Exception if failed
+     */
+    @Test
+    public void extension() throws Exception {
+        File file = new File(temporary.getRoot(), "metrics/report.json");
+        BasicProcessorContext context = new BasicProcessorContext(getClass().getClassLoader())
+                .withProperty(MetricsSupportExtension.KEY_OUTPUT, file.getPath());
+        try (InterruptibleIo io = new MetricsSupportExtension().install(context, context.getEditor())) {
+            MetricsRecorder recorder = context.getResource(MetricsRecorder.class).get();
+            recorder.vertexFinished("v0", ms(1), ms(1));
+        }
+        assertThat(file.isFile(), is(true));
+        try (InputStream input = Files.newInputStream(file.toPath())) {
+            List<String> fields = read(input);
+            assertThat(fields, hasItem("id=v0"));
+        }
+    }
+
+    /**
+     * extension is disabled.
+     * @throws Exception if failed
+     */
+    @Test
+    public void extension_disabled() throws Exception {
+        BasicProcessorContext context = new BasicProcessorContext(getClass().getClassLoader());
+        InterruptibleIo io = new MetricsSupportExtension().install(context, context.getEditor());
+        assertThat(io, is(nullValue()));
+        assertThat(context.getResource(MetricsRecorder.class).isPresent(), is(false));
+    }
+
+    private static long ms(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private static List<String> write(BasicMetricsRecorder recorder) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        recorder.writeTo(output, Collections.singletonMap("batchId", "b"));
+        try (JsonParser parser = new JsonFactory().createParser(output.toByteArray())) {
+            return read(parser);
+        }
+    }
+
+    private static List<String> read(InputStream input) throws IOException {
+        try (JsonParser parser = new JsonFactory().createParser(input)) {
+            return read(parser);
+        }
+    }
+
+    private static List<String> read(JsonParser parser) throws IOException {
+        List<String> results = new ArrayList<>();
+        String name = null;
+        for (JsonToken token = parser.nextToken(); token != null; token = parser.nextToken()) {
+            switch (token) {
+            case FIELD_NAME:
+                name = parser.getCurrentName();
+                break;
+            case START_OBJECT:
+            case START_ARRAY:
+                if (name != null) {
+                    results.add(name);
+                    name = null;
+                }
+                break;
+            case VALUE_STRING:
+            case VALUE_NUMBER_INT:
+            case VALUE_NULL:
+                results.add(name + "=" + parser.getText());
+                name = null;
+                break;
+            default:
+                break;
+            }
+        }
+        return results;
+    }
+}
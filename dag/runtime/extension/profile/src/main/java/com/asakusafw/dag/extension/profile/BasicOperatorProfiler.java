@@ -0,0 +1,191 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.extension.profile;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.asakusafw.dag.api.common.Reportable;
+import com.asakusafw.dag.api.processor.extension.OperatorProfiler;
+import com.asakusafw.lang.utils.common.Arguments;
+
+/**
+ * A basic implementation of {@link OperatorProfiler}, which reports per-operator cost breakdown of each vertex.
+ * @since 0.5.5
+ */
+public class BasicOperatorProfiler implements OperatorProfiler, Reportable {
+
+    static final Logger LOG = LoggerFactory.getLogger(BasicOperatorProfiler.class);
+
+    private static final double NANOS_PER_MILLIS = 1_000_000.0;
+
+    private final int samplingInterval;
+
+    private final ConcurrentMap<String, ConcurrentMap<String, Entry>> vertices = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new instance.
+     * @param samplingInterval the sampling interval in records
+     */
+    public BasicOperatorProfiler(int samplingInterval) {
+        Arguments.require(samplingInterval > 0);
+        this.samplingInterval = samplingInterval;
+    }
+
+    @Override
+    public int getSamplingInterval() {
+        return samplingInterval;
+    }
+
+    @Override
+    public Entry getProbe(String vertexId, String label) {
+        return vertices.computeIfAbsent(vertexId, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(label, Entry::new);
+    }
+
+    /**
+     * Returns the profiled vertex IDs.
+     * @return the profiled vertex IDs, in descending order of their total self time
+     */
+    public List<String> getVertexIds() {
+        List<String> results = new ArrayList<>(vertices.keySet());
+        results.sort(Comparator.comparingLong(this::getSelfTime).reversed());
+        return results;
+    }
+
+    /**
+     * Returns the profiled operators in the vertex.
+     * @param vertexId the target vertex ID
+     * @return the profiled operators, in descending order of their self time
+     */
+    public List<Entry> getEntries(String vertexId) {
+        Map<String, Entry> entries = vertices.get(vertexId);
+        if (entries == null) {
+            return new ArrayList<>();
+        }
+        List<Entry> results = new ArrayList<>(entries.values());
+        results.sort(Comparator.comparingLong(Entry::getSelfTime).reversed());
+        return results;
+    }
+
+    private long getSelfTime(String vertexId) {
+        return getEntries(vertexId).stream()
+                .mapToLong(Entry::getSelfTime)
+                .sum();
+    }
+
+    @Override
+    public void report() {
+        if (LOG.isInfoEnabled() == false) {
+            return;
+        }
+        for (String vertexId : getVertexIds()) {
+            List<Entry> entries = getEntries(vertexId);
+            long vertexTotal = Math.max(entries.stream().mapToLong(Entry::getSelfTime).sum(), 1L);
+            LOG.info(MessageFormat.format(
+                    "operator profile: vertex={0}, sampling=1/{1}",
+                    vertexId,
+                    samplingInterval));
+            for (Entry entry : entries) {
+                LOG.info(String.format(
+                        "  %5.1f%% %s: self=%,.3fms, total=%,.3fms, samples=%,d (estimated self=%,.1fms)", //$NON-NLS-1$
+                        entry.getSelfTime() * 100.0 / vertexTotal,
+                        entry.getLabel(),
+                        entry.getSelfTime() / NANOS_PER_MILLIS,
+                        entry.getTotalTime() / NANOS_PER_MILLIS,
+                        entry.getSampleCount(),
+                        entry.getSelfTime() * (double) samplingInterval / NANOS_PER_MILLIS));
+            }
+        }
+    }
+
+    /**
+     * Sampled statistics of an operator.
+     * @since 0.5.5
+     */
+    public static final class Entry implements Probe {
+
+        private final String label;
+
+        private final LongAdder sampleCount = new LongAdder();
+
+        private final LongAdder selfTime = new LongAdder();
+
+        private final LongAdder totalTime = new LongAdder();
+
+        Entry(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public void sampled(long selfNanos, long totalNanos) {
+            sampleCount.increment();
+            selfTime.add(selfNanos);
+            totalTime.add(totalNanos);
+        }
+
+        /**
+         * Returns the operator label.
+         * @return the operator label
+         */
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * Returns the number of samples.
+         * @return the number of samples
+         */
+        public long getSampleCount() {
+            return sampleCount.sum();
+        }
+
+        /**
+         * Returns the sampled elapsed time, excluding the succeeding operators.
+         * @return the sampled self time in nanoseconds
+         */
+        public long getSelfTime() {
+            return selfTime.sum();
+        }
+
+        /**
+         * Returns the sampled elapsed time, including the succeeding operators.
+         * @return the sampled total time in nanoseconds
+         */
+        public long getTotalTime() {
+            return totalTime.sum();
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%s(samples=%,d, self=%,dns, total=%,dns)", //$NON-NLS-1$
+                    label,
+                    getSampleCount(),
+                    getSelfTime(),
+                    getTotalTime());
+        }
+    }
+}
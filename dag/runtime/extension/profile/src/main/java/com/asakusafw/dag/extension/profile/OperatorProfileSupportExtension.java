@@ -0,0 +1,73 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.extension.profile;
+
+import java.text.MessageFormat;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.asakusafw.dag.api.processor.ProcessorContext;
+import com.asakusafw.dag.api.processor.extension.OperatorProfiler;
+import com.asakusafw.dag.api.processor.extension.ProcessorContextExtension;
+import com.asakusafw.lang.utils.common.InterruptibleIo;
+
+/**
+ * Enables sampling operator profiler, and reports per-operator cost breakdown at the end of each stage.
+ * @since 0.5.5
+ * @see BasicOperatorProfiler
+ */
+public class OperatorProfileSupportExtension implements ProcessorContextExtension {
+
+    /**
+     * The property key of the sampling interval in records.
+     * For example, {@code 1000} profiles one in 1000 records.
+     * If this is not defined, this feature is disabled.
+     */
+    public static final String KEY_INTERVAL = "com.asakusafw.dag.extension.profile"; //$NON-NLS-1$
+
+    static final Logger LOG = LoggerFactory.getLogger(OperatorProfileSupportExtension.class);
+
+    @Override
+    public InterruptibleIo install(ProcessorContext context, ProcessorContext.Editor editor) {
+        String value = context.getProperty(KEY_INTERVAL)
+                .map(String::trim)
+                .filter(it -> it.isEmpty() == false)
+                .orElse(null);
+        if (value == null) {
+            LOG.debug("operator profiling is disabled");
+            return null;
+        }
+        int interval;
+        try {
+            interval = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            LOG.warn(MessageFormat.format(
+                    "invalid operator profiling interval: {0}={1}",
+                    KEY_INTERVAL,
+                    value), e);
+            return null;
+        }
+        if (interval <= 0) {
+            LOG.debug("operator profiling is disabled: {}={}", KEY_INTERVAL, interval);
+            return null;
+        }
+        LOG.debug("enabling operator profiling: 1/{}", interval);
+        BasicOperatorProfiler profiler = new BasicOperatorProfiler(interval);
+        editor.addResource(OperatorProfiler.class, profiler);
+        return profiler::report;
+    }
+}
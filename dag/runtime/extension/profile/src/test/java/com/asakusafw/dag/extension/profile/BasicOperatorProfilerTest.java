@@ -0,0 +1,93 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.extension.profile;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.asakusafw.dag.api.processor.extension.OperatorProfiler;
+
+/**
+ * Test for {@link BasicOperatorProfiler}.
+ */
+public class BasicOperatorProfilerTest {
+
+    /**
+     * simple case.
+     */
+    @Test
+    public void simple() {
+        BasicOperatorProfiler profiler = new BasicOperatorProfiler(10);
+        assertThat(profiler.getSamplingInterval(), is(10));
+
+        OperatorProfiler.Probe probe = profiler.getProbe("v", "a");
+        probe.sampled(10, 30);
+        probe.sampled(20, 40);
+
+        List<BasicOperatorProfiler.Entry> entries = profiler.getEntries("v");
+        assertThat(entries, hasSize(1));
+        BasicOperatorProfiler.Entry entry = entries.get(0);
+        assertThat(entry.getLabel(), is("a"));
+        assertThat(entry.getSampleCount(), is(2L));
+        assertThat(entry.getSelfTime(), is(30L));
+        assertThat(entry.getTotalTime(), is(70L));
+        profiler.report();
+    }
+
+    /**
+     * operators are ordered by their self time.
+     */
+    @Test
+    public void order() {
+        BasicOperatorProfiler profiler = new BasicOperatorProfiler(1);
+        profiler.getProbe("v", "a").sampled(10, 100);
+        profiler.getProbe("v", "b").sampled(50, 60);
+        profiler.getProbe("v", "c").sampled(30, 90);
+        profiler.getProbe("w", "a").sampled(1000, 1000);
+
+        assertThat(profiler.getVertexIds(), contains("w", "v"));
+        assertThat(labels(profiler.getEntries("v")), contains("b", "c", "a"));
+        assertThat(labels(profiler.getEntries("w")), contains("a"));
+        assertThat(profiler.getEntries("x"), hasSize(0));
+        profiler.report();
+    }
+
+    /**
+     * probes are shared for the same operator.
+     */
+    @Test
+    public void shared() {
+        BasicOperatorProfiler profiler = new BasicOperatorProfiler(1);
+        profiler.getProbe("v", "a").sampled(1, 1);
+        profiler.getProbe("v", "a").sampled(2, 2);
+
+        List<BasicOperatorProfiler.Entry> entries = profiler.getEntries("v");
+        assertThat(entries, hasSize(1));
+        assertThat(entries.get(0).getSampleCount(), is(2L));
+        assertThat(entries.get(0).getSelfTime(), is(3L));
+    }
+
+    private static List<String> labels(List<BasicOperatorProfiler.Entry> entries) {
+        return entries.stream()
+                .map(BasicOperatorProfiler.Entry::getLabel)
+                .collect(Collectors.toList());
+    }
+}
@@ -16,6 +16,7 @@
 package com.asakusafw.dag.extension.trace;
 
 import java.io.IOException;
+import java.util.OptionalLong;
 import java.util.function.Consumer;
 
 import com.asakusafw.dag.api.processor.ObjectReader;
@@ -23,6 +24,7 @@ import com.asakusafw.dag.api.processor.ObjectReader;
 /**
  * An implementation of {@link ObjectReader} which can tracing all objects through {@link #getObject()} method.
  * @since 0.4.0
+ * @version 0.5.5
  */
 public class TracingObjectReader extends TracingObjectCursor
         implements ObjectReader {
@@ -39,6 +41,11 @@ public class TracingObjectReader extends TracingObjectCursor
         this.delegate = delegate;
     }
 
+    @Override
+    public OptionalLong getObjectCount() {
+        return delegate.getObjectCount();
+    }
+
     @Override
     public void close() throws IOException, InterruptedException {
         delegate.close();
@@ -0,0 +1,194 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.runtime.internalio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+
+import com.asakusafw.lang.utils.common.Arguments;
+
+/**
+ * An {@link InputStream} which reads contents from a {@link FileChannel} using positional reads.
+ * This never changes the position of the underlying channel, so that individual streams can share the same channel.
+ * If the stream was created from a {@link SharedFileChannels.Lease}, it reopens the channel when another reader
+ * closed it by interruption.
+ * @since 0.5.5
+ */
+public class FileChannelInputStream extends InputStream {
+
+    private FileChannel channel;
+
+    private final ByteBuffer buffer;
+
+    private final Closeable resource;
+
+    private final SharedFileChannels.Lease lease;
+
+    private long position;
+
+    private boolean closed;
+
+    /**
+     * Creates a new instance.
+     * @param channel the source channel
+     * @param position the start position in bytes
+     * @param readAheadSize the read-ahead buffer size in bytes
+     * @param resource the resource to be closed with this stream, or {@code null} if it is not required
+     */
+    public FileChannelInputStream(FileChannel channel, long position, int readAheadSize, Closeable resource) {
+        this(channel, position, readAheadSize, resource, null);
+    }
+
+    /**
+     * Creates a new instance, which reads contents from the shared channel.
+     * The given lease will be closed with this stream.
+     * @param lease the lease of the source channel
+     * @param position the start position in bytes
+     * @param readAheadSize the read-ahead buffer size in bytes
+     */
+    public FileChannelInputStream(SharedFileChannels.Lease lease, long position, int readAheadSize) {
+        this(lease.getChannel(), position, readAheadSize, lease, lease);
+    }
+
+    private FileChannelInputStream(
+            FileChannel channel, long position, int readAheadSize,
+            Closeable resource, SharedFileChannels.Lease lease) {
+        Arguments.requireNonNull(channel);
+        Arguments.require(position >= 0);
+        Arguments.require(readAheadSize > 0);
+        this.channel = channel;
+        this.position = position;
+        this.buffer = ByteBuffer.allocate(readAheadSize);
+        this.buffer.flip();
+        this.resource = resource;
+        this.lease = lease;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (buffer.hasRemaining() == false && fill() == false) {
+            return -1;
+        }
+        return buffer.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (buffer.hasRemaining()) {
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+        if (len >= buffer.capacity()) {
+            // bypasses the read-ahead buffer
+            int count = readFully(ByteBuffer.wrap(b, off, len));
+            return count <= 0 ? -1 : count;
+        }
+        if (fill() == false) {
+            return -1;
+        }
+        int count = Math.min(len, buffer.remaining());
+        buffer.get(b, off, count);
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        int remaining = buffer.remaining();
+        if (n <= remaining) {
+            buffer.position(buffer.position() + (int) n);
+            return n;
+        }
+        buffer.position(buffer.limit());
+        long rest = Math.min(n - remaining, Math.max(0L, size() - position));
+        position += rest;
+        return remaining + rest;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return buffer.remaining();
+    }
+
+    private boolean fill() throws IOException {
+        buffer.clear();
+        int count = readFully(buffer);
+        buffer.flip();
+        return count > 0;
+    }
+
+    private int readFully(ByteBuffer destination) throws IOException {
+        int total = 0;
+        while (destination.hasRemaining()) {
+            int read;
+            try {
+                read = channel.read(destination, position);
+            } catch (ClosedChannelException e) {
+                recover(e);
+                continue;
+            }
+            if (read < 0) {
+                break;
+            }
+            position += read;
+            total += read;
+        }
+        return total;
+    }
+
+    private long size() throws IOException {
+        while (true) {
+            try {
+                return channel.size();
+            } catch (ClosedChannelException e) {
+                recover(e);
+            }
+        }
+    }
+
+    private void recover(ClosedChannelException exception) throws IOException {
+        // the current thread was interrupted, or the channel is not shared
+        if (lease == null || closed
+                || exception instanceof ClosedByInterruptException
+                || Thread.currentThread().isInterrupted()) {
+            throw exception;
+        }
+        // another reader was interrupted
+        channel = lease.reopen(channel);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (resource != null) {
+            resource.close();
+        }
+    }
+}
@@ -18,6 +18,7 @@ package com.asakusafw.dag.runtime.internalio;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
@@ -52,10 +53,24 @@ import com.asakusafw.runtime.stage.temporary.TemporaryStorage;
 /**
  * {@link InputAdapter} for internal inputs.
  * @since 0.4.0
+ * @version 0.5.5
  * @see TemporaryFile
  */
 public class InternalInputAdapter implements InputAdapter<ExtractOperation.Input> {
 
+    /**
+     * The configuration key of the read-ahead buffer size in bytes for local internal inputs.
+     * @since 0.5.5
+     */
+    public static final String KEY_READ_AHEAD_SIZE =
+            "com.asakusafw.dag.input.internal.readahead.size"; //$NON-NLS-1$
+
+    /**
+     * The default value of {@link #KEY_READ_AHEAD_SIZE}.
+     * @since 0.5.5
+     */
+    public static final int DEFAULT_READ_AHEAD_SIZE = LocalInternalInputTaskInfo.DEFAULT_READ_AHEAD_SIZE;
+
     private final List<Callable<List<TaskInfo>>> tasks = new ArrayList<>();
 
     private final StageInfo stage;
@@ -64,6 +79,8 @@ public class InternalInputAdapter implements InputAdapter<ExtractOperation.Input
 
     private final ObjectFactory objectFactory;
 
+    private final SharedFileChannels channels = new SharedFileChannels();
+
     /**
      * Creates a new instance.
      * @param context the current context
@@ -127,6 +144,7 @@ public class InternalInputAdapter implements InputAdapter<ExtractOperation.Input
     private <T extends Writable> void resolve(
             List<Path> paths, Class<T> type, Consumer<TaskInfo> sink) throws IOException {
         FileSystem fs = FileSystem.get(configuration);
+        int readAheadSize = getReadAheadSize();
         Supplier<? extends T> supplier = () -> objectFactory.newInstance(type);
         List<FileStatus> stats = new ArrayList<>();
         for (Path path : paths) {
@@ -150,12 +168,24 @@ public class InternalInputAdapter implements InputAdapter<ExtractOperation.Input
                 if (local == null) {
                     sink.accept(new HadoopInternalInputTaskInfo<>(fs, p, i, 1, supplier));
                 } else {
-                    sink.accept(new LocalInternalInputTaskInfo<>(local, i, 1, supplier));
+                    sink.accept(new LocalInternalInputTaskInfo<>(
+                            local, i, 1, supplier,
+                            channels, readAheadSize));
                 }
             }
         }
     }
 
+    private int getReadAheadSize() {
+        int size = configuration.getInt(KEY_READ_AHEAD_SIZE, DEFAULT_READ_AHEAD_SIZE);
+        if (size <= 0) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "read-ahead size must be positive: {0}={1}",
+                    KEY_READ_AHEAD_SIZE, size));
+        }
+        return size;
+    }
+
     @Override
     public TaskSchedule getSchedule() throws IOException, InterruptedException {
         try {
@@ -175,4 +205,9 @@ public class InternalInputAdapter implements InputAdapter<ExtractOperation.Input
     public InputHandler<Input, ? super TaskProcessorContext> newHandler() throws IOException, InterruptedException {
         return new ModelInputHandler();
     }
+
+    @Override
+    public void close() throws IOException, InterruptedException {
+        channels.close();
+    }
 }
@@ -16,9 +16,10 @@
 package com.asakusafw.dag.runtime.internalio;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.function.Supplier;
 
 import org.apache.hadoop.io.Writable;
@@ -35,9 +36,16 @@ import com.asakusafw.runtime.stage.temporary.TemporaryFileInput;
  * A {@link TaskInfo} for internal input.
  * @param <T> the input data type
  * @since 0.4.0
+ * @version 0.5.5
  */
 public class LocalInternalInputTaskInfo<T extends Writable> implements ModelInputTaskInfo<T> {
 
+    /**
+     * The default read-ahead buffer size in bytes.
+     * @since 0.5.5
+     */
+    public static final int DEFAULT_READ_AHEAD_SIZE = 64 * 1024;
+
     private final File file;
 
     private final int blockOffset;
@@ -46,6 +54,10 @@ public class LocalInternalInputTaskInfo<T extends Writable> implements ModelInpu
 
     private final Supplier<? extends T> objectFactory;
 
+    private final SharedFileChannels channels;
+
+    private final int readAheadSize;
+
     /**
      * Creates a new instance.
      * @param file the target file
@@ -56,17 +68,45 @@ public class LocalInternalInputTaskInfo<T extends Writable> implements ModelInpu
     public LocalInternalInputTaskInfo(
             File file, int blockOffset, int blockLength,
             Supplier<? extends T> objectFactory) {
+        this(file, blockOffset, blockLength, objectFactory, null, DEFAULT_READ_AHEAD_SIZE);
+    }
+
+    /**
+     * Creates a new instance.
+     * @param file the target file
+     * @param blockOffset the block offset
+     * @param blockLength the block length
+     * @param objectFactory the data model object supplier
+     * @param channels the shared file channels, or {@code null} to open a dedicated channel for each input
+     * @param readAheadSize the read-ahead buffer size in bytes
+     * @since 0.5.5
+     */
+    public LocalInternalInputTaskInfo(
+            File file, int blockOffset, int blockLength,
+            Supplier<? extends T> objectFactory,
+            SharedFileChannels channels, int readAheadSize) {
         Arguments.requireNonNull(file);
         Arguments.requireNonNull(objectFactory);
+        Arguments.require(readAheadSize > 0);
         this.file = file;
         this.blockOffset = blockOffset;
         this.blockLength = blockLength;
         this.objectFactory = objectFactory;
+        this.channels = channels;
+        this.readAheadSize = readAheadSize;
     }
 
     @Override
     public ModelInput<T> open() throws IOException, InterruptedException {
-        return open(file, blockOffset, blockLength);
+        if (channels == null) {
+            return open(file, blockOffset, blockLength, readAheadSize);
+        }
+        try (Initializer<SharedFileChannels.Lease> init = new Initializer<>(channels.acquire(file))) {
+            InputStream input = new FileChannelInputStream(
+                    init.get(), getStartPosition(blockOffset), readAheadSize);
+            init.done();
+            return new TemporaryFileInput<>(input, blockLength);
+        }
     }
 
     /**
@@ -92,21 +132,37 @@ public class LocalInternalInputTaskInfo<T extends Writable> implements ModelInpu
     public static <T extends Writable> ModelInput<T> open(
             File file,
             int blockOffset, int blockLength) throws IOException {
-        try (Initializer<InputStream> init = new Initializer<>(new FileInputStream(file))) {
-            if (blockOffset > 0) {
-                long rest = (long) blockOffset * TemporaryFile.BLOCK_SIZE;
-                while (rest > 0) {
-                    long skipped = init.get().skip(rest);
-                    if (skipped < 0) {
-                        throw new IOException();
-                    }
-                    rest -= skipped;
-                }
-            }
-            return new TemporaryFileInput<>(init.done(), blockLength);
+        return open(file, blockOffset, blockLength, DEFAULT_READ_AHEAD_SIZE);
+    }
+
+    /**
+     * Opens a model input.
+     * @param <T> the input data type
+     * @param file the target file
+     * @param blockOffset the block offset
+     * @param blockLength the block length
+     * @param readAheadSize the read-ahead buffer size in bytes
+     * @return the opened file
+     * @throws IOException if I/O error was occurred while opening the file
+     * @since 0.5.5
+     */
+    public static <T extends Writable> ModelInput<T> open(
+            File file,
+            int blockOffset, int blockLength, int readAheadSize) throws IOException {
+        try (Initializer<FileChannel> init = new Initializer<>(
+                FileChannel.open(file.toPath(), StandardOpenOption.READ))) {
+            FileChannel channel = init.get();
+            InputStream input = new FileChannelInputStream(
+                    channel, getStartPosition(blockOffset), readAheadSize, channel);
+            init.done();
+            return new TemporaryFileInput<>(input, blockLength);
         }
     }
 
+    private static long getStartPosition(int blockOffset) {
+        return (long) Math.max(blockOffset, 0) * TemporaryFile.BLOCK_SIZE;
+    }
+
     @Override
     public T newDataObject() {
         return objectFactory.get();
@@ -0,0 +1,183 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.runtime.internalio;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.asakusafw.lang.utils.common.Arguments;
+
+/**
+ * Shares read-only {@link FileChannel}s between concurrent readers of the same file.
+ * Each channel is closed after its last lease was released.
+ * Because {@link FileChannel} is interruptible, a channel closed by interrupting one of the readers
+ * can be reopened by the other readers via {@link Lease#reopen(FileChannel)}.
+ * @since 0.5.5
+ */
+public class SharedFileChannels implements Closeable {
+
+    static final Logger LOG = LoggerFactory.getLogger(SharedFileChannels.class);
+
+    private final Map<File, Entry> entries = new HashMap<>();
+
+    /**
+     * Acquires a channel of the given file.
+     * @param file the target file
+     * @return the acquired lease, which must be closed after use
+     * @throws IOException if I/O error was occurred while opening the file
+     */
+    public Lease acquire(File file) throws IOException {
+        Arguments.requireNonNull(file);
+        File key = file.getAbsoluteFile();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                FileChannel channel = FileChannel.open(key.toPath(), StandardOpenOption.READ);
+                entry = new Entry(key, channel);
+                entries.put(key, entry);
+            }
+            entry.references++;
+            return new Lease(entry);
+        }
+    }
+
+    void release(Entry entry) throws IOException {
+        synchronized (entries) {
+            entry.references--;
+            if (entry.references > 0) {
+                return;
+            }
+            entries.remove(entry.file);
+        }
+        entry.channel.close();
+    }
+
+    FileChannel reopen(Entry entry, FileChannel broken) throws IOException {
+        synchronized (entries) {
+            if (entries.get(entry.file) != entry) {
+                // already closed
+                throw new ClosedChannelException();
+            }
+            if (entry.channel == broken && broken.isOpen() == false) {
+                LOG.debug("reopening closed channel: {}", entry.file); //$NON-NLS-1$
+                entry.channel = FileChannel.open(entry.file.toPath(), StandardOpenOption.READ);
+            }
+            return entry.channel;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        List<Entry> rest;
+        synchronized (entries) {
+            rest = new ArrayList<>(entries.values());
+            entries.clear();
+        }
+        IOException occurred = null;
+        for (Entry entry : rest) {
+            LOG.debug("closing unreleased channel: {}", entry.file); //$NON-NLS-1$
+            try {
+                entry.channel.close();
+            } catch (IOException e) {
+                if (occurred == null) {
+                    occurred = e;
+                } else {
+                    occurred.addSuppressed(e);
+                }
+            }
+        }
+        if (occurred != null) {
+            throw occurred;
+        }
+    }
+
+    private static final class Entry {
+
+        final File file;
+
+        FileChannel channel;
+
+        int references;
+
+        Entry(File file, FileChannel channel) {
+            this.file = file;
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * A lease of shared {@link FileChannel}.
+     * @since 0.5.5
+     */
+    public final class Lease implements Closeable {
+
+        private Entry entry;
+
+        Lease(Entry entry) {
+            this.entry = entry;
+        }
+
+        /**
+         * Returns the leased channel.
+         * The channel position must not be changed by clients, please use only positional reads.
+         * @return the leased channel
+         */
+        public FileChannel getChannel() {
+            Entry e = entry;
+            if (e == null) {
+                throw new IllegalStateException();
+            }
+            synchronized (entries) {
+                return e.channel;
+            }
+        }
+
+        /**
+         * Reopens the leased channel if it has been closed, for example, by interrupting another reader.
+         * @param broken the closed channel, which was obtained from this lease
+         * @return the available channel
+         * @throws IOException if I/O error was occurred while reopening the file
+         * @throws ClosedChannelException if this lease or the owner has been already closed
+         */
+        public FileChannel reopen(FileChannel broken) throws IOException {
+            Entry e = entry;
+            if (e == null) {
+                throw new ClosedChannelException();
+            }
+            return SharedFileChannels.this.reopen(e, broken);
+        }
+
+        @Override
+        public void close() throws IOException {
+            Entry e = entry;
+            if (e != null) {
+                entry = null;
+                release(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.runtime.internalio;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test for {@link FileChannelInputStream} and {@link SharedFileChannels}.
+ */
+public class FileChannelInputStreamTest {
+
+    /**
+     * temporary folder.
+     */
+    @Rule
+    public final TemporaryFolder temporary = new TemporaryFolder();
+
+    /**
+     * simple case.
+     * @throws Exception if failed
+     */
+    @Test
+    public void simple() throws Exception {
+        File file = put(1000);
+        try (SharedFileChannels channels = new SharedFileChannels();
+                SharedFileChannels.Lease lease = channels.acquire(file);
+                InputStream in = new FileChannelInputStream(lease.getChannel(), 0, 16, null)) {
+            assertThat(dump(in), is(data(0, 1000)));
+        }
+    }
+
+    /**
+     * read from the middle of file.
+     * @throws Exception if failed
+     */
+    @Test
+    public void offset() throws Exception {
+        File file = put(1000);
+        try (SharedFileChannels channels = new SharedFileChannels();
+                SharedFileChannels.Lease lease = channels.acquire(file);
+                InputStream in = new FileChannelInputStream(lease.getChannel(), 100, 16, null)) {
+            assertThat(dump(in), is(data(100, 1000)));
+        }
+    }
+
+    /**
+     * skip contents.
+     * @throws Exception if failed
+     */
+    @Test
+    public void skip() throws Exception {
+        File file = put(1000);
+        try (SharedFileChannels channels = new SharedFileChannels();
+                SharedFileChannels.Lease lease = channels.acquire(file);
+                InputStream in = new FileChannelInputStream(lease.getChannel(), 0, 16, null)) {
+            assertThat(in.read(), is(0));
+            assertThat(in.skip(10), is(10L));
+            assertThat(in.read(), is(11));
+            assertThat(in.skip(500), is(500L));
+            assertThat(in.read(), is(512 % 256));
+            assertThat(in.skip(1000), is(487L));
+            assertThat(in.read(), is(-1));
+        }
+    }
+
+    /**
+     * interleaved streams on the shared channel.
+     * @throws Exception if failed
+     */
+    @Test
+    public void shared() throws Exception {
+        File file = put(1000);
+        try (SharedFileChannels channels = new SharedFileChannels()) {
+            SharedFileChannels.Lease a = channels.acquire(file);
+            SharedFileChannels.Lease b = channels.acquire(file);
+            FileChannel channel = a.getChannel();
+            assertThat(b.getChannel(), is(sameInstance(channel)));
+            try (InputStream in0 = new FileChannelInputStream(a.getChannel(), 0, 8, a);
+                    InputStream in1 = new FileChannelInputStream(b.getChannel(), 500, 8, b)) {
+                for (int i = 0; i < 500; i++) {
+                    assertThat(in0.read(), is(i % 256));
+                    assertThat(in1.read(), is((i + 500) % 256));
+                }
+                assertThat(in1.read(), is(-1));
+                assertThat(channel.isOpen(), is(true));
+            }
+            assertThat(channel.isOpen(), is(false));
+        }
+    }
+
+    /**
+     * interrupting a reader does not break the other readers on the shared channel.
+     * @throws Exception if failed
+     */
+    @Test
+    public void shared_interrupted() throws Exception {
+        File file = put(1000);
+        try (SharedFileChannels channels = new SharedFileChannels();
+                InputStream in0 = new FileChannelInputStream(channels.acquire(file), 0, 8);
+                InputStream in1 = new FileChannelInputStream(channels.acquire(file), 500, 8);
+                SharedFileChannels.Lease lease = channels.acquire(file)) {
+            assertThat(in0.read(), is(0));
+            assertThat(in1.read(), is(500 % 256));
+            FileChannel channel = lease.getChannel();
+            Thread.currentThread().interrupt();
+            try {
+                in0.skip(7);
+                in0.read();
+                fail();
+            } catch (ClosedByInterruptException e) {
+                // ok.
+            } finally {
+                Thread.interrupted();
+            }
+            assertThat(channel.isOpen(), is(false));
+            assertThat(dump(in1), is(data(501, 1000)));
+            assertThat(lease.getChannel().isOpen(), is(true));
+        }
+    }
+
+    private File put(int size) throws IOException {
+        File file = temporary.newFile();
+        Files.write(file.toPath(), data(0, size));
+        return file;
+    }
+
+    private static byte[] data(int from, int to) {
+        byte[] results = new byte[to - from];
+        for (int i = from; i < to; i++) {
+            results[i - from] = (byte) i;
+        }
+        return results;
+    }
+
+    private static byte[] dump(InputStream in) throws IOException {
+        ByteArrayOutputStream results = new ByteArrayOutputStream();
+        byte[] buf = new byte[7];
+        while (true) {
+            int read = in.read(buf);
+            if (read < 0) {
+                break;
+            }
+            results.write(buf, 0, read);
+        }
+        return results.toByteArray();
+    }
+}
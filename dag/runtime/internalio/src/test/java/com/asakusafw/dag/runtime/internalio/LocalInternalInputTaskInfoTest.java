@@ -70,6 +70,32 @@ public class LocalInternalInputTaskInfoTest {
         assertThat(results, containsInAnyOrder("Hello, world!"));
     }
 
+    /**
+     * use shared channels.
+     * @throws Exception if failed
+     */
+    @Test
+    public void shared() throws Exception {
+        File file = temporary.newFile();
+        put(file, "Hello, world!");
+        List<String> results = new ArrayList<>();
+        try (SharedFileChannels channels = new SharedFileChannels()) {
+            LocalInternalInputTaskInfo<Text> info = new LocalInternalInputTaskInfo<>(
+                    file, 0, 0, Text::new,
+                    channels, 16);
+            try (ModelInput<Text> a = info.open(); ModelInput<Text> b = info.open()) {
+                Text buf = info.newDataObject();
+                while (a.readTo(buf)) {
+                    results.add(buf.toString());
+                }
+                while (b.readTo(buf)) {
+                    results.add(buf.toString());
+                }
+            }
+        }
+        assertThat(results, contains("Hello, world!", "Hello, world!"));
+    }
+
     private static void put(File file, String... values) throws IOException {
         try (ModelOutput<Text> out = InternalOutputHandler.create(new FileOutputStream(file), Text.class)) {
             Text buf = new Text();
@@ -26,6 +26,7 @@ import com.asakusafw.runtime.core.Result;
  * Each implementation must have a constructor which only accepts {@link VertexProcessorContext}.
  * @param <T> the operation input type
  * @since 0.4.0
+ * @version 0.5.5
  */
 public interface OperationAdapter<T> extends VertexElementAdapter {
 
@@ -41,6 +42,7 @@ public interface OperationAdapter<T> extends VertexElementAdapter {
     /**
      * Represents a context for {@link OperationAdapter}.
      * @since 0.4.0
+     * @version 0.5.5
      */
     public interface Context extends ProcessorContext {
 
@@ -61,5 +63,19 @@ public interface OperationAdapter<T> extends VertexElementAdapter {
          * @return {@link Result} object for output
          */
         <T> Result<T> getSink(Class<T> type, String id);
+
+        /**
+         * Decorates the given operator.
+         * Operations should invoke this for each operator before connecting it to its predecessors.
+         * This may return a wrapper of the operator, for example, to profile it.
+         * @param <T> the input type
+         * @param operator the target operator
+         * @param label the operator label
+         * @return the decorated operator, or the given one as is
+         * @since 0.5.5
+         */
+        default <T> Result<T> decorate(Result<T> operator, String label) {
+            return operator;
+        }
     }
 }
@@ -0,0 +1,434 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.runtime.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.io.Text;
+
+import com.asakusafw.runtime.value.BooleanOption;
+import com.asakusafw.runtime.value.ByteOption;
+import com.asakusafw.runtime.value.DateOption;
+import com.asakusafw.runtime.value.DateTimeOption;
+import com.asakusafw.runtime.value.DecimalOption;
+import com.asakusafw.runtime.value.DoubleOption;
+import com.asakusafw.runtime.value.FloatOption;
+import com.asakusafw.runtime.value.IntOption;
+import com.asakusafw.runtime.value.LongOption;
+import com.asakusafw.runtime.value.ShortOption;
+import com.asakusafw.runtime.value.StringOption;
+
+/**
+ * Serializes/deserializes {@link com.asakusafw.runtime.value.ValueOption} objects in the compact row format.
+ * In this format, the null flags of the individual properties are packed into a leading {@link NullBitmap},
+ * and only the non-null properties are written after the bitmap without any headers.
+ * Integral values are written as variable-length integers, and strings are written as their length
+ * followed by their bytes.
+ * @since 0.5.5
+ * @see NullBitmap
+ */
+@SuppressWarnings("deprecation")
+public final class CompactValueOptionSerDe {
+
+    private CompactValueOptionSerDe() {
+        return;
+    }
+
+    /**
+     * Serializes the body of {@link BooleanOption} object as 1 byte.
+     * This writes nothing if the object is {@code null}.
+     * @param option the target object
+     * @param output the target output
+     * @throws IOException if I/O error was occurred while serializing the object
+     */
+    public static void serialize(BooleanOption option, DataOutput output) throws IOException {
+        if (option.isNull() == false) {
+            output.writeBoolean(option.get());
+        }
+    }
+
+    /**
+     * Deserializes {@link BooleanOption} object.
+     * @param option the target object
+     * @param nulls the null bitmap of the current row
+     * @param input the source input
+     * @throws IOException if I/O error was occurred while deserializing the object
+     */
+    public static void deserialize(BooleanOption option, NullBitmap nulls, DataInput input) throws IOException {
+        if (nulls.next()) {
+            option.setNull();
+        } else {
+            option.modify(input.readBoolean());
+        }
+    }
+
+    /**
+     * Serializes the body of {@link ByteOption} object as 1 byte.
+     * This writes nothing if the object is {@code null}.
+     * @param option the target object
+     * @param output the target output
+     * @throws IOException if I/O error was occurred while serializing the object
+     */
+    public static void serialize(ByteOption option, DataOutput output) throws IOException {
+        if (option.isNull() == false) {
+            output.writeByte(option.get());
+        }
+    }
+
+    /**
+     * Deserializes {@link ByteOption} object.
+     * @param option the target object
+     * @param nulls the null bitmap of the current row
+     * @param input the source input
+     * @throws IOException if I/O error was occurred while deserializing the object
+     */
+    public static void deserialize(ByteOption option, NullBitmap nulls, DataInput input) throws IOException {
+        if (nulls.next()) {
+            option.setNull();
+        } else {
+            option.modify(input.readByte());
+        }
+    }
+
+    /**
+     * Serializes the body of {@link ShortOption} object as a zig-zag encoded variable-length integer.
+     * This writes nothing if the object is {@code null}.
+     * @param option the target object
+     * @param output the target output
+     * @throws IOException if I/O error was occurred while serializing the object
+     */
+    public static void serialize(ShortOption option, DataOutput output) throws IOException {
+        if (option.isNull() == false) {
+            writeVarInt(zigZag(option.get()), output);
+        }
+    }
+
+    /**
+     * Deserializes {@link ShortOption} object.
+     * @param option the target object
+     * @param nulls the null bitmap of the current row
+     * @param input the source input
+     * @throws IOException if I/O error was occurred while deserializing the object
+     */
+    public static void deserialize(ShortOption option, NullBitmap nulls, DataInput input) throws IOException {
+        if (nulls.next()) {
+            option.setNull();
+        } else {
+            option.modify((short) unZigZag(readVarInt(input)));
+        }
+    }
+
+    /**
+     * Serializes the body of {@link IntOption} object as a zig-zag encoded variable-length integer.
+     * This writes nothing if the object is {@code null}.
+     * @param option the target object
+     * @param output the target output
+     * @throws IOException if I/O error was occurred while serializing the object
+     */
+    public static void serialize(IntOption option, DataOutput output) throws IOException {
+        if (option.isNull() == false) {
+            writeVarInt(zigZag(option.get()), output);
+        }
+    }
+
+    /**
+     * Deserializes {@link IntOption} object.
+     * @param option the target object
+     * @param nulls the null bitmap of the current row
+     * @param input the source input
+     * @throws IOException if I/O error was occurred while deserializing the object
+     */
+    public static void deserialize(IntOption option, NullBitmap nulls, DataInput input) throws IOException {
+        if (nulls.next()) {
+            option.setNull();
+        } else {
+            option.modify(unZigZag(readVarInt(input)));
+        }
+    }
+
+    /**
+     * Serializes the body of {@link LongOption} object as a zig-zag encoded variable-length integer.
+     * This writes nothing if the object is {@code null}.
+     * @param option the target object
+     * @param output the target output
+     * @throws IOException if I/O error was occurred while serializing the object
+     */
+    public static void serialize(LongOption option, DataOutput output) throws IOException {
+        if (option.isNull() == false) {
+            writeVarLong(zigZag(option.get()), output);
+        }
+    }
+
+    /**
+     * Deserializes {@link LongOption} object.
+     * @param option the target object
+     * @param nulls the null bitmap of the current row
+     * @param input the source input
+     * @throws IOException if I/O error was occurred while deserializing the object
+     */
+    public static void deserialize(LongOption option, NullBitmap nulls, DataInput input) throws IOException {
+        if (nulls.next()) {
+            option.setNull();
+        } else {
+            option.modify(unZigZag(readVarLong(input)));
+        }
+    }
+
+    /**
+     * Serializes the body of {@link FloatOption} object as 4 bytes.
+     * This writes nothing if the object is {@code null}.
+     * @param option the target object
+     * @param output the target output
+     * @throws IOException if I/O error was occurred while serializing the object
+     */
+    public static void serialize(FloatOption option, DataOutput output) throws IOException {
+        if (option.isNull() == false) {
+            output.writeFloat(option.get());
+        }
+    }
+
+    /**
+     * Deserializes {@link FloatOption} object.
+     * @param option the target object
+     * @param nulls the null bitmap of the current row
+     * @param input the source input
+     * @throws IOException if I/O error was occurred while deserializing the object
+     */
+    public static void deserialize(FloatOption option, NullBitmap nulls, DataInput input) throws IOException {
+        if (nulls.next()) {
+            option.setNull();
+        } else {
+            option.modify(input.readFloat());
+        }
+    }
+
+    /**
+     * Serializes the body of {@link DoubleOption} object as 8 bytes.
+     * This writes nothing if the object is {@code null}.
+     * @param option the target object
+     * @param output the target output
+     * @throws IOException if I/O error was occurred while serializing the object
+     */
+    public static void serialize(DoubleOption option, DataOutput output) throws IOException {
+        if (option.isNull() == false) {
+            output.writeDouble(option.get());
+        }
+    }
+
+    /**
+     * Deserializes {@link DoubleOption} object.
+     * @param option the target object
+     * @param nulls the null bitmap of the current row
+     * @param input the source input
+     * @throws IOException if I/O error was occurred while deserializing the object
+     */
+    public static void deserialize(DoubleOption option, NullBitmap nulls, DataInput input) throws IOException {
+        if (nulls.next()) {
+            option.setNull();
+        } else {
+            option.modify(input.readDouble());
+        }
+    }
+
+    /**
+     * Serializes the body of {@link DateOption} object as a variable-length integer (negative values are treated as {@code 0}).
+     * This writes nothing if the object is {@code null}.
+     * @param option the target object
+     * @param output the target output
+     * @throws IOException if I/O error was occurred while serializing the object
+     */
+    public static void serialize(DateOption option, DataOutput output) throws IOException {
+        if (option.isNull() == false) {
+            writeVarInt(Math.max(option.get().getElapsedDays(), 0), output);
+        }
+    }
+
+    /**
+     * Deserializes {@link DateOption} object.
+     * @param option the target object
+     * @param nulls the null bitmap of the current row
+     * @param input the source input
+     * @throws IOException if I/O error was occurred while deserializing the object
+     */
+    public static void deserialize(DateOption option, NullBitmap nulls, DataInput input) throws IOException {
+        if (nulls.next()) {
+            option.setNull();
+        } else {
+            option.modify(readVarInt(input));
+        }
+    }
+
+    /**
+     * Serializes the body of {@link DateTimeOption} object as a variable-length integer (negative values are treated as {@code 0}).
+     * This writes nothing if the object is {@code null}.
+     * @param option the target object
+     * @param output the target output
+     * @throws IOException if I/O error was occurred while serializing the object
+     */
+    public static void serialize(DateTimeOption option, DataOutput output) throws IOException {
+        if (option.isNull() == false) {
+            writeVarLong(Math.max(option.get().getElapsedSeconds(), 0L), output);
+        }
+    }
+
+    /**
+     * Deserializes {@link DateTimeOption} object.
+     * @param option the target object
+     * @param nulls the null bitmap of the current row
+     * @param input the source input
+     * @throws IOException if I/O error was occurred while deserializing the object
+     */
+    public static void deserialize(DateTimeOption option, NullBitmap nulls, DataInput input) throws IOException {
+        if (nulls.next()) {
+            option.setNull();
+        } else {
+            option.modify(readVarLong(input));
+        }
+    }
+
+    /**
+     * Serializes the body of {@link StringOption} object as its length in bytes and its contents.
+     * This writes nothing if the object is {@code null}.
+     * @param option the target object
+     * @param output the target output
+     * @throws IOException if I/O error was occurred while serializing the object
+     */
+    public static void serialize(StringOption option, DataOutput output) throws IOException {
+        if (option.isNull() == false) {
+            Text entity = option.get();
+            int length = entity.getLength();
+            writeVarInt(length, output);
+            output.write(entity.getBytes(), 0, length);
+        }
+    }
+
+    /**
+     * Deserializes {@link StringOption} object.
+     * @param option the target object
+     * @param nulls the null bitmap of the current row
+     * @param input the source input
+     * @throws IOException if I/O error was occurred while deserializing the object
+     */
+    public static void deserialize(StringOption option, NullBitmap nulls, DataInput input) throws IOException {
+        if (nulls.next()) {
+            option.setNull();
+        } else {
+            int length = readVarInt(input);
+            if (option.isNull() == false) {
+                Text entity = option.get();
+                if (length == entity.getLength()) {
+                    // optimize for same-length text properties
+                    input.readFully(entity.getBytes(), 0, length);
+                    return;
+                }
+            } else {
+                // set as non-null
+                option.reset();
+            }
+            byte[] buffer = ValueOptionSerDe.getLocalBuffer(length, Integer.MAX_VALUE);
+            input.readFully(buffer, 0, length);
+            option.modify(buffer, 0, length);
+        }
+    }
+
+    /**
+     * Serializes the body of {@link DecimalOption} object in the same form of {@link ValueOptionSerDe}.
+     * This writes nothing if the object is {@code null}.
+     * @param option the target object
+     * @param output the target output
+     * @throws IOException if I/O error was occurred while serializing the object
+     */
+    public static void serialize(DecimalOption option, DataOutput output) throws IOException {
+        if (option.isNull() == false) {
+            ValueOptionSerDe.serialize(option, output);
+        }
+    }
+
+    /**
+     * Deserializes {@link DecimalOption} object.
+     * @param option the target object
+     * @param nulls the null bitmap of the current row
+     * @param input the source input
+     * @throws IOException if I/O error was occurred while deserializing the object
+     */
+    public static void deserialize(DecimalOption option, NullBitmap nulls, DataInput input) throws IOException {
+        if (nulls.next()) {
+            option.setNull();
+        } else {
+            ValueOptionSerDe.deserialize(option, input);
+        }
+    }
+
+    static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1L);
+    }
+
+    static void writeVarInt(int value, DataOutput output) throws IOException {
+        int rest = value;
+        while ((rest & ~0x7f) != 0) {
+            output.writeByte((rest & 0x7f) | 0x80);
+            rest >>>= 7;
+        }
+        output.writeByte(rest);
+    }
+
+    static int readVarInt(DataInput input) throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            byte b = input.readByte();
+            result |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IOException("malformed variable-length integer"); //$NON-NLS-1$
+    }
+
+    static void writeVarLong(long value, DataOutput output) throws IOException {
+        long rest = value;
+        while ((rest & ~0x7fL) != 0) {
+            output.writeByte((int) (rest & 0x7f) | 0x80);
+            rest >>>= 7;
+        }
+        output.writeByte((int) rest);
+    }
+
+    static long readVarLong(DataInput input) throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            byte b = input.readByte();
+            result |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new IOException("malformed variable-length integer"); //$NON-NLS-1$
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.runtime.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.asakusafw.lang.utils.common.Invariants;
+import com.asakusafw.runtime.value.ValueOption;
+
+/**
+ * A bitmap which represents whether or not each property in a row is {@code null}.
+ * The bitmap is written as {@code ceil(count / 8)} bytes, and the bit for the {@code i}-th property is
+ * {@code 1 << (i % 8)} of the {@code floor(i / 8)}-th byte.
+ * @since 0.5.5
+ * @see CompactValueOptionSerDe
+ */
+public final class NullBitmap {
+
+    private byte[] bits = new byte[8];
+
+    private int count;
+
+    private int cursor;
+
+    /**
+     * Clears this bitmap for building a new row.
+     */
+    public void reset() {
+        Arrays.fill(bits, 0, sizeOf(count), (byte) 0);
+        count = 0;
+        cursor = 0;
+    }
+
+    /**
+     * Appends the null flag of the next property.
+     * @param option the property value
+     */
+    public void add(ValueOption<?> option) {
+        int index = count;
+        ensure(index + 1);
+        if (option.isNull()) {
+            bits[index >>> 3] |= 1 << (index & 7);
+        }
+        count = index + 1;
+    }
+
+    /**
+     * Returns whether or not the next property is {@code null}.
+     * @return {@code true} if it is {@code null}, otherwise {@code false}
+     */
+    public boolean next() {
+        int index = cursor;
+        Invariants.require(index < count);
+        cursor = index + 1;
+        return (bits[index >>> 3] & (1 << (index & 7))) != 0;
+    }
+
+    /**
+     * Writes this bitmap into the given output.
+     * @param output the destination output
+     * @throws IOException if I/O error was occurred while writing the bitmap
+     */
+    public void writeTo(DataOutput output) throws IOException {
+        int size = sizeOf(count);
+        if (size > 0) {
+            output.write(bits, 0, size);
+        }
+    }
+
+    /**
+     * Reads a bitmap from the given input, and rewinds the cursor of {@link #next()}.
+     * @param input the source input
+     * @param newCount the number of properties in the row
+     * @throws IOException if I/O error was occurred while reading the bitmap
+     */
+    public void readFrom(DataInput input, int newCount) throws IOException {
+        ensure(newCount);
+        int size = sizeOf(newCount);
+        if (size > 0) {
+            input.readFully(bits, 0, size);
+        }
+        count = newCount;
+        cursor = 0;
+    }
+
+    /**
+     * Returns the number of bytes of the bitmap.
+     * @param count the number of properties in the row
+     * @return the number of bytes
+     */
+    public static int sizeOf(int count) {
+        return (count + 7) >>> 3;
+    }
+
+    private void ensure(int newCount) {
+        int size = sizeOf(newCount);
+        if (size > bits.length) {
+            bits = Arrays.copyOf(bits, Math.max(bits.length * 2, size));
+        }
+    }
+}
@@ -0,0 +1,336 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.runtime.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import org.apache.hadoop.io.Text;
+
+import com.asakusafw.dag.api.common.BinarySortKeyComparator;
+import com.asakusafw.runtime.value.BooleanOption;
+import com.asakusafw.runtime.value.ByteOption;
+import com.asakusafw.runtime.value.DateOption;
+import com.asakusafw.runtime.value.DateTimeOption;
+import com.asakusafw.runtime.value.DecimalOption;
+import com.asakusafw.runtime.value.DoubleOption;
+import com.asakusafw.runtime.value.FloatOption;
+import com.asakusafw.runtime.value.IntOption;
+import com.asakusafw.runtime.value.LongOption;
+import com.asakusafw.runtime.value.ShortOption;
+import com.asakusafw.runtime.value.StringOption;
+
+/**
+ * Builds binary sort keys, which can be compared as unsigned byte sequences.
+ * The order of sort keys is equivalent to the order of the corresponded {@code ValueOptionSerDe.compare*()}.
+ * Each sort key is written as a form of {@link BinarySortKeyComparator}.
+ * @since 0.5.5
+ * @see BinarySortKeyComparator
+ */
+@SuppressWarnings("deprecation")
+public final class SortKeyBuffer {
+
+    private static final int NULL_HEADER = 0x00;
+
+    private static final int NON_NULL_HEADER = 0x01;
+
+    private static final int DECIMAL_NEGATIVE = 0x01;
+
+    private static final int DECIMAL_ZERO = 0x02;
+
+    private static final int DECIMAL_POSITIVE = 0x03;
+
+    private static final int STRING_ESCAPE = 0x00;
+
+    private static final int STRING_ESCAPED_ZERO = 0xff;
+
+    private static final int STRING_TERMINATOR = 0x00;
+
+    private static final int DECIMAL_TERMINATOR = 0x00;
+
+    private byte[] bytes = new byte[64];
+
+    private int length;
+
+    /**
+     * Clears the current sort key.
+     */
+    public void reset() {
+        length = 0;
+    }
+
+    /**
+     * Returns the current sort key length.
+     * @return the sort key length in bytes
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Appends a {@link BooleanOption} term.
+     * @param option the term value
+     * @param descending {@code true} if the term is descending order, otherwise {@code false}
+     */
+    public void put(BooleanOption option, boolean descending) {
+        int mask = mask(descending);
+        if (putHeader(option.isNull(), mask)) {
+            putByte((option.get() ? 1 : 0) ^ mask);
+        }
+    }
+
+    /**
+     * Appends a {@link ByteOption} term.
+     * @param option the term value
+     * @param descending {@code true} if the term is descending order, otherwise {@code false}
+     */
+    public void put(ByteOption option, boolean descending) {
+        int mask = mask(descending);
+        if (putHeader(option.isNull(), mask)) {
+            putByte((option.get() ^ Byte.MIN_VALUE) ^ mask);
+        }
+    }
+
+    /**
+     * Appends a {@link ShortOption} term.
+     * @param option the term value
+     * @param descending {@code true} if the term is descending order, otherwise {@code false}
+     */
+    public void put(ShortOption option, boolean descending) {
+        int mask = mask(descending);
+        if (putHeader(option.isNull(), mask)) {
+            int value = option.get() ^ Short.MIN_VALUE;
+            putByte((value >>> 8) ^ mask);
+            putByte(value ^ mask);
+        }
+    }
+
+    /**
+     * Appends a {@link IntOption} term.
+     * @param option the term value
+     * @param descending {@code true} if the term is descending order, otherwise {@code false}
+     */
+    public void put(IntOption option, boolean descending) {
+        int mask = mask(descending);
+        if (putHeader(option.isNull(), mask)) {
+            putInt(option.get() ^ Integer.MIN_VALUE, mask);
+        }
+    }
+
+    /**
+     * Appends a {@link LongOption} term.
+     * @param option the term value
+     * @param descending {@code true} if the term is descending order, otherwise {@code false}
+     */
+    public void put(LongOption option, boolean descending) {
+        int mask = mask(descending);
+        if (putHeader(option.isNull(), mask)) {
+            putLong(option.get() ^ Long.MIN_VALUE, mask);
+        }
+    }
+
+    /**
+     * Appends a {@link FloatOption} term.
+     * @param option the term value
+     * @param descending {@code true} if the term is descending order, otherwise {@code false}
+     */
+    public void put(FloatOption option, boolean descending) {
+        int mask = mask(descending);
+        if (putHeader(option.isNull(), mask)) {
+            // consistent with Float.compare(): -0.0 < 0.0, and NaN is the largest value
+            int bits = Float.floatToIntBits(option.get());
+            putInt(bits < 0 ? ~bits : bits ^ Integer.MIN_VALUE, mask);
+        }
+    }
+
+    /**
+     * Appends a {@link DoubleOption} term.
+     * @param option the term value
+     * @param descending {@code true} if the term is descending order, otherwise {@code false}
+     */
+    public void put(DoubleOption option, boolean descending) {
+        int mask = mask(descending);
+        if (putHeader(option.isNull(), mask)) {
+            // consistent with Double.compare(): -0.0 < 0.0, and NaN is the largest value
+            long bits = Double.doubleToLongBits(option.get());
+            putLong(bits < 0 ? ~bits : bits ^ Long.MIN_VALUE, mask);
+        }
+    }
+
+    /**
+     * Appends a {@link DateOption} term.
+     * @param option the term value
+     * @param descending {@code true} if the term is descending order, otherwise {@code false}
+     */
+    public void put(DateOption option, boolean descending) {
+        int mask = mask(descending);
+        if (putHeader(option.isNull(), mask)) {
+            // negative values are treated as 0 like as ValueOptionSerDe
+            int value = option.get().getElapsedDays();
+            putInt(Math.max(value, 0), mask);
+        }
+    }
+
+    /**
+     * Appends a {@link DateTimeOption} term.
+     * @param option the term value
+     * @param descending {@code true} if the term is descending order, otherwise {@code false}
+     */
+    public void put(DateTimeOption option, boolean descending) {
+        int mask = mask(descending);
+        if (putHeader(option.isNull(), mask)) {
+            // negative values are treated as 0 like as ValueOptionSerDe
+            long value = option.get().getElapsedSeconds();
+            putLong(Math.max(value, 0L), mask);
+        }
+    }
+
+    /**
+     * Appends a {@link StringOption} term.
+     * The {@code 0x00} bytes in the string are escaped as {@code 0x00 0xff},
+     * and the string is terminated by {@code 0x00 0x00}.
+     * @param option the term value
+     * @param descending {@code true} if the term is descending order, otherwise {@code false}
+     */
+    public void put(StringOption option, boolean descending) {
+        int mask = mask(descending);
+        if (putHeader(option.isNull(), mask)) {
+            Text text = option.get();
+            byte[] b = text.getBytes();
+            int n = text.getLength();
+            ensure(n + 2);
+            for (int i = 0; i < n; i++) {
+                byte c = b[i];
+                if (c == STRING_ESCAPE) {
+                    putByte(STRING_ESCAPE ^ mask);
+                    putByte(STRING_ESCAPED_ZERO ^ mask);
+                } else {
+                    putByte(c ^ mask);
+                }
+            }
+            putByte(STRING_ESCAPE ^ mask);
+            putByte(STRING_TERMINATOR ^ mask);
+        }
+    }
+
+    /**
+     * Appends a {@link DecimalOption} term.
+     * Decimals are normalized, and then they are written as their sign, their exponent,
+     * and their digits terminated by {@code 0x00}.
+     * Equivalent decimals with different scales (e.g. {@code 1.0} and {@code 1.00}) have the same sort key.
+     * @param option the term value
+     * @param descending {@code true} if the term is descending order, otherwise {@code false}
+     */
+    public void put(DecimalOption option, boolean descending) {
+        int mask = mask(descending);
+        if (option.isNull()) {
+            putByte(NULL_HEADER ^ mask);
+            return;
+        }
+        BigDecimal value = option.get();
+        int signum = value.signum();
+        if (signum == 0) {
+            putByte(DECIMAL_ZERO ^ mask);
+            return;
+        }
+        BigDecimal normalized = value.stripTrailingZeros();
+        String digits = normalized.unscaledValue().abs().toString();
+        // value = 0.<digits> * 10^exponent
+        int exponent = digits.length() - normalized.scale();
+        int bodyMask = signum < 0 ? mask ^ 0xff : mask;
+        putByte((signum < 0 ? DECIMAL_NEGATIVE : DECIMAL_POSITIVE) ^ mask);
+        putInt(exponent ^ Integer.MIN_VALUE, bodyMask);
+        ensure(digits.length() + 1);
+        for (int i = 0, n = digits.length(); i < n; i++) {
+            // '0'..'9' -> 0x01..0x0a, to be greater than the terminator
+            putByte((digits.charAt(i) - '0' + 1) ^ bodyMask);
+        }
+        putByte(DECIMAL_TERMINATOR ^ bodyMask);
+    }
+
+    /**
+     * Writes the current sort key into the given output.
+     * @param output the destination output
+     * @throws IOException if I/O error was occurred while writing the sort key
+     */
+    public void writeTo(DataOutput output) throws IOException {
+        output.writeInt(length);
+        output.write(bytes, 0, length);
+    }
+
+    /**
+     * Skips a sort key in the given input.
+     * @param input the source input
+     * @throws IOException if I/O error was occurred while reading the input
+     */
+    public static void skip(DataInput input) throws IOException {
+        int rest = input.readInt();
+        while (rest > 0) {
+            int skipped = input.skipBytes(rest);
+            if (skipped <= 0) {
+                input.readByte();
+                rest--;
+            } else {
+                rest -= skipped;
+            }
+        }
+    }
+
+    private static int mask(boolean descending) {
+        return descending ? 0xff : 0x00;
+    }
+
+    private boolean putHeader(boolean isNull, int mask) {
+        if (isNull) {
+            putByte(NULL_HEADER ^ mask);
+            return false;
+        } else {
+            putByte(NON_NULL_HEADER ^ mask);
+            return true;
+        }
+    }
+
+    private void putInt(int value, int mask) {
+        int v = value ^ (mask == 0 ? 0 : -1);
+        ensure(Integer.BYTES);
+        putByte(v >>> 24);
+        putByte(v >>> 16);
+        putByte(v >>> 8);
+        putByte(v);
+    }
+
+    private void putLong(long value, int mask) {
+        long v = value ^ (mask == 0 ? 0L : -1L);
+        ensure(Long.BYTES);
+        for (int shift = Long.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+            putByte((int) (v >>> shift));
+        }
+    }
+
+    private void putByte(int value) {
+        ensure(1);
+        bytes[length++] = (byte) value;
+    }
+
+    private void ensure(int size) {
+        if (length + size > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + size));
+        }
+    }
+}
@@ -0,0 +1,471 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.runtime.io;
+
+import static com.asakusafw.dag.runtime.io.ValueOptionSerDe.*;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+import com.asakusafw.dag.api.common.ByteBufferComparator;
+import com.asakusafw.runtime.value.BooleanOption;
+import com.asakusafw.runtime.value.ByteOption;
+import com.asakusafw.runtime.value.DateOption;
+import com.asakusafw.runtime.value.DateTimeOption;
+import com.asakusafw.runtime.value.DecimalOption;
+import com.asakusafw.runtime.value.DoubleOption;
+import com.asakusafw.runtime.value.FloatOption;
+import com.asakusafw.runtime.value.IntOption;
+import com.asakusafw.runtime.value.LongOption;
+import com.asakusafw.runtime.value.ShortOption;
+import com.asakusafw.runtime.value.StringOption;
+
+/**
+ * Compares {@link com.asakusafw.runtime.value.ValueOption} objects serialized by {@link ValueOptionSerDe}
+ * on {@link ByteBuffer}s.
+ * Each {@code compare*()} method is equivalent to the corresponded method in {@link ValueOptionSerDe}, and
+ * each {@code sizeOf*()} method returns the number of bytes of the serialized object.
+ * The objects must have been serialized in the byte order of the individual buffers.
+ * These methods never change the position, limit, nor mark of the given buffers.
+ * @since 0.5.5
+ * @see ByteBufferComparator
+ */
+@SuppressWarnings("deprecation")
+public final class ValueOptionBuffers {
+
+    private static final int HEADER_SIZE = 1;
+
+    // a special result of compareHeader(), which represents both values are not null
+    private static final int NON_NULL = 2;
+
+    private ValueOptionBuffers() {
+        return;
+    }
+
+    /**
+     * Compares two serialized {@link BooleanOption}s.
+     * @param a the buffer which contains the first value
+     * @param aOffset the offset of the first value
+     * @param b the buffer which contains the second value
+     * @param bOffset the offset of the second value
+     * @return the comparison result
+     * @see ValueOptionSerDe#compareBoolean(java.io.DataInput, java.io.DataInput)
+     */
+    public static int compareBoolean(ByteBuffer a, int aOffset, ByteBuffer b, int bOffset) {
+        return Byte.compare(a.get(aOffset), b.get(bOffset));
+    }
+
+    /**
+     * Returns the size of serialized {@link BooleanOption}.
+     * @param buffer the buffer which contains the value
+     * @param offset the offset of the value
+     * @return the size in bytes
+     */
+    public static int sizeOfBoolean(ByteBuffer buffer, int offset) {
+        return Byte.BYTES;
+    }
+
+    /**
+     * Compares two serialized {@link ByteOption}s.
+     * @param a the buffer which contains the first value
+     * @param aOffset the offset of the first value
+     * @param b the buffer which contains the second value
+     * @param bOffset the offset of the second value
+     * @return the comparison result
+     * @see ValueOptionSerDe#compareByte(java.io.DataInput, java.io.DataInput)
+     */
+    public static int compareByte(ByteBuffer a, int aOffset, ByteBuffer b, int bOffset) {
+        int nulls = compareHeader(a, aOffset, b, bOffset);
+        if (nulls != NON_NULL) {
+            return nulls;
+        }
+        return Byte.compare(a.get(aOffset + HEADER_SIZE), b.get(bOffset + HEADER_SIZE));
+    }
+
+    /**
+     * Returns the size of serialized {@link ByteOption}.
+     * @param buffer the buffer which contains the value
+     * @param offset the offset of the value
+     * @return the size in bytes
+     */
+    public static int sizeOfByte(ByteBuffer buffer, int offset) {
+        return sizeOfOptional(buffer, offset, Byte.BYTES);
+    }
+
+    /**
+     * Compares two serialized {@link ShortOption}s.
+     * @param a the buffer which contains the first value
+     * @param aOffset the offset of the first value
+     * @param b the buffer which contains the second value
+     * @param bOffset the offset of the second value
+     * @return the comparison result
+     * @see ValueOptionSerDe#compareShort(java.io.DataInput, java.io.DataInput)
+     */
+    public static int compareShort(ByteBuffer a, int aOffset, ByteBuffer b, int bOffset) {
+        int nulls = compareHeader(a, aOffset, b, bOffset);
+        if (nulls != NON_NULL) {
+            return nulls;
+        }
+        return Short.compare(a.getShort(aOffset + HEADER_SIZE), b.getShort(bOffset + HEADER_SIZE));
+    }
+
+    /**
+     * Returns the size of serialized {@link ShortOption}.
+     * @param buffer the buffer which contains the value
+     * @param offset the offset of the value
+     * @return the size in bytes
+     */
+    public static int sizeOfShort(ByteBuffer buffer, int offset) {
+        return sizeOfOptional(buffer, offset, Short.BYTES);
+    }
+
+    /**
+     * Compares two serialized {@link IntOption}s.
+     * @param a the buffer which contains the first value
+     * @param aOffset the offset of the first value
+     * @param b the buffer which contains the second value
+     * @param bOffset the offset of the second value
+     * @return the comparison result
+     * @see ValueOptionSerDe#compareInt(java.io.DataInput, java.io.DataInput)
+     */
+    public static int compareInt(ByteBuffer a, int aOffset, ByteBuffer b, int bOffset) {
+        int nulls = compareHeader(a, aOffset, b, bOffset);
+        if (nulls != NON_NULL) {
+            return nulls;
+        }
+        return Integer.compare(a.getInt(aOffset + HEADER_SIZE), b.getInt(bOffset + HEADER_SIZE));
+    }
+
+    /**
+     * Returns the size of serialized {@link IntOption}.
+     * @param buffer the buffer which contains the value
+     * @param offset the offset of the value
+     * @return the size in bytes
+     */
+    public static int sizeOfInt(ByteBuffer buffer, int offset) {
+        return sizeOfOptional(buffer, offset, Integer.BYTES);
+    }
+
+    /**
+     * Compares two serialized {@link LongOption}s.
+     * @param a the buffer which contains the first value
+     * @param aOffset the offset of the first value
+     * @param b the buffer which contains the second value
+     * @param bOffset the offset of the second value
+     * @return the comparison result
+     * @see ValueOptionSerDe#compareLong(java.io.DataInput, java.io.DataInput)
+     */
+    public static int compareLong(ByteBuffer a, int aOffset, ByteBuffer b, int bOffset) {
+        int nulls = compareHeader(a, aOffset, b, bOffset);
+        if (nulls != NON_NULL) {
+            return nulls;
+        }
+        return Long.compare(a.getLong(aOffset + HEADER_SIZE), b.getLong(bOffset + HEADER_SIZE));
+    }
+
+    /**
+     * Returns the size of serialized {@link LongOption}.
+     * @param buffer the buffer which contains the value
+     * @param offset the offset of the value
+     * @return the size in bytes
+     */
+    public static int sizeOfLong(ByteBuffer buffer, int offset) {
+        return sizeOfOptional(buffer, offset, Long.BYTES);
+    }
+
+    /**
+     * Compares two serialized {@link FloatOption}s.
+     * @param a the buffer which contains the first value
+     * @param aOffset the offset of the first value
+     * @param b the buffer which contains the second value
+     * @param bOffset the offset of the second value
+     * @return the comparison result
+     * @see ValueOptionSerDe#compareFloat(java.io.DataInput, java.io.DataInput)
+     */
+    public static int compareFloat(ByteBuffer a, int aOffset, ByteBuffer b, int bOffset) {
+        int nulls = compareHeader(a, aOffset, b, bOffset);
+        if (nulls != NON_NULL) {
+            return nulls;
+        }
+        return Float.compare(a.getFloat(aOffset + HEADER_SIZE), b.getFloat(bOffset + HEADER_SIZE));
+    }
+
+    /**
+     * Returns the size of serialized {@link FloatOption}.
+     * @param buffer the buffer which contains the value
+     * @param offset the offset of the value
+     * @return the size in bytes
+     */
+    public static int sizeOfFloat(ByteBuffer buffer, int offset) {
+        return sizeOfOptional(buffer, offset, Float.BYTES);
+    }
+
+    /**
+     * Compares two serialized {@link DoubleOption}s.
+     * @param a the buffer which contains the first value
+     * @param aOffset the offset of the first value
+     * @param b the buffer which contains the second value
+     * @param bOffset the offset of the second value
+     * @return the comparison result
+     * @see ValueOptionSerDe#compareDouble(java.io.DataInput, java.io.DataInput)
+     */
+    public static int compareDouble(ByteBuffer a, int aOffset, ByteBuffer b, int bOffset) {
+        int nulls = compareHeader(a, aOffset, b, bOffset);
+        if (nulls != NON_NULL) {
+            return nulls;
+        }
+        return Double.compare(a.getDouble(aOffset + HEADER_SIZE), b.getDouble(bOffset + HEADER_SIZE));
+    }
+
+    /**
+     * Returns the size of serialized {@link DoubleOption}.
+     * @param buffer the buffer which contains the value
+     * @param offset the offset of the value
+     * @return the size in bytes
+     */
+    public static int sizeOfDouble(ByteBuffer buffer, int offset) {
+        return sizeOfOptional(buffer, offset, Double.BYTES);
+    }
+
+    /**
+     * Compares two serialized {@link DateOption}s.
+     * @param a the buffer which contains the first value
+     * @param aOffset the offset of the first value
+     * @param b the buffer which contains the second value
+     * @param bOffset the offset of the second value
+     * @return the comparison result
+     * @see ValueOptionSerDe#compareDate(java.io.DataInput, java.io.DataInput)
+     */
+    public static int compareDate(ByteBuffer a, int aOffset, ByteBuffer b, int bOffset) {
+        return Integer.compare(a.getInt(aOffset), b.getInt(bOffset));
+    }
+
+    /**
+     * Returns the size of serialized {@link DateOption}.
+     * @param buffer the buffer which contains the value
+     * @param offset the offset of the value
+     * @return the size in bytes
+     */
+    public static int sizeOfDate(ByteBuffer buffer, int offset) {
+        return Integer.BYTES;
+    }
+
+    /**
+     * Compares two serialized {@link DateTimeOption}s.
+     * @param a the buffer which contains the first value
+     * @param aOffset the offset of the first value
+     * @param b the buffer which contains the second value
+     * @param bOffset the offset of the second value
+     * @return the comparison result
+     * @see ValueOptionSerDe#compareDateTime(java.io.DataInput, java.io.DataInput)
+     */
+    public static int compareDateTime(ByteBuffer a, int aOffset, ByteBuffer b, int bOffset) {
+        return Long.compare(a.getLong(aOffset), b.getLong(bOffset));
+    }
+
+    /**
+     * Returns the size of serialized {@link DateTimeOption}.
+     * @param buffer the buffer which contains the value
+     * @param offset the offset of the value
+     * @return the size in bytes
+     */
+    public static int sizeOfDateTime(ByteBuffer buffer, int offset) {
+        return Long.BYTES;
+    }
+
+    /**
+     * Compares two serialized {@link StringOption}s.
+     * The string bodies are compared 8 bytes at a time.
+     * @param a the buffer which contains the first value
+     * @param aOffset the offset of the first value
+     * @param b the buffer which contains the second value
+     * @param bOffset the offset of the second value
+     * @return the comparison result
+     * @see ValueOptionSerDe#compareString(java.io.DataInput, java.io.DataInput)
+     */
+    public static int compareString(ByteBuffer a, int aOffset, ByteBuffer b, int bOffset) {
+        int aLength = getCompactInt(a, aOffset);
+        int bLength = getCompactInt(b, bOffset);
+        if (aLength == UNSIGNED_NULL) {
+            return bLength == UNSIGNED_NULL ? 0 : -1;
+        } else if (bLength == UNSIGNED_NULL) {
+            return +1;
+        }
+        return ByteBufferComparator.compareBytes(
+                a, aOffset + sizeOfCompactInt(a, aOffset), aLength,
+                b, bOffset + sizeOfCompactInt(b, bOffset), bLength);
+    }
+
+    /**
+     * Returns the size of serialized {@link StringOption}.
+     * @param buffer the buffer which contains the value
+     * @param offset the offset of the value
+     * @return the size in bytes
+     */
+    public static int sizeOfString(ByteBuffer buffer, int offset) {
+        int length = getCompactInt(buffer, offset);
+        return sizeOfCompactInt(buffer, offset) + Math.max(length, 0);
+    }
+
+    /**
+     * Compares two serialized {@link DecimalOption}s.
+     * @param a the buffer which contains the first value
+     * @param aOffset the offset of the first value
+     * @param b the buffer which contains the second value
+     * @param bOffset the offset of the second value
+     * @return the comparison result
+     * @see ValueOptionSerDe#compareDecimal(java.io.DataInput, java.io.DataInput)
+     */
+    public static int compareDecimal(ByteBuffer a, int aOffset, ByteBuffer b, int bOffset) {
+        byte aHead = a.get(aOffset);
+        byte bHead = b.get(bOffset);
+        if (aHead == DECIMAL_NULL) {
+            return bHead == DECIMAL_NULL ? 0 : -1;
+        } else if (bHead == DECIMAL_NULL) {
+            return +1;
+        }
+        if ((aHead & DECIMAL_COMPACT_MASK) != 0 && (bHead & DECIMAL_COMPACT_MASK) != 0) {
+            int aScaleOffset = aOffset + HEADER_SIZE;
+            int bScaleOffset = bOffset + HEADER_SIZE;
+            int aScale = getCompactInt(a, aScaleOffset);
+            int bScale = getCompactInt(b, bScaleOffset);
+            if (aScale == bScale) {
+                // fast path: compares unscaled values directly
+                long aUnscaled = getCompactLong(a, aScaleOffset + sizeOfCompactInt(a, aScaleOffset));
+                long bUnscaled = getCompactLong(b, bScaleOffset + sizeOfCompactInt(b, bScaleOffset));
+                return Long.compare(
+                        (aHead & DECIMAL_PLUS_MASK) != 0 ? aUnscaled : -aUnscaled,
+                        (bHead & DECIMAL_PLUS_MASK) != 0 ? bUnscaled : -bUnscaled);
+            }
+        }
+        return getDecimal(a, aOffset).compareTo(getDecimal(b, bOffset));
+    }
+
+    /**
+     * Returns the size of serialized {@link DecimalOption}.
+     * @param buffer the buffer which contains the value
+     * @param offset the offset of the value
+     * @return the size in bytes
+     */
+    public static int sizeOfDecimal(ByteBuffer buffer, int offset) {
+        byte head = buffer.get(offset);
+        if (head == DECIMAL_NULL) {
+            return HEADER_SIZE;
+        }
+        int scaleOffset = offset + HEADER_SIZE;
+        int bodyOffset = scaleOffset + sizeOfCompactInt(buffer, scaleOffset);
+        if ((head & DECIMAL_COMPACT_MASK) != 0) {
+            return bodyOffset + sizeOfCompactInt(buffer, bodyOffset) - offset;
+        } else {
+            int length = getCompactInt(buffer, bodyOffset);
+            return bodyOffset + sizeOfCompactInt(buffer, bodyOffset) + length - offset;
+        }
+    }
+
+    private static BigDecimal getDecimal(ByteBuffer buffer, int offset) {
+        byte head = buffer.get(offset);
+        assert head != DECIMAL_NULL;
+        boolean plus = (head & DECIMAL_PLUS_MASK) != 0;
+        int scaleOffset = offset + HEADER_SIZE;
+        int scale = getCompactInt(buffer, scaleOffset);
+        int bodyOffset = scaleOffset + sizeOfCompactInt(buffer, scaleOffset);
+        if ((head & DECIMAL_COMPACT_MASK) != 0) {
+            long unscaled = getCompactLong(buffer, bodyOffset);
+            return BigDecimal.valueOf(plus ? unscaled : -unscaled, scale);
+        } else {
+            int length = getCompactInt(buffer, bodyOffset);
+            int bytesOffset = bodyOffset + sizeOfCompactInt(buffer, bodyOffset);
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = buffer.get(bytesOffset + i);
+            }
+            return new BigDecimal(new BigInteger(plus ? +1 : -1, bytes), scale);
+        }
+    }
+
+    private static int compareHeader(ByteBuffer a, int aOffset, ByteBuffer b, int bOffset) {
+        byte aHeader = a.get(aOffset);
+        byte bHeader = b.get(bOffset);
+        if (aHeader == NULL_HEADER) {
+            return bHeader == NULL_HEADER ? 0 : -1;
+        } else if (bHeader == NULL_HEADER) {
+            return +1;
+        }
+        return NON_NULL;
+    }
+
+    private static int sizeOfOptional(ByteBuffer buffer, int offset, int valueSize) {
+        return buffer.get(offset) == NULL_HEADER ? HEADER_SIZE : HEADER_SIZE + valueSize;
+    }
+
+    private static int sizeOfCompactInt(ByteBuffer buffer, int offset) {
+        byte b0 = buffer.get(offset);
+        if (b0 >= COMPACT_INT_HEAD_MIN) {
+            return Byte.BYTES;
+        }
+        switch (COMPACT_INT_HEAD_MIN - b0) {
+        case 1:
+            return Byte.BYTES + Byte.BYTES;
+        case 2:
+            return Byte.BYTES + Short.BYTES;
+        case 3:
+            return Byte.BYTES + Integer.BYTES;
+        case 4:
+            return Byte.BYTES + Long.BYTES;
+        default:
+            throw new AssertionError();
+        }
+    }
+
+    private static int getCompactInt(ByteBuffer buffer, int offset) {
+        byte b0 = buffer.get(offset);
+        if (b0 >= COMPACT_INT_HEAD_MIN) {
+            return b0;
+        }
+        switch (COMPACT_INT_HEAD_MIN - b0) {
+        case 1:
+            return buffer.get(offset + 1);
+        case 2:
+            return buffer.getShort(offset + 1);
+        case 3:
+            return buffer.getInt(offset + 1);
+        case 4:
+            throw new NumberFormatException();
+        default:
+            throw new AssertionError();
+        }
+    }
+
+    private static long getCompactLong(ByteBuffer buffer, int offset) {
+        byte b0 = buffer.get(offset);
+        if (b0 >= COMPACT_INT_HEAD_MIN) {
+            return b0;
+        }
+        switch (COMPACT_INT_HEAD_MIN - b0) {
+        case 1:
+            return buffer.get(offset + 1);
+        case 2:
+            return buffer.getShort(offset + 1);
+        case 3:
+            return buffer.getInt(offset + 1);
+        case 4:
+            return buffer.getLong(offset + 1);
+        default:
+            throw new AssertionError();
+        }
+    }
+}
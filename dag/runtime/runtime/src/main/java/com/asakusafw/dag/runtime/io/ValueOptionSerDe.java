@@ -47,9 +47,9 @@ import com.asakusafw.runtime.value.ValueOption;
 @SuppressWarnings("deprecation")
 public final class ValueOptionSerDe {
 
-    private static final int UNSIGNED_NULL = -1;
+    static final int UNSIGNED_NULL = -1;
 
-    private static final byte NULL_HEADER = 0;
+    static final byte NULL_HEADER = 0;
 
     private static final byte NON_NULL_HEADER = 1;
 
@@ -701,13 +701,13 @@ public final class ValueOptionSerDe {
         }
     }
 
-    private static final byte DECIMAL_NULL = 0;
+    static final byte DECIMAL_NULL = 0;
 
-    private static final byte DECIMAL_PRESENT_MASK = 1 << 0;
+    static final byte DECIMAL_PRESENT_MASK = 1 << 0;
 
-    private static final byte DECIMAL_PLUS_MASK = 1 << 1;
+    static final byte DECIMAL_PLUS_MASK = 1 << 1;
 
-    private static final byte DECIMAL_COMPACT_MASK = 1 << 2;
+    static final byte DECIMAL_COMPACT_MASK = 1 << 2;
 
     /**
      * Serializes {@link DecimalOption} object.
@@ -882,7 +882,7 @@ public final class ValueOptionSerDe {
     }
 
     private static final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial(() -> new byte[256]);
-    private static byte[] getLocalBuffer(int minSize, int maxSize) {
+    static byte[] getLocalBuffer(int minSize, int maxSize) {
         byte[] buffer = BUFFERS.get();
         if (buffer.length < minSize || buffer.length > maxSize) {
             buffer = new byte[minSize];
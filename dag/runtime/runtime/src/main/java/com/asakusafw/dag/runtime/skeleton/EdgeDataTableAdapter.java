@@ -17,32 +17,41 @@ package com.asakusafw.dag.runtime.skeleton;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.function.Supplier;
 
 import com.asakusafw.dag.api.processor.ObjectReader;
 import com.asakusafw.dag.api.processor.VertexProcessorContext;
 import com.asakusafw.dag.runtime.adapter.DataTable;
-import com.asakusafw.dag.runtime.adapter.DataTable.Builder;
 import com.asakusafw.dag.runtime.adapter.DataTableAdapter;
 import com.asakusafw.dag.runtime.adapter.KeyBuffer;
 import com.asakusafw.dag.runtime.adapter.KeyExtractor;
 import com.asakusafw.dag.runtime.adapter.ObjectCopier;
 import com.asakusafw.dag.runtime.table.BasicDataTable;
 import com.asakusafw.dag.runtime.table.BasicDataTable.KeyValidator;
+import com.asakusafw.dag.runtime.table.DataTableCache;
 import com.asakusafw.lang.utils.common.Arguments;
 import com.asakusafw.lang.utils.common.Invariants;
 import com.asakusafw.runtime.core.GroupView;
 
 /**
  * {@link DataTableAdapter} for edge output.
+ * If {@link DataTableCache} is available, the tables which are bound with classes are shared between vertices
+ * which read the same {@link com.asakusafw.dag.api.processor.EdgeIoProcessorContext#getInputSource(String) source},
+ * and also between iterative rounds if the source is
+ * {@link com.asakusafw.dag.api.processor.EdgeIoProcessorContext#isInputSourceInvariant(String) invariant}.
+ * If {@link VertexProcessorContext#getExecutor() executor} is available, the tables which have keys are built by
+ * using the helper threads.
+ * If the {@link ObjectReader#getObjectCount() number of input objects} is known, the tables are pre-sized for them.
  * @since 0.4.0
- * @version 0.4.1
+ * @version 0.5.5
  */
 public class EdgeDataTableAdapter implements DataTableAdapter {
 
@@ -55,6 +64,18 @@ public class EdgeDataTableAdapter implements DataTableAdapter {
 
     static final BasicDataTable.ValidationLevel DEFAULT_VIEW_VALIDATE = BasicDataTable.ValidationLevel.COUNT;
 
+    /**
+     * The configuration key of the max number of threads for building each data table.
+     * Tables are built in the current thread if this is {@code 1}.
+     * This never exceeds {@link VertexProcessorContext#getExecutorParallelism() the number of executor threads}.
+     * @since 0.5.5
+     */
+    public static final String KEY_VIEW_PARALLELISM = "com.asakusafw.dag.view.parallelism"; //$NON-NLS-1$
+
+    static final int DEFAULT_VIEW_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    private static final int MAX_EXPECTED_COUNT = Integer.MAX_VALUE - 8;
+
     private final VertexProcessorContext context;
 
     private final Supplier<? extends KeyBuffer> keyBufferFactory;
@@ -63,8 +84,12 @@ public class EdgeDataTableAdapter implements DataTableAdapter {
 
     private final Map<String, DataTable<?>> resolved = new LinkedHashMap<>();
 
+    private final Map<Object, DataTableCache.Reader> readers = new LinkedHashMap<>();
+
     private final BasicDataTable.ValidationLevel validationLevel;
 
+    private final int parallelism;
+
     /**
      * Creates a new instance.
      * @param context the current context
@@ -75,6 +100,8 @@ public class EdgeDataTableAdapter implements DataTableAdapter {
         this.keyBufferFactory = Util.getKeyBufferSupplier(context);
         this.validationLevel = Util.getProperty(context, "valiation level", //$NON-NLS-1$
                 KEY_VIEW_VALIDATE, DEFAULT_VIEW_VALIDATE);
+        this.parallelism = Util.getProperty(context, "table parallelism", //$NON-NLS-1$
+                KEY_VIEW_PARALLELISM, DEFAULT_VIEW_PARALLELISM);
     }
 
     /**
@@ -109,13 +136,21 @@ public class EdgeDataTableAdapter implements DataTableAdapter {
             Supplier<? extends ObjectCopier<?>> copier,
             Supplier<? extends Comparator<?>> comparator,
             Class<?>... keyElementTypes) {
+        return bind0(tableId, inputId, keyExtractor, copier, comparator, keyElementTypes, null);
+    }
+
+    private EdgeDataTableAdapter bind0(
+            String tableId, String inputId,
+            Supplier<? extends KeyExtractor<?>> keyExtractor,
+            Supplier<? extends ObjectCopier<?>> copier,
+            Supplier<? extends Comparator<?>> comparator,
+            Class<?>[] keyElementTypes,
+            Object signature) {
         Arguments.requireNonNull(tableId);
         Arguments.requireNonNull(inputId);
         Arguments.requireNonNull(copier);
         KeyValidator keyValidator = toValidator(keyElementTypes);
-        Supplier<? extends DataTable.Builder<Object>> tableBuilders = () -> new BasicDataTable.Builder<>(
-                new HashMap<>(), keyBufferFactory, keyValidator);
-        specs.add(new Spec(tableId, inputId, tableBuilders, keyExtractor, copier, comparator));
+        specs.add(new Spec(tableId, inputId, keyValidator, keyExtractor, copier, comparator, signature));
         return this;
     }
 
@@ -142,7 +177,7 @@ public class EdgeDataTableAdapter implements DataTableAdapter {
         Arguments.requireNonNull(tableId);
         Arguments.requireNonNull(inputId);
         Arguments.requireNonNull(tableId);
-        return bind(tableId, inputId, Util.toSupplier(keyExtractor), Util.toSupplier(copier));
+        return bind(tableId, inputId, keyExtractor, copier, null, (Class<?>[]) null);
     }
 
     /**
@@ -165,34 +200,94 @@ public class EdgeDataTableAdapter implements DataTableAdapter {
         Arguments.requireNonNull(tableId);
         Arguments.requireNonNull(inputId);
         Arguments.requireNonNull(tableId);
-        return bind(tableId, inputId,
+        // the generated classes also identify the table contents
+        Object signature = Arrays.asList(
+                keyExtractor, copier, comparator,
+                keyElementTypes == null ? null : Arrays.asList(keyElementTypes));
+        return bind0(tableId, inputId,
                 Util.toSupplier(keyExtractor), Util.toSupplier(copier), Util.toSupplier(comparator),
-                keyElementTypes);
+                keyElementTypes, signature);
     }
 
     @Override
     public void initialize() throws IOException, InterruptedException {
+        DataTableCache cache = context.getResource(DataTableCache.class).orElse(null);
         for (Spec spec : specs) {
-            ObjectCopier<Object> copier = spec.copier.get();
-            KeyExtractor<Object> extractor = spec.keyBuilder == null ? null : spec.keyBuilder.get();
-            DataTable.Builder<Object> table = spec.tableBuilder.get();
-            KeyBuffer key = table.newKeyBuffer();
-            key.clear();
-            try (ObjectReader reader = (ObjectReader) context.getInput(spec.inputId)) {
-                while (reader.nextObject()) {
-                    Object object = copier.newCopy(reader.getObject());
-                    if (extractor != null) {
-                        key.clear();
-                        extractor.buildKey(key, object);
-                    }
-                    table.add(key, object);
+            Object source = cache == null ? null : context.getInputSource(spec.inputId).orElse(null);
+            DataTableCache.Reader reader = null;
+            if (source != null) {
+                // opens the reader even if the table is not shared, to notify that this vertex has read the source
+                reader = readers.get(source);
+                if (reader == null) {
+                    reader = cache.open(source,
+                            context.getInputSourceReaders(spec.inputId).orElse(-1),
+                            context.isInputSourceInvariant(spec.inputId));
+                    readers.put(source, reader);
                 }
             }
-            Comparator<Object> comparator = spec.comparator == null ? null : spec.comparator.get();
-            resolved.put(spec.tableId, table.build(comparator));
+            if (reader == null || spec.signature == null) {
+                resolved.put(spec.tableId, build(spec));
+            } else {
+                resolved.put(spec.tableId, reader.acquire(spec.signature, () -> build(spec)));
+            }
         }
     }
 
+    private DataTable<Object> build(Spec spec) throws IOException, InterruptedException {
+        try (ObjectReader reader = (ObjectReader) context.getInput(spec.inputId)) {
+            long count = reader.getObjectCount().orElse(-1L);
+            Executor executor = context.getExecutor().orElse(null);
+            int threads = Math.min(parallelism, context.getExecutorParallelism());
+            if (threads > 1 && executor != null && spec.keyBuilder != null
+                    && (count < 0 || count >= ParallelTableLoader.DEFAULT_BATCH_SIZE)) {
+                return buildParallel(spec, reader, count, executor, threads);
+            }
+            return build(spec, reader, count);
+        }
+    }
+
+    private DataTable<Object> build(
+            Spec spec, ObjectReader reader, long count) throws IOException, InterruptedException {
+        ObjectCopier<Object> copier = spec.copier.get();
+        KeyExtractor<Object> extractor = spec.keyBuilder == null ? null : spec.keyBuilder.get();
+        DataTable.Builder<Object> table;
+        if (0 <= count && count <= MAX_EXPECTED_COUNT) {
+            table = new BasicDataTable.CompactBuilder<>((int) count, keyBufferFactory, spec.keyValidator);
+        } else {
+            table = new BasicDataTable.Builder<>(new HashMap<>(), keyBufferFactory, spec.keyValidator);
+        }
+        KeyBuffer key = table.newKeyBuffer();
+        key.clear();
+        while (reader.nextObject()) {
+            Object object = copier.newCopy(reader.getObject());
+            if (extractor != null) {
+                key.clear();
+                extractor.buildKey(key, object);
+            }
+            table.add(key, object);
+        }
+        Comparator<Object> comparator = spec.comparator == null ? null : spec.comparator.get();
+        return table.build(comparator);
+    }
+
+    private DataTable<Object> buildParallel(
+            Spec spec, ObjectReader reader, long count,
+            Executor executor, int threads) throws IOException, InterruptedException {
+        BasicDataTable.ConcurrentBuilder<Object> table = new BasicDataTable.ConcurrentBuilder<>(
+                0 <= count && count <= MAX_EXPECTED_COUNT ? (int) count : 16,
+                keyBufferFactory, spec.keyValidator);
+        Comparator<Object> comparator = spec.comparator == null ? null : spec.comparator.get();
+        return new ParallelTableLoader(executor, threads).load(
+                reader, spec.copier.get(), spec.keyBuilder, table, comparator);
+    }
+
+    @Override
+    public void close() throws IOException, InterruptedException {
+        resolved.clear();
+        readers.values().forEach(DataTableCache.Reader::close);
+        readers.clear();
+    }
+
     @Override
     public Set<String> getIds() {
         return resolved.keySet();
@@ -211,7 +306,7 @@ public class EdgeDataTableAdapter implements DataTableAdapter {
 
         final String inputId;
 
-        final Supplier<? extends DataTable.Builder<Object>> tableBuilder;
+        final KeyValidator keyValidator;
 
         final Supplier<? extends KeyExtractor<Object>> keyBuilder;
 
@@ -219,18 +314,22 @@ public class EdgeDataTableAdapter implements DataTableAdapter {
 
         final Supplier<? extends Comparator<Object>> comparator;
 
+        final Object signature;
+
         @SuppressWarnings("unchecked")
         Spec(String tableId, String inputId,
-                Supplier<? extends DataTable.Builder<?>> tableBuilder,
+                KeyValidator keyValidator,
                 Supplier<? extends KeyExtractor<?>> keyBuilder,
                 Supplier<? extends ObjectCopier<?>> copier,
-                Supplier<? extends Comparator<?>> comparator) {
+                Supplier<? extends Comparator<?>> comparator,
+                Object signature) {
             this.tableId = tableId;
             this.inputId = inputId;
-            this.tableBuilder = (Supplier<? extends Builder<Object>>) tableBuilder;
+            this.keyValidator = keyValidator;
             this.keyBuilder = (Supplier<? extends KeyExtractor<Object>>) keyBuilder;
             this.copier = (Supplier<? extends ObjectCopier<Object>>) copier;
             this.comparator = (Supplier<? extends Comparator<Object>>) comparator;
+            this.signature = signature;
         }
     }
 }
@@ -0,0 +1,191 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.runtime.skeleton;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import com.asakusafw.dag.api.processor.ObjectReader;
+import com.asakusafw.dag.runtime.adapter.DataTable;
+import com.asakusafw.dag.runtime.adapter.KeyBuffer;
+import com.asakusafw.dag.runtime.adapter.KeyExtractor;
+import com.asakusafw.dag.runtime.adapter.ObjectCopier;
+import com.asakusafw.dag.runtime.table.BasicDataTable;
+import com.asakusafw.lang.utils.common.Arguments;
+import com.asakusafw.lang.utils.common.Lang;
+
+/**
+ * Loads {@link DataTable} by using helper threads.
+ * The current thread reads and copies objects, and the helper threads build their keys and put them into the table.
+ * Each batch of objects is put into its own {@link BasicDataTable.ConcurrentBuilder.Chunk chunk},
+ * so that the helper threads never contend on the individual groups.
+ * @since 0.5.5
+ */
+final class ParallelTableLoader {
+
+    static final int DEFAULT_BATCH_SIZE = 1024;
+
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+
+    private final Executor executor;
+
+    private final int parallelism;
+
+    private final int batchSize;
+
+    ParallelTableLoader(Executor executor, int parallelism) {
+        this(executor, parallelism, DEFAULT_BATCH_SIZE);
+    }
+
+    ParallelTableLoader(Executor executor, int parallelism, int batchSize) {
+        Arguments.requireNonNull(executor);
+        Arguments.require(parallelism >= 1);
+        Arguments.require(batchSize >= 1);
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Loads a table.
+     * @param <T> the element type
+     * @param reader the source reader
+     * @param copier the object copier
+     * @param extractors the key extractor supplier
+     * @param table the destination table builder
+     * @param comparator the element comparator (nullable)
+     * @return the built table
+     * @throws IOException if I/O error was occurred while loading the table
+     * @throws InterruptedException if interrupted while loading the table
+     */
+    <T> DataTable<T> load(
+            ObjectReader reader, ObjectCopier<T> copier,
+            Supplier<? extends KeyExtractor<T>> extractors,
+            BasicDataTable.ConcurrentBuilder<T> table,
+            Comparator<? super T> comparator) throws IOException, InterruptedException {
+        BlockingQueue<List<T>> queue = new ArrayBlockingQueue<>(parallelism * 2);
+        AtomicBoolean closed = new AtomicBoolean();
+        List<CompletableFuture<?>> workers = new ArrayList<>();
+        try {
+            List<T> batch = new ArrayList<>(batchSize);
+            while (reader.nextObject()) {
+                @SuppressWarnings("unchecked")
+                T object = copier.newCopy((T) reader.getObject());
+                batch.add(object);
+                if (batch.size() >= batchSize) {
+                    if (workers.isEmpty()) {
+                        // starts helper threads only for large inputs
+                        for (int i = 0; i < parallelism; i++) {
+                            workers.add(CompletableFuture.runAsync(
+                                    () -> consume(queue, closed, extractors.get(), table),
+                                    executor));
+                        }
+                    }
+                    offer(queue, batch, workers);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            put(batch, table.newKeyBuffer(), extractors.get(), table);
+        } catch (Throwable t) {
+            closed.set(true);
+            queue.clear();
+            try {
+                await(workers);
+            } catch (Throwable e) {
+                if (e != t) {
+                    t.addSuppressed(e);
+                }
+            }
+            throw t;
+        }
+        closed.set(true);
+        await(workers);
+        return table.build(comparator, executor, parallelism);
+    }
+
+    private static <T> void consume(
+            BlockingQueue<List<T>> queue, AtomicBoolean closed,
+            KeyExtractor<T> extractor, BasicDataTable.ConcurrentBuilder<T> table) {
+        KeyBuffer key = table.newKeyBuffer();
+        try {
+            while (true) {
+                // the queue never grows after closed, so that workers started late need not wait for it
+                boolean last = closed.get();
+                List<T> batch = last ? queue.poll() : queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (batch != null) {
+                    put(batch, key, extractor, table);
+                } else if (last) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private static <T> void put(
+            List<T> batch, KeyBuffer key,
+            KeyExtractor<T> extractor, BasicDataTable.ConcurrentBuilder<T> table) {
+        BasicDataTable.ConcurrentBuilder.Chunk<T> chunk = table.newChunk(batch.size());
+        for (T object : batch) {
+            key.clear();
+            extractor.buildKey(key, object);
+            chunk.add(key, object);
+        }
+    }
+
+    private static <T> void offer(
+            BlockingQueue<List<T>> queue, List<T> batch,
+            List<CompletableFuture<?>> workers) throws IOException, InterruptedException {
+        while (queue.offer(batch, POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS) == false) {
+            for (CompletableFuture<?> worker : workers) {
+                if (worker.isCompletedExceptionally()) {
+                    await(worker);
+                }
+            }
+        }
+    }
+
+    private static void await(List<CompletableFuture<?>> workers) throws IOException, InterruptedException {
+        for (CompletableFuture<?> worker : workers) {
+            await(worker);
+        }
+    }
+
+    private static void await(CompletableFuture<?> worker) throws IOException, InterruptedException {
+        try {
+            worker.get();
+        } catch (ExecutionException e) {
+            Throwable t = e.getCause();
+            Lang.rethrow(t, Error.class);
+            Lang.rethrow(t, RuntimeException.class);
+            Lang.rethrow(t, IOException.class);
+            Lang.rethrow(t, InterruptedException.class);
+            throw new IOException(t);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.runtime.skeleton;
+
+import com.asakusafw.dag.api.processor.extension.OperatorProfiler;
+import com.asakusafw.runtime.core.Result;
+
+/**
+ * A {@link Result} which measures elapsed time of the target operator by sampling.
+ * @param <T> the input type
+ * @since 0.5.5
+ */
+final class ProfiledResult<T> implements Result<T> {
+
+    private final Result<T> delegate;
+
+    private final Sampler sampler;
+
+    private final OperatorProfiler.Probe probe;
+
+    /**
+     * Creates a new instance.
+     * @param delegate the target operator
+     * @param sampler the sampler, which must be shared in the same operation
+     * @param probe the destination probe
+     */
+    ProfiledResult(Result<T> delegate, Sampler sampler, OperatorProfiler.Probe probe) {
+        this.delegate = delegate;
+        this.sampler = sampler;
+        this.probe = probe;
+    }
+
+    @Override
+    public void add(T result) {
+        Sampler s = sampler;
+        // only the outermost operator decides whether the current record is sampled or not
+        if (s.depth++ == 0) {
+            s.active = s.next();
+        }
+        try {
+            if (s.active) {
+                addSampled(s, result);
+            } else {
+                delegate.add(result);
+            }
+        } finally {
+            s.depth--;
+        }
+    }
+
+    private void addSampled(Sampler s, T result) {
+        long saved = s.children;
+        s.children = 0L;
+        long start = System.nanoTime();
+        try {
+            delegate.add(result);
+        } finally {
+            long total = System.nanoTime() - start;
+            probe.sampled(total - s.children, total);
+            s.children = saved + total;
+        }
+    }
+
+    /**
+     * Decides which records are sampled.
+     * This is not thread-safe, and must be shared between operators in the same operation.
+     * @since 0.5.5
+     */
+    static final class Sampler {
+
+        private final int interval;
+
+        private int countdown;
+
+        int depth;
+
+        boolean active;
+
+        long children;
+
+        /**
+         * Creates a new instance.
+         * @param interval the sampling interval in records
+         */
+        Sampler(int interval) {
+            this.interval = Math.max(interval, 1);
+            this.countdown = this.interval;
+        }
+
+        boolean next() {
+            if (--countdown <= 0) {
+                countdown = interval;
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -35,6 +35,7 @@ import com.asakusafw.dag.api.processor.TaskSchedule;
 import com.asakusafw.dag.api.processor.VertexProcessor;
 import com.asakusafw.dag.api.processor.VertexProcessorContext;
 import com.asakusafw.dag.api.processor.basic.ForwardProcessorContext;
+import com.asakusafw.dag.api.processor.extension.OperatorProfiler;
 import com.asakusafw.dag.runtime.adapter.DataTable;
 import com.asakusafw.dag.runtime.adapter.DataTableAdapter;
 import com.asakusafw.dag.runtime.adapter.InputAdapter;
@@ -52,6 +53,7 @@ import com.asakusafw.runtime.core.Result;
 /**
  * An adapter implementation of {@link VertexProcessor}s.
  * @since 0.4.0
+ * @version 0.5.5
  * @see #input(Class)
  * @see #dataTable(Class)
  * @see #operation(Class)
@@ -75,6 +77,8 @@ public class VertexAdapter implements VertexProcessor {
 
     private final AtomicReference<ProcessorContext> rootContext = new AtomicReference<>();
 
+    private final AtomicReference<String> vertexId = new AtomicReference<>();
+
     private final AtomicReference<InputAdapter<?>> inputAdapter = new AtomicReference<>();
 
     private final List<DataTableAdapter> dataTableAdapters = Collections.synchronizedList(new ArrayList<>());
@@ -210,6 +214,8 @@ public class VertexAdapter implements VertexProcessor {
         try (Initializer<Closer> initializer = new Initializer<>(closer)) {
             rootContext.set(context.getDetached());
             closer.add(() -> rootContext.set(null));
+            vertexId.set(context.getVertexId());
+            closer.add(() -> vertexId.set(null));
             doInitialize(inputAdapterProvider, inputAdapter::set, context);
             doInitialize(operationAdapterProvider, operationAdapter::set, context);
             doInitialize(dataTableAdapterProviders, dataTableAdapters::add, context);
@@ -254,6 +260,7 @@ public class VertexAdapter implements VertexProcessor {
         InputHandler input = inputAdapter.get().newHandler();
         Operation operation = operationAdapter.get().newInstance(new OperationContext(
                 Invariants.requireNonNull(rootContext.get()),
+                vertexId.get(),
                 outputs,
                 dataTableAdapters));
         return new GenericTaskProcessor<>(input, operation, outputs);
@@ -268,17 +275,28 @@ public class VertexAdapter implements VertexProcessor {
 
         private final ProcessorContext forward;
 
+        private final String vertexId;
+
         private final List<? extends OutputHandler<?>> outputs;
 
         private final List<? extends DataTableAdapter> dataTables;
 
+        private final OperatorProfiler profiler;
+
+        private ProfiledResult.Sampler sampler;
+
         OperationContext(
                 ProcessorContext forward,
+                String vertexId,
                 List<? extends OutputHandler<?>> outputs,
                 List<? extends DataTableAdapter> dataTables) {
             this.forward = forward;
+            this.vertexId = vertexId;
             this.outputs = outputs;
             this.dataTables = dataTables;
+            this.profiler = forward.getResource(OperatorProfiler.class)
+                    .filter(it -> it.getSamplingInterval() > 0)
+                    .orElse(OperatorProfiler.NULL);
         }
 
         @Override
@@ -305,5 +323,17 @@ public class VertexAdapter implements VertexProcessor {
             }
             throw new IllegalStateException(id);
         }
+
+        @Override
+        public <T> Result<T> decorate(Result<T> operator, String label) {
+            if (profiler == OperatorProfiler.NULL) {
+                return operator;
+            }
+            if (sampler == null) {
+                // operators in the same operation must share the sampler
+                sampler = new ProfiledResult.Sampler(profiler.getSamplingInterval());
+            }
+            return new ProfiledResult<>(operator, sampler, profiler.getProbe(vertexId, label));
+        }
     }
 }
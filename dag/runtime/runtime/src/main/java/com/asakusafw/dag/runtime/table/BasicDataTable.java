@@ -16,8 +16,10 @@
 package com.asakusafw.dag.runtime.table;
 
 import java.text.MessageFormat;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -25,20 +27,34 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import com.asakusafw.dag.runtime.adapter.DataTable;
 import com.asakusafw.dag.runtime.adapter.KeyBuffer;
+import com.asakusafw.lang.utils.common.Arguments;
+import com.asakusafw.lang.utils.common.Lang;
 
 /**
  * Basic implementation of {@link DataTable}.
  * @param <T> the data type
  * @since 0.4.0
- * @version 0.4.1
+ * @version 0.5.5
  */
 public class BasicDataTable<T> implements DataTable<T> {
 
+    /**
+     * The max number of groups to pre-size the tables.
+     * The number of elements only gives an upper bound of the number of distinct keys,
+     * so that we never pre-size the tables over this.
+     */
+    static final int MAX_EXPECTED_GROUPS = 1 << 16;
+
     private final Map<KeyBuffer.View, ? extends List<T>> entity;
 
     private final Supplier<? extends KeyBuffer> buffers;
@@ -329,6 +345,364 @@ public class BasicDataTable<T> implements DataTable<T> {
         }
     }
 
+    /**
+     * A thread-safe builder for {@link BasicDataTable}.
+     * Like {@link CompactBuilder}, this puts all elements into a single array when building the table.
+     * Each thread should add elements through its own {@link #newChunk(int) chunk} to avoid contention.
+     * @param <T> the element type
+     * @since 0.5.5
+     */
+    public static class ConcurrentBuilder<T> implements DataTable.Builder<T> {
+
+        private final Map<KeyBuffer.View, Group<T>> entity;
+
+        private final Supplier<? extends KeyBuffer> buffers;
+
+        private final KeyValidator validator;
+
+        private final List<Chunk<T>> chunks = new ArrayList<>();
+
+        private Chunk<T> shared;
+
+        /**
+         * Creates a new instance.
+         * @param buffers the key buffer supplier
+         * @param validator the key validator
+         */
+        public ConcurrentBuilder(Supplier<? extends KeyBuffer> buffers, KeyValidator validator) {
+            this(16, buffers, validator);
+        }
+
+        /**
+         * Creates a new instance.
+         * @param expectedCount the expected number of elements
+         * @param buffers the key buffer supplier
+         * @param validator the key validator
+         */
+        public ConcurrentBuilder(int expectedCount, Supplier<? extends KeyBuffer> buffers, KeyValidator validator) {
+            Arguments.require(expectedCount >= 0);
+            this.entity = new ConcurrentHashMap<>(getExpectedGroups(expectedCount));
+            this.buffers = buffers;
+            this.validator = validator;
+        }
+
+        @Override
+        public KeyBuffer newKeyBuffer() {
+            return buffers.get();
+        }
+
+        /**
+         * Returns a new chunk of this builder.
+         * The returned chunk is not thread-safe, but each thread can add elements into its own chunk concurrently.
+         * @param capacity the expected number of elements in the chunk
+         * @return the created chunk
+         */
+        public Chunk<T> newChunk(int capacity) {
+            Chunk<T> chunk = new Chunk<>(this, capacity);
+            synchronized (chunks) {
+                chunks.add(chunk);
+            }
+            return chunk;
+        }
+
+        @Override
+        public DataTable.Builder<T> add(KeyBuffer key, T value) {
+            Group<T> group = getGroup(key);
+            synchronized (chunks) {
+                Chunk<T> chunk = shared;
+                if (chunk == null) {
+                    chunk = new Chunk<>(this, 16);
+                    chunks.add(chunk);
+                    shared = chunk;
+                }
+                chunk.put(group, value);
+            }
+            return this;
+        }
+
+        Group<T> getGroup(KeyBuffer key) {
+            Map<KeyBuffer.View, Group<T>> map = entity;
+            Group<T> group = map.get(key.getView());
+            if (group == null) {
+                group = map.computeIfAbsent(key.getFrozen(), k -> new Group<>());
+            }
+            return group;
+        }
+
+        private void layout() {
+            List<Chunk<T>> targets;
+            synchronized (chunks) {
+                targets = new ArrayList<>(chunks);
+                chunks.clear();
+                shared = null;
+            }
+            long count = 0;
+            for (Chunk<T> chunk : targets) {
+                Group<?>[] os = chunk.owners;
+                for (int i = 0, n = chunk.count; i < n; i++) {
+                    os[i].size++;
+                }
+                count += chunk.count;
+            }
+            Object[] array = allocate(entity.values(), count);
+            for (Chunk<T> chunk : targets) {
+                scatter(array, chunk.elements, chunk.owners, chunk.count);
+            }
+        }
+
+        @Override
+        public DataTable<T> build(Comparator<? super T> comparator) {
+            layout();
+            if (comparator != null) {
+                for (Group<T> group : entity.values()) {
+                    group.sort(comparator);
+                }
+            }
+            return new BasicDataTable<>(entity, buffers, validator);
+        }
+
+        /**
+         * Builds a table, and sorts its each group in parallel.
+         * This must not be invoked while the other threads are adding elements.
+         * @param comparator the element comparator (nullable)
+         * @param executor the executor for sorting groups
+         * @param parallelism the max number of concurrent sort tasks
+         * @return the built table
+         * @throws InterruptedException if interrupted while sorting groups
+         */
+        public DataTable<T> build(
+                Comparator<? super T> comparator,
+                Executor executor, int parallelism) throws InterruptedException {
+            layout();
+            if (comparator != null) {
+                List<Group<T>> targets = entity.values().stream()
+                        .filter(it -> it.size() >= 2)
+                        .collect(Collectors.toList());
+                int tasks = Math.min(parallelism, targets.size());
+                if (tasks <= 1) {
+                    targets.forEach(it -> it.sort(comparator));
+                } else {
+                    List<CompletableFuture<?>> futures = new ArrayList<>();
+                    for (int i = 0; i < tasks; i++) {
+                        int offset = i;
+                        futures.add(CompletableFuture.runAsync(() -> {
+                            for (int j = offset, n = targets.size(); j < n; j += tasks) {
+                                targets.get(j).sort(comparator);
+                            }
+                        }, executor));
+                    }
+                    try {
+                        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).get();
+                    } catch (ExecutionException e) {
+                        Throwable cause = e.getCause();
+                        Lang.rethrow(cause, Error.class);
+                        Lang.rethrow(cause, RuntimeException.class);
+                        throw new IllegalStateException(cause);
+                    } finally {
+                        futures.forEach(it -> it.cancel(false));
+                    }
+                }
+            }
+            return new BasicDataTable<>(entity, buffers, validator);
+        }
+
+        /**
+         * A chunk of {@link ConcurrentBuilder}.
+         * This is not thread-safe.
+         * @param <T> the element type
+         * @since 0.5.5
+         */
+        public static final class Chunk<T> {
+
+            private final ConcurrentBuilder<T> owner;
+
+            Object[] elements;
+
+            Group<?>[] owners;
+
+            int count;
+
+            Chunk(ConcurrentBuilder<T> owner, int capacity) {
+                Arguments.require(capacity >= 0);
+                this.owner = owner;
+                this.elements = new Object[capacity];
+                this.owners = new Group<?>[capacity];
+            }
+
+            /**
+             * Adds an element into this chunk.
+             * @param key the element key
+             * @param value the element
+             */
+            public void add(KeyBuffer key, T value) {
+                put(owner.getGroup(key), value);
+            }
+
+            void put(Group<T> group, T value) {
+                int index = count;
+                if (index >= elements.length) {
+                    int size = Math.max(index + 16, (int) (index * 1.5));
+                    elements = Arrays.copyOf(elements, size);
+                    owners = Arrays.copyOf(owners, size);
+                }
+                elements[index] = value;
+                owners[index] = group;
+                count = index + 1;
+            }
+        }
+    }
+
+    /**
+     * A builder for {@link BasicDataTable} which knows the number of elements in advance.
+     * This puts all elements into a single array and each group refers to a range of it,
+     * like the compressed sparse row format, instead of growing a list for each group.
+     * @param <T> the element type
+     * @since 0.5.5
+     */
+    public static class CompactBuilder<T> implements DataTable.Builder<T> {
+
+        private final Map<KeyBuffer.View, Group<T>> entity;
+
+        private final Supplier<? extends KeyBuffer> buffers;
+
+        private final KeyValidator validator;
+
+        private Object[] elements;
+
+        private Group<?>[] owners;
+
+        private int count;
+
+        /**
+         * Creates a new instance.
+         * @param expectedCount the expected number of elements
+         * @param buffers the key buffer supplier
+         * @param validator the key validator
+         */
+        public CompactBuilder(int expectedCount, Supplier<? extends KeyBuffer> buffers, KeyValidator validator) {
+            Arguments.require(expectedCount >= 0);
+            this.entity = new HashMap<>(Math.max((int) (getExpectedGroups(expectedCount) / 0.75f) + 1, 16));
+            this.buffers = buffers;
+            this.validator = validator;
+            this.elements = new Object[expectedCount];
+            this.owners = new Group<?>[expectedCount];
+        }
+
+        @Override
+        public KeyBuffer newKeyBuffer() {
+            return buffers.get();
+        }
+
+        @Override
+        public DataTable.Builder<T> add(KeyBuffer key, T value) {
+            Map<KeyBuffer.View, Group<T>> map = entity;
+            Group<T> group = map.get(key.getView());
+            if (group == null) {
+                group = new Group<>();
+                map.put(key.getFrozen(), group);
+            }
+            int index = count;
+            if (index >= elements.length) {
+                // the expected count was too small
+                int size = Math.max(index + 16, (int) (index * 1.5));
+                elements = Arrays.copyOf(elements, size);
+                owners = Arrays.copyOf(owners, size);
+            }
+            elements[index] = value;
+            owners[index] = group;
+            group.size++;
+            count = index + 1;
+            return this;
+        }
+
+        @Override
+        public DataTable<T> build(Comparator<? super T> comparator) {
+            Object[] array = allocate(entity.values(), count);
+            scatter(array, elements, owners, count);
+            elements = null;
+            owners = null;
+            if (comparator != null) {
+                for (Group<T> group : entity.values()) {
+                    group.sort(comparator);
+                }
+            }
+            return new BasicDataTable<>(entity, buffers, validator);
+        }
+    }
+
+    /**
+     * Allocates the element array and assigns a range of it to each group.
+     * Each group size must be the number of its elements, and it will be reset to zero for {@link #scatter}.
+     */
+    static Object[] allocate(Collection<? extends Group<?>> groups, long count) {
+        Object[] array = new Object[Math.toIntExact(count)];
+        int offset = 0;
+        for (Group<?> group : groups) {
+            group.array = array;
+            group.offset = offset;
+            offset += group.size;
+            group.size = 0;
+        }
+        return array;
+    }
+
+    static void scatter(Object[] array, Object[] elements, Group<?>[] owners, int count) {
+        for (int i = 0; i < count; i++) {
+            Group<?> group = owners[i];
+            array[group.offset + group.size++] = elements[i];
+        }
+    }
+
+    static int getExpectedGroups(int expectedCount) {
+        // the number of groups never exceeds the number of elements, but may be much fewer than it
+        return Math.min(expectedCount, MAX_EXPECTED_GROUPS);
+    }
+
+    private static final class Group<T> extends AbstractList<T> implements RandomAccess {
+
+        Object[] array;
+
+        int offset;
+
+        int size;
+
+        Group() {
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            }
+            return (T) array[offset + index];
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public T set(int index, T element) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            }
+            int position = offset + index;
+            T old = (T) array[position];
+            array[position] = element;
+            return old;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void sort(Comparator<? super T> comparator) {
+            Arrays.sort((T[]) array, offset, offset + size, comparator);
+        }
+    }
+
     /**
      * A validator for {@link BasicDataTable}.
      * @since 0.4.1
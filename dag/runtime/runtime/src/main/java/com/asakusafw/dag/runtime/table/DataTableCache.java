@@ -0,0 +1,263 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.runtime.table;
+
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.asakusafw.dag.runtime.adapter.DataTable;
+import com.asakusafw.lang.utils.common.Arguments;
+import com.asakusafw.lang.utils.common.InterruptibleIo;
+
+/**
+ * A cache of read-only {@link DataTable}s shared between vertices.
+ * Each vertex {@link #open(Object, int) opens} a reader for the source data set,
+ * and the tables built from the source are shared between the readers.
+ * The tables of each source are released after the last vertex which reads the source has closed its reader.
+ * Until then, the tables are only softly reachable while there are no open readers,
+ * so that the following vertices can reuse them unless the heap is running out.
+ * If this cache is {@link #DataTableCache(boolean) shared} between iterative rounds,
+ * the tables built from the sources which are invariant between the rounds are also shared between the rounds:
+ * they are retained until this cache is {@link #close() closed}, instead of released after the last reader.
+ * Otherwise, the tables are never shared between iterative rounds.
+ * @since 0.5.5
+ * @see DataTableCacheExtension
+ */
+public class DataTableCache implements InterruptibleIo {
+
+    static final Logger LOG = LoggerFactory.getLogger(DataTableCache.class);
+
+    private final Map<Object, Source> sources = new HashMap<>();
+
+    private final boolean shared;
+
+    /**
+     * Creates a new instance for a single DAG execution.
+     */
+    public DataTableCache() {
+        this(false);
+    }
+
+    /**
+     * Creates a new instance.
+     * @param shared {@code true} if this cache is shared between iterative rounds, otherwise {@code false}
+     */
+    public DataTableCache(boolean shared) {
+        this.shared = shared;
+    }
+
+    /**
+     * Opens a reader of the tables built from the given source data set.
+     * The returned {@link Reader} must be closed after the vertex no longer uses the tables.
+     * @param source the identity of the source data set
+     * @param readers the number of vertices which read the source, or {@code -1} if it is not known;
+     *     the tables are released as soon as there are no open readers if it is not known
+     * @return the opened reader
+     */
+    public Reader open(Object source, int readers) {
+        return open(source, readers, false);
+    }
+
+    /**
+     * Opens a reader of the tables built from the given source data set.
+     * The returned {@link Reader} must be closed after the vertex no longer uses the tables.
+     * @param source the identity of the source data set
+     * @param readers the number of vertices which read the source in the current round,
+     *     or {@code -1} if it is not known
+     * @param invariant {@code true} if the source data set is invariant between iterative rounds;
+     *     if this cache is shared between the rounds, the tables are retained until this cache is closed
+     * @return the opened reader
+     */
+    public Reader open(Object source, int readers, boolean invariant) {
+        Arguments.requireNonNull(source);
+        synchronized (sources) {
+            Source entry = sources.computeIfAbsent(source, k -> new Source(k, readers, shared && invariant));
+            entry.open++;
+            return new Reader(entry);
+        }
+    }
+
+    /**
+     * Releases all tables in this cache.
+     * The readers which are opened from this cache must not be used after this operation.
+     */
+    @Override
+    public void close() {
+        synchronized (sources) {
+            if (sources.isEmpty() == false) {
+                LOG.debug("releasing all shared data tables: {}", sources.size()); //$NON-NLS-1$
+            }
+            sources.values().forEach(Source::release);
+            sources.clear();
+        }
+    }
+
+    /**
+     * Returns the number of sources which are held in this cache.
+     * @return the number of sources
+     */
+    int getNumberOfSources() {
+        synchronized (sources) {
+            return sources.size();
+        }
+    }
+
+    void close(Source source) {
+        synchronized (sources) {
+            source.open--;
+            source.closed++;
+            if (source.open > 0 || source.retained) {
+                return;
+            }
+            if (source.readers < 0 || source.closed >= source.readers) {
+                LOG.debug("releasing shared data tables: {}", source.key); //$NON-NLS-1$
+                sources.remove(source.key);
+                source.release();
+            } else {
+                source.entries.values().forEach(Entry::retire);
+            }
+        }
+    }
+
+    Entry getEntry(Source source, Object signature) {
+        synchronized (sources) {
+            return source.entries.computeIfAbsent(signature, k -> new Entry(Arrays.asList(source.key, k)));
+        }
+    }
+
+    private static final class Source {
+
+        final Object key;
+
+        final int readers;
+
+        final boolean retained;
+
+        final Map<Object, Entry> entries = new HashMap<>();
+
+        int open;
+
+        int closed;
+
+        Source(Object key, int readers, boolean retained) {
+            this.key = key;
+            this.readers = readers;
+            this.retained = retained;
+        }
+
+        void release() {
+            entries.values().forEach(Entry::release);
+            entries.clear();
+        }
+    }
+
+    private static final class Entry {
+
+        private final Object key;
+
+        private DataTable<?> table;
+
+        private SoftReference<DataTable<?>> retired;
+
+        Entry(Object key) {
+            this.key = key;
+        }
+
+        synchronized DataTable<?> resolve(
+                InterruptibleIo.IoCallable<? extends DataTable<?>> builder) throws IOException, InterruptedException {
+            if (table == null && retired != null) {
+                table = retired.get();
+                retired = null;
+            }
+            if (table == null) {
+                LOG.debug("building shared data table: {}", key); //$NON-NLS-1$
+                table = builder.call();
+            } else {
+                LOG.debug("reusing shared data table: {}", key); //$NON-NLS-1$
+            }
+            return table;
+        }
+
+        synchronized void retire() {
+            if (table != null) {
+                LOG.debug("retiring shared data table: {}", key); //$NON-NLS-1$
+                retired = new SoftReference<>(table);
+                table = null;
+            }
+        }
+
+        synchronized void release() {
+            table = null;
+            retired = null;
+        }
+    }
+
+    /**
+     * A reader of shared {@link DataTable}s built from a source data set.
+     * @since 0.5.5
+     */
+    public final class Reader implements AutoCloseable {
+
+        private final Source source;
+
+        private boolean closed;
+
+        Reader(Source source) {
+            this.source = source;
+        }
+
+        /**
+         * Returns a data table built from the source.
+         * If the table is not in this cache, this builds it by using the given builder.
+         * Other threads which acquire the same table wait for the table is built.
+         * @param signature the table signature, which must identify how to build the table from the source
+         * @param builder the table builder
+         * @return the table
+         * @throws IOException if I/O error was occurred while building the table
+         * @throws InterruptedException if interrupted while building the table
+         * @throws IllegalStateException if this reader was already closed
+         */
+        public DataTable<?> acquire(
+                Object signature,
+                InterruptibleIo.IoCallable<? extends DataTable<?>> builder)
+                        throws IOException, InterruptedException {
+            Arguments.requireNonNull(signature);
+            Arguments.requireNonNull(builder);
+            if (closed) {
+                throw new IllegalStateException();
+            }
+            return getEntry(source, signature).resolve(builder);
+        }
+
+        /**
+         * Closes this reader.
+         * The tables acquired from this reader must not be used after this operation.
+         */
+        @Override
+        public void close() {
+            if (closed == false) {
+                closed = true;
+                DataTableCache.this.close(source);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.runtime.table;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.asakusafw.dag.api.processor.ProcessorContext;
+import com.asakusafw.dag.api.processor.extension.ProcessorContextExtension;
+import com.asakusafw.dag.api.processor.extension.SharedResourceRegistry;
+import com.asakusafw.lang.utils.common.InterruptibleIo;
+
+/**
+ * Enables {@link DataTableCache}.
+ * If {@link SharedResourceRegistry} is available, the cache is shared between iterative rounds.
+ * @since 0.5.5
+ */
+public class DataTableCacheExtension implements ProcessorContextExtension {
+
+    /**
+     * The property key whether this feature is enabled or not.
+     */
+    public static final String KEY_ENABLED = "com.asakusafw.dag.view.share"; //$NON-NLS-1$
+
+    /**
+     * The default value of {@link #KEY_ENABLED}.
+     */
+    public static final boolean DEFAULT_ENABLED = true;
+
+    static final Logger LOG = LoggerFactory.getLogger(DataTableCacheExtension.class);
+
+    @Override
+    public InterruptibleIo install(ProcessorContext context, ProcessorContext.Editor editor) {
+        boolean enabled = context.getProperty(KEY_ENABLED)
+            .map(Boolean::parseBoolean)
+            .orElse(DEFAULT_ENABLED);
+        if (enabled == false) {
+            LOG.debug("shared data table is disabled");
+            return null;
+        }
+        SharedResourceRegistry registry = context.getResource(SharedResourceRegistry.class).orElse(null);
+        if (registry != null) {
+            LOG.debug("enabling shared data table between rounds");
+            // the registry closes the cache after the last round
+            editor.addResource(DataTableCache.class,
+                    registry.computeIfAbsent(DataTableCache.class, () -> new DataTableCache(true)));
+            return null;
+        }
+        LOG.debug("enabling shared data table");
+        DataTableCache cache = new DataTableCache();
+        editor.addResource(DataTableCache.class, cache);
+        return cache;
+    }
+}
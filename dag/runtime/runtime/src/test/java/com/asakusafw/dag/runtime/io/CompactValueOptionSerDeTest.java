@@ -0,0 +1,268 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.runtime.io;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+import com.asakusafw.runtime.io.util.DataBuffer;
+import com.asakusafw.runtime.value.BooleanOption;
+import com.asakusafw.runtime.value.ByteOption;
+import com.asakusafw.runtime.value.Date;
+import com.asakusafw.runtime.value.DateOption;
+import com.asakusafw.runtime.value.DateTime;
+import com.asakusafw.runtime.value.DateTimeOption;
+import com.asakusafw.runtime.value.DecimalOption;
+import com.asakusafw.runtime.value.DoubleOption;
+import com.asakusafw.runtime.value.FloatOption;
+import com.asakusafw.runtime.value.IntOption;
+import com.asakusafw.runtime.value.LongOption;
+import com.asakusafw.runtime.value.ShortOption;
+import com.asakusafw.runtime.value.StringOption;
+import com.asakusafw.runtime.value.ValueOption;
+
+/**
+ * Test for {@link CompactValueOptionSerDe}.
+ */
+public class CompactValueOptionSerDeTest {
+
+    /**
+     * {@link BooleanOption}.
+     */
+    @Test
+    public void boolean_() {
+        check(BooleanOption::new, CompactValueOptionSerDe::serialize, CompactValueOptionSerDe::deserialize,
+                new BooleanOption(),
+                new BooleanOption(true),
+                new BooleanOption(false));
+    }
+
+    /**
+     * {@link ByteOption}.
+     */
+    @Test
+    public void byte_() {
+        check(ByteOption::new, CompactValueOptionSerDe::serialize, CompactValueOptionSerDe::deserialize,
+                new ByteOption(),
+                new ByteOption((byte) 0),
+                new ByteOption(Byte.MAX_VALUE),
+                new ByteOption(Byte.MIN_VALUE));
+    }
+
+    /**
+     * {@link ShortOption}.
+     */
+    @Test
+    public void short_() {
+        check(ShortOption::new, CompactValueOptionSerDe::serialize, CompactValueOptionSerDe::deserialize,
+                new ShortOption(),
+                new ShortOption((short) 0),
+                new ShortOption((short) -1),
+                new ShortOption(Short.MAX_VALUE),
+                new ShortOption(Short.MIN_VALUE));
+    }
+
+    /**
+     * {@link IntOption}.
+     */
+    @Test
+    public void int_() {
+        check(IntOption::new, CompactValueOptionSerDe::serialize, CompactValueOptionSerDe::deserialize,
+                new IntOption(),
+                new IntOption(0),
+                new IntOption(+1),
+                new IntOption(-1),
+                new IntOption(Integer.MAX_VALUE),
+                new IntOption(Integer.MIN_VALUE));
+    }
+
+    /**
+     * {@link LongOption}.
+     */
+    @Test
+    public void long_() {
+        check(LongOption::new, CompactValueOptionSerDe::serialize, CompactValueOptionSerDe::deserialize,
+                new LongOption(),
+                new LongOption(0),
+                new LongOption(+1),
+                new LongOption(-1),
+                new LongOption(Long.MAX_VALUE),
+                new LongOption(Long.MIN_VALUE));
+    }
+
+    /**
+     * {@link FloatOption}.
+     */
+    @Test
+    public void float_() {
+        check(FloatOption::new, CompactValueOptionSerDe::serialize, CompactValueOptionSerDe::deserialize,
+                new FloatOption(),
+                new FloatOption(0f),
+                new FloatOption(-1.5f),
+                new FloatOption(Float.NaN));
+    }
+
+    /**
+     * {@link DoubleOption}.
+     */
+    @Test
+    public void double_() {
+        check(DoubleOption::new, CompactValueOptionSerDe::serialize, CompactValueOptionSerDe::deserialize,
+                new DoubleOption(),
+                new DoubleOption(0d),
+                new DoubleOption(-1.5d),
+                new DoubleOption(Double.NaN));
+    }
+
+    /**
+     * {@link DateOption}.
+     */
+    @Test
+    public void date() {
+        check(DateOption::new, CompactValueOptionSerDe::serialize, CompactValueOptionSerDe::deserialize,
+                new DateOption(),
+                new DateOption(new Date(0)),
+                new DateOption(new Date(735000)),
+                new DateOption(new Date(Integer.MAX_VALUE)));
+    }
+
+    /**
+     * {@link DateTimeOption}.
+     */
+    @Test
+    public void date_time() {
+        check(DateTimeOption::new, CompactValueOptionSerDe::serialize, CompactValueOptionSerDe::deserialize,
+                new DateTimeOption(),
+                new DateTimeOption(new DateTime(0)),
+                new DateTimeOption(new DateTime(63500000000L)),
+                new DateTimeOption(new DateTime(Long.MAX_VALUE)));
+    }
+
+    /**
+     * {@link StringOption}.
+     */
+    @Test
+    public void string() {
+        check(StringOption::new, CompactValueOptionSerDe::serialize, CompactValueOptionSerDe::deserialize,
+                new StringOption(),
+                new StringOption(""),
+                new StringOption("Hello, world!"),
+                new StringOption("\u3042"));
+    }
+
+    /**
+     * {@link DecimalOption}.
+     */
+    @Test
+    public void decimal() {
+        check(DecimalOption::new, CompactValueOptionSerDe::serialize, CompactValueOptionSerDe::deserialize,
+                new DecimalOption(),
+                new DecimalOption(new BigDecimal("0")),
+                new DecimalOption(new BigDecimal("-3.14")),
+                new DecimalOption(new BigDecimal(Long.MAX_VALUE).add(BigDecimal.ONE)));
+    }
+
+    /**
+     * null bitmap with many properties.
+     * @throws Exception if failed
+     */
+    @Test
+    public void bitmap() throws Exception {
+        NullBitmap nulls = new NullBitmap();
+        IntOption[] values = new IntOption[20];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i % 3 == 0 ? new IntOption() : new IntOption(i);
+        }
+        DataBuffer buffer = new DataBuffer();
+        nulls.reset();
+        for (IntOption value : values) {
+            nulls.add(value);
+        }
+        nulls.writeTo(buffer);
+        for (IntOption value : values) {
+            CompactValueOptionSerDe.serialize(value, buffer);
+        }
+        // 3 bytes for bitmap, 13 bytes for non-null small values
+        assertThat(buffer.getReadRemaining(), is(NullBitmap.sizeOf(values.length) + 13));
+
+        NullBitmap restore = new NullBitmap();
+        restore.readFrom(buffer, values.length);
+        for (IntOption value : values) {
+            IntOption copy = new IntOption(-1);
+            CompactValueOptionSerDe.deserialize(copy, restore, buffer);
+            assertThat(copy, is(value));
+        }
+        assertThat(buffer.getReadRemaining(), is(0));
+    }
+
+    /**
+     * compact integers.
+     * @throws Exception if failed
+     */
+    @Test
+    public void int_compact() throws Exception {
+        DataBuffer buffer = new DataBuffer();
+        CompactValueOptionSerDe.serialize(new IntOption(-64), buffer);
+        assertThat(buffer.getReadRemaining(), is(1));
+        CompactValueOptionSerDe.serialize(new LongOption(63), buffer);
+        assertThat(buffer.getReadRemaining(), is(2));
+        CompactValueOptionSerDe.serialize(new LongOption(64), buffer);
+        assertThat(buffer.getReadRemaining(), is(4));
+    }
+
+    @SafeVarargs
+    private static <T extends ValueOption<T>> void check(
+            Supplier<T> factory, Serializer<T> serializer, Deserializer<T> deserializer,
+            T... values) {
+        try {
+            DataBuffer buffer = new DataBuffer();
+            NullBitmap nulls = new NullBitmap();
+            nulls.reset();
+            for (T value : values) {
+                nulls.add(value);
+            }
+            nulls.writeTo(buffer);
+            for (T value : values) {
+                serializer.serialize(value, buffer);
+            }
+            NullBitmap restore = new NullBitmap();
+            restore.readFrom(buffer, values.length);
+            for (T value : values) {
+                T copy = factory.get();
+                deserializer.deserialize(copy, restore, buffer);
+                assertThat(copy, is(value));
+            }
+            assertThat(buffer.getReadRemaining(), is(0));
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Serializer<T> {
+        void serialize(T value, DataBuffer output) throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface Deserializer<T> {
+        void deserialize(T value, NullBitmap nulls, DataBuffer input) throws Exception;
+    }
+}
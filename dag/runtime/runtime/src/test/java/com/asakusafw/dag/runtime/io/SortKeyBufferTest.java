@@ -0,0 +1,403 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.runtime.io;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import org.junit.Test;
+
+import com.asakusafw.dag.api.common.BinarySortKeyComparator;
+import com.asakusafw.runtime.io.util.DataBuffer;
+import com.asakusafw.runtime.value.BooleanOption;
+import com.asakusafw.runtime.value.ByteOption;
+import com.asakusafw.runtime.value.Date;
+import com.asakusafw.runtime.value.DateOption;
+import com.asakusafw.runtime.value.DateTime;
+import com.asakusafw.runtime.value.DateTimeOption;
+import com.asakusafw.runtime.value.DecimalOption;
+import com.asakusafw.runtime.value.DoubleOption;
+import com.asakusafw.runtime.value.FloatOption;
+import com.asakusafw.runtime.value.IntOption;
+import com.asakusafw.runtime.value.LongOption;
+import com.asakusafw.runtime.value.ShortOption;
+import com.asakusafw.runtime.value.StringOption;
+import com.asakusafw.runtime.value.ValueOption;
+
+/**
+ * Test for {@link SortKeyBuffer}.
+ */
+public class SortKeyBufferTest {
+
+    /**
+     * {@link BooleanOption}.
+     */
+    @Test
+    public void put_boolean() {
+        BiConsumer<SortKeyBuffer, BooleanOption> asc = (k, v) -> k.put(v, false);
+        BiConsumer<SortKeyBuffer, BooleanOption> desc = (k, v) -> k.put(v, true);
+        BooleanOption[] values = {
+                new BooleanOption(),
+                new BooleanOption(false),
+                new BooleanOption(true),
+        };
+        check(asc, desc, values);
+    }
+
+    /**
+     * {@link ByteOption}.
+     */
+    @Test
+    public void put_byte() {
+        BiConsumer<SortKeyBuffer, ByteOption> asc = (k, v) -> k.put(v, false);
+        BiConsumer<SortKeyBuffer, ByteOption> desc = (k, v) -> k.put(v, true);
+        ByteOption[] values = {
+                new ByteOption(),
+                new ByteOption(Byte.MIN_VALUE),
+                new ByteOption((byte) -1),
+                new ByteOption((byte) 0),
+                new ByteOption((byte) +1),
+                new ByteOption(Byte.MAX_VALUE),
+        };
+        check(asc, desc, values);
+    }
+
+    /**
+     * {@link ShortOption}.
+     */
+    @Test
+    public void put_short() {
+        BiConsumer<SortKeyBuffer, ShortOption> asc = (k, v) -> k.put(v, false);
+        BiConsumer<SortKeyBuffer, ShortOption> desc = (k, v) -> k.put(v, true);
+        ShortOption[] values = {
+                new ShortOption(),
+                new ShortOption(Short.MIN_VALUE),
+                new ShortOption((short) -256),
+                new ShortOption((short) -1),
+                new ShortOption((short) 0),
+                new ShortOption((short) +1),
+                new ShortOption((short) +256),
+                new ShortOption(Short.MAX_VALUE),
+        };
+        check(asc, desc, values);
+    }
+
+    /**
+     * {@link IntOption}.
+     */
+    @Test
+    public void put_int() {
+        BiConsumer<SortKeyBuffer, IntOption> asc = (k, v) -> k.put(v, false);
+        BiConsumer<SortKeyBuffer, IntOption> desc = (k, v) -> k.put(v, true);
+        IntOption[] values = {
+                new IntOption(),
+                new IntOption(Integer.MIN_VALUE),
+                new IntOption(-65536),
+                new IntOption(-1),
+                new IntOption(0),
+                new IntOption(+1),
+                new IntOption(+65536),
+                new IntOption(Integer.MAX_VALUE),
+        };
+        check(asc, desc, values);
+    }
+
+    /**
+     * {@link LongOption}.
+     */
+    @Test
+    public void put_long() {
+        BiConsumer<SortKeyBuffer, LongOption> asc = (k, v) -> k.put(v, false);
+        BiConsumer<SortKeyBuffer, LongOption> desc = (k, v) -> k.put(v, true);
+        LongOption[] values = {
+                new LongOption(),
+                new LongOption(Long.MIN_VALUE),
+                new LongOption(-1L << 32),
+                new LongOption(-1),
+                new LongOption(0),
+                new LongOption(+1),
+                new LongOption(+1L << 32),
+                new LongOption(Long.MAX_VALUE),
+        };
+        check(asc, desc, values);
+    }
+
+    /**
+     * {@link FloatOption}.
+     */
+    @Test
+    public void put_float() {
+        BiConsumer<SortKeyBuffer, FloatOption> asc = (k, v) -> k.put(v, false);
+        BiConsumer<SortKeyBuffer, FloatOption> desc = (k, v) -> k.put(v, true);
+        FloatOption[] values = {
+                new FloatOption(),
+                new FloatOption(Float.NEGATIVE_INFINITY),
+                new FloatOption(-Float.MAX_VALUE),
+                new FloatOption(-1.5f),
+                new FloatOption(-Float.MIN_VALUE),
+                new FloatOption(-0.0f),
+                new FloatOption(+0.0f),
+                new FloatOption(+Float.MIN_VALUE),
+                new FloatOption(+1.5f),
+                new FloatOption(+Float.MAX_VALUE),
+                new FloatOption(Float.POSITIVE_INFINITY),
+                new FloatOption(Float.NaN),
+        };
+        check(asc, desc, values);
+    }
+
+    /**
+     * {@link DoubleOption}.
+     */
+    @Test
+    public void put_double() {
+        BiConsumer<SortKeyBuffer, DoubleOption> asc = (k, v) -> k.put(v, false);
+        BiConsumer<SortKeyBuffer, DoubleOption> desc = (k, v) -> k.put(v, true);
+        DoubleOption[] values = {
+                new DoubleOption(),
+                new DoubleOption(Double.NEGATIVE_INFINITY),
+                new DoubleOption(-Double.MAX_VALUE),
+                new DoubleOption(-1.5),
+                new DoubleOption(-Double.MIN_VALUE),
+                new DoubleOption(-0.0),
+                new DoubleOption(+0.0),
+                new DoubleOption(+Double.MIN_VALUE),
+                new DoubleOption(+1.5),
+                new DoubleOption(+Double.MAX_VALUE),
+                new DoubleOption(Double.POSITIVE_INFINITY),
+                new DoubleOption(Double.NaN),
+        };
+        check(asc, desc, values);
+    }
+
+    /**
+     * {@link DateOption}.
+     */
+    @Test
+    public void put_date() {
+        BiConsumer<SortKeyBuffer, DateOption> asc = (k, v) -> k.put(v, false);
+        BiConsumer<SortKeyBuffer, DateOption> desc = (k, v) -> k.put(v, true);
+        DateOption[] values = {
+                new DateOption(),
+                new DateOption(new Date(0)),
+                new DateOption(new Date(1)),
+                new DateOption(new Date(256)),
+                new DateOption(new Date(Integer.MAX_VALUE)),
+        };
+        check(asc, desc, values);
+    }
+
+    /**
+     * {@link DateTimeOption}.
+     */
+    @Test
+    public void put_date_time() {
+        BiConsumer<SortKeyBuffer, DateTimeOption> asc = (k, v) -> k.put(v, false);
+        BiConsumer<SortKeyBuffer, DateTimeOption> desc = (k, v) -> k.put(v, true);
+        DateTimeOption[] values = {
+                new DateTimeOption(),
+                new DateTimeOption(new DateTime(0)),
+                new DateTimeOption(new DateTime(1)),
+                new DateTimeOption(new DateTime(256)),
+                new DateTimeOption(new DateTime(Long.MAX_VALUE)),
+        };
+        check(asc, desc, values);
+    }
+
+    /**
+     * {@link StringOption}.
+     */
+    @Test
+    public void put_string() {
+        BiConsumer<SortKeyBuffer, StringOption> asc = (k, v) -> k.put(v, false);
+        BiConsumer<SortKeyBuffer, StringOption> desc = (k, v) -> k.put(v, true);
+        StringOption[] values = {
+                new StringOption(),
+                new StringOption(""),
+                new StringOption("\0"),
+                new StringOption("\0\0"),
+                new StringOption("\0A"),
+                new StringOption("\1"),
+                new StringOption("A"),
+                new StringOption("A\0"),
+                new StringOption("AA"),
+                new StringOption("AB"),
+                new StringOption("B"),
+                new StringOption("\u3042"),
+        };
+        check(asc, desc, values);
+    }
+
+    /**
+     * {@link DecimalOption}.
+     */
+    @Test
+    public void put_decimal() {
+        BiConsumer<SortKeyBuffer, DecimalOption> asc = (k, v) -> k.put(v, false);
+        BiConsumer<SortKeyBuffer, DecimalOption> desc = (k, v) -> k.put(v, true);
+        DecimalOption[] values = {
+                new DecimalOption(),
+                newDecimal("-100000000000000000000"),
+                newDecimal("-10"),
+                newDecimal("-2"),
+                newDecimal("-1.01"),
+                newDecimal("-1"),
+                newDecimal("-0.1"),
+                newDecimal("-0.01"),
+                newDecimal("0"),
+                newDecimal("0.01"),
+                newDecimal("0.1"),
+                newDecimal("0.11"),
+                newDecimal("1"),
+                newDecimal("1.01"),
+                newDecimal("2"),
+                newDecimal("10"),
+                newDecimal("100000000000000000000"),
+        };
+        check(asc, desc, values);
+    }
+
+    /**
+     * {@link DecimalOption} w/ different scales.
+     */
+    @Test
+    public void put_decimal_scale() {
+        BiConsumer<SortKeyBuffer, DecimalOption> asc = (k, v) -> k.put(v, false);
+        BiConsumer<SortKeyBuffer, DecimalOption> desc = (k, v) -> k.put(v, true);
+        check(asc, desc, newDecimal("1"), newDecimal("1.0"));
+        check(asc, desc, newDecimal("-1.0"), newDecimal("-1.00"));
+        check(asc, desc, newDecimal("0"), newDecimal("0.00"));
+        check(asc, desc, newDecimal("100"), newDecimal("1E+2"));
+    }
+
+    /**
+     * multiple terms.
+     */
+    @Test
+    public void multiple() {
+        int ab1 = compare(
+                k -> {
+                    k.put(new StringOption("A"), false);
+                    k.put(new IntOption(1), true);
+                },
+                k -> {
+                    k.put(new StringOption("AB"), false);
+                    k.put(new IntOption(0), true);
+                });
+        assertThat(ab1, is(lessThan(0)));
+
+        int ab2 = compare(
+                k -> {
+                    k.put(new StringOption("A"), false);
+                    k.put(new IntOption(1), true);
+                },
+                k -> {
+                    k.put(new StringOption("A"), false);
+                    k.put(new IntOption(0), true);
+                });
+        assertThat(ab2, is(lessThan(0)));
+
+        int ab3 = compare(
+                k -> {
+                    k.put(new StringOption(), true);
+                    k.put(new IntOption(0), false);
+                },
+                k -> {
+                    k.put(new StringOption("A"), true);
+                    k.put(new IntOption(1), false);
+                });
+        assertThat(ab3, is(greaterThan(0)));
+    }
+
+    /**
+     * skip sort keys.
+     * @throws Exception if failed
+     */
+    @Test
+    public void skip() throws Exception {
+        SortKeyBuffer keys = new SortKeyBuffer();
+        keys.put(new StringOption("Hello, world!"), false);
+        DataBuffer buffer = new DataBuffer();
+        keys.writeTo(buffer);
+        buffer.writeInt(100);
+
+        SortKeyBuffer.skip(buffer);
+        assertThat(buffer.readInt(), is(100));
+        assertThat(buffer.getReadRemaining(), is(0));
+    }
+
+    @SafeVarargs
+    private static <T extends ValueOption<T>> void check(
+            BiConsumer<SortKeyBuffer, T> asc, BiConsumer<SortKeyBuffer, T> desc, T... values) {
+        for (T a : values) {
+            for (T b : values) {
+                int expected = Integer.signum(a.compareTo(b));
+                int ascending = compare(k -> asc.accept(k, a), k -> asc.accept(k, b));
+                int descending = compare(k -> desc.accept(k, a), k -> desc.accept(k, b));
+                assertThat(String.format("%s <=> %s", a, b), Integer.signum(ascending), is(expected));
+                assertThat(String.format("%s <=> %s (desc)", a, b), Integer.signum(descending), is(-expected));
+            }
+        }
+    }
+
+    private static int compare(Consumer<SortKeyBuffer> a, Consumer<SortKeyBuffer> b) {
+        try {
+            ByteBuffer aBuffer = toBuffer(a);
+            ByteBuffer bBuffer = toBuffer(b);
+            int result = new BinarySortKeyComparator().compare(
+                    aBuffer, 0, aBuffer.limit(),
+                    bBuffer, 0, bBuffer.limit());
+            assertThat(aBuffer.position(), is(0));
+            assertThat(bBuffer.position(), is(0));
+
+            DataBuffer aInput = toDataBuffer(aBuffer);
+            DataBuffer bInput = toDataBuffer(bBuffer);
+            assertThat(Integer.signum(new BinarySortKeyComparator().compare(aInput, bInput)),
+                    is(Integer.signum(result)));
+            assertThat(aInput.getReadRemaining(), is(0));
+            assertThat(bInput.getReadRemaining(), is(0));
+            return result;
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static ByteBuffer toBuffer(Consumer<SortKeyBuffer> action) throws Exception {
+        SortKeyBuffer keys = new SortKeyBuffer();
+        action.accept(keys);
+        DataBuffer buffer = new DataBuffer();
+        keys.writeTo(buffer);
+        assertThat(buffer.getReadRemaining(), is(keys.getLength() + BinarySortKeyComparator.HEADER_SIZE));
+        byte[] bytes = new byte[buffer.getReadRemaining()];
+        buffer.readFully(bytes);
+        return ByteBuffer.wrap(bytes);
+    }
+
+    private static DataBuffer toDataBuffer(ByteBuffer buffer) throws Exception {
+        DataBuffer result = new DataBuffer();
+        result.write(buffer.array(), buffer.arrayOffset(), buffer.limit());
+        return result;
+    }
+
+    private static DecimalOption newDecimal(String v) {
+        return new DecimalOption(new BigDecimal(v));
+    }
+}
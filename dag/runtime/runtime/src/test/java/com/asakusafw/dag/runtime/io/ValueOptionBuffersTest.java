@@ -0,0 +1,257 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.runtime.io;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.asakusafw.runtime.io.util.DataBuffer;
+import com.asakusafw.runtime.value.BooleanOption;
+import com.asakusafw.runtime.value.ByteOption;
+import com.asakusafw.runtime.value.Date;
+import com.asakusafw.runtime.value.DateOption;
+import com.asakusafw.runtime.value.DateTime;
+import com.asakusafw.runtime.value.DateTimeOption;
+import com.asakusafw.runtime.value.DecimalOption;
+import com.asakusafw.runtime.value.DoubleOption;
+import com.asakusafw.runtime.value.FloatOption;
+import com.asakusafw.runtime.value.IntOption;
+import com.asakusafw.runtime.value.LongOption;
+import com.asakusafw.runtime.value.ShortOption;
+import com.asakusafw.runtime.value.StringOption;
+import com.asakusafw.runtime.value.ValueOption;
+
+/**
+ * Test for {@link ValueOptionBuffers}.
+ */
+public class ValueOptionBuffersTest {
+
+    private static final int PADDING = 3;
+
+    /**
+     * {@link BooleanOption}.
+     */
+    @Test
+    public void boolean_() {
+        check(ValueOptionBuffers::compareBoolean, ValueOptionBuffers::sizeOfBoolean, Arrays.asList(
+                new BooleanOption(),
+                new BooleanOption(false),
+                new BooleanOption(true)));
+    }
+
+    /**
+     * {@link ByteOption}.
+     */
+    @Test
+    public void byte_() {
+        check(ValueOptionBuffers::compareByte, ValueOptionBuffers::sizeOfByte, Arrays.asList(
+                new ByteOption(),
+                new ByteOption((byte) 0),
+                new ByteOption((byte) -1),
+                new ByteOption(Byte.MAX_VALUE),
+                new ByteOption(Byte.MIN_VALUE)));
+    }
+
+    /**
+     * {@link ShortOption}.
+     */
+    @Test
+    public void short_() {
+        check(ValueOptionBuffers::compareShort, ValueOptionBuffers::sizeOfShort, Arrays.asList(
+                new ShortOption(),
+                new ShortOption((short) 0),
+                new ShortOption((short) -1),
+                new ShortOption((short) 256),
+                new ShortOption(Short.MAX_VALUE),
+                new ShortOption(Short.MIN_VALUE)));
+    }
+
+    /**
+     * {@link IntOption}.
+     */
+    @Test
+    public void int_() {
+        check(ValueOptionBuffers::compareInt, ValueOptionBuffers::sizeOfInt, Arrays.asList(
+                new IntOption(),
+                new IntOption(0),
+                new IntOption(-1),
+                new IntOption(256),
+                new IntOption(Integer.MAX_VALUE),
+                new IntOption(Integer.MIN_VALUE)));
+    }
+
+    /**
+     * {@link LongOption}.
+     */
+    @Test
+    public void long_() {
+        check(ValueOptionBuffers::compareLong, ValueOptionBuffers::sizeOfLong, Arrays.asList(
+                new LongOption(),
+                new LongOption(0),
+                new LongOption(-1),
+                new LongOption(256),
+                new LongOption(Long.MAX_VALUE),
+                new LongOption(Long.MIN_VALUE)));
+    }
+
+    /**
+     * {@link FloatOption}.
+     */
+    @Test
+    public void float_() {
+        check(ValueOptionBuffers::compareFloat, ValueOptionBuffers::sizeOfFloat, Arrays.asList(
+                new FloatOption(),
+                new FloatOption(0f),
+                new FloatOption(-0f),
+                new FloatOption(-1f),
+                new FloatOption(Float.POSITIVE_INFINITY),
+                new FloatOption(Float.NaN)));
+    }
+
+    /**
+     * {@link DoubleOption}.
+     */
+    @Test
+    public void double_() {
+        check(ValueOptionBuffers::compareDouble, ValueOptionBuffers::sizeOfDouble, Arrays.asList(
+                new DoubleOption(),
+                new DoubleOption(0),
+                new DoubleOption(-0d),
+                new DoubleOption(-1),
+                new DoubleOption(Double.POSITIVE_INFINITY),
+                new DoubleOption(Double.NaN)));
+    }
+
+    /**
+     * {@link DateOption}.
+     */
+    @Test
+    public void date() {
+        check(ValueOptionBuffers::compareDate, ValueOptionBuffers::sizeOfDate, Arrays.asList(
+                new DateOption(),
+                new DateOption(new Date(0)),
+                new DateOption(new Date(1)),
+                new DateOption(new Date(735000))));
+    }
+
+    /**
+     * {@link DateTimeOption}.
+     */
+    @Test
+    public void date_time() {
+        check(ValueOptionBuffers::compareDateTime, ValueOptionBuffers::sizeOfDateTime, Arrays.asList(
+                new DateTimeOption(),
+                new DateTimeOption(new DateTime(0)),
+                new DateTimeOption(new DateTime(1)),
+                new DateTimeOption(new DateTime(63500000000L))));
+    }
+
+    /**
+     * {@link StringOption}.
+     */
+    @Test
+    public void string() {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            buf.append((char) ('a' + i % 26));
+        }
+        String longText = buf.toString();
+        check(ValueOptionBuffers::compareString, ValueOptionBuffers::sizeOfString, Arrays.asList(
+                new StringOption(),
+                new StringOption(""),
+                new StringOption("a"),
+                new StringOption("b"),
+                new StringOption("abcdefgh"),
+                new StringOption("abcdefghi"),
+                new StringOption("abcdefgi"),
+                new StringOption("\u3042"),
+                new StringOption(longText),
+                new StringOption(longText + "a"),
+                new StringOption(longText.substring(1))));
+    }
+
+    /**
+     * {@link DecimalOption}.
+     */
+    @Test
+    public void decimal() {
+        check(ValueOptionBuffers::compareDecimal, ValueOptionBuffers::sizeOfDecimal, Arrays.asList(
+                new DecimalOption(),
+                newDecimal("0"),
+                newDecimal("1"),
+                newDecimal("-1"),
+                newDecimal("1.0"),
+                newDecimal("1.1"),
+                newDecimal("-1.1"),
+                newDecimal("3.14"),
+                newDecimal("1000"),
+                new DecimalOption(new BigDecimal(Long.MAX_VALUE).add(BigDecimal.ONE)),
+                new DecimalOption(new BigDecimal(Long.MIN_VALUE + 1).subtract(BigDecimal.ONE)),
+                new DecimalOption(new BigDecimal(Long.MAX_VALUE).add(BigDecimal.ONE).movePointLeft(1))));
+    }
+
+    private static DecimalOption newDecimal(String v) {
+        return new DecimalOption(new BigDecimal(v));
+    }
+
+    private static <T extends ValueOption<T>> void check(Comparator cmp, Sizer sizer, List<T> values) {
+        for (T a : values) {
+            ByteBuffer aBuffer = serialize(a);
+            assertThat(a.toString(), sizer.sizeOf(aBuffer, PADDING), is(aBuffer.limit() - PADDING * 2));
+            for (T b : values) {
+                ByteBuffer bBuffer = serialize(b);
+                int expected = Integer.signum(a.compareTo(b));
+                int result = cmp.compare(aBuffer, PADDING, bBuffer, PADDING);
+                assertThat(String.format("%s <=> %s", a, b), Integer.signum(result), is(expected));
+                assertThat(aBuffer.position(), is(0));
+                assertThat(bBuffer.position(), is(0));
+            }
+        }
+    }
+
+    private static ByteBuffer serialize(ValueOption<?> option) {
+        try {
+            DataBuffer buffer = new DataBuffer();
+            for (int i = 0; i < PADDING; i++) {
+                buffer.writeByte(0x7f);
+            }
+            ValueOptionSerDe.serializeAny(option, buffer);
+            for (int i = 0; i < PADDING; i++) {
+                buffer.writeByte(0x7f);
+            }
+            return ByteBuffer.wrap(buffer.getData(), 0, buffer.getWritePosition());
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Comparator {
+        int compare(ByteBuffer a, int aOffset, ByteBuffer b, int bOffset);
+    }
+
+    @FunctionalInterface
+    private interface Sizer {
+        int sizeOf(ByteBuffer buffer, int offset);
+    }
+}
@@ -24,6 +24,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
 import org.junit.Test;
@@ -34,6 +35,7 @@ import com.asakusafw.dag.runtime.adapter.DataTable;
 import com.asakusafw.dag.runtime.adapter.DataTableAdapter;
 import com.asakusafw.dag.runtime.adapter.KeyBuffer;
 import com.asakusafw.dag.runtime.table.BasicDataTable.ValidationLevel;
+import com.asakusafw.dag.runtime.table.DataTableCache;
 import com.asakusafw.dag.runtime.testing.MockDataModel;
 import com.asakusafw.lang.utils.common.Action;
 import com.asakusafw.lang.utils.common.AssertUtil;
@@ -176,6 +178,87 @@ public class EdgeDataTableAdapterTest {
         });
     }
 
+    /**
+     * share tables between adapters.
+     * @throws Exception if failed
+     */
+    @Test
+    public void share() throws Exception {
+        define("t", "i", MockDataModel.class, "key");
+        data("i", new Object[] {
+                new MockDataModel(0, "Hello0"),
+                new MockDataModel(1, "Hello1"),
+        });
+        AtomicInteger reads = new AtomicInteger();
+        DataTableCache cache = new DataTableCache();
+        MockVertexProcessorContext c0 = shared(cache, reads);
+        MockVertexProcessorContext c1 = shared(cache, reads);
+        try (EdgeDataTableAdapter a0 = new EdgeDataTableAdapter(c0);
+                EdgeDataTableAdapter a1 = new EdgeDataTableAdapter(c1)) {
+            specs.forEach(s -> s.accept(a0));
+            specs.forEach(s -> s.accept(a1));
+            a0.initialize();
+            a1.initialize();
+            DataTable<MockDataModel> t0 = a0.getDataTable(MockDataModel.class, "t");
+            DataTable<MockDataModel> t1 = a1.getDataTable(MockDataModel.class, "t");
+            assertThat(t1, is(sameInstance(t0)));
+            assertThat(get(t1, MockDataModel::getValue, 1), containsInAnyOrder("Hello1"));
+            assertThat(reads.get(), is(1));
+        }
+    }
+
+    /**
+     * share tables between adapters which are not concurrently available.
+     * @throws Exception if failed
+     */
+    @Test
+    public void share_sequential() throws Exception {
+        define("t", "i", MockDataModel.class, "key");
+        data("i", new Object[] {
+                new MockDataModel(0, "Hello0"),
+                new MockDataModel(1, "Hello1"),
+        });
+        AtomicInteger reads = new AtomicInteger();
+        DataTableCache cache = new DataTableCache();
+        for (int i = 0; i < 2; i++) {
+            try (EdgeDataTableAdapter adapter = new EdgeDataTableAdapter(shared(cache, reads, 2))) {
+                specs.forEach(s -> s.accept(adapter));
+                adapter.initialize();
+                DataTable<MockDataModel> t = adapter.getDataTable(MockDataModel.class, "t");
+                assertThat(get(t, MockDataModel::getValue, 0), containsInAnyOrder("Hello0"));
+            }
+        }
+        assertThat(reads.get(), is(1));
+
+        // released after the all readers were closed
+        try (EdgeDataTableAdapter adapter = new EdgeDataTableAdapter(shared(cache, reads, 2))) {
+            specs.forEach(s -> s.accept(adapter));
+            adapter.initialize();
+        }
+        assertThat(reads.get(), is(2));
+    }
+
+    private MockVertexProcessorContext shared(DataTableCache cache, AtomicInteger reads) {
+        return shared(cache, reads, -1);
+    }
+
+    private MockVertexProcessorContext shared(DataTableCache cache, AtomicInteger reads, int readers) {
+        MockVertexProcessorContext context = new MockVertexProcessorContext()
+                .withResource(DataTableCache.class, cache);
+        inputs.forEach((k, v) -> {
+            context.withInput(k, () -> {
+                reads.incrementAndGet();
+                return new CollectionObjectReader(v);
+            });
+            if (readers < 0) {
+                context.withInputSource(k, "upstream-" + k);
+            } else {
+                context.withInputSource(k, "upstream-" + k, readers);
+            }
+        });
+        return context;
+    }
+
     private void define(String tId, String iId, Class<?> type, String... group) {
         specs.add(a -> a.bind(tId, iId, MockDataModel.KeyBuilder.class, MockDataModel.Copier.class));
     }
@@ -0,0 +1,145 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.runtime.skeleton;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.asakusafw.dag.api.processor.testing.CollectionObjectReader;
+import com.asakusafw.dag.runtime.adapter.DataTable;
+import com.asakusafw.dag.runtime.adapter.KeyBuffer;
+import com.asakusafw.dag.runtime.adapter.KeyExtractor;
+import com.asakusafw.dag.runtime.table.BasicDataTable;
+import com.asakusafw.dag.runtime.table.BasicDataTable.KeyValidator;
+import com.asakusafw.dag.runtime.table.HeapKeyBuffer;
+import com.asakusafw.runtime.value.IntOption;
+
+/**
+ * Test for {@link ParallelTableLoader}.
+ */
+public class ParallelTableLoaderTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    /**
+     * Cleanup the test.
+     */
+    @After
+    public void teardown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * simple case.
+     * @throws Exception if failed
+     */
+    @Test
+    public void simple() throws Exception {
+        DataTable<IntOption> table = load(4, 1024, values(IntStream.range(0, 10)));
+        for (int i = 0; i < 10; i++) {
+            assertThat(table.getList(key(i)), is(values(IntStream.of(i))));
+        }
+        assertThat(table.getList(key(10)), hasSize(0));
+    }
+
+    /**
+     * large input.
+     * @throws Exception if failed
+     */
+    @Test
+    public void large() throws Exception {
+        List<IntOption> input = IntStream.range(0, 10_000)
+                .map(i -> 9_999 - i)
+                .mapToObj(IntOption::new)
+                .collect(Collectors.toList());
+        DataTable<IntOption> table = load(4, 16, input);
+        for (int i = 0; i < 10; i++) {
+            int k = i;
+            assertThat(table.getList(key(i)), is(values(IntStream.range(0, 10_000).filter(v -> v % 10 == k))));
+        }
+    }
+
+    /**
+     * requests more helper threads than the executor has.
+     * @throws Exception if failed
+     */
+    @Test
+    public void oversubscribed() throws Exception {
+        long start = System.nanoTime();
+        // workers which start after the input was closed should exit without waiting for the queue
+        DataTable<IntOption> table = load(100, 16, values(IntStream.range(0, 100)));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        for (int i = 0; i < 10; i++) {
+            int k = i;
+            assertThat(table.getList(key(i)), is(values(IntStream.range(0, 100).filter(v -> v % 10 == k))));
+        }
+        assertThat(elapsed, lessThan(1_000L));
+    }
+
+    /**
+     * helper threads raise an exception.
+     * @throws Exception if failed
+     */
+    @Test(expected = IllegalStateException.class)
+    public void failure() throws Exception {
+        List<IntOption> input = values(IntStream.range(0, 10_000));
+        ParallelTableLoader loader = new ParallelTableLoader(executor, 4, 16);
+        loader.<IntOption>load(
+                new CollectionObjectReader(input),
+                v -> new IntOption(v.get()),
+                () -> (KeyExtractor<IntOption>) (k, v) -> {
+                    if (v.get() == 5_000) {
+                        throw new IllegalStateException();
+                    }
+                    k.append(new IntOption(v.get() % 10));
+                },
+                new BasicDataTable.ConcurrentBuilder<>(HeapKeyBuffer::new, KeyValidator.NULL),
+                null);
+    }
+
+    private DataTable<IntOption> load(int parallelism, int batchSize, List<IntOption> input) throws Exception {
+        ParallelTableLoader loader = new ParallelTableLoader(executor, parallelism, batchSize);
+        return loader.<IntOption>load(
+                new CollectionObjectReader(input),
+                v -> new IntOption(v.get()),
+                () -> (k, v) -> k.append(new IntOption(v.get() % 10)),
+                new BasicDataTable.ConcurrentBuilder<>(HeapKeyBuffer::new, KeyValidator.NULL),
+                Comparator.naturalOrder());
+    }
+
+    private static KeyBuffer key(int value) {
+        return new HeapKeyBuffer().append(new IntOption(value));
+    }
+
+    private static List<IntOption> values(IntStream values) {
+        List<IntOption> results = values.mapToObj(IntOption::new).collect(Collectors.toCollection(ArrayList::new));
+        Collections.sort(results);
+        return results;
+    }
+}
@@ -19,12 +19,16 @@ import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 
 import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
 import org.junit.Test;
 
 import com.asakusafw.dag.api.processor.VertexProcessorContext;
+import com.asakusafw.dag.api.processor.extension.OperatorProfiler;
 import com.asakusafw.dag.api.processor.testing.VertexProcessorRunner;
 import com.asakusafw.dag.runtime.adapter.DataTable;
 import com.asakusafw.dag.runtime.adapter.DataTableAdapter;
@@ -56,6 +60,27 @@ public class VertexAdapterTest {
         assertThat(runner.get("out"), containsInAnyOrder("Hello, input!!"));
     }
 
+    /**
+     * w/ operator profiler.
+     */
+    @Test
+    public void profile() {
+        MockProfiler profiler = new MockProfiler(2);
+        VertexProcessorRunner runner = new VertexProcessorRunner(() -> new VertexAdapter()
+                .input(MockInput.class)
+                .operation(MockProfiledOperation.class)
+                .output(MockOutput.class));
+        runner.resource(OperatorProfiler.class, profiler);
+        runner.input("in", "a", "b", "c", "d");
+        runner.output("out", Function.identity());
+        runner.run();
+
+        assertThat(runner.get("out"), containsInAnyOrder("a!?", "b!?", "c!?", "d!?"));
+        assertThat(profiler.samples.keySet(), containsInAnyOrder("first", "second"));
+        assertThat(profiler.samples.get("first").get(), is(2));
+        assertThat(profiler.samples.get("second").get(), is(2));
+    }
+
     @SuppressWarnings("javadoc")
     public static class MockInput extends ExtractInputAdapter {
         public MockInput(VertexProcessorContext context) {
@@ -106,4 +131,43 @@ public class VertexAdapterTest {
             };
         }
     }
+
+    @SuppressWarnings("javadoc")
+    public static class MockProfiledOperation implements OperationAdapter<ExtractOperation.Input> {
+        public MockProfiledOperation(VertexProcessorContext context) {
+            return;
+        }
+        @Override
+        public Operation<? super ExtractOperation.Input> newInstance(OperationAdapter.Context context) {
+            Result<String> sink = context.getSink(String.class, "out");
+            Result<String> second = context.decorate(value -> sink.add(value + "?"), "second");
+            Result<String> first = context.decorate(value -> second.add(value + "!"), "first");
+            return input -> first.add(input.getObject());
+        }
+    }
+
+    private static class MockProfiler implements OperatorProfiler {
+
+        final int interval;
+
+        final Map<String, AtomicInteger> samples = new ConcurrentHashMap<>();
+
+        MockProfiler(int interval) {
+            this.interval = interval;
+        }
+
+        @Override
+        public int getSamplingInterval() {
+            return interval;
+        }
+
+        @Override
+        public Probe getProbe(String vertexId, String label) {
+            AtomicInteger counter = samples.computeIfAbsent(label, k -> new AtomicInteger());
+            return (selfNanos, totalNanos) -> {
+                assertThat(selfNanos, is(lessThanOrEqualTo(totalNanos)));
+                counter.incrementAndGet();
+            };
+        }
+    }
 }
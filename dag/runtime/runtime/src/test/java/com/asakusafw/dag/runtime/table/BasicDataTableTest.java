@@ -449,6 +449,109 @@ public class BasicDataTableTest {
         AssertUtil.catching(() -> table.find(k(0), k(1), k(2), k(3), k(4), 5));
     }
 
+    /**
+     * compact tables.
+     * @throws Exception if failed
+     */
+    @Test
+    public void compact() throws Exception {
+        BasicDataTable.CompactBuilder<IntOption> builder = new BasicDataTable.CompactBuilder<>(
+                6, HeapKeyBuffer::new, KeyValidator.NULL);
+        builder.add(key(100), new IntOption(102));
+        builder.add(key(101), new IntOption(200));
+        builder.add(key(100), new IntOption(100));
+        builder.add(key(102), new IntOption(300));
+        builder.add(key(100), new IntOption(101));
+        builder.add(key(102), new IntOption(301));
+
+        DataTable<IntOption> table = builder.build(Comparator.naturalOrder());
+        assertThat(table.getList(key(100)), is(values(100, 101, 102)));
+        assertThat(table.getList(key(101)), is(values(200)));
+        assertThat(table.getList(key(102)), is(values(300, 301)));
+        assertThat(table.getList(key(103)), is(values()));
+    }
+
+    /**
+     * compact tables w/ more elements than expected.
+     * @throws Exception if failed
+     */
+    @Test
+    public void compact_overflow() throws Exception {
+        BasicDataTable.CompactBuilder<IntOption> builder = new BasicDataTable.CompactBuilder<>(
+                1, HeapKeyBuffer::new, KeyValidator.NULL);
+        for (int i = 0; i < 100; i++) {
+            builder.add(key(i % 3), new IntOption(i));
+        }
+
+        DataTable<IntOption> table = builder.build();
+        for (int k = 0; k < 3; k++) {
+            int m = k;
+            assertThat(sort(table.getList(key(k))), is(values(IntStream.range(0, 100)
+                    .filter(i -> i % 3 == m)
+                    .toArray())));
+        }
+    }
+
+    /**
+     * pre-sized tables never exceed the max number of groups.
+     * @throws Exception if failed
+     */
+    @Test
+    public void expected_groups() throws Exception {
+        assertThat(BasicDataTable.getExpectedGroups(0), is(0));
+        assertThat(BasicDataTable.getExpectedGroups(100), is(100));
+        assertThat(BasicDataTable.getExpectedGroups(Integer.MAX_VALUE - 8), is(BasicDataTable.MAX_EXPECTED_GROUPS));
+
+        BasicDataTable.CompactBuilder<IntOption> builder = new BasicDataTable.CompactBuilder<>(
+                BasicDataTable.MAX_EXPECTED_GROUPS * 4, HeapKeyBuffer::new, KeyValidator.NULL);
+        for (int i = 0; i < 100; i++) {
+            builder.add(key(i % 2), new IntOption(i));
+        }
+        DataTable<IntOption> table = builder.build();
+        assertThat(table.getList(key(0)).size(), is(50));
+        assertThat(table.getList(key(1)).size(), is(50));
+    }
+
+    /**
+     * concurrent tables.
+     * @throws Exception if failed
+     */
+    @Test
+    public void concurrent() throws Exception {
+        BasicDataTable.ConcurrentBuilder<IntOption> builder = new BasicDataTable.ConcurrentBuilder<>(
+                100, HeapKeyBuffer::new, KeyValidator.NULL);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int offset = t;
+            threads.add(new Thread(() -> {
+                BasicDataTable.ConcurrentBuilder.Chunk<IntOption> chunk = builder.newChunk(10);
+                KeyBuffer key = builder.newKeyBuffer();
+                for (int i = offset; i < 100; i += 4) {
+                    key.clear();
+                    key.append(new IntOption(i % 3));
+                    chunk.add(key, new IntOption(i));
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        builder.add(key(3), new IntOption(100));
+
+        DataTable<IntOption> table = builder.build(Comparator.naturalOrder());
+        for (int k = 0; k < 3; k++) {
+            int m = k;
+            assertThat(table.getList(key(k)), is(values(IntStream.range(0, 100)
+                    .filter(i -> i % 3 == m)
+                    .toArray())));
+            // groups refer to ranges of the single array
+            assertThat(table.getList(key(k)), is(not(instanceOf(ArrayList.class))));
+        }
+        assertThat(table.getList(key(3)), is(values(100)));
+        assertThat(table.getList(key(4)), is(values()));
+    }
+
     private <T> BasicDataTable.Builder<T> start() {
         return new BasicDataTable.Builder<>(new LinkedHashMap<>(), HeapKeyBuffer::new);
     }
@@ -0,0 +1,193 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.dag.runtime.table;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.asakusafw.dag.runtime.adapter.DataTable;
+import com.asakusafw.lang.utils.common.InterruptibleIo;
+
+/**
+ * Test for {@link DataTableCache}.
+ */
+public class DataTableCacheTest {
+
+    private final AtomicInteger built = new AtomicInteger();
+
+    /**
+     * simple case.
+     * @throws Exception if failed
+     */
+    @Test
+    public void simple() throws Exception {
+        DataTableCache cache = new DataTableCache();
+        try (DataTableCache.Reader reader = cache.open("a", 1)) {
+            assertThat(reader.acquire("s", this::build), is(notNullValue()));
+        }
+        assertThat(built.get(), is(1));
+        assertThat(cache.getNumberOfSources(), is(0));
+    }
+
+    /**
+     * shares tables.
+     * @throws Exception if failed
+     */
+    @Test
+    public void share() throws Exception {
+        DataTableCache cache = new DataTableCache();
+        try (DataTableCache.Reader a = cache.open("a", 2);
+                DataTableCache.Reader b = cache.open("a", 2);
+                DataTableCache.Reader c = cache.open("c", 1)) {
+            DataTable<?> table = a.acquire("s", this::build);
+            assertThat(b.acquire("s", this::build), is(sameInstance(table)));
+            assertThat(b.acquire("t", this::build), is(not(sameInstance(table))));
+            assertThat(c.acquire("s", this::build), is(not(sameInstance(table))));
+            assertThat(built.get(), is(3));
+        }
+        assertThat(cache.getNumberOfSources(), is(0));
+    }
+
+    /**
+     * tables are kept until the last reader is closed.
+     * @throws Exception if failed
+     */
+    @Test
+    public void reuse() throws Exception {
+        DataTableCache cache = new DataTableCache();
+        DataTable<?> table;
+        try (DataTableCache.Reader reader = cache.open("a", 2)) {
+            table = reader.acquire("s", this::build);
+        }
+        assertThat(cache.getNumberOfSources(), is(1));
+        try (DataTableCache.Reader reader = cache.open("a", 2)) {
+            assertThat(reader.acquire("s", this::build), is(sameInstance(table)));
+            assertThat(built.get(), is(1));
+        }
+        assertThat(cache.getNumberOfSources(), is(0));
+    }
+
+    /**
+     * tables are released after the all open readers are closed if the number of readers is unknown.
+     * @throws Exception if failed
+     */
+    @Test
+    public void release_unknown() throws Exception {
+        DataTableCache cache = new DataTableCache();
+        try (DataTableCache.Reader a = cache.open("a", -1)) {
+            try (DataTableCache.Reader b = cache.open("a", -1)) {
+                assertThat(b.acquire("s", this::build), is(sameInstance(a.acquire("s", this::build))));
+            }
+            assertThat(cache.getNumberOfSources(), is(1));
+        }
+        assertThat(cache.getNumberOfSources(), is(0));
+        try (DataTableCache.Reader reader = cache.open("a", -1)) {
+            reader.acquire("s", this::build);
+        }
+        assertThat(built.get(), is(2));
+    }
+
+    /**
+     * tables of invariant sources are shared between rounds until the cache is closed.
+     * @throws Exception if failed
+     */
+    @Test
+    public void share_rounds() throws Exception {
+        DataTableCache cache = new DataTableCache(true);
+        DataTable<?> table;
+        try (DataTableCache.Reader reader = cache.open("a", 1, true)) {
+            table = reader.acquire("s", this::build);
+        }
+        assertThat(cache.getNumberOfSources(), is(1));
+        try (DataTableCache.Reader reader = cache.open("a", 1, true)) {
+            assertThat(reader.acquire("s", this::build), is(sameInstance(table)));
+        }
+        assertThat(built.get(), is(1));
+        assertThat(cache.getNumberOfSources(), is(1));
+        cache.close();
+        assertThat(cache.getNumberOfSources(), is(0));
+    }
+
+    /**
+     * tables of variant sources are not retained even if the cache is shared between rounds.
+     * @throws Exception if failed
+     */
+    @Test
+    public void share_rounds_variant() throws Exception {
+        DataTableCache cache = new DataTableCache(true);
+        try (DataTableCache.Reader reader = cache.open("a", 1, false)) {
+            reader.acquire("s", this::build);
+        }
+        assertThat(cache.getNumberOfSources(), is(0));
+    }
+
+    /**
+     * tables of invariant sources are released after the last reader if the cache is not shared between rounds.
+     * @throws Exception if failed
+     */
+    @Test
+    public void share_rounds_disabled() throws Exception {
+        DataTableCache cache = new DataTableCache();
+        try (DataTableCache.Reader reader = cache.open("a", 1, true)) {
+            reader.acquire("s", this::build);
+        }
+        assertThat(cache.getNumberOfSources(), is(0));
+    }
+
+    /**
+     * failed to build tables.
+     * @throws Exception if failed
+     */
+    @Test
+    public void failure() throws Exception {
+        DataTableCache cache = new DataTableCache();
+        InterruptibleIo.IoCallable<DataTable<?>> failure = () -> {
+            throw new IOException("testing");
+        };
+        try (DataTableCache.Reader reader = cache.open("a", 1)) {
+            try {
+                reader.acquire("s", failure);
+                fail();
+            } catch (IOException e) {
+                // ok.
+            }
+            assertThat(reader.acquire("s", this::build), is(notNullValue()));
+        }
+        assertThat(cache.getNumberOfSources(), is(0));
+    }
+
+    /**
+     * acquire tables from closed readers.
+     * @throws Exception if failed
+     */
+    @Test(expected = IllegalStateException.class)
+    public void acquire_closed() throws Exception {
+        DataTableCache cache = new DataTableCache();
+        DataTableCache.Reader reader = cache.open("a", 1);
+        reader.close();
+        reader.acquire("s", this::build);
+    }
+
+    private DataTable<Object> build() {
+        built.incrementAndGet();
+        return new BasicDataTable.Builder<>().build();
+    }
+}
@@ -23,10 +23,13 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.reflect.Field;
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.NoSuchElementException;
 import java.util.Properties;
 import java.util.TreeMap;
 
@@ -47,6 +50,7 @@ import com.asakusafw.lang.inspection.processor.DetailProcessor;
 import com.asakusafw.lang.inspection.processor.DotProcessor;
 import com.asakusafw.lang.inspection.processor.InspectionNodeProcessor;
 import com.asakusafw.lang.inspection.processor.ListProcessor;
+import com.asakusafw.lang.inspection.processor.RuntimeProfileProcessor;
 import com.asakusafw.lang.inspection.processor.StoreProcessor;
 
 /**
@@ -67,6 +71,7 @@ public final class Cli {
         map.put("text", new DetailProcessor()); //$NON-NLS-1$
         map.put("json", new StoreProcessor()); //$NON-NLS-1$
         map.put("dot", new DotProcessor()); //$NON-NLS-1$
+        map.put("profile", new RuntimeProfileProcessor()); //$NON-NLS-1$
         BUILTIN_PROCESSORS = map;
     }
 
@@ -202,17 +207,24 @@ public final class Cli {
 
     private static InspectionNode loadInput(
             File file, InspectionNodeRepository repository, String path) throws IOException {
-        InspectionNode node = loadInput(file, repository);
-        if (path != null) {
-            return find(node, path);
+        LOG.debug("loading file: {}", file); //$NON-NLS-1$
+        List<String> segments = path == null ? Collections.emptyList() : split(path);
+        Map<List<String>, Long> offsets = segments.isEmpty() ? new HashMap<>() : loadIndex(file, repository);
+        try (InputStream input = new FileInputStream(file)) {
+            // only builds the target sub-tree, and skips the preceding contents if they are in the index
+            return repository.load(input, segments, -1, offsets);
         }
-        return node;
     }
 
-    private static InspectionNode loadInput(File file, InspectionNodeRepository repository) throws IOException {
-        LOG.debug("loading file: {}", file); //$NON-NLS-1$
-        try (InputStream input = new FileInputStream(file)) {
-            return repository.load(input);
+    private static Map<List<String>, Long> loadIndex(
+            File file, InspectionNodeRepository repository) throws IOException {
+        File index = new File(file.getPath() + InspectionNodeRepository.INDEX_FILE_SUFFIX);
+        if (index.isFile() == false) {
+            return new HashMap<>();
+        }
+        LOG.debug("loading index: {}", index); //$NON-NLS-1$
+        try (InputStream input = new FileInputStream(index)) {
+            return repository.loadIndex(input, file.length());
         }
     }
 
@@ -226,24 +238,14 @@ public final class Cli {
         return new FileOutputStream(file);
     }
 
-    private static InspectionNode find(InspectionNode node, String path) {
-        InspectionNode current = node;
-        StringBuilder history = new StringBuilder();
+    private static List<String> split(String path) {
+        List<String> results = new ArrayList<>();
         for (String segment : path.split(PATH_SEPARATOR)) {
-            if (segment.isEmpty()) {
-                continue;
-            }
-            if (history.length() >= 1) {
-                history.append(PATH_SEPARATOR);
+            if (segment.isEmpty() == false) {
+                results.add(segment);
             }
-            history.append(segment);
-            InspectionNode next = current.getElements().get(segment);
-            if (next == null) {
-                throw new NoSuchElementException(history.toString());
-            }
-            current = next;
         }
-        return current;
+        return results;
     }
 
     private static class Opts {
@@ -262,7 +264,7 @@ public final class Cli {
 
         final Option format = optional("format", 1) //$NON-NLS-1$
                 .withDescription("output format (default: txt)")
-                .withArgumentDescription("ls|txt|dot|json|class-name"); //$NON-NLS-1$
+                .withArgumentDescription("ls|txt|dot|json|profile|class-name"); //$NON-NLS-1$
 
         final Option properties = properties("P", "property") //$NON-NLS-1$ //$NON-NLS-2$
                 .withValueSeparator('=')
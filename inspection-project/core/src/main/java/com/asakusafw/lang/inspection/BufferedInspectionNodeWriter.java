@@ -0,0 +1,84 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.lang.inspection;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * An implementation of {@link InspectionNodeWriter} which builds the whole node tree in memory,
+ * and then stores it into the repository after the root node was ended.
+ */
+final class BufferedInspectionNodeWriter implements InspectionNodeWriter {
+
+    private final InspectionNodeRepository repository;
+
+    private final OutputStream output;
+
+    private final OutputStream index;
+
+    private final Deque<InspectionNode> stack = new ArrayDeque<>();
+
+    private boolean finished;
+
+    BufferedInspectionNodeWriter(InspectionNodeRepository repository, OutputStream output, OutputStream index) {
+        this.repository = repository;
+        this.output = output;
+        this.index = index;
+    }
+
+    @Override
+    public void begin(InspectionNode node) throws IOException {
+        if (finished) {
+            throw new IllegalStateException();
+        }
+        // copies the node, so that the following elements do not modify the original one
+        InspectionNode copy = new InspectionNode(node.getId(), node.getTitle());
+        node.getInputs().values().forEach(copy::withInput);
+        node.getOutputs().values().forEach(copy::withOutput);
+        copy.getProperties().putAll(node.getProperties());
+        node.getElements().values().forEach(copy::withElement);
+        if (stack.isEmpty() == false) {
+            stack.peek().withElement(copy);
+        }
+        stack.push(copy);
+    }
+
+    @Override
+    public void end() throws IOException {
+        if (stack.isEmpty()) {
+            throw new IllegalStateException();
+        }
+        InspectionNode node = stack.pop();
+        if (stack.isEmpty()) {
+            finished = true;
+            repository.store(output, node);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            output.close();
+        } finally {
+            if (index != null) {
+                index.close();
+            }
+        }
+    }
+}
@@ -18,12 +18,23 @@ package com.asakusafw.lang.inspection;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
 /**
  * Represents a repository for {@link InspectionNode}.
  */
 public interface InspectionNodeRepository {
 
+    /**
+     * The file name suffix of the offset index, which is placed next to the contents file.
+     * @see #open(OutputStream, OutputStream)
+     * @see #loadIndex(InputStream, long)
+     */
+    String INDEX_FILE_SUFFIX = ".index"; //$NON-NLS-1$
+
     /**
      * Loads {@link InspectionNode} from the input stream.
      * @param input the input stream
@@ -32,6 +43,51 @@ public interface InspectionNodeRepository {
      */
     InspectionNode load(InputStream input) throws IOException;
 
+    /**
+     * Loads a sub-tree of {@link InspectionNode} from the input stream.
+     * Implementations may skip the contents which are not in the target sub-tree, so that clients can inspect
+     * a part of very large inspection objects.
+     * The resulting node may have additional elements beyond the given depth.
+     * @param input the input stream
+     * @param path the element IDs from the root node to the target node, or an empty list for the root node
+     * @param depth the number of nesting levels of elements to load, or a negative value to load all elements;
+     *     elements on the last level do not have their own elements
+     * @return the loaded node
+     * @throws IOException if failed to load the node
+     * @throws NoSuchElementException if there is no such a node on the path
+     */
+    default InspectionNode load(InputStream input, List<String> path, int depth) throws IOException {
+        InspectionNode current = load(input);
+        for (String segment : path) {
+            InspectionNode next = current.getElements().get(segment);
+            if (next == null) {
+                throw new NoSuchElementException(String.join("/", path)); //$NON-NLS-1$
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    /**
+     * Loads a sub-tree of {@link InspectionNode} from the input stream with an offset index.
+     * Implementations may skip the contents to the nearest node on the path in the index,
+     * and may add the offsets of the nodes which they have read into the index.
+     * The index must be used only for the same contents.
+     * @param input the input stream, which must be positioned at the beginning of the contents
+     * @param path the element IDs from the root node to the target node, or an empty list for the root node
+     * @param depth the number of nesting levels of elements to load, or a negative value to load all elements
+     * @param offsets the offset index, which maps the element paths into their byte offsets in the contents
+     * @return the loaded node
+     * @throws IOException if failed to load the node
+     * @throws NoSuchElementException if there is no such a node on the path
+     * @see #load(InputStream, List, int)
+     */
+    default InspectionNode load(
+            InputStream input, List<String> path, int depth,
+            Map<List<String>, Long> offsets) throws IOException {
+        return load(input, path, depth);
+    }
+
     /**
      * Stores an {@link InspectionNode} into the output stream.
      * @param output the output stream
@@ -40,4 +96,47 @@ public interface InspectionNodeRepository {
      */
     void store(OutputStream output, InspectionNode node) throws IOException;
 
+    /**
+     * Stores an {@link InspectionNode} into the output stream.
+     * Implementations may add the offsets of the written nodes into the given index.
+     * @param output the output stream
+     * @param node the target node
+     * @param offsets the offset index, which maps the element paths into their byte offsets in the contents
+     * @throws IOException if failed to store the node
+     * @see #load(InputStream, List, int, Map)
+     */
+    default void store(OutputStream output, InspectionNode node, Map<List<String>, Long> offsets) throws IOException {
+        store(output, node);
+    }
+
+    /**
+     * Returns a writer which stores an {@link InspectionNode} into the output stream incrementally.
+     * If the index output stream is specified, implementations may also write the offset index of the
+     * written nodes into it, which can be restored by {@link #loadIndex(InputStream, long)}.
+     * The returned writer will close both the output streams.
+     * The default implementation builds the whole node tree in memory and does not write any indices.
+     * @param output the output stream
+     * @param index the output stream for the offset index, or {@code null} if it is not required
+     * @return the created writer
+     * @throws IOException if failed to open the writer
+     * @see #store(OutputStream, InspectionNode)
+     */
+    default InspectionNodeWriter open(OutputStream output, OutputStream index) throws IOException {
+        return new BufferedInspectionNodeWriter(this, output, index);
+    }
+
+    /**
+     * Loads the offset index, which was written by {@link #open(OutputStream, OutputStream)}.
+     * Implementations must return an empty index if it does not match the contents of the given size,
+     * and the resulting index can be passed to {@link #load(InputStream, List, int, Map)}.
+     * The default implementation always returns an empty index.
+     * @param input the input stream of the offset index
+     * @param size the number of bytes in the corresponding contents, or a negative value if it is unknown
+     * @return the loaded index
+     * @throws IOException if failed to load the index
+     */
+    default Map<List<String>, Long> loadIndex(InputStream input, long size) throws IOException {
+        return new HashMap<>();
+    }
+
 }
\ No newline at end of file
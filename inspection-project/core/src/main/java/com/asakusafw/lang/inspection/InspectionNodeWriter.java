@@ -0,0 +1,63 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.lang.inspection;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes {@link InspectionNode} incrementally.
+ * Clients can write the elements of a node one by one, without building the whole node tree in memory.
+<pre><code>
+writer.begin(root);
+for (InspectionNode element : ...) {
+    writer.write(element);
+}
+writer.end();
+</code></pre>
+ * @see InspectionNodeRepository#open(java.io.OutputStream, java.io.OutputStream)
+ */
+public interface InspectionNodeWriter extends Closeable {
+
+    /**
+     * Begins writing a node.
+     * This writes the given node including its current elements, and then the successive nodes become
+     * its elements until the corresponding {@link #end()} is invoked.
+     * The first node becomes the root node, and it must be ended before closing this writer.
+     * @param node the node to write
+     * @throws IOException if failed to write the node
+     * @throws IllegalStateException if the root node has been already ended
+     */
+    void begin(InspectionNode node) throws IOException;
+
+    /**
+     * Ends writing the current node.
+     * @throws IOException if failed to write the node
+     * @throws IllegalStateException if there is no current node
+     */
+    void end() throws IOException;
+
+    /**
+     * Writes a node and its elements.
+     * @param node the node to write
+     * @throws IOException if failed to write the node
+     * @throws IllegalStateException if the root node has been already ended
+     */
+    default void write(InspectionNode node) throws IOException {
+        begin(node);
+        end();
+    }
+}
@@ -15,30 +15,66 @@
  */
 package com.asakusafw.lang.inspection.json;
 
+import static com.asakusafw.lang.inspection.json.NodeAdapter.*;
+
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
 import java.nio.charset.Charset;
+import java.nio.charset.MalformedInputException;
 import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
 import com.asakusafw.lang.inspection.InspectionNode;
+import com.asakusafw.lang.inspection.InspectionNode.Port;
 import com.asakusafw.lang.inspection.InspectionNodeRepository;
+import com.asakusafw.lang.inspection.InspectionNodeWriter;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonIOException;
 import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
 import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
 
 /**
  * An implementation of {@link InspectionNodeRepository} using JSON format.
+ * This reads and writes nodes incrementally, and {@link #load(InputStream, List, int)} only builds
+ * the target sub-tree while skipping the other contents.
+ * {@link #load(InputStream, List, int, Map)} also skips the contents before the target node
+ * if its offset has been already recorded.
+ * {@link #open(OutputStream, OutputStream)} writes the offsets of the individual nodes into a separate JSON file,
+ * so that the other processes can skip the contents without scanning them at first.
  */
 public class JsonInspectionNodeRepository implements InspectionNodeRepository {
 
     private static final Charset ENCODING = StandardCharsets.UTF_8;
 
+    private static final String KEY_INDEX_OFFSETS = "offsets"; //$NON-NLS-1$
+
+    private static final String KEY_INDEX_PATH = "path"; //$NON-NLS-1$
+
+    private static final String KEY_INDEX_OFFSET = "offset"; //$NON-NLS-1$
+
+    private static final String KEY_INDEX_SIZE = "size"; //$NON-NLS-1$
+
     private final Gson gson = new GsonBuilder()
         .registerTypeAdapter(InspectionNode.class, new NodeAdapter())
         .registerTypeAdapter(InspectionNode.Port.class, new PortAdapter())
@@ -47,23 +83,703 @@ public class JsonInspectionNodeRepository implements InspectionNodeRepository {
 
     @Override
     public InspectionNode load(InputStream input) throws IOException {
+        return load(input, Collections.emptyList(), -1);
+    }
+
+    @Override
+    public InspectionNode load(InputStream input, List<String> path, int depth) throws IOException {
         try (JsonReader reader = new JsonReader(new InputStreamReader(input, ENCODING))) {
-            InspectionNode result = gson.fromJson(reader, InspectionNode.class);
-            if (result == null) {
+            return load(reader, null, null, path, depth);
+        }
+    }
+
+    @Override
+    public InspectionNode load(
+            InputStream input, List<String> path, int depth,
+            Map<List<String>, Long> offsets) throws IOException {
+        // finds the nearest node on the path from the index
+        int start = 0;
+        long offset = 0L;
+        for (int i = path.size(); i > 0; i--) {
+            Long found = offsets.get(path.subList(0, i));
+            if (found != null) {
+                start = i;
+                offset = found;
+                break;
+            }
+        }
+        skip(input, offset);
+        PositionReader source = new PositionReader(input, offset);
+        try (JsonReader reader = new JsonReader(source)) {
+            List<String> location = start == 0 ? null : path.subList(0, start - 1);
+            return load(reader, new Index(source, offsets::put), location, path.subList(start, path.size()), depth);
+        }
+    }
+
+    private InspectionNode load(
+            JsonReader reader, Index index,
+            List<String> location, List<String> path, int depth) throws IOException {
+        try {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
                 throw new IOException("there are no valid JSON object");
             }
+            InspectionNode result = readNode(reader, index, location, null, path, depth);
+            if (result == null) {
+                throw new NoSuchElementException(String.join("/", path)); //$NON-NLS-1$
+            }
             return result;
-        } catch (JsonParseException e) {
+        } catch (JsonParseException | IllegalStateException e) {
             throw new IOException("invalid JSON object", e);
         }
     }
 
+    private static void skip(InputStream input, long offset) throws IOException {
+        long rest = offset;
+        while (rest > 0) {
+            long skipped = input.skip(rest);
+            if (skipped <= 0) {
+                if (input.read() < 0) {
+                    throw new IOException(MessageFormat.format(
+                            "offset is out of range: {0}",
+                            offset));
+                }
+                skipped = 1;
+            }
+            rest -= skipped;
+        }
+    }
+
+    /**
+     * Reads a node.
+     * @param reader the source reader
+     * @param index the offset index, or {@code null} if it is not available
+     * @param location the path of the parent node, or {@code null} if the current node is the root
+     * @param expectedId the expected node ID, or {@code null} if it is not restricted
+     * @param path the rest path from the current node to the target node
+     * @param depth the number of nesting levels of elements to load, or negative value to load all elements
+     * @return the target node, or {@code null} if the current node or the target node does not exist
+     * @throws IOException if I/O error was occurred while reading the node
+     */
+    private InspectionNode readNode(
+            JsonReader reader, Index index,
+            List<String> location, String expectedId,
+            List<String> path, int depth) throws IOException {
+        long offset = index == null ? -1L : index.offset(reader);
+        String id = null;
+        String title = null;
+        List<Port> inputs = Collections.emptyList();
+        List<Port> outputs = Collections.emptyList();
+        Map<String, String> properties = Collections.emptyMap();
+        List<InspectionNode> elements = Collections.emptyList();
+        InspectionNode target = null;
+        JsonElement deferred = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (expectedId != null && id != null && id.equals(expectedId) == false) {
+                // skips the rest of unrelated nodes
+                reader.skipValue();
+                continue;
+            }
+            switch (name) {
+            case KEY_ID:
+                id = reader.nextString();
+                if (index != null && location != null) {
+                    index.put(location, id, offset);
+                }
+                break;
+            case KEY_TITLE:
+                title = reader.nextString();
+                break;
+            case KEY_INPUTS:
+                inputs = gson.fromJson(reader, TYPE_PORTS);
+                break;
+            case KEY_OUTPUTS:
+                outputs = gson.fromJson(reader, TYPE_PORTS);
+                break;
+            case KEY_PROPERTIES:
+                properties = gson.fromJson(reader, TYPE_PROPERTIES);
+                break;
+            case KEY_ELEMENTS:
+                if (expectedId != null && id == null) {
+                    // we cannot decide whether or not the elements are required
+                    deferred = new JsonParser().parse(reader);
+                } else {
+                    // offsets of the elements are not available if their parent ID is not yet determined
+                    Index scope = id == null ? null : index;
+                    List<String> self = scope == null ? null : pathOf(location, id);
+                    if (path.isEmpty()) {
+                        elements = readElements(reader, scope, self, depth);
+                    } else {
+                        target = findElement(reader, scope, self, path, depth);
+                    }
+                }
+                break;
+            default:
+                reader.skipValue();
+                break;
+            }
+        }
+        reader.endObject();
+        if (expectedId != null && id != null && id.equals(expectedId) == false) {
+            return null;
+        }
+        if (id == null || title == null) {
+            throw new JsonParseException("node must have both id and title"); //$NON-NLS-1$
+        }
+        if (deferred != null) {
+            // offsets in the deferred elements are not available
+            try (JsonReader nested = new JsonReader(new StringReader(deferred.toString()))) {
+                if (path.isEmpty()) {
+                    elements = readElements(nested, null, null, depth);
+                } else {
+                    target = findElement(nested, null, null, path, depth);
+                }
+            }
+        }
+        if (path.isEmpty() == false) {
+            return target;
+        }
+        InspectionNode result = new InspectionNode(id, title);
+        inputs.forEach(result::withInput);
+        outputs.forEach(result::withOutput);
+        result.getProperties().putAll(properties);
+        elements.forEach(result::withElement);
+        return result;
+    }
+
+    private List<InspectionNode> readElements(
+            JsonReader reader, Index index, List<String> location, int depth) throws IOException {
+        if (depth == 0) {
+            if (index == null) {
+                reader.skipValue();
+            } else {
+                indexElements(reader, index, location);
+            }
+            return Collections.emptyList();
+        }
+        List<InspectionNode> results = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            results.add(readNode(reader, index, location, null, Collections.emptyList(), depth - 1));
+        }
+        reader.endArray();
+        return results;
+    }
+
+    private InspectionNode findElement(
+            JsonReader reader, Index index, List<String> location,
+            List<String> path, int depth) throws IOException {
+        assert path.isEmpty() == false;
+        InspectionNode result = null;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (result == null) {
+                result = readNode(reader, index, location, path.get(0), path.subList(1, path.size()), depth);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endArray();
+        return result;
+    }
+
+    private static void indexElements(JsonReader reader, Index index, List<String> location) throws IOException {
+        // only records the offsets of the elements, instead of skipping them
+        reader.beginArray();
+        while (reader.hasNext()) {
+            long offset = index.offset(reader);
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals(KEY_ID)) {
+                    index.put(location, reader.nextString(), offset);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        reader.endArray();
+    }
+
+    static List<String> pathOf(List<String> location, String id) {
+        if (location == null) {
+            return Collections.emptyList();
+        }
+        return append(location, id);
+    }
+
+    static List<String> append(List<String> location, String id) {
+        List<String> results = new ArrayList<>(location.size() + 1);
+        results.addAll(location);
+        results.add(id);
+        return results;
+    }
+
     @Override
     public void store(OutputStream output, InspectionNode node) throws IOException {
         try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(output, ENCODING))) {
-            gson.toJson(node, InspectionNode.class, writer);
+            writeNode(writer, null, null, node);
+        } catch (JsonIOException e) {
+            throw new IOException("failed to store as JSON object", e);
+        }
+    }
+
+    @Override
+    public void store(OutputStream output, InspectionNode node, Map<List<String>, Long> offsets) throws IOException {
+        PositionWriter target = new PositionWriter(output);
+        try (JsonWriter writer = new JsonWriter(target)) {
+            writeNode(writer, new Index(target, offsets::put), null, node);
         } catch (JsonIOException e) {
             throw new IOException("failed to store as JSON object", e);
         }
     }
+
+    @Override
+    public InspectionNodeWriter open(OutputStream output, OutputStream index) throws IOException {
+        PositionWriter target = new PositionWriter(output);
+        if (index == null) {
+            return new NodeWriter(new JsonWriter(target), null, null);
+        }
+        IndexWriter offsets = new IndexWriter(new JsonWriter(new OutputStreamWriter(index, ENCODING)), target);
+        return new NodeWriter(new JsonWriter(target), new Index(target, offsets), offsets);
+    }
+
+    @Override
+    public Map<List<String>, Long> loadIndex(InputStream input, long size) throws IOException {
+        Map<List<String>, Long> results = new HashMap<>();
+        long actualSize = -1L;
+        try (JsonReader reader = new JsonReader(new InputStreamReader(input, ENCODING))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                case KEY_INDEX_OFFSETS:
+                    readIndexEntries(reader, results);
+                    break;
+                case KEY_INDEX_SIZE:
+                    actualSize = reader.nextLong();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+                }
+            }
+            reader.endObject();
+        } catch (JsonParseException | IllegalStateException | NumberFormatException
+                | MalformedJsonException | EOFException e) {
+            // the index may be broken if the writer was not completed
+            return new HashMap<>();
+        }
+        if (actualSize < 0 || (size >= 0 && actualSize != size)) {
+            // the index is out of date
+            return new HashMap<>();
+        }
+        return results;
+    }
+
+    private static void readIndexEntries(JsonReader reader, Map<List<String>, Long> results) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            List<String> path = null;
+            long offset = -1L;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                case KEY_INDEX_PATH:
+                    path = new ArrayList<>();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        path.add(reader.nextString());
+                    }
+                    reader.endArray();
+                    break;
+                case KEY_INDEX_OFFSET:
+                    offset = reader.nextLong();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+                }
+            }
+            reader.endObject();
+            if (path == null || path.isEmpty() || offset < 0) {
+                throw new JsonParseException("index entry must have both path and offset"); //$NON-NLS-1$
+            }
+            results.put(path, offset);
+        }
+        reader.endArray();
+    }
+
+    private void writeNode(
+            JsonWriter writer, Index index,
+            List<String> location, InspectionNode node) throws IOException {
+        beginNode(writer, index, location, node);
+        endNode(writer);
+    }
+
+    private List<String> beginNode(
+            JsonWriter writer, Index index,
+            List<String> location, InspectionNode node) throws IOException {
+        writer.beginObject();
+        if (index != null && location != null) {
+            // JsonWriter does not buffer contents, so that the last written character is '{'
+            index.put(location, node.getId(), index.position.get() - 1);
+        }
+        writer.name(KEY_ID).value(node.getId());
+        writer.name(KEY_TITLE).value(node.getTitle());
+        writer.name(KEY_INPUTS);
+        gson.toJson(new ArrayList<>(node.getInputs().values()), TYPE_PORTS, writer);
+        writer.name(KEY_OUTPUTS);
+        gson.toJson(new ArrayList<>(node.getOutputs().values()), TYPE_PORTS, writer);
+        writer.name(KEY_PROPERTIES);
+        gson.toJson(node.getProperties(), TYPE_PROPERTIES, writer);
+        writer.name(KEY_ELEMENTS);
+        writer.beginArray();
+        List<String> self = index == null ? null : pathOf(location, node.getId());
+        for (InspectionNode element : node.getElements().values()) {
+            writeNode(writer, index, self, element);
+        }
+        return self;
+    }
+
+    private static void endNode(JsonWriter writer) throws IOException {
+        writer.endArray();
+        writer.endObject();
+    }
+
+    @FunctionalInterface
+    private interface Position {
+
+        long get();
+    }
+
+    @FunctionalInterface
+    private interface OffsetSink {
+
+        void put(List<String> path, long offset) throws IOException;
+    }
+
+    private static final class Index {
+
+        final Position position;
+
+        private final OffsetSink offsets;
+
+        Index(Position position, OffsetSink offsets) {
+            this.position = position;
+            this.offsets = offsets;
+        }
+
+        long offset(JsonReader reader) throws IOException {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                throw new JsonParseException("node must be an object"); //$NON-NLS-1$
+            }
+            // JsonReader has just read the leading '{' of the current object
+            return position.get() - 1;
+        }
+
+        void put(List<String> location, String id, long offset) throws IOException {
+            offsets.put(append(location, id), offset);
+        }
+    }
+
+    /**
+     * Writes nodes incrementally.
+     */
+    private final class NodeWriter implements InspectionNodeWriter {
+
+        private final JsonWriter writer;
+
+        private final Index index;
+
+        private final IndexWriter indexWriter;
+
+        private final Deque<List<String>> locations = new ArrayDeque<>();
+
+        private boolean finished;
+
+        NodeWriter(JsonWriter writer, Index index, IndexWriter indexWriter) {
+            this.writer = writer;
+            this.index = index;
+            this.indexWriter = indexWriter;
+        }
+
+        @Override
+        public void begin(InspectionNode node) throws IOException {
+            if (finished) {
+                throw new IllegalStateException();
+            }
+            List<String> location = locations.peek();
+            try {
+                beginNode(writer, index, location, node);
+            } catch (JsonIOException e) {
+                throw new IOException("failed to store as JSON object", e);
+            }
+            locations.push(pathOf(location, node.getId()));
+        }
+
+        @Override
+        public void end() throws IOException {
+            if (locations.isEmpty()) {
+                throw new IllegalStateException();
+            }
+            locations.pop();
+            endNode(writer);
+            if (locations.isEmpty()) {
+                finished = true;
+                writer.flush();
+                if (indexWriter != null) {
+                    indexWriter.finish();
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                writer.close();
+            } finally {
+                if (indexWriter != null) {
+                    indexWriter.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the offset index incrementally.
+     * The index is only completed after {@link #finish()}, so that readers can ignore the broken indices.
+     */
+    private static final class IndexWriter implements OffsetSink {
+
+        private final JsonWriter writer;
+
+        private final Position contents;
+
+        IndexWriter(JsonWriter writer, Position contents) throws IOException {
+            this.writer = writer;
+            this.contents = contents;
+            writer.beginObject();
+            writer.name(KEY_INDEX_OFFSETS);
+            writer.beginArray();
+        }
+
+        @Override
+        public void put(List<String> path, long offset) throws IOException {
+            writer.beginObject();
+            writer.name(KEY_INDEX_PATH);
+            writer.beginArray();
+            for (String segment : path) {
+                writer.value(segment);
+            }
+            writer.endArray();
+            writer.name(KEY_INDEX_OFFSET).value(offset);
+            writer.endObject();
+        }
+
+        void finish() throws IOException {
+            writer.endArray();
+            // the size of the contents, to detect the out-of-date indices
+            writer.name(KEY_INDEX_SIZE).value(contents.get());
+            writer.endObject();
+            writer.flush();
+        }
+
+        void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    /**
+     * A UTF-8 decoder which tracks the number of consumed bytes.
+     * This provides at most one character for each read operation,
+     * so that {@link JsonReader} never reads ahead of the current token.
+     */
+    private static final class PositionReader extends Reader implements Position {
+
+        private final InputStream input;
+
+        private final byte[] buffer = new byte[8192];
+
+        private int bufferOffset;
+
+        private int bufferLimit;
+
+        private long position;
+
+        private int pending = -1;
+
+        PositionReader(InputStream input, long position) {
+            this.input = input;
+            this.position = position;
+        }
+
+        @Override
+        public long get() {
+            return position;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            int c = read();
+            if (c < 0) {
+                return -1;
+            }
+            cbuf[off] = (char) c;
+            return 1;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (pending >= 0) {
+                int c = pending;
+                pending = -1;
+                return c;
+            }
+            int first = nextByte();
+            if (first < 0) {
+                return -1;
+            }
+            if (first < 0x80) {
+                return first;
+            }
+            int rest;
+            int codePoint;
+            if ((first & 0xe0) == 0xc0) {
+                rest = 1;
+                codePoint = first & 0x1f;
+            } else if ((first & 0xf0) == 0xe0) {
+                rest = 2;
+                codePoint = first & 0x0f;
+            } else if ((first & 0xf8) == 0xf0) {
+                rest = 3;
+                codePoint = first & 0x07;
+            } else {
+                throw new MalformedInputException(1);
+            }
+            for (int i = 0; i < rest; i++) {
+                int next = nextByte();
+                if (next < 0 || (next & 0xc0) != 0x80) {
+                    throw new MalformedInputException(i + 1);
+                }
+                codePoint = (codePoint << 6) | (next & 0x3f);
+            }
+            if (Character.isBmpCodePoint(codePoint)) {
+                return codePoint;
+            }
+            pending = Character.lowSurrogate(codePoint);
+            return Character.highSurrogate(codePoint);
+        }
+
+        private int nextByte() throws IOException {
+            if (bufferOffset == bufferLimit) {
+                int read = input.read(buffer);
+                if (read <= 0) {
+                    return -1;
+                }
+                bufferOffset = 0;
+                bufferLimit = read;
+            }
+            position++;
+            return buffer[bufferOffset++] & 0xff;
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+
+    /**
+     * A UTF-8 encoder which tracks the number of written bytes.
+     */
+    private static final class PositionWriter extends Writer implements Position {
+
+        private final OutputStream output;
+
+        private final byte[] buffer = new byte[8192];
+
+        private int bufferOffset;
+
+        private long position;
+
+        private char pending;
+
+        PositionWriter(OutputStream output) {
+            this.output = output;
+        }
+
+        @Override
+        public long get() {
+            return position + bufferOffset;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            for (int i = off, n = off + len; i < n; i++) {
+                write(cbuf[i]);
+            }
+        }
+
+        private void write(char c) throws IOException {
+            if (pending != 0) {
+                if (Character.isLowSurrogate(c) == false) {
+                    throw new MalformedInputException(1);
+                }
+                int codePoint = Character.toCodePoint(pending, c);
+                pending = 0;
+                put(0xf0 | (codePoint >> 18));
+                put(0x80 | ((codePoint >> 12) & 0x3f));
+                put(0x80 | ((codePoint >> 6) & 0x3f));
+                put(0x80 | (codePoint & 0x3f));
+            } else if (Character.isHighSurrogate(c)) {
+                pending = c;
+            } else if (Character.isLowSurrogate(c)) {
+                throw new MalformedInputException(1);
+            } else if (c < 0x80) {
+                put(c);
+            } else if (c < 0x800) {
+                put(0xc0 | (c >> 6));
+                put(0x80 | (c & 0x3f));
+            } else {
+                put(0xe0 | (c >> 12));
+                put(0x80 | ((c >> 6) & 0x3f));
+                put(0x80 | (c & 0x3f));
+            }
+        }
+
+        private void put(int b) throws IOException {
+            if (bufferOffset == buffer.length) {
+                drain();
+            }
+            buffer[bufferOffset++] = (byte) b;
+        }
+
+        private void drain() throws IOException {
+            output.write(buffer, 0, bufferOffset);
+            position += bufferOffset;
+            bufferOffset = 0;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            drain();
+            output.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (pending != 0) {
+                    throw new MalformedInputException(1);
+                }
+                drain();
+            } finally {
+                output.close();
+            }
+        }
+    }
 }
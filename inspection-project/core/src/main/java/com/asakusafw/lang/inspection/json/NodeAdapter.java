@@ -37,23 +37,23 @@ import com.google.gson.reflect.TypeToken;
  */
 public class NodeAdapter implements JsonAdapter<InspectionNode> {
 
-    private static final String KEY_ID = "id"; //$NON-NLS-1$
+    static final String KEY_ID = "id"; //$NON-NLS-1$
 
-    private static final String KEY_TITLE = "title"; //$NON-NLS-1$
+    static final String KEY_TITLE = "title"; //$NON-NLS-1$
 
-    private static final String KEY_INPUTS = "inputs"; //$NON-NLS-1$
+    static final String KEY_INPUTS = "inputs"; //$NON-NLS-1$
 
-    private static final String KEY_OUTPUTS = "outputs"; //$NON-NLS-1$
+    static final String KEY_OUTPUTS = "outputs"; //$NON-NLS-1$
 
-    private static final String KEY_PROPERTIES = "properties"; //$NON-NLS-1$
+    static final String KEY_PROPERTIES = "properties"; //$NON-NLS-1$
 
-    private static final String KEY_ELEMENTS = "elements"; //$NON-NLS-1$
+    static final String KEY_ELEMENTS = "elements"; //$NON-NLS-1$
 
-    private static final Type TYPE_PORTS = (new TypeToken<List<Port>>() {
+    static final Type TYPE_PORTS = (new TypeToken<List<Port>>() {
         // empty
     }).getType();
 
-    private static final Type TYPE_PROPERTIES = (new TypeToken<Map<String, String>>() {
+    static final Type TYPE_PROPERTIES = (new TypeToken<Map<String, String>>() {
         // empty
     }).getType();
 
@@ -23,12 +23,18 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 import org.junit.Test;
 
 import com.asakusafw.lang.inspection.InspectionNode;
 import com.asakusafw.lang.inspection.InspectionNodeRepository;
+import com.asakusafw.lang.inspection.InspectionNodeWriter;
 
 /**
  * Test for {@link JsonInspectionNodeRepository}.
@@ -105,6 +111,200 @@ public class JsonInspectionNodeRepositoryTest {
         test(node);
     }
 
+    /**
+     * load w/ path.
+     * @throws Exception if failed
+     */
+    @Test
+    public void load_path() throws Exception {
+        InspectionNode node = tree();
+        InspectionNode loaded = load(node, Arrays.asList("b", "e"), -1);
+        testNode(node.getElements().get("b").getElements().get("e"), loaded);
+    }
+
+    /**
+     * load w/ depth.
+     * @throws Exception if failed
+     */
+    @Test
+    public void load_depth() throws Exception {
+        InspectionNode node = tree();
+        InspectionNode loaded = load(node, Collections.emptyList(), 1);
+        assertThat(loaded.getElements().keySet(), containsInAnyOrder("b", "c"));
+        assertThat(loaded.getElements().get("b").getElements().keySet(), hasSize(0));
+        assertThat(loaded.getElements().get("b").getProperties(), is(node.getElements().get("b").getProperties()));
+
+        InspectionNode shallow = load(node, Collections.emptyList(), 0);
+        assertThat(shallow.getId(), is("a"));
+        assertThat(shallow.getElements().keySet(), hasSize(0));
+    }
+
+    /**
+     * load w/ path and depth.
+     * @throws Exception if failed
+     */
+    @Test
+    public void load_path_depth() throws Exception {
+        InspectionNode node = tree();
+        InspectionNode loaded = load(node, Arrays.asList("b"), 1);
+        assertThat(loaded.getId(), is("b"));
+        assertThat(loaded.getElements().keySet(), containsInAnyOrder("d", "e"));
+        assertThat(loaded.getElements().get("e").getElements().keySet(), hasSize(0));
+    }
+
+    /**
+     * load w/ missing path.
+     * @throws Exception must occur
+     */
+    @Test(expected = NoSuchElementException.class)
+    public void load_path_missing() throws Exception {
+        load(tree(), Arrays.asList("b", "x"), -1);
+    }
+
+    /**
+     * load w/ path from the objects whose elements appear before their IDs.
+     * @throws Exception if failed
+     */
+    @Test
+    public void load_path_unordered() throws Exception {
+        String json = "{'elements':[{'elements':[],'title':'C','id':'c'},{'elements':[],'title':'B','id':'b'}],"
+                + "'title':'A','id':'a'}";
+        try (InputStream in = new ByteArrayInputStream(json.replace('\'', '"').getBytes("UTF-8"))) {
+            InspectionNode loaded = new JsonInspectionNodeRepository().load(in, Arrays.asList("b"), -1);
+            assertThat(loaded.getId(), is("b"));
+            assertThat(loaded.getTitle(), is("B"));
+        }
+    }
+
+    /**
+     * load w/ offset index.
+     * @throws Exception if failed
+     */
+    @Test
+    public void load_offsets() throws Exception {
+        InspectionNode node = tree();
+        node.getElements().get("b").withProperty("r", "\u3042\ud83d\ude00");
+        InspectionNodeRepository repo = new JsonInspectionNodeRepository();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        repo.store(output, node);
+        byte[] contents = output.toByteArray();
+
+        Map<List<String>, Long> offsets = new HashMap<>();
+        InspectionNode root = load(repo, contents, Collections.emptyList(), 1, offsets);
+        assertThat(root.getElements().keySet(), containsInAnyOrder("b", "c"));
+        assertThat(offsets.keySet(), containsInAnyOrder(
+                Arrays.asList("b"), Arrays.asList("c"),
+                Arrays.asList("b", "d"), Arrays.asList("b", "e"), Arrays.asList("c", "e")));
+        for (Long offset : offsets.values()) {
+            assertThat(contents[offset.intValue()], is((byte) '{'));
+        }
+
+        InspectionNode e = load(repo, contents, Arrays.asList("b", "e"), -1, offsets);
+        testNode(node.getElements().get("b").getElements().get("e"), e);
+        assertThat(offsets, hasKey(Arrays.asList("b", "e", "f")));
+
+        InspectionNode f = load(repo, contents, Arrays.asList("b", "e", "f"), -1, offsets);
+        assertThat(f.getTitle(), is("F"));
+    }
+
+    /**
+     * load w/ offset index which is recorded on store.
+     * @throws Exception if failed
+     */
+    @Test
+    public void load_offsets_stored() throws Exception {
+        InspectionNode node = tree();
+        node.getElements().get("b").withProperty("r", "\u3042\ud83d\ude00");
+        InspectionNodeRepository repo = new JsonInspectionNodeRepository();
+        Map<List<String>, Long> offsets = new HashMap<>();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        repo.store(output, node, offsets);
+        byte[] contents = output.toByteArray();
+        assertThat(offsets.keySet(), hasSize(6));
+
+        Map<List<String>, Long> loaded = new HashMap<>();
+        testNode(node, load(repo, contents, Collections.emptyList(), -1, loaded));
+        assertThat(loaded, is(offsets));
+
+        InspectionNode c = load(repo, contents, Arrays.asList("c"), -1, offsets);
+        testNode(node.getElements().get("c"), c);
+    }
+
+    /**
+     * write nodes incrementally.
+     * @throws Exception if failed
+     */
+    @Test
+    public void open() throws Exception {
+        InspectionNode node = tree();
+        InspectionNodeRepository repo = new JsonInspectionNodeRepository();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InspectionNodeWriter writer = repo.open(output, null)) {
+            write(writer, node);
+        }
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        repo.store(expected, node);
+        assertThat(new String(output.toByteArray(), "UTF-8"), is(new String(expected.toByteArray(), "UTF-8")));
+    }
+
+    /**
+     * write nodes incrementally w/ offset index.
+     * @throws Exception if failed
+     */
+    @Test
+    public void open_index() throws Exception {
+        InspectionNode node = tree();
+        node.getElements().get("b").withProperty("r", "\u3042\ud83d\ude00");
+        InspectionNodeRepository repo = new JsonInspectionNodeRepository();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        try (InspectionNodeWriter writer = repo.open(output, index)) {
+            write(writer, node);
+        }
+        byte[] contents = output.toByteArray();
+        Map<List<String>, Long> offsets = loadIndex(repo, index.toByteArray(), contents.length);
+
+        Map<List<String>, Long> expected = new HashMap<>();
+        repo.store(new ByteArrayOutputStream(), node, expected);
+        assertThat(offsets, is(expected));
+
+        InspectionNode f = load(repo, contents, Arrays.asList("b", "e", "f"), -1, offsets);
+        assertThat(f.getTitle(), is("F"));
+    }
+
+    /**
+     * load offset index which does not match to the contents.
+     * @throws Exception if failed
+     */
+    @Test
+    public void open_index_stale() throws Exception {
+        InspectionNodeRepository repo = new JsonInspectionNodeRepository();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        try (InspectionNodeWriter writer = repo.open(output, index)) {
+            writer.write(tree());
+        }
+        byte[] bytes = index.toByteArray();
+        int size = output.size();
+        assertThat(loadIndex(repo, bytes, size).keySet(), hasSize(6));
+        assertThat(loadIndex(repo, bytes, -1).keySet(), hasSize(6));
+        assertThat(loadIndex(repo, bytes, size + 1).keySet(), hasSize(0));
+        assertThat(loadIndex(repo, Arrays.copyOf(bytes, bytes.length / 2), size).keySet(), hasSize(0));
+        assertThat(loadIndex(repo, new byte[0], size).keySet(), hasSize(0));
+    }
+
+    /**
+     * write nodes after the root node was ended.
+     * @throws Exception must occur
+     */
+    @Test(expected = IllegalStateException.class)
+    public void open_finished() throws Exception {
+        try (InspectionNodeWriter writer = new JsonInspectionNodeRepository().open(new ByteArrayOutputStream(), null)) {
+            writer.write(new InspectionNode("a", "A"));
+            writer.write(new InspectionNode("b", "B"));
+        }
+    }
+
     /**
      * load from invalid input.
      * @throws Exception must occur
@@ -143,6 +343,63 @@ public class JsonInspectionNodeRepositoryTest {
         }
     }
 
+    private static InspectionNode tree() {
+        InspectionNode node = new InspectionNode("a", "A");
+        InspectionNode e = new InspectionNode("e", "E")
+            .withProperty("p", "100")
+            .withElement(new InspectionNode("f", "F"));
+        node.withElement(new InspectionNode("b", "B")
+            .withProperty("q", "200")
+            .withElement(new InspectionNode("d", "D"))
+            .withElement(e));
+        node.withElement(new InspectionNode("c", "C")
+            .withElement(new InspectionNode("e", "X")));
+        return node;
+    }
+
+    private static void write(InspectionNodeWriter writer, InspectionNode node) throws IOException {
+        // writes each element separately
+        writer.begin(new InspectionNode(node.getId(), node.getTitle()));
+        for (InspectionNode element : node.getElements().values()) {
+            if (element.getElements().isEmpty()) {
+                writer.write(element);
+            } else {
+                InspectionNode copy = new InspectionNode(element.getId(), element.getTitle());
+                copy.getProperties().putAll(element.getProperties());
+                writer.begin(copy);
+                for (InspectionNode child : element.getElements().values()) {
+                    writer.write(child);
+                }
+                writer.end();
+            }
+        }
+        writer.end();
+    }
+
+    private static Map<List<String>, Long> loadIndex(
+            InspectionNodeRepository repo, byte[] index, long size) throws IOException {
+        try (InputStream input = new ByteArrayInputStream(index)) {
+            return repo.loadIndex(input, size);
+        }
+    }
+
+    private static InspectionNode load(InspectionNode node, List<String> path, int depth) throws IOException {
+        InspectionNodeRepository repo = new JsonInspectionNodeRepository();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        repo.store(output, node);
+        try (InputStream input = new ByteArrayInputStream(output.toByteArray())) {
+            return repo.load(input, path, depth);
+        }
+    }
+
+    private static InspectionNode load(
+            InspectionNodeRepository repo, byte[] contents,
+            List<String> path, int depth, Map<List<String>, Long> offsets) throws IOException {
+        try (InputStream input = new ByteArrayInputStream(contents)) {
+            return repo.load(input, path, depth, offsets);
+        }
+    }
+
     private void test(InspectionNode node) {
         testNode(node, restore(node));
     }
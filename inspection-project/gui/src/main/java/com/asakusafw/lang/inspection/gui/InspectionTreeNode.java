@@ -15,7 +15,9 @@
  */
 package com.asakusafw.lang.inspection.gui;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import javax.swing.tree.TreeNode;
@@ -24,22 +26,61 @@ import com.asakusafw.lang.inspection.InspectionNode;
 
 /**
  * Tree node model for {@link InspectionNode}.
+ * If this is created with a {@link Loader}, each node only holds its elements and their direct elements,
+ * and the deeper elements are loaded on demand.
  */
 public class InspectionTreeNode extends AbstractTreeNode<InspectionNode> {
 
+    /**
+     * The number of nesting levels of elements to load at once.
+     */
+    public static final int LOAD_DEPTH = 2;
+
     private final InspectionTreeNode parent;
 
+    private final Loader loader;
+
+    private final List<String> path;
+
+    private final int depth;
+
     /**
      * Creates a new instance.
      * @param root the root node
      */
     public InspectionTreeNode(InspectionNode root) {
-        this(null, root);
+        this(null, root, null, Collections.emptyList(), -1);
     }
 
-    private InspectionTreeNode(InspectionTreeNode parent, InspectionNode current) {
+    /**
+     * Creates a new instance which loads the deeper elements on demand.
+     * @param root the root node, which must be loaded with {@link #LOAD_DEPTH}
+     * @param loader the node loader
+     */
+    public InspectionTreeNode(InspectionNode root, Loader loader) {
+        this(null, root, loader, Collections.emptyList(), LOAD_DEPTH);
+    }
+
+    private InspectionTreeNode(
+            InspectionTreeNode parent, InspectionNode current,
+            Loader loader, List<String> path, int depth) {
         super(parent, current);
         this.parent = parent;
+        this.loader = loader;
+        this.path = path;
+        this.depth = depth;
+    }
+
+    /**
+     * Returns the user object with all its nested elements.
+     * @return the user object with all its nested elements
+     * @throws IOException if I/O error was occurred while loading the elements
+     */
+    public InspectionNode getTree() throws IOException {
+        if (depth < 0) {
+            return getUserObject();
+        }
+        return loader.load(path, -1);
     }
 
     @Override
@@ -53,13 +94,56 @@ public class InspectionTreeNode extends AbstractTreeNode<InspectionNode> {
         return parent;
     }
 
+    @Override
+    public boolean isLeaf() {
+        // this node always has its direct elements
+        return getUserObject().getElements().isEmpty();
+    }
+
     @Override
     protected List<InspectionTreeNode> prepareElements() {
         InspectionNode current = getUserObject();
+        int childDepth = depth < 0 ? -1 : depth - 1;
+        if (childDepth == 0) {
+            try {
+                current = loader.load(path, LOAD_DEPTH);
+            } catch (IOException e) {
+                // Swing tree models must not throw exceptions
+                loader.onError(path, e);
+                return Collections.emptyList();
+            }
+            childDepth = LOAD_DEPTH - 1;
+        }
         List<InspectionTreeNode> children = new ArrayList<>(current.getElements().size());
         for (InspectionNode node : current.getElements().values()) {
-            children.add(new InspectionTreeNode(this, node));
+            List<String> childPath = new ArrayList<>(path.size() + 1);
+            childPath.addAll(path);
+            childPath.add(node.getId());
+            children.add(new InspectionTreeNode(this, node, loader, childPath, childDepth));
         }
         return children;
     }
+
+    /**
+     * Loads {@link InspectionNode}.
+     */
+    public interface Loader {
+
+        /**
+         * Loads a node.
+         * @param path the path from the root node to the target node
+         * @param depth the number of nesting levels of elements to load, or negative value to load all elements
+         * @return the loaded node
+         * @throws IOException if I/O error was occurred while loading the node
+         * @see com.asakusafw.lang.inspection.InspectionNodeRepository#load(java.io.InputStream, List, int)
+         */
+        InspectionNode load(List<String> path, int depth) throws IOException;
+
+        /**
+         * Reports an error which was occurred while loading elements for the tree model.
+         * @param path the path from the root node to the target node
+         * @param exception the occurred exception
+         */
+        void onError(List<String> path, IOException exception);
+    }
 }
@@ -15,6 +15,7 @@
  */
 package com.asakusafw.lang.inspection.gui;
 
+import java.awt.Component;
 import java.awt.Window;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
@@ -24,8 +25,17 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
 import java.text.MessageFormat;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -49,6 +59,8 @@ import org.slf4j.LoggerFactory;
 import com.asakusafw.lang.inspection.InspectionNode;
 import com.asakusafw.lang.inspection.InspectionNodeRepository;
 import com.asakusafw.lang.inspection.json.JsonInspectionNodeRepository;
+import com.asakusafw.lang.inspection.processor.RuntimeProfile;
+import com.asakusafw.lang.inspection.processor.RuntimeProfileProcessor;
 
 /**
  * Program entry for inspection tools.
@@ -148,9 +160,10 @@ public class Main implements Runnable {
             selectedFile = chooser.getSelectedFile();
         }
 
+        InspectionTreeNode.Loader loader = new FileLoader(frame.getContentPane(), selectedFile);
         InspectionNode node;
         try {
-            node = loadFile(selectedFile);
+            node = loader.load(Collections.emptyList(), InspectionTreeNode.LOAD_DEPTH);
         } catch (IOException e) {
             JOptionPane.showMessageDialog(frame.getContentPane(),
                     MessageFormat.format(
@@ -163,39 +176,72 @@ public class Main implements Runnable {
         }
 
         frame.setTitle(MessageFormat.format("{1} [@{0}]", node.getId(), node.getTitle())); //$NON-NLS-1$
-        JTree tree = createOverviewTree(node);
+        JTree tree = createOverviewTree(new InspectionTreeNode(node, loader));
         frame.getContentPane().add(new JScrollPane(tree));
 
         frame.revalidate();
     }
 
-    private InspectionNode loadFile(File file) throws IOException {
-        String name = file.getName();
-        if (name.endsWith(".zip") || name.endsWith(".jar")) {
+    InspectionNode loadFile(
+            File file, List<String> path, int depth,
+            Map<List<String>, Long> offsets) throws IOException {
+        if (isArchive(file)) {
             try (ZipFile zip = new ZipFile(file)) {
-                Enumeration<? extends ZipEntry> entries = zip.entries();
-                while (entries.hasMoreElements()) {
-                    ZipEntry entry = entries.nextElement();
-                    if (entry.isDirectory() || entry.getName().endsWith("/plan.json") == false) {
-                        continue;
-                    }
-                    try (InputStream input = zip.getInputStream(entry)) {
-                        return repository.load(input);
-                    }
+                ZipEntry entry = findContents(zip, file);
+                try (InputStream input = zip.getInputStream(entry)) {
+                    return repository.load(input, path, depth, offsets);
                 }
             }
-            throw new FileNotFoundException(MessageFormat.format(
-                    "missing \"*/plan.json\" in archive: {0}",
-                    file));
         } else {
             try (InputStream input = new FileInputStream(file)) {
-                return repository.load(input);
+                return repository.load(input, path, depth, offsets);
+            }
+        }
+    }
+
+    Map<List<String>, Long> loadIndex(File file) throws IOException {
+        if (isArchive(file)) {
+            try (ZipFile zip = new ZipFile(file)) {
+                ZipEntry entry = findContents(zip, file);
+                ZipEntry index = zip.getEntry(entry.getName() + InspectionNodeRepository.INDEX_FILE_SUFFIX);
+                if (index == null) {
+                    return new HashMap<>();
+                }
+                try (InputStream input = zip.getInputStream(index)) {
+                    return repository.loadIndex(input, entry.getSize());
+                }
+            }
+        } else {
+            File index = new File(file.getPath() + InspectionNodeRepository.INDEX_FILE_SUFFIX);
+            if (index.isFile() == false) {
+                return new HashMap<>();
+            }
+            try (InputStream input = new FileInputStream(index)) {
+                return repository.loadIndex(input, file.length());
+            }
+        }
+    }
+
+    private static boolean isArchive(File file) {
+        String name = file.getName();
+        return name.endsWith(".zip") || name.endsWith(".jar");
+    }
+
+    private static ZipEntry findContents(ZipFile zip, File file) throws IOException {
+        Enumeration<? extends ZipEntry> entries = zip.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            if (entry.isDirectory() == false && entry.getName().endsWith("/plan.json")) {
+                return entry;
             }
         }
+        throw new FileNotFoundException(MessageFormat.format(
+                "missing \"*/plan.json\" in archive: {0}",
+                file));
     }
 
-    private JTree createOverviewTree(InspectionNode root) {
-        JTree tree = new JTree(new InspectionTreeNode(root));
+    private JTree createOverviewTree(InspectionTreeNode root) {
+        JTree tree = new JTree(root);
         tree.getSelectionModel().setSelectionMode(TreeSelectionModel.SINGLE_TREE_SELECTION);
         tree.addMouseListener(new MouseAdapter() {
             @Override
@@ -223,6 +269,7 @@ public class Main implements Runnable {
                 if (pdfExporter != null && node.isLeaf() == false) {
                     menu.add(item("Export PDF", e -> onExportPdf(tree, node, false)));
                     menu.add(item("Export PDF (Verbose)", e -> onExportPdf(tree, node, true)));
+                    menu.add(item("Export PDF (Runtime Profile)", e -> onExportProfilePdf(tree, node)));
                 }
                 menu.show(tree, event.getX(), event.getY());
             }
@@ -253,6 +300,52 @@ public class Main implements Runnable {
     }
 
     void onExportPdf(JTree parent, InspectionTreeNode node, boolean verbose) {
+        File file = chooseOutput(parent);
+        if (file == null) {
+            return;
+        }
+        try {
+            pdfExporter.export(file, node.getTree(), verbose);
+        } catch (IOException | InterruptedException e) {
+            onExportError(parent, file, e);
+            return;
+        }
+        JOptionPane.showMessageDialog(parent, MessageFormat.format(
+                "exported PDF file: {0}",
+                file));
+    }
+
+    void onExportProfilePdf(JTree parent, InspectionTreeNode node) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setMultiSelectionEnabled(false);
+        chooser.setDialogTitle("Select runtime log file");
+        chooser.setCurrentDirectory(selectedFile.getParentFile());
+        if (chooser.showOpenDialog(parent) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File log = chooser.getSelectedFile();
+        File file = chooseOutput(parent);
+        if (file == null) {
+            return;
+        }
+        try {
+            RuntimeProfile profile;
+            try (Reader reader = new InputStreamReader(new FileInputStream(log), Charset.defaultCharset())) {
+                profile = RuntimeProfile.parse(reader);
+            }
+            InspectionNode tree = node.getTree();
+            RuntimeProfileProcessor.Result result = RuntimeProfileProcessor.analyze(tree, profile);
+            pdfExporter.export(file, tree, false, result::getDotAttributes);
+        } catch (IOException | InterruptedException e) {
+            onExportError(parent, file, e);
+            return;
+        }
+        JOptionPane.showMessageDialog(parent, MessageFormat.format(
+                "exported PDF file: {0}",
+                file));
+    }
+
+    private File chooseOutput(JTree parent) {
         JFileChooser chooser = new JFileChooser();
         chooser.setMultiSelectionEnabled(false);
         if (lastOutput == null) {
@@ -262,27 +355,70 @@ public class Main implements Runnable {
         }
         int result = chooser.showSaveDialog(parent);
         if (result != JFileChooser.APPROVE_OPTION) {
-            return;
+            return null;
         }
         File file = chooser.getSelectedFile();
         lastOutput = file;
-        try {
-            pdfExporter.export(file, node.getUserObject(), verbose);
-        } catch (IOException | InterruptedException e) {
+        return file;
+    }
+
+    private void onExportError(JTree parent, File file, Exception e) {
+        LOG.error(MessageFormat.format(
+                "failed to export PDF file",
+                file), e);
+        JOptionPane.showMessageDialog(parent,
+                MessageFormat.format(
+                        "failed to export PDF file: {0} ({1})",
+                        file, e.toString()),
+                "Error",
+                JOptionPane.ERROR_MESSAGE);
+    }
+
+    private final class FileLoader implements InspectionTreeNode.Loader {
+
+        private final Component parent;
+
+        private final File file;
+
+        // the offsets of the nodes in the file, to avoid parsing the preceding contents on expanding nodes
+        private final Map<List<String>, Long> offsets = new ConcurrentHashMap<>();
+
+        private final AtomicBoolean indexed = new AtomicBoolean();
+
+        FileLoader(Component parent, File file) {
+            this.parent = parent;
+            this.file = file;
+        }
+
+        @Override
+        public InspectionNode load(List<String> path, int depth) throws IOException {
+            if (indexed.compareAndSet(false, true)) {
+                // restores the offsets which were recorded on writing the file
+                try {
+                    offsets.putAll(loadIndex(file));
+                } catch (IOException e) {
+                    LOG.warn(MessageFormat.format(
+                            "failed to load inspection index: {0}",
+                            file), e);
+                }
+            }
+            return loadFile(file, path, depth, offsets);
+        }
+
+        @Override
+        public void onError(List<String> path, IOException exception) {
             LOG.error(MessageFormat.format(
-                    "failed to export PDF file",
-                    file), e);
+                    "failed to load inspection node: {0} ({1})",
+                    String.join("/", path), //$NON-NLS-1$
+                    file), exception);
             JOptionPane.showMessageDialog(parent,
                     MessageFormat.format(
-                            "failed to export PDF file: {0} ({1})",
-                            file, e.toString()),
+                            "failed to load inspection node: {0} ({1})",
+                            String.join("/", path), //$NON-NLS-1$
+                            exception.toString()),
                     "Error",
                     JOptionPane.ERROR_MESSAGE);
-            return;
         }
-        JOptionPane.showMessageDialog(parent, MessageFormat.format(
-                "exported PDF file: {0}",
-                file));
     }
 
     JMenuItem item(String title, ActionListener listener) {
@@ -22,6 +22,7 @@ import java.lang.ProcessBuilder.Redirect;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 
 import com.asakusafw.lang.inspection.InspectionNode;
@@ -96,6 +97,22 @@ public class PdfExporter {
      * @throws InterruptedException if interrupted while executing DOT
      */
     public void export(File output, InspectionNode node, boolean verbose) throws IOException, InterruptedException {
+        export(output, node, verbose, element -> null);
+    }
+
+    /**
+     * Exports the target inspection object as PDF file.
+     * @param output the output target file
+     * @param node the export target node
+     * @param verbose {@code true} to output detail graph
+     * @param attributes the extra DOT attributes for each element
+     * @throws IOException if failed to export a file
+     * @throws InterruptedException if interrupted while executing DOT
+     * @see DotProcessor#process(InspectionNode, OutputStream, boolean, Function)
+     */
+    public void export(
+            File output, InspectionNode node, boolean verbose,
+            Function<? super InspectionNode, String> attributes) throws IOException, InterruptedException {
         File parent = output.getAbsoluteFile().getParentFile();
         if (parent.mkdirs() == false && parent.isDirectory() == false) {
             throw new IOException(MessageFormat.format(
@@ -111,7 +128,7 @@ public class PdfExporter {
         Process process = builder.start();
         try {
             try (OutputStream stdin = process.getOutputStream()) {
-                DotProcessor.process(node, stdin, verbose);
+                DotProcessor.process(node, stdin, verbose, attributes);
             }
             int status = process.waitFor();
             if (status != 0) {
@@ -27,6 +27,7 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 
 import com.asakusafw.lang.inspection.InspectionNode;
 
@@ -56,7 +57,22 @@ public class DotProcessor implements InspectionNodeProcessor {
      * @throws IOException if failed to generate the script
      */
     public static void process(InspectionNode node, OutputStream output, boolean verbose) throws IOException {
-        try (Editor editor = new Editor(output, verbose)) {
+        process(node, output, verbose, element -> null);
+    }
+
+    /**
+     * Generates Graphviz DOT script.
+     * @param node the target node
+     * @param output the target output
+     * @param verbose {@code true} to output detail graph
+     * @param attributes the extra DOT attributes for each element (e.g. {@code "style = filled"}),
+     *     the function may return {@code null} if the element does not have any extra attributes
+     * @throws IOException if failed to generate the script
+     */
+    public static void process(
+            InspectionNode node, OutputStream output, boolean verbose,
+            Function<? super InspectionNode, String> attributes) throws IOException {
+        try (Editor editor = new Editor(output, verbose, attributes)) {
             editor.put("digraph {0} '{'", literal(node.getId())); //$NON-NLS-1$
             editor.push();
             editor.put("label = {0};", literal(node.getId())); //$NON-NLS-1$
@@ -107,13 +123,16 @@ public class DotProcessor implements InspectionNodeProcessor {
 
         private final boolean verbose;
 
+        private final Function<? super InspectionNode, String> attributes;
+
         private final Set<NodeArc> sawNodeArcs = new HashSet<>();
 
         private int indent = 0;
 
-        Editor(OutputStream output, boolean verbose) {
+        Editor(OutputStream output, boolean verbose, Function<? super InspectionNode, String> attributes) {
             this.writer = new PrintWriter(new OutputStreamWriter(output, ENCODING));
             this.verbose = verbose;
+            this.attributes = attributes;
         }
 
         void push() {
@@ -151,9 +170,10 @@ public class DotProcessor implements InspectionNodeProcessor {
             buf.append('\n');
             buf.append('@');
             buf.append(node.getId());
-            put("\"{0}\" [shape = box, label = {1}];", //$NON-NLS-1$
+            put("\"{0}\" [shape = box, label = {1}{2}];", //$NON-NLS-1$
                     node.getId(),
-                    literal(buf.toString()));
+                    literal(buf.toString()),
+                    getExtraAttributes(node));
         }
 
         private void putVerbose(InspectionNode node) {
@@ -169,7 +189,18 @@ public class DotProcessor implements InspectionNodeProcessor {
                 appendPorts(buf, PREFIX_OUT, node.getOutputs().values());
             }
             buf.append('}');
-            put("\"{0}\" [shape = record, label = {1}];", node.getId(), literal(buf.toString())); //$NON-NLS-1$
+            put("\"{0}\" [shape = record, label = {1}{2}];", //$NON-NLS-1$
+                    node.getId(),
+                    literal(buf.toString()),
+                    getExtraAttributes(node));
+        }
+
+        private String getExtraAttributes(InspectionNode node) {
+            String extra = attributes.apply(node);
+            if (extra == null || extra.isEmpty()) {
+                return ""; //$NON-NLS-1$
+            }
+            return ", " + extra; //$NON-NLS-1$
         }
 
         private void appendPorts(StringBuilder buf, String prefix, Collection<InspectionNode.Port> ports) {
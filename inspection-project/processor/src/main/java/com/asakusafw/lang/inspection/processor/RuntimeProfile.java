@@ -0,0 +1,181 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.lang.inspection.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runtime profile of vertices, which is extracted from the log output of Asakusa Vanilla.
+ */
+public class RuntimeProfile {
+
+    static final Pattern PATTERN_VERTEX = Pattern.compile(
+            "finish vertex: (.*) \\(([^()\\s]+)\\) in ([0-9,]+)ms"); //$NON-NLS-1$
+
+    static final Pattern PATTERN_FINISHED = Pattern.compile(
+            "DAG finished: .*elapsed=([0-9,]+)ms"); //$NON-NLS-1$
+
+    static final Pattern PATTERN_PORT = Pattern.compile(
+            "port=([^.\\s]+)\\.(\\S+), count=([0-9,]+)"); //$NON-NLS-1$
+
+    private final Map<String, Vertex> vertices = new LinkedHashMap<>();
+
+    private long totalElapsed = -1L;
+
+    /**
+     * Parses the log output and returns the runtime profile.
+     * This recognizes the following lines, and ignores other lines:
+     * <ul>
+     * <li> {@code finish vertex: <label> (<vertex-id>) in <elapsed>ms} </li>
+     * <li> {@code DAG finished: ..., elapsed=<elapsed>ms} </li>
+     * <li> {@code port=<vertex-id>.<port-id>, count=<records>, ...} </li>
+     * </ul>
+     * If the log contains the same vertex more than once (e.g. multiple rounds), their elapsed time is summed.
+     * @param reader the log reader
+     * @return the parsed profile
+     * @throws IOException if failed to read the log
+     */
+    public static RuntimeProfile parse(Reader reader) throws IOException {
+        RuntimeProfile result = new RuntimeProfile();
+        BufferedReader lines = reader instanceof BufferedReader
+                ? (BufferedReader) reader
+                : new BufferedReader(reader);
+        while (true) {
+            String line = lines.readLine();
+            if (line == null) {
+                break;
+            }
+            result.accept(line);
+        }
+        return result;
+    }
+
+    private void accept(String line) {
+        Matcher vertex = PATTERN_VERTEX.matcher(line);
+        if (vertex.find()) {
+            Vertex v = vertex(vertex.group(2));
+            v.label = vertex.group(1);
+            v.elapsed += parseLong(vertex.group(3));
+            return;
+        }
+        Matcher finished = PATTERN_FINISHED.matcher(line);
+        if (finished.find()) {
+            totalElapsed = Math.max(totalElapsed, 0L) + parseLong(finished.group(1));
+            return;
+        }
+        Matcher port = PATTERN_PORT.matcher(line);
+        if (port.find()) {
+            vertex(port.group(1)).records.merge(port.group(2), parseLong(port.group(3)), Long::sum);
+        }
+    }
+
+    private Vertex vertex(String id) {
+        return vertices.computeIfAbsent(id, Vertex::new);
+    }
+
+    private static long parseLong(String value) {
+        return Long.parseLong(value.replace(",", "")); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    /**
+     * Returns the vertices.
+     * @return the vertices, as a map of vertex ID and its profile
+     */
+    public Map<String, Vertex> getVertices() {
+        return Collections.unmodifiableMap(vertices);
+    }
+
+    /**
+     * Returns the total elapsed time of the DAG.
+     * @return the total elapsed time in milliseconds, or empty if it is not available
+     */
+    public OptionalLong getTotalElapsed() {
+        return totalElapsed < 0L ? OptionalLong.empty() : OptionalLong.of(totalElapsed);
+    }
+
+    @Override
+    public String toString() {
+        return MessageFormat.format(
+                "RuntimeProfile(vertices={0})", //$NON-NLS-1$
+                vertices.size());
+    }
+
+    /**
+     * Runtime profile of individual vertices.
+     */
+    public static class Vertex {
+
+        final String id;
+
+        String label;
+
+        long elapsed;
+
+        final Map<String, Long> records = new LinkedHashMap<>();
+
+        Vertex(String id) {
+            this.id = id;
+        }
+
+        /**
+         * Returns the vertex ID.
+         * @return the vertex ID
+         */
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * Returns the vertex label.
+         * @return the vertex label, or {@code null} if it is not available
+         */
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * Returns the elapsed time of this vertex.
+         * @return the elapsed time in milliseconds
+         */
+        public long getElapsed() {
+            return elapsed;
+        }
+
+        /**
+         * Returns the number of records of each port.
+         * @return the number of records, as a map of port ID and its records
+         */
+        public Map<String, Long> getRecords() {
+            return Collections.unmodifiableMap(records);
+        }
+
+        @Override
+        public String toString() {
+            return MessageFormat.format(
+                    "Vertex(id={0}, elapsed={1}ms)", //$NON-NLS-1$
+                    id, elapsed);
+        }
+    }
+}
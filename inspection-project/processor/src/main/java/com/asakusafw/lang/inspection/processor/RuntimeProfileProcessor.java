@@ -0,0 +1,343 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.lang.inspection.processor;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import com.asakusafw.lang.inspection.InspectionNode;
+
+/**
+ * Overlays the runtime profile of Asakusa Vanilla onto elements in the {@link InspectionNode},
+ * and then generates a critical path report or a heat-colored Graphviz DOT script.
+ * @see RuntimeProfile
+ */
+public class RuntimeProfileProcessor implements InspectionNodeProcessor {
+
+    /**
+     * The log file path of the target execution (mandatory).
+     */
+    public static final String KEY_LOG = "log"; //$NON-NLS-1$
+
+    /**
+     * The output kind ({@value #OUTPUT_REPORT} or {@value #OUTPUT_DOT}).
+     */
+    public static final String KEY_OUTPUT = "output"; //$NON-NLS-1$
+
+    /**
+     * Prints verbose information for each node in {@value #OUTPUT_DOT} output.
+     */
+    public static final String KEY_VERBOSE = DotProcessor.KEY_VERBOSE;
+
+    /**
+     * The output kind of critical path report.
+     */
+    public static final String OUTPUT_REPORT = "report"; //$NON-NLS-1$
+
+    /**
+     * The output kind of heat-colored Graphviz DOT script.
+     */
+    public static final String OUTPUT_DOT = "dot"; //$NON-NLS-1$
+
+    /**
+     * The element property name of the corresponded vertex ID.
+     * If an element does not have this property, its element ID is used as the vertex ID.
+     */
+    public static final String PROPERTY_VERTEX_ID = "attribute.VertexSpec.id"; //$NON-NLS-1$
+
+    /**
+     * The element property name of the elapsed time in milliseconds.
+     */
+    public static final String PROPERTY_ELAPSED = "runtime.elapsed"; //$NON-NLS-1$
+
+    /**
+     * The element property name prefix of the number of records of each port.
+     */
+    public static final String PROPERTY_RECORDS_PREFIX = "runtime.records."; //$NON-NLS-1$
+
+    static final Charset ENCODING = StandardCharsets.UTF_8;
+
+    @Override
+    public void process(Context context, InspectionNode node, OutputStream output) throws IOException {
+        String log = context.getOption(KEY_LOG, null);
+        if (log == null) {
+            throw new IOException(MessageFormat.format(
+                    "runtime log file must be specified: {0}=/path/to/log-file",
+                    KEY_LOG));
+        }
+        RuntimeProfile profile;
+        try (Reader reader = new InputStreamReader(new FileInputStream(log), Charset.defaultCharset())) {
+            profile = RuntimeProfile.parse(reader);
+        }
+        Result result = analyze(node, profile);
+        String kind = context.getOption(KEY_OUTPUT, OUTPUT_REPORT);
+        if (kind.equals(OUTPUT_REPORT)) {
+            report(result, output);
+        } else if (kind.equals(OUTPUT_DOT)) {
+            boolean verbose = context.getOption(KEY_VERBOSE, false);
+            DotProcessor.process(node, output, verbose, result::getDotAttributes);
+        } else {
+            throw new IOException(MessageFormat.format(
+                    "unknown output kind: {0}={1}",
+                    KEY_OUTPUT,
+                    kind));
+        }
+    }
+
+    /**
+     * Overlays the runtime profile onto elements in the given node, and analyzes its critical path.
+     * This adds {@link #PROPERTY_ELAPSED} and {@link #PROPERTY_RECORDS_PREFIX} properties into
+     * the profiled elements.
+     * @param node the target node
+     * @param profile the runtime profile
+     * @return the analysis result
+     */
+    public static Result analyze(InspectionNode node, RuntimeProfile profile) {
+        Map<String, RuntimeProfile.Vertex> vertices = profile.getVertices();
+        Map<InspectionNode, RuntimeProfile.Vertex> matched = new LinkedHashMap<>();
+        for (InspectionNode element : node.getElements().values()) {
+            String vertexId = element.getProperties().getOrDefault(PROPERTY_VERTEX_ID, element.getId());
+            RuntimeProfile.Vertex vertex = vertices.get(vertexId);
+            if (vertex != null) {
+                matched.put(element, vertex);
+                element.withProperty(PROPERTY_ELAPSED, String.valueOf(vertex.getElapsed()));
+                vertex.getRecords().forEach((k, v) -> element.withProperty(
+                        PROPERTY_RECORDS_PREFIX + k, String.valueOf(v)));
+            }
+        }
+        Set<String> unmatched = new LinkedHashSet<>(vertices.keySet());
+        matched.values().forEach(v -> unmatched.remove(v.getId()));
+        return new Result(node, profile, matched, unmatched);
+    }
+
+    /**
+     * Writes a critical path report.
+     * @param result the analysis result
+     * @param output the target output
+     */
+    public static void report(Result result, OutputStream output) {
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(output, ENCODING));
+        long total = result.getTotalElapsed();
+        writer.printf("DAG elapsed: %,dms%n", total); //$NON-NLS-1$
+        writer.printf("critical path: %,dms (%s)%n", //$NON-NLS-1$
+                result.getCriticalPathElapsed(),
+                percent(result.getCriticalPathElapsed(), total));
+        for (InspectionNode element : result.getCriticalPath()) {
+            print(writer, result, element, total);
+        }
+        writer.printf("vertices: %,d%n", result.matched.size()); //$NON-NLS-1$
+        List<InspectionNode> elements = new ArrayList<>(result.matched.keySet());
+        elements.sort((a, b) -> Long.compare(result.getElapsed(b), result.getElapsed(a)));
+        for (InspectionNode element : elements) {
+            print(writer, result, element, total);
+            result.matched.get(element).getRecords().forEach((k, v) -> writer.printf(
+                    "    %s: %,d records%n", //$NON-NLS-1$
+                    k, v));
+        }
+        if (result.unmatched.isEmpty() == false) {
+            writer.printf("unknown vertices: %s%n", result.unmatched); //$NON-NLS-1$
+        }
+        writer.flush();
+    }
+
+    private static void print(PrintWriter writer, Result result, InspectionNode element, long total) {
+        RuntimeProfile.Vertex vertex = result.matched.get(element);
+        long elapsed = result.getElapsed(element);
+        writer.printf("  %,10dms (%6s) %s [%s] %s%n", //$NON-NLS-1$
+                elapsed,
+                percent(elapsed, total),
+                element.getId(),
+                vertex == null ? "N/A" : vertex.getId(), //$NON-NLS-1$
+                vertex == null || vertex.getLabel() == null ? element.getTitle() : vertex.getLabel());
+    }
+
+    private static String percent(long value, long total) {
+        if (total <= 0L) {
+            return "N/A"; //$NON-NLS-1$
+        }
+        return String.format(Locale.ENGLISH, "%.1f%%", value * 100.0 / total); //$NON-NLS-1$
+    }
+
+    /**
+     * The analysis result of {@link RuntimeProfileProcessor}.
+     */
+    public static class Result {
+
+        final InspectionNode node;
+
+        final RuntimeProfile profile;
+
+        final Map<InspectionNode, RuntimeProfile.Vertex> matched;
+
+        final Set<String> unmatched;
+
+        private final List<InspectionNode> criticalPath;
+
+        private final long maxElapsed;
+
+        Result(
+                InspectionNode node, RuntimeProfile profile,
+                Map<InspectionNode, RuntimeProfile.Vertex> matched, Set<String> unmatched) {
+            this.node = node;
+            this.profile = profile;
+            this.matched = matched;
+            this.unmatched = unmatched;
+            this.criticalPath = computeCriticalPath();
+            this.maxElapsed = matched.values().stream()
+                    .mapToLong(RuntimeProfile.Vertex::getElapsed)
+                    .max()
+                    .orElse(0L);
+        }
+
+        private List<InspectionNode> computeCriticalPath() {
+            Map<InspectionNode, Long> costs = new HashMap<>();
+            Map<InspectionNode, InspectionNode> nexts = new HashMap<>();
+            Set<InspectionNode> visiting = new HashSet<>();
+            InspectionNode head = null;
+            long headCost = -1L;
+            for (InspectionNode element : node.getElements().values()) {
+                long cost = computeCost(element, costs, nexts, visiting);
+                if (cost > headCost) {
+                    head = element;
+                    headCost = cost;
+                }
+            }
+            if (head == null || headCost <= 0L) {
+                return Collections.emptyList();
+            }
+            List<InspectionNode> results = new ArrayList<>();
+            for (InspectionNode current = head; current != null; current = nexts.get(current)) {
+                // excludes elements which are not profiled
+                if (matched.containsKey(current)) {
+                    results.add(current);
+                }
+            }
+            return results;
+        }
+
+        private long computeCost(
+                InspectionNode element,
+                Map<InspectionNode, Long> costs, Map<InspectionNode, InspectionNode> nexts,
+                Set<InspectionNode> visiting) {
+            Long cached = costs.get(element);
+            if (cached != null) {
+                return cached;
+            }
+            if (visiting.add(element) == false) {
+                // cyclic
+                return 0L;
+            }
+            InspectionNode next = null;
+            long nextCost = 0L;
+            for (InspectionNode.Port port : element.getOutputs().values()) {
+                for (InspectionNode.PortReference opposite : port.getOpposites()) {
+                    InspectionNode successor = node.getElements().get(opposite.getNodeId());
+                    if (successor == null) {
+                        continue;
+                    }
+                    long cost = computeCost(successor, costs, nexts, visiting);
+                    if (cost > nextCost) {
+                        next = successor;
+                        nextCost = cost;
+                    }
+                }
+            }
+            visiting.remove(element);
+            long cost = getElapsed(element) + nextCost;
+            costs.put(element, cost);
+            if (next != null) {
+                nexts.put(element, next);
+            }
+            return cost;
+        }
+
+        /**
+         * Returns the elapsed time of the element.
+         * @param element the target element
+         * @return the elapsed time in milliseconds, or {@code 0} if it is not profiled
+         */
+        public long getElapsed(InspectionNode element) {
+            RuntimeProfile.Vertex vertex = matched.get(element);
+            return vertex == null ? 0L : vertex.getElapsed();
+        }
+
+        /**
+         * Returns the total elapsed time.
+         * @return the total elapsed time in milliseconds
+         */
+        public long getTotalElapsed() {
+            return profile.getTotalElapsed().orElseGet(() -> matched.values().stream()
+                    .mapToLong(RuntimeProfile.Vertex::getElapsed)
+                    .sum());
+        }
+
+        /**
+         * Returns the elements on the critical path, from upstream to downstream.
+         * @return the elements on the critical path
+         */
+        public List<InspectionNode> getCriticalPath() {
+            return Collections.unmodifiableList(criticalPath);
+        }
+
+        /**
+         * Returns the total elapsed time of elements on the critical path.
+         * @return the elapsed time in milliseconds
+         */
+        public long getCriticalPathElapsed() {
+            return criticalPath.stream().mapToLong(this::getElapsed).sum();
+        }
+
+        /**
+         * Returns the heat-colored Graphviz DOT attributes of the element.
+         * @param element the target element
+         * @return the DOT attributes, or {@code null} if the element is not profiled
+         * @see DotProcessor#process(InspectionNode, OutputStream, boolean, java.util.function.Function)
+         */
+        public String getDotAttributes(InspectionNode element) {
+            if (matched.containsKey(element) == false) {
+                return null;
+            }
+            double heat = maxElapsed <= 0L ? 0.0 : (double) getElapsed(element) / maxElapsed;
+            StringBuilder buf = new StringBuilder();
+            // HSV: white (cold) to red (hot)
+            buf.append(String.format(Locale.ENGLISH,
+                    "style = filled, fillcolor = \"0.000 %.3f 1.000\"", //$NON-NLS-1$
+                    heat));
+            if (criticalPath.contains(element)) {
+                buf.append(", penwidth = 3"); //$NON-NLS-1$
+            }
+            return buf.toString();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.lang.inspection.processor;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.asakusafw.lang.inspection.InspectionNode;
+import com.asakusafw.lang.inspection.InspectionNode.Port;
+import com.asakusafw.lang.inspection.InspectionNode.PortReference;
+import com.asakusafw.lang.inspection.processor.InspectionNodeProcessor.Context;
+
+/**
+ * Test for {@link RuntimeProfileProcessor}.
+ */
+public class RuntimeProfileProcessorTest {
+
+    /**
+     * temporary folder.
+     */
+    @Rule
+    public final TemporaryFolder temporary = new TemporaryFolder();
+
+    /**
+     * parse logs.
+     * @throws Exception if failed
+     */
+    @Test
+    public void parse() throws Exception {
+        RuntimeProfile profile = RuntimeProfile.parse(new StringReader(String.join("\n",
+                "INFO [main] GraphExecutor - start vertex: v0",
+                "INFO [w-1] VertexExecutor - finish vertex: Extract(a) (v0) in 1,200ms",
+                "INFO [w-2] VertexExecutor - finish vertex: CoGroup (x) (v1) in 30ms",
+                "INFO [main] PortDigester -   port=v0.out, count=1,000, digest=00000000",
+                "INFO [main] VanillaLauncher - DAG finished: stage, vertices=2, elapsed=1,500ms")));
+        assertThat(profile.getTotalElapsed().getAsLong(), is(1500L));
+        assertThat(profile.getVertices().keySet(), contains("v0", "v1"));
+
+        RuntimeProfile.Vertex v0 = profile.getVertices().get("v0");
+        assertThat(v0.getLabel(), is("Extract(a)"));
+        assertThat(v0.getElapsed(), is(1200L));
+        assertThat(v0.getRecords(), hasEntry("out", 1000L));
+
+        RuntimeProfile.Vertex v1 = profile.getVertices().get("v1");
+        assertThat(v1.getLabel(), is("CoGroup (x)"));
+        assertThat(v1.getElapsed(), is(30L));
+    }
+
+    /**
+     * critical path.
+     */
+    @Test
+    public void critical_path() {
+        InspectionNode root = buildDiamond();
+        RuntimeProfile profile = profile(
+                "finish vertex: A (va) in 10ms",
+                "finish vertex: B (vb) in 100ms",
+                "finish vertex: C (vc) in 20ms",
+                "finish vertex: D (vd) in 5ms");
+        RuntimeProfileProcessor.Result result = RuntimeProfileProcessor.analyze(root, profile);
+        assertThat(ids(result.getCriticalPath()), contains("a", "b", "d"));
+        assertThat(result.getCriticalPathElapsed(), is(115L));
+        assertThat(result.getTotalElapsed(), is(135L));
+
+        InspectionNode b = root.getElements().get("b");
+        assertThat(b.getProperties(), hasEntry(RuntimeProfileProcessor.PROPERTY_ELAPSED, "100"));
+        assertThat(result.getDotAttributes(b), containsString("penwidth"));
+        assertThat(result.getDotAttributes(root.getElements().get("c")), not(containsString("penwidth")));
+        assertThat(result.getDotAttributes(root.getElements().get("BEGIN")), is(nullValue()));
+    }
+
+    /**
+     * report.
+     * @throws Exception if failed
+     */
+    @Test
+    public void report() throws Exception {
+        String output = process(RuntimeProfileProcessor.OUTPUT_REPORT,
+                "finish vertex: A (va) in 10ms",
+                "finish vertex: B (vb) in 100ms",
+                "finish vertex: UNKNOWN (vx) in 1ms",
+                "DAG finished: testing, vertices=2, elapsed=200ms");
+        List<String> lines = lines(output);
+        assertThat(lines, contains(
+                "DAG elapsed: 200ms",
+                "critical path: 110ms (55.0%)",
+                "10ms (  5.0%) a [va] A",
+                "100ms ( 50.0%) b [vb] B",
+                "vertices: 2",
+                "100ms ( 50.0%) b [vb] B",
+                "10ms (  5.0%) a [va] A",
+                "unknown vertices: [vx]"));
+    }
+
+    /**
+     * dot.
+     * @throws Exception if failed
+     */
+    @Test
+    public void dot() throws Exception {
+        String output = process(RuntimeProfileProcessor.OUTPUT_DOT,
+                "finish vertex: A (va) in 10ms",
+                "finish vertex: B (vb) in 100ms");
+        List<String> lines = lines(output);
+        assertThat(lines, hasItem(allOf(startsWith("\"a\""), containsString("fillcolor"), containsString("penwidth"))));
+        assertThat(lines, hasItem(allOf(startsWith("\"b\""), containsString("fillcolor"), containsString("penwidth"))));
+        assertThat(lines, hasItem("\"c\" [shape = box, label = \"C\\n@c\"];"));
+        assertThat(lines, hasItem("\"d\" [shape = box, label = \"D\\n@d\"];"));
+        assertThat(lines, hasItem("\"a\" -> \"b\";"));
+    }
+
+    private String process(String kind, String... lines) throws IOException {
+        File log = temporary.newFile();
+        Files.write(log.toPath(), Arrays.asList(lines));
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put(RuntimeProfileProcessor.KEY_LOG, log.getPath());
+        options.put(RuntimeProfileProcessor.KEY_OUTPUT, kind);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new RuntimeProfileProcessor().process(new Context(options), buildDiamond(), output);
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static List<String> lines(String output) {
+        return Arrays.stream(output.split("\\R"))
+                .map(String::trim)
+                .filter(it -> it.isEmpty() == false)
+                .collect(Collectors.toList());
+    }
+
+    private static RuntimeProfile profile(String... lines) {
+        try {
+            return RuntimeProfile.parse(new StringReader(String.join("\n", lines)));
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static List<String> ids(List<InspectionNode> nodes) {
+        return nodes.stream().map(InspectionNode::getId).collect(Collectors.toList());
+    }
+
+    private static InspectionNode buildDiamond() {
+        InspectionNode root = new InspectionNode("diamond", "TESTING");
+        root.withElement(new InspectionNode("BEGIN", "BEGIN")
+                .withOutput(new Port("o0").withOpposite(new PortReference("a", "i0"))));
+        root.withElement(vertex("a", "va")
+                .withInput(new Port("i0").withOpposite(new PortReference("BEGIN", "o0")))
+                .withOutput(new Port("o0")
+                        .withOpposite(new PortReference("b", "i0"))
+                        .withOpposite(new PortReference("c", "i0"))));
+        root.withElement(vertex("b", "vb")
+                .withInput(new Port("i0").withOpposite(new PortReference("a", "o0")))
+                .withOutput(new Port("o0").withOpposite(new PortReference("d", "i0"))));
+        root.withElement(vertex("c", "vc")
+                .withInput(new Port("i0").withOpposite(new PortReference("a", "o0")))
+                .withOutput(new Port("o0").withOpposite(new PortReference("d", "i1"))));
+        root.withElement(vertex("d", "vd")
+                .withInput(new Port("i0").withOpposite(new PortReference("b", "o0")))
+                .withInput(new Port("i1").withOpposite(new PortReference("c", "o0"))));
+        return root;
+    }
+
+    private static InspectionNode vertex(String id, String vertexId) {
+        return new InspectionNode(id, id.toUpperCase())
+                .withProperty(RuntimeProfileProcessor.PROPERTY_VERTEX_ID, vertexId);
+    }
+}
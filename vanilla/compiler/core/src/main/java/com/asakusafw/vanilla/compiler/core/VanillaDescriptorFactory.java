@@ -15,6 +15,9 @@
  */
 package com.asakusafw.vanilla.compiler.core;
 
+import java.util.Set;
+
+import com.asakusafw.dag.api.common.BinarySortKeyComparator;
 import com.asakusafw.dag.api.common.SupplierInfo;
 import com.asakusafw.dag.api.model.EdgeDescriptor;
 import com.asakusafw.dag.api.model.VertexDescriptor;
@@ -26,6 +29,7 @@ import com.asakusafw.dag.compiler.codegen.DataComparatorGenerator;
 import com.asakusafw.dag.compiler.codegen.KeyValueSerDeGenerator;
 import com.asakusafw.dag.compiler.codegen.ValueSerDeGenerator;
 import com.asakusafw.dag.compiler.flow.DagDescriptorFactory;
+import com.asakusafw.lang.compiler.model.PropertyName;
 import com.asakusafw.lang.compiler.model.description.ClassDescription;
 import com.asakusafw.lang.compiler.model.description.TypeDescription;
 import com.asakusafw.lang.compiler.model.graph.Group;
@@ -35,18 +39,49 @@ import com.asakusafw.lang.utils.common.Optionals;
 /**
  * Provides descriptors of DAG API.
  * @since 0.4.0
+ * @version 0.5.5
  */
 public class VanillaDescriptorFactory implements DagDescriptorFactory {
 
     private final ClassGeneratorContext context;
 
+    private final boolean binarySortKey;
+
+    private final boolean compactRow;
+
     /**
      * Creates a new instance.
      * @param context the current context
      */
     public VanillaDescriptorFactory(ClassGeneratorContext context) {
+        this(context, false);
+    }
+
+    /**
+     * Creates a new instance.
+     * @param context the current context
+     * @param binarySortKey {@code true} to sort scatter-gather values by their binary sort keys
+     *     (only for edges with generated serializers), otherwise {@code false}
+     * @since 0.5.5
+     */
+    public VanillaDescriptorFactory(ClassGeneratorContext context, boolean binarySortKey) {
+        this(context, binarySortKey, false);
+    }
+
+    /**
+     * Creates a new instance.
+     * @param context the current context
+     * @param binarySortKey {@code true} to sort scatter-gather values by their binary sort keys
+     *     (only for edges with generated serializers), otherwise {@code false}
+     * @param compactRow {@code true} to serialize data on edges in the compact row format
+     *     (only for edges with generated serializers), otherwise {@code false}
+     * @since 0.5.5
+     */
+    public VanillaDescriptorFactory(ClassGeneratorContext context, boolean binarySortKey, boolean compactRow) {
         Arguments.requireNonNull(context);
         this.context = context;
+        this.binarySortKey = binarySortKey;
+        this.compactRow = compactRow;
     }
 
     @Override
@@ -87,23 +122,46 @@ public class VanillaDescriptorFactory implements DagDescriptorFactory {
 
     @Override
     public EdgeDescriptor newOneToOneEdge(TypeDescription dataType) {
+        return newOneToOneEdge(dataType, (Set<PropertyName>) null);
+    }
+
+    @Override
+    public EdgeDescriptor newOneToOneEdge(TypeDescription dataType, Set<PropertyName> projection) {
         Arguments.requireNonNull(dataType);
-        ClassDescription serde = ValueSerDeGenerator.get(context, dataType);
+        ClassDescription serde = ValueSerDeGenerator.get(context, dataType, compactRow, projection);
         return newOneToOneEdge(dataType, serde);
     }
 
     @Override
     public EdgeDescriptor newBroadcastEdge(TypeDescription dataType) {
+        return newBroadcastEdge(dataType, false);
+    }
+
+    @Override
+    public EdgeDescriptor newBroadcastEdge(TypeDescription dataType, boolean invariant) {
         Arguments.requireNonNull(dataType);
-        ClassDescription serde = ValueSerDeGenerator.get(context, dataType);
-        return newBroadcastEdge(dataType, serde);
+        ClassDescription serde = ValueSerDeGenerator.get(context, dataType, compactRow);
+        return new BasicEdgeDescriptor(Movement.BROADCAST, toSupplier(serde), null, invariant);
     }
 
     @Override
     public EdgeDescriptor newScatterGatherEdge(TypeDescription dataType, Group group) {
+        return newScatterGatherEdge(dataType, group, null);
+    }
+
+    @Override
+    public EdgeDescriptor newScatterGatherEdge(
+            TypeDescription dataType, Group group, Set<PropertyName> projection) {
         Arguments.requireNonNull(dataType);
         Arguments.requireNonNull(group);
-        ClassDescription serde = KeyValueSerDeGenerator.get(context, dataType, group);
+        if (binarySortKey && group.getOrdering().isEmpty() == false) {
+            ClassDescription serde = KeyValueSerDeGenerator.get(
+                    context, dataType, group, true, compactRow, projection);
+            return new BasicEdgeDescriptor(Movement.SCATTER_GATHER,
+                    toSupplier(serde),
+                    SupplierInfo.of(BinarySortKeyComparator.class.getName()));
+        }
+        ClassDescription serde = KeyValueSerDeGenerator.get(context, dataType, group, false, compactRow, projection);
         return newScatterGatherEdge(dataType, serde, group);
     }
 
@@ -55,6 +55,7 @@ import com.asakusafw.vanilla.compiler.common.VanillaTask;
 /**
  * An implementation of {@link JobflowProcessor} for Asakusa Vanilla.
  * @since 0.4.0
+ * @version 0.5.5
  */
 @Exclusive
 public class VanillaJobflowProcessor implements JobflowProcessor {
@@ -72,6 +73,30 @@ public class VanillaJobflowProcessor implements JobflowProcessor {
 
     static final String KEY_CODEGEN = KEY_PREFIX + "codegen"; //$NON-NLS-1$
 
+    /**
+     * The compiler option key of whether or not scatter-gather values are sorted by their binary sort keys.
+     * @since 0.5.5
+     */
+    public static final String KEY_BINARY_SORT_KEY = KEY_PREFIX + "sort.binary"; //$NON-NLS-1$
+
+    /**
+     * The default value of {@link #KEY_BINARY_SORT_KEY}.
+     * @since 0.5.5
+     */
+    public static final boolean DEFAULT_BINARY_SORT_KEY = false;
+
+    /**
+     * The compiler option key of whether or not data on edges are serialized in the compact row format.
+     * @since 0.5.5
+     */
+    public static final String KEY_COMPACT_ROW = KEY_PREFIX + "serde.compact"; //$NON-NLS-1$
+
+    /**
+     * The default value of {@link #KEY_COMPACT_ROW}.
+     * @since 0.5.5
+     */
+    public static final boolean DEFAULT_COMPACT_ROW = false;
+
     @Override
     public void process(Context context, Jobflow source) throws IOException {
         LOG.debug("computing execution plan: {}", source.getFlowId());
@@ -127,7 +152,10 @@ public class VanillaJobflowProcessor implements JobflowProcessor {
 
     private static GraphInfo generateGraph(JobflowProcessor.Context context, JobflowInfo info, Plan plan) {
         ClassGeneratorContext cgContext = new ClassGeneratorContextAdapter(context, VanillaPackage.CLASS_PREFIX);
-        VanillaDescriptorFactory descriptors = new VanillaDescriptorFactory(cgContext);
+        VanillaDescriptorFactory descriptors = new VanillaDescriptorFactory(
+                cgContext,
+                context.getOptions().get(KEY_BINARY_SORT_KEY, DEFAULT_BINARY_SORT_KEY),
+                context.getOptions().get(KEY_COMPACT_ROW, DEFAULT_COMPACT_ROW));
         return DataFlowGenerator.generate(context, cgContext, descriptors, info, plan);
     }
 
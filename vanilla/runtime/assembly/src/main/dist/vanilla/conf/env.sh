@@ -19,3 +19,15 @@
 
 ## additional java options
 # export ASAKUSA_VANILLA_OPTS=
+
+## loopback port number of the running Asakusa Vanilla daemon (optional)
+# export ASAKUSA_VANILLA_DAEMON_PORT=
+
+## shared secret file of the running Asakusa Vanilla daemon (optional, default: ~/.asakusa/vanilla-daemon-<port>.token)
+# export ASAKUSA_VANILLA_DAEMON_TOKEN_FILE=
+
+## class data sharing: "record" - creates archive after the execution, "false" - never uses archive (optional)
+# export ASAKUSA_VANILLA_CDS=
+
+## class data sharing archive directory (optional, default: $ASAKUSA_HOME/vanilla/cds)
+# export ASAKUSA_VANILLA_CDS_DIR=
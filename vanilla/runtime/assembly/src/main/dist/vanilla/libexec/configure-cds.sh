@@ -0,0 +1,173 @@
+#
+# Copyright 2011-2021 Asakusa Framework Team.
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+#     http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+#
+
+# Configures class data sharing (AppCDS) for the application and framework libraries of the current jobflow.
+#
+# Requires:
+#   _JAVA_CMD, _CLASSPATH, _OPT_BATCH_ID, _OPT_FLOW_ID
+# Provides:
+#   _CDS_OPTIONS - the Java VM options
+#   _CDS_RECORD - non-empty if cds_dump should be called after the execution was succeeded
+# Modifies:
+#   _CLASSPATH - replaces the directories with JAR files of their contents while class data sharing is enabled
+#
+# Environment variables:
+#   ASAKUSA_VANILLA_CDS
+#     "record" - records loaded classes, and then creates an archive after the execution
+#     "false" - never use the archive
+#     otherwise - uses the archive only if it exists and was created for the current Java command and class path
+#   ASAKUSA_VANILLA_CDS_DIR
+#     the archive directory (default: $ASAKUSA_HOME/vanilla/cds)
+
+_CDS_OPTIONS=()
+_CDS_RECORD=""
+_CDS_DIR="${ASAKUSA_VANILLA_CDS_DIR:-$_ROOT/cds}"
+_CDS_ARCHIVE="$_CDS_DIR/${_OPT_BATCH_ID:-__MISSING__}/${_OPT_FLOW_ID:-__MISSING__}.jsa"
+_CDS_STAMP="$_CDS_ARCHIVE.stamp"
+_CDS_JAR_CMD="$(dirname "$_JAVA_CMD")/jar"
+
+# Puts the JAR file path which has the same contents as the given directory into _CDS_WRAPPER.
+# The JAR file name contains the checksum of the directory contents, so that it is never out of date.
+cds_wrap() {
+    _CDS_WRAPPER=""
+    _CDS_WRAP_SUM="$(cd "$1" && find . -type f -exec cksum {} + | LC_ALL=C sort | cksum | cut -d ' ' -f 1)"
+    if [ "$_CDS_WRAP_SUM" = "" ]
+    then
+        return 1
+    fi
+    _CDS_WRAP_JAR="$_CDS_DIR/classpath/$(basename "$1")-$_CDS_WRAP_SUM.jar"
+    if [ ! -f "$_CDS_WRAP_JAR" ]
+    then
+        if [ ! -x "$_CDS_JAR_CMD" ]
+        then
+            return 1
+        fi
+        mkdir -p "$(dirname "$_CDS_WRAP_JAR")"
+        if ! "$_CDS_JAR_CMD" cfM "$_CDS_WRAP_JAR.$$" -C "$1" .
+        then
+            rm -f "$_CDS_WRAP_JAR.$$"
+            return 1
+        fi
+        mv -f "$_CDS_WRAP_JAR.$$" "$_CDS_WRAP_JAR"
+    fi
+    _CDS_WRAPPER="$_CDS_WRAP_JAR"
+}
+
+# the archived class path must be a prefix of the runtime class path, and must not contain non-empty directories:
+# the directories (e.g. "vanilla/conf") are replaced with JAR files of their contents at the same position,
+# so that the archive also covers the framework libraries without changing the class path order
+_CDS_CLASSPATH=()
+_CDS_CLASSPATH_REST=()
+if [ "$ASAKUSA_VANILLA_CDS" = "record" ] || [ "$ASAKUSA_VANILLA_CDS" != "false" -a -e "$_CDS_STAMP" ]
+then
+    for f in "${_CLASSPATH[@]}"
+    do
+        if [ ${#_CDS_CLASSPATH_REST[@]} -gt 0 ]
+        then
+            _CDS_CLASSPATH_REST+=("$f")
+        elif [ -f "$f" ] && [ "${f%.jar}" != "$f" ]
+        then
+            _CDS_CLASSPATH+=("$f")
+        elif [ -d "$f" ] && cds_wrap "$f"
+        then
+            _CDS_CLASSPATH+=("$_CDS_WRAPPER")
+        else
+            # only the entries before it are archived
+            _CDS_CLASSPATH_REST+=("$f")
+        fi
+    done
+fi
+_CDS_CLASSPATH_STRING="$(IFS=:; echo "${_CDS_CLASSPATH[*]}")"
+
+if [ ${#_CDS_CLASSPATH[@]} -eq 0 -o "$ASAKUSA_VANILLA_CDS" = "false" ]
+then
+    :
+elif [ "$ASAKUSA_VANILLA_CDS" = "record" ]
+then
+    _CDS_JAVA_VERSION="$("$_JAVA_CMD" -version 2>&1 | head -n 1 | sed -E 's/^[^"]*"(1\.)?([0-9]+).*$/\2/')"
+    if [ "$_CDS_JAVA_VERSION" -ge 11 ] 2>/dev/null
+    then
+        mkdir -p "$(dirname "$_CDS_ARCHIVE")"
+        # each process records into its own file, because the same jobflow may run concurrently
+        _CDS_CLASS_LIST="$_CDS_ARCHIVE.$$.classlist"
+        _CDS_OPTIONS+=("-XX:DumpLoadedClassList=$_CDS_CLASS_LIST")
+        _CDS_RECORD="1"
+    else
+        echo "class data sharing archive requires Java 11 or later: $_JAVA_CMD" 1>&2
+    fi
+elif [ -e "$_CDS_ARCHIVE" -a -e "$_CDS_STAMP" ]
+then
+    {
+        read -r _CDS_STAMP_JAVA
+        read -r _CDS_STAMP_CLASSPATH
+    } < "$_CDS_STAMP"
+    if [ "$_CDS_STAMP_JAVA" = "$_JAVA_CMD" -a "$_CDS_STAMP_CLASSPATH" = "$_CDS_CLASSPATH_STRING" ]
+    then
+        # the VM silently disables sharing if the archive is not compatible
+        _CDS_OPTIONS+=("-XX:SharedArchiveFile=$_CDS_ARCHIVE" "-Xshare:auto")
+    fi
+fi
+
+if [ ${#_CDS_OPTIONS[@]} -gt 0 ]
+then
+    # keeps the runtime class path consistent with the archived one, in the original order
+    _CLASSPATH=("${_CDS_CLASSPATH[@]}" "${_CDS_CLASSPATH_REST[@]}")
+fi
+
+cds_dump() {
+    # the archive must contain the framework classes, which are loaded in every jobflow execution
+    if ! grep -q '^com/asakusafw/vanilla/' "$_CDS_CLASS_LIST" 2>/dev/null
+    then
+        echo "class data sharing archive was not created: framework classes are not recorded in $_CDS_CLASS_LIST" 1>&2
+        rm -f "$_CDS_CLASS_LIST"
+        return
+    fi
+    # publishes the archive and its stamp by renaming, so that concurrent executions never see partial files
+    _CDS_TEMP="$_CDS_ARCHIVE.$$"
+    "$_JAVA_CMD" \
+        -Xshare:dump \
+        -Xlog:class+path=info \
+        "-XX:SharedClassListFile=$_CDS_CLASS_LIST" \
+        "-XX:SharedArchiveFile=$_CDS_TEMP.jsa" \
+        -classpath "$_CDS_CLASSPATH_STRING" \
+        > "$_CDS_TEMP.log" 2>&1
+    _CDS_RET=$?
+    # the framework libraries must be a part of the archived class path
+    if [ $_CDS_RET -eq 0 ]
+    then
+        for f in "${_CLASSPATH[@]}"
+        do
+            if [ "${f#$_ROOT/lib/}" != "$f" ] && ! grep -qF "shared path (jar) $f" "$_CDS_TEMP.log"
+            then
+                echo "framework library is not in the class data sharing archive: $f" >> "$_CDS_TEMP.log"
+                _CDS_RET=1
+            fi
+        done
+    fi
+    if [ $_CDS_RET -eq 0 ]
+    then
+        printf '%s\n%s\n' "$_JAVA_CMD" "$_CDS_CLASSPATH_STRING" > "$_CDS_TEMP.stamp"
+        mv -f "$_CDS_TEMP.jsa" "$_CDS_ARCHIVE"
+        mv -f "$_CDS_TEMP.stamp" "$_CDS_STAMP"
+        mv -f "$_CDS_TEMP.log" "$_CDS_ARCHIVE.log"
+        echo "class data sharing archive was created: $_CDS_ARCHIVE" 1>&2
+    else
+        rm -f "$_CDS_TEMP.jsa"
+        mv -f "$_CDS_TEMP.log" "$_CDS_ARCHIVE.log"
+        echo "failed to create class data sharing archive (see $_CDS_ARCHIVE.log)" 1>&2
+    fi
+    rm -f "$_CDS_CLASS_LIST"
+}
@@ -28,6 +28,7 @@ import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -35,6 +36,7 @@ import java.util.stream.Stream;
 /**
  * Represents a classpath of {@link VanillaBootstrap}.
  * @since 0.5.0
+ * @version 0.5.5
  */
 public class Classpath {
 
@@ -99,7 +101,28 @@ public class Classpath {
      * @return the created session
      */
     public Session session(ClassLoader base) {
-        return new Session(URLClassLoader.newInstance(
+        return new Session(newClassLoader(base), false);
+    }
+
+    /**
+     * Returns a new classpath session, which releases its class loader on {@link Session#close() closed}.
+     * Clients must not use any classes which are only loaded from the class loader after the session was closed.
+     * @param base the base class loader
+     * @return the created session
+     * @since 0.5.5
+     */
+    public Session isolate(ClassLoader base) {
+        return new Session(newClassLoader(base), true);
+    }
+
+    /**
+     * Returns a new class loader of this classpath.
+     * @param base the base class loader
+     * @return the created class loader
+     * @since 0.5.5
+     */
+    public URLClassLoader newClassLoader(ClassLoader base) {
+        return URLClassLoader.newInstance(
                 entries.stream()
                         .filter(Files::exists)
                         .flatMap(it -> {
@@ -111,7 +134,7 @@ public class Classpath {
                             }
                         })
                         .toArray(URL[]::new),
-                base));
+                base);
     }
 
     @Override
@@ -132,15 +155,19 @@ public class Classpath {
     /**
      * Represents a session of {@link Classpath}.
      * @since 0.5.0
+     * @version 0.5.5
      */
     public static class Session implements Closeable {
 
         private final ClassLoader previous;
 
+        private final boolean release;
+
         private URLClassLoader active;
 
-        Session(URLClassLoader active) {
+        Session(URLClassLoader active, boolean release) {
             this.previous = setContextClassLoader(active);
+            this.release = release;
             this.active = active;
         }
 
@@ -190,8 +217,18 @@ public class Classpath {
         @Override
         public void close() {
             if (active != null) {
-                // NOTE: we never close the class loader, because Hadoop may register some shutdown hooks
+                // NOTE: we never close the class loader by default, because Hadoop may register some shutdown hooks
                 setContextClassLoader(previous);
+                if (release) {
+                    try {
+                        active.close();
+                    } catch (IOException e) {
+                        System.err.println(MessageFormat.format(
+                                "failed to release class loader: {0} ({1})",
+                                Arrays.toString(active.getURLs()),
+                                e));
+                    }
+                }
                 active = null;
             }
         }
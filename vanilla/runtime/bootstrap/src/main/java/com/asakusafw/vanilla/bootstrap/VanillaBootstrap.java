@@ -22,11 +22,15 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Optional;
+import java.util.OptionalInt;
 import java.util.stream.Collectors;
 
 /**
  * A bootstrap entry of Asakusa Vanilla.
+ * If the environment variable {@value VanillaConstants#ENV_VANILLA_DAEMON_PORT} is defined,
+ * this first tries to submit the application to the running {@link VanillaDaemon}.
  * @since 0.5.0
+ * @version 0.5.5
  */
 public class VanillaBootstrap {
 
@@ -49,8 +53,20 @@ public class VanillaBootstrap {
      * @param args the program arguments
      */
     public static void main(String... args) {
-        VanillaBootstrap bootstrap = new VanillaBootstrap(Environment.system(), ClassLoader.getSystemClassLoader());
-        bootstrap.exec(Context.parse(args));
+        Environment environment = Environment.system();
+        Context context = Context.parse(args);
+        OptionalInt port = VanillaDaemon.findPort(environment);
+        if (port.isPresent()) {
+            OptionalInt status = VanillaDaemonClient.submit(environment, port.getAsInt(), args);
+            if (status.isPresent()) {
+                if (status.getAsInt() != 0) {
+                    System.exit(status.getAsInt());
+                }
+                return;
+            }
+        }
+        VanillaBootstrap bootstrap = new VanillaBootstrap(environment, ClassLoader.getSystemClassLoader());
+        bootstrap.exec(context);
     }
 
     /**
@@ -64,12 +80,40 @@ public class VanillaBootstrap {
     }
 
     private Classpath buildClasspath(Context context) {
+        Classpath cp = buildApplicationClasspath(context);
+        addLibraries(cp);
+        return cp;
+    }
+
+    /**
+     * Returns the classpath which only contains the application libraries.
+     * @param context the application context
+     * @return the application classpath
+     * @since 0.5.5
+     */
+    Classpath buildApplicationClasspath(Context context) {
         Classpath cp = new Classpath();
 
         Path application = getApplication(environment, context.getBatchId());
         cp.add(getAppJobflowLibFile(application, context.getFlowId()), true);
         cp.addEntries(application.resolve(PATH_APP_USER_LIB_DIR), false);
 
+        return cp;
+    }
+
+    /**
+     * Returns the classpath which only contains the framework libraries.
+     * It can be shared between individual applications.
+     * @return the framework classpath
+     * @since 0.5.5
+     */
+    Classpath buildLibraryClasspath() {
+        Classpath cp = new Classpath();
+        addLibraries(cp);
+        return cp;
+    }
+
+    private void addLibraries(Classpath cp) {
         Path home = getHome(environment);
         cp.add(home.resolve(PATH_VANILLA_CONF_DIR), false);
         cp.addEntries(home.resolve(PATH_VANILLA_LIB_DIR), true);
@@ -77,11 +121,15 @@ public class VanillaBootstrap {
         cp.addEntries(home.resolve(PATH_CORE_LIB_DIR), true);
 
         cp.addEntries(home.resolve(PATH_HADOOP_EMBEDDED_LIB_DIR), true);
-
-        return cp;
     }
 
-    private Arguments buildArguments(Context context) {
+    /**
+     * Returns the launcher arguments.
+     * @param context the application context
+     * @return the launcher arguments
+     * @since 0.5.5
+     */
+    Arguments buildArguments(Context context) {
         Arguments args = new Arguments();
 
         args.add(OPT_APPLICATION, context.getApplicationClassName());
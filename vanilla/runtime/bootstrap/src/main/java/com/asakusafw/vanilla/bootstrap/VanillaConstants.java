@@ -18,6 +18,7 @@ package com.asakusafw.vanilla.bootstrap;
 /**
  * Constants of Asakusa Vanilla.
  * @since 0.5.0
+ * @version 0.5.5
  */
 public final class VanillaConstants {
 
@@ -89,6 +90,24 @@ public final class VanillaConstants {
      */
     public static final String ENV_VANILLA_LAUNCHER_ARGUMENTS = "ASAKUSA_VANILLA_ARGS";
 
+    /**
+     * The environment variable name of extra Java VM options.
+     * @since 0.5.5
+     */
+    public static final String ENV_VANILLA_OPTIONS = "ASAKUSA_VANILLA_OPTS";
+
+    /**
+     * The environment variable name of the loopback port number of {@link VanillaDaemon}.
+     * @since 0.5.5
+     */
+    public static final String ENV_VANILLA_DAEMON_PORT = "ASAKUSA_VANILLA_DAEMON_PORT";
+
+    /**
+     * The environment variable name of the shared secret file path of {@link VanillaDaemon}.
+     * @since 0.5.5
+     */
+    public static final String ENV_VANILLA_DAEMON_TOKEN_FILE = "ASAKUSA_VANILLA_DAEMON_TOKEN_FILE";
+
     private VanillaConstants() {
         return;
     }
@@ -0,0 +1,632 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.vanilla.bootstrap;
+
+import static com.asakusafw.vanilla.bootstrap.CoreConstants.*;
+import static com.asakusafw.vanilla.bootstrap.VanillaConstants.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalInt;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * A long-lived daemon of Asakusa Vanilla, which accepts launch requests from {@link VanillaDaemonClient}
+ * over the loopback interface.
+ * The daemon shares a class loader of the framework libraries (Vanilla, extensions, Asakusa core, and
+ * the embedded Hadoop) between applications, and runs each application on its own child class loader.
+ * So that JVM start-up cost is paid only once, and the framework classes stay loaded and JIT compiled.
+ * Unlike {@link VanillaBootstrap}, the application libraries cannot override the framework libraries.
+ * Applications are executed one by one in arrival order.
+ * <p>
+ * On start-up, the daemon writes a random shared secret into the token file, which is only readable
+ * by its owner, and rejects requests without the secret before reading the rest of them.
+ * Requests must be sent within a few seconds after connecting, and their total size is limited.
+ * The token file is {@value VanillaConstants#ENV_VANILLA_DAEMON_TOKEN_FILE} if it is defined, or
+ * {@code ~/.asakusa/vanilla-daemon-<port>.token}.
+ * </p>
+ * <p>
+ * Applications run in the daemon process, so that they inherit the daemon's environment variables,
+ * Java VM options, and working directory.
+ * The daemon rejects requests whose working directory or the Asakusa related environment variables
+ * ({@value CoreConstants#ENV_ASAKUSA_HOME}, {@value CoreConstants#ENV_ASAKUSA_BATCHAPPS_HOME},
+ * {@value VanillaConstants#ENV_VANILLA_OPTIONS}, and {@value VanillaConstants#ENV_VANILLA_LAUNCHER_ARGUMENTS})
+ * are different from the daemon's, and then the clients launch such applications directly.
+ * The standard output and error of the application are forwarded to the client.
+ * </p>
+ * <p>
+ * Usage: {@code java -cp $ASAKUSA_HOME/vanilla/lib/asakusa-vanilla-bootstrap.jar
+ * com.asakusafw.vanilla.bootstrap.VanillaDaemon [port]}.
+ * If the port is omitted, this uses {@value VanillaConstants#ENV_VANILLA_DAEMON_PORT}.
+ * </p>
+ * @since 0.5.5
+ */
+public class VanillaDaemon implements Closeable {
+
+    static final int MAGIC = 0x41564432; // "AVD2"
+
+    static final int STATUS_ERROR = 1;
+
+    static final byte FRAME_EXIT = 0;
+
+    static final byte FRAME_STDOUT = 1;
+
+    static final byte FRAME_STDERR = 2;
+
+    static final byte FRAME_REJECT = 3;
+
+    static final List<String> SHARED_ENVIRONMENT = Arrays.asList(
+            ENV_ASAKUSA_HOME,
+            ENV_ASAKUSA_BATCHAPPS_HOME,
+            ENV_VANILLA_OPTIONS,
+            ENV_VANILLA_LAUNCHER_ARGUMENTS);
+
+    static final int MAX_ENTRIES = 4096;
+
+    static final int MAX_REQUEST_SIZE = 1024 * 1024;
+
+    static final int DEFAULT_REQUEST_TIMEOUT = 10_000;
+
+    private static final int MAX_MESSAGE_LENGTH = 4096;
+
+    private static final int TOKEN_SIZE = 32;
+
+    private static final int MAX_TOKEN_LENGTH = TOKEN_SIZE * 2;
+
+    private static final String PATH_DEFAULT_TOKEN_DIR = ".asakusa";
+
+    private static final String PATTERN_DEFAULT_TOKEN_FILE = "vanilla-daemon-{0}.token";
+
+    private static final Pattern PATTERN_SIMPLE_NAME = Pattern.compile("[0-9A-Za-z_\\-]+(\\.[0-9A-Za-z_\\-]+)*");
+
+    private static final String METHOD_LAUNCHER_EXEC = "exec";
+
+    private final Environment environment;
+
+    private final VanillaBootstrap bootstrap;
+
+    private final ClassLoader shared;
+
+    private final String launcherClassName;
+
+    private final ServerSocket server;
+
+    private final Path tokenFile;
+
+    private final byte[] token;
+
+    private final int requestTimeout;
+
+    /**
+     * Creates a new instance.
+     * @param environment the environment variables
+     * @param classLoader the base class loader
+     * @param port the loopback port number, or {@code 0} to use an ephemeral port
+     * @throws IOException if failed to open the port or to write the token file
+     */
+    public VanillaDaemon(Environment environment, ClassLoader classLoader, int port) throws IOException {
+        this(environment, classLoader, port, CLASS_VANILLA_LAUNCHER, DEFAULT_REQUEST_TIMEOUT);
+    }
+
+    VanillaDaemon(
+            Environment environment, ClassLoader classLoader, int port,
+            String launcherClassName, int requestTimeout) throws IOException {
+        this.environment = environment;
+        this.requestTimeout = requestTimeout;
+        this.bootstrap = new VanillaBootstrap(environment, classLoader);
+        this.shared = bootstrap.buildLibraryClasspath().newClassLoader(classLoader);
+        this.launcherClassName = launcherClassName;
+        this.server = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+        this.tokenFile = getTokenFile(environment, server.getLocalPort());
+        this.token = new byte[TOKEN_SIZE];
+        new SecureRandom().nextBytes(token);
+        try {
+            writeToken(tokenFile, token);
+        } catch (IOException e) {
+            try {
+                server.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new IOException(MessageFormat.format(
+                    "failed to write Asakusa Vanilla daemon token file: {0}",
+                    tokenFile), e);
+        }
+    }
+
+    /**
+     * Program entry.
+     * @param args the program arguments
+     * @throws IOException if I/O error was occurred while running the daemon
+     */
+    public static void main(String... args) throws IOException {
+        Environment environment = Environment.system();
+        int port;
+        if (args.length >= 1) {
+            port = parsePort(args[0]);
+        } else {
+            port = findPort(environment).orElseThrow(() -> new ConfigurationException(MessageFormat.format(
+                    "environment variable \"{0}\" must be defined",
+                    ENV_VANILLA_DAEMON_PORT)));
+        }
+        try (VanillaDaemon daemon = new VanillaDaemon(environment, ClassLoader.getSystemClassLoader(), port)) {
+            System.out.println(MessageFormat.format(
+                    "Asakusa Vanilla daemon is listening on port {0} (token file: {1})",
+                    String.valueOf(daemon.getPort()),
+                    daemon.tokenFile));
+            daemon.run();
+        }
+    }
+
+    /**
+     * Returns the daemon port number from the environment variables.
+     * @param environment the environment variables
+     * @return the port number, or empty if it is not defined
+     * @throws ConfigurationException if the port number is not valid
+     */
+    static OptionalInt findPort(Environment environment) {
+        return environment.find(ENV_VANILLA_DAEMON_PORT)
+                .map(String::trim)
+                .filter(it -> it.isEmpty() == false)
+                .map(it -> OptionalInt.of(parsePort(it)))
+                .orElse(OptionalInt.empty());
+    }
+
+    /**
+     * Returns the token file path of the daemon.
+     * @param environment the environment variables
+     * @param port the daemon port number
+     * @return the token file path
+     */
+    static Path getTokenFile(Environment environment, int port) {
+        return environment.find(ENV_VANILLA_DAEMON_TOKEN_FILE)
+                .map(String::trim)
+                .filter(it -> it.isEmpty() == false)
+                .map(Paths::get)
+                .orElseGet(() -> Paths.get(System.getProperty("user.home"))
+                        .resolve(PATH_DEFAULT_TOKEN_DIR)
+                        .resolve(MessageFormat.format(PATTERN_DEFAULT_TOKEN_FILE, String.valueOf(port))));
+    }
+
+    private static int parsePort(String value) {
+        try {
+            int port = Integer.parseInt(value.trim());
+            if (port >= 0 && port <= 0xffff) {
+                return port;
+            }
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        throw new ConfigurationException(MessageFormat.format(
+                "invalid Asakusa Vanilla daemon port number: {0}",
+                value));
+    }
+
+    private static void writeToken(Path file, byte[] token) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        // NOTE: temporary files are only accessible from the owner on POSIX file systems
+        Path temporary = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporary, encodeToken(token).getBytes(StandardCharsets.US_ASCII));
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    static String encodeToken(byte[] token) {
+        StringBuilder buf = new StringBuilder();
+        for (byte b : token) {
+            buf.append(String.format("%02x", b & 0xff)); //$NON-NLS-1$
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Returns the port number which this daemon is listening on.
+     * @return the port number
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Accepts and runs launch requests until this daemon is closed.
+     * @throws IOException if I/O error was occurred while accepting requests
+     */
+    public void run() throws IOException {
+        while (server.isClosed() == false) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (SocketException e) {
+                if (server.isClosed()) {
+                    break;
+                }
+                throw e;
+            }
+            try (Socket s = socket) {
+                handle(s);
+            } catch (IOException e) {
+                // broken requests must not stop the daemon
+                System.err.println(MessageFormat.format(
+                        "Asakusa Vanilla daemon failed to handle a request from {0}: {1}",
+                        socket.getRemoteSocketAddress(),
+                        e));
+            }
+        }
+    }
+
+    private void handle(Socket socket) throws IOException {
+        // stalled clients must not block the daemon
+        socket.setSoTimeout(requestTimeout);
+        DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        // verifies the token before reading the rest of the request from the unknown peer
+        String token = readToken(input);
+        if (MessageDigest.isEqual(encodeToken(this.token).getBytes(StandardCharsets.US_ASCII),
+                token.getBytes(StandardCharsets.US_ASCII)) == false) {
+            reject(socket, input, output, "invalid token");
+            return;
+        }
+        Request request = readRequest(input, token);
+        String rejection = validate(request);
+        if (rejection != null) {
+            reject(socket, input, output, rejection);
+            return;
+        }
+        int status;
+        String message;
+        PrintStream stdout = System.out;
+        PrintStream stderr = System.err;
+        try (PrintStream forwardOut = new PrintStream(new FrameOutputStream(output, FRAME_STDOUT), true);
+                PrintStream forwardErr = new PrintStream(new FrameOutputStream(output, FRAME_STDERR), true)) {
+            try {
+                System.setOut(forwardOut);
+                System.setErr(forwardErr);
+                status = launch(Context.parse(request.arguments));
+                message = "";
+            } catch (RuntimeException | LinkageError e) {
+                // reports the details to the client
+                e.printStackTrace(forwardErr);
+                status = STATUS_ERROR;
+                message = truncate(String.valueOf(e));
+            } finally {
+                System.setOut(stdout);
+                System.setErr(stderr);
+            }
+        }
+        if (status == STATUS_ERROR && message.isEmpty() == false) {
+            stderr.println(MessageFormat.format(
+                    "Asakusa Vanilla daemon failed to run an application ({0}): {1}",
+                    String.join(", ", request.arguments),
+                    message));
+        }
+        writeExit(output, status, message);
+        output.flush();
+    }
+
+    private void reject(
+            Socket socket, InputStream input, DataOutputStream output, String rejection) throws IOException {
+        System.err.println(MessageFormat.format(
+                "Asakusa Vanilla daemon rejected a request from {0}: {1}",
+                socket.getRemoteSocketAddress(),
+                rejection));
+        writeReject(output, rejection);
+        output.flush();
+        socket.shutdownOutput();
+        // discards the rest of request, or closing the socket may reset the connection before the client reads it
+        byte[] buffer = new byte[1024];
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(requestTimeout);
+        try {
+            for (long rest = MAX_REQUEST_SIZE; rest > 0 && System.nanoTime() < deadline;) {
+                int read = input.read(buffer, 0, (int) Math.min(buffer.length, rest));
+                if (read < 0) {
+                    break;
+                }
+                rest -= read;
+            }
+        } catch (SocketTimeoutException e) {
+            // ignore
+        }
+    }
+
+    private static String truncate(String message) {
+        // NOTE: DataOutput.writeUTF() only accepts up to 64KB
+        if (message.length() > MAX_MESSAGE_LENGTH) {
+            return message.substring(0, MAX_MESSAGE_LENGTH) + "..."; //$NON-NLS-1$
+        }
+        return message;
+    }
+
+    private String validate(Request request) {
+        String workingDirectory = System.getProperty("user.dir");
+        if (Objects.equals(workingDirectory, request.workingDirectory) == false) {
+            return MessageFormat.format(
+                    "working directory must be {0}: {1}",
+                    workingDirectory,
+                    request.workingDirectory);
+        }
+        for (String name : SHARED_ENVIRONMENT) {
+            String expected = environment.find(name).orElse(null);
+            String actual = request.environment.get(name);
+            if (Objects.equals(expected, actual) == false) {
+                return MessageFormat.format(
+                        "environment variable \"{0}\" must be \"{1}\": \"{2}\"",
+                        name,
+                        expected == null ? "" : expected,
+                        actual == null ? "" : actual);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Executes Vanilla application on an isolated class loader.
+     * @param context the application context
+     * @return the exit status
+     * @throws ConfigurationException if the batch ID, flow ID, or execution ID is not valid
+     * @throws IllegalStateException if error occurred while starting the application
+     * @throws ExecutionException if error occurred while running the application
+     */
+    public int launch(Context context) {
+        checkName("batch ID", context.getBatchId()); //$NON-NLS-1$
+        checkName("flow ID", context.getFlowId()); //$NON-NLS-1$
+        checkName("execution ID", context.getExecutionId()); //$NON-NLS-1$
+        Classpath classpath = bootstrap.buildApplicationClasspath(context);
+        Arguments arguments = bootstrap.buildArguments(context);
+        try (Classpath.Session session = classpath.isolate(shared)) {
+            ClassLoader loader = session.getClassLoader();
+            try {
+                Class<?> launcher = Class.forName(launcherClassName, false, loader);
+                Method method = launcher.getMethod(METHOD_LAUNCHER_EXEC, ClassLoader.class, String[].class);
+                return (Integer) method.invoke(null, loader, arguments.toArray());
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new ExecutionException(MessageFormat.format(
+                        "error occurred while running {0}.{1}({2})",
+                        launcherClassName,
+                        METHOD_LAUNCHER_EXEC,
+                        arguments), cause);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(MessageFormat.format(
+                        "error occurred while launching main class: {0}",
+                        launcherClassName), e);
+            }
+        }
+    }
+
+    private static void checkName(String label, String value) {
+        if (PATTERN_SIMPLE_NAME.matcher(value).matches() == false) {
+            throw new ConfigurationException(MessageFormat.format(
+                    "{0} must be a simple name: {1}",
+                    label,
+                    value));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            server.close();
+        } finally {
+            Files.deleteIfExists(tokenFile);
+        }
+    }
+
+    static void writeRequest(DataOutput output, Request request) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeUTF(request.token);
+        output.writeUTF(request.workingDirectory);
+        output.writeInt(request.environment.size());
+        for (Map.Entry<String, String> entry : request.environment.entrySet()) {
+            output.writeUTF(entry.getKey());
+            output.writeUTF(entry.getValue());
+        }
+        output.writeInt(request.arguments.length);
+        for (String arg : request.arguments) {
+            output.writeUTF(arg);
+        }
+    }
+
+    static Request readRequest(DataInput input) throws IOException {
+        return readRequest(input, readToken(input));
+    }
+
+    static String readToken(DataInput input) throws IOException {
+        int magic = input.readInt();
+        if (magic != MAGIC) {
+            throw new IOException(MessageFormat.format(
+                    "invalid Asakusa Vanilla daemon request: {0}",
+                    Integer.toHexString(magic)));
+        }
+        return new RequestReader(input, MAX_TOKEN_LENGTH).readString();
+    }
+
+    static Request readRequest(DataInput input, String token) throws IOException {
+        RequestReader reader = new RequestReader(input, MAX_REQUEST_SIZE);
+        String workingDirectory = reader.readString();
+        Map<String, String> environment = new LinkedHashMap<>();
+        int environmentSize = reader.readSize();
+        for (int i = 0; i < environmentSize; i++) {
+            String key = reader.readString();
+            String value = reader.readString();
+            environment.put(key, value);
+        }
+        String[] arguments = new String[reader.readSize()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = reader.readString();
+        }
+        return new Request(token, workingDirectory, environment, arguments);
+    }
+
+    private static void writeReject(DataOutputStream output, String message) throws IOException {
+        synchronized (output) {
+            output.writeByte(FRAME_REJECT);
+            output.writeUTF(message);
+        }
+    }
+
+    private static void writeExit(DataOutputStream output, int status, String message) throws IOException {
+        synchronized (output) {
+            output.writeByte(FRAME_EXIT);
+            output.writeInt(status);
+            output.writeUTF(message);
+        }
+    }
+
+    /**
+     * A launch request of {@link VanillaDaemon}.
+     * @since 0.5.5
+     */
+    static final class Request {
+
+        final String token;
+
+        final String workingDirectory;
+
+        final Map<String, String> environment;
+
+        final String[] arguments;
+
+        Request(String token, String workingDirectory, Map<String, String> environment, String[] arguments) {
+            this.token = token;
+            this.workingDirectory = workingDirectory;
+            this.environment = environment;
+            this.arguments = arguments;
+        }
+    }
+
+    /**
+     * Reads the contents of requests within the limited number of bytes.
+     */
+    private static final class RequestReader {
+
+        private final DataInput input;
+
+        private int rest;
+
+        RequestReader(DataInput input, int limit) {
+            this.input = input;
+            this.rest = limit;
+        }
+
+        String readString() throws IOException {
+            // NOTE: the same format of DataOutput.writeUTF(), but checks its length before reading the contents
+            int length = input.readUnsignedShort();
+            if (length > rest) {
+                throw new IOException(MessageFormat.format(
+                        "Asakusa Vanilla daemon request is too large: {0}",
+                        String.valueOf(length)));
+            }
+            rest -= length;
+            byte[] bytes = new byte[length + 2];
+            bytes[0] = (byte) (length >> 8);
+            bytes[1] = (byte) length;
+            input.readFully(bytes, 2, length);
+            return DataInputStream.readUTF(new DataInputStream(new ByteArrayInputStream(bytes)));
+        }
+
+        int readSize() throws IOException {
+            int size = input.readInt();
+            if (size < 0 || size > MAX_ENTRIES) {
+                throw new IOException(MessageFormat.format(
+                        "invalid Asakusa Vanilla daemon request size: {0}",
+                        String.valueOf(size)));
+            }
+            return size;
+        }
+    }
+
+    private static final class FrameOutputStream extends OutputStream {
+
+        private final DataOutputStream output;
+
+        private final byte kind;
+
+        FrameOutputStream(DataOutputStream output, byte kind) {
+            this.output = output;
+            this.kind = kind;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            synchronized (output) {
+                output.writeByte(kind);
+                output.writeInt(len);
+                output.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (output) {
+                output.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
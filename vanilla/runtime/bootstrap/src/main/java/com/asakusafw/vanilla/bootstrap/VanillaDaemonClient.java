@@ -0,0 +1,170 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.vanilla.bootstrap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalInt;
+
+/**
+ * A client of {@link VanillaDaemon}.
+ * <p>
+ * Usage: {@code java -cp $ASAKUSA_HOME/vanilla/lib/asakusa-vanilla-bootstrap.jar
+ * com.asakusafw.vanilla.bootstrap.VanillaDaemonClient [VanillaBootstrap arguments...]}.
+ * This exits with {@link #STATUS_UNAVAILABLE} if the daemon did not accept the request, and then the caller
+ * should launch the application by itself.
+ * </p>
+ * @since 0.5.5
+ */
+public final class VanillaDaemonClient {
+
+    /**
+     * The exit status which represents the daemon did not accept the request.
+     * Note that the Vanilla launcher never returns this status.
+     */
+    public static final int STATUS_UNAVAILABLE = 75;
+
+    private VanillaDaemonClient() {
+        return;
+    }
+
+    /**
+     * Program entry.
+     * @param args the {@link VanillaBootstrap} arguments
+     */
+    public static void main(String... args) {
+        Environment environment = Environment.system();
+        OptionalInt port = VanillaDaemon.findPort(environment);
+        OptionalInt status = port.isPresent() ? submit(environment, port.getAsInt(), args) : OptionalInt.empty();
+        System.exit(status.orElse(STATUS_UNAVAILABLE));
+    }
+
+    /**
+     * Submits a launch request to the daemon, and then waits for its completion.
+     * The standard output and error of the application are forwarded to {@link System#out} and {@link System#err}.
+     * @param environment the environment variables
+     * @param port the daemon port number
+     * @param args the {@link VanillaBootstrap} arguments
+     * @return the exit status, or empty if the daemon is not available or it rejected the request
+     * @throws ExecutionException if the daemon was disconnected while running the application
+     */
+    public static OptionalInt submit(Environment environment, int port, String... args) {
+        return submit(environment, port, System.out, System.err, args);
+    }
+
+    static OptionalInt submit(
+            Environment environment, int port,
+            OutputStream stdout, OutputStream stderr,
+            String... args) {
+        Path tokenFile = VanillaDaemon.getTokenFile(environment, port);
+        String token;
+        try {
+            token = new String(Files.readAllBytes(tokenFile), StandardCharsets.US_ASCII).trim();
+        } catch (IOException e) {
+            return unavailable(stderr, port, e.toString());
+        }
+        Map<String, String> shared = new LinkedHashMap<>();
+        for (String name : VanillaDaemon.SHARED_ENVIRONMENT) {
+            environment.find(name).ifPresent(it -> shared.put(name, it));
+        }
+        VanillaDaemon.Request request = new VanillaDaemon.Request(
+                token, System.getProperty("user.dir"), shared, args);
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        } catch (IOException e) {
+            try {
+                socket.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            return unavailable(stderr, port, e.toString());
+        }
+        try (Socket s = socket) {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+            VanillaDaemon.writeRequest(output, request);
+            output.flush();
+            DataInputStream input = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            byte[] buffer = new byte[256];
+            while (true) {
+                byte kind = input.readByte();
+                switch (kind) {
+                case VanillaDaemon.FRAME_STDOUT:
+                case VanillaDaemon.FRAME_STDERR: {
+                    int length = input.readInt();
+                    if (buffer.length < length) {
+                        buffer = new byte[length];
+                    }
+                    input.readFully(buffer, 0, length);
+                    OutputStream target = kind == VanillaDaemon.FRAME_STDOUT ? stdout : stderr;
+                    target.write(buffer, 0, length);
+                    target.flush();
+                    break;
+                }
+                case VanillaDaemon.FRAME_REJECT:
+                    return unavailable(stderr, port, input.readUTF());
+                case VanillaDaemon.FRAME_EXIT: {
+                    int status = input.readInt();
+                    String message = input.readUTF();
+                    if (message.isEmpty() == false) {
+                        println(stderr, message);
+                    }
+                    return OptionalInt.of(status);
+                }
+                default:
+                    throw new IOException(MessageFormat.format(
+                            "invalid Asakusa Vanilla daemon response: {0}",
+                            String.valueOf(kind)));
+                }
+            }
+        } catch (IOException e) {
+            // the request may be already running on the daemon, so that we must not launch it again here
+            throw new ExecutionException(MessageFormat.format(
+                    "error occurred while running the application on Asakusa Vanilla daemon: {0}",
+                    String.join(", ", args)), e);
+        }
+    }
+
+    private static OptionalInt unavailable(OutputStream stderr, int port, String reason) {
+        println(stderr, MessageFormat.format(
+                "Asakusa Vanilla daemon is not available on port {0}, launching the application directly: {1}",
+                String.valueOf(port),
+                reason));
+        return OptionalInt.empty();
+    }
+
+    private static void println(OutputStream stream, String message) {
+        try {
+            stream.write((message + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+            stream.flush();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+}
@@ -0,0 +1,392 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.vanilla.bootstrap;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.OptionalInt;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test for {@link VanillaDaemon} and {@link VanillaDaemonClient}.
+ */
+public class VanillaDaemonTest {
+
+    /**
+     * temporary folder.
+     */
+    @Rule
+    public final TemporaryFolder temporary = new TemporaryFolder();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private final Environment environment = new Environment();
+
+    private final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+
+    private final ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+
+    private VanillaDaemon daemon;
+
+    private Future<?> running;
+
+    /**
+     * set up.
+     * @throws Exception if failed
+     */
+    @Before
+    public void setUp() throws Exception {
+        File home = temporary.newFolder("home");
+        for (String path : new String[] {
+                VanillaConstants.PATH_VANILLA_LIB_DIR,
+                CoreConstants.PATH_EXTENSION_LIB_DIR,
+                CoreConstants.PATH_CORE_LIB_DIR,
+                CoreConstants.PATH_HADOOP_EMBEDDED_LIB_DIR,
+        }) {
+            Files.createDirectories(home.toPath().resolve(path));
+        }
+        File batchapps = temporary.newFolder("batchapps");
+        environment.entries().put(CoreConstants.ENV_ASAKUSA_HOME, home.getPath());
+        environment.entries().put(CoreConstants.ENV_ASAKUSA_BATCHAPPS_HOME, batchapps.getPath());
+        environment.entries().put(VanillaConstants.ENV_VANILLA_DAEMON_TOKEN_FILE,
+                new File(temporary.getRoot(), "daemon.token").getPath());
+        MockLauncher.status = 0;
+        MockLauncher.arguments = null;
+    }
+
+    /**
+     * tear down.
+     * @throws Exception if failed
+     */
+    @After
+    public void tearDown() throws Exception {
+        if (daemon != null) {
+            daemon.close();
+            running.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * simple round trip.
+     * @throws Exception if failed
+     */
+    @Test
+    public void simple() throws Exception {
+        application("b", "f");
+        start();
+        OptionalInt status = submit(environment, "b", "f", "e");
+        assertThat(status, is(OptionalInt.of(0)));
+        assertThat(text(stdout), containsString("Hello, daemon!"));
+        assertThat(MockLauncher.arguments, hasItemInArray("--batch-id"));
+        assertThat(MockLauncher.arguments, hasItemInArray("b"));
+    }
+
+    /**
+     * round trip with exit status.
+     * @throws Exception if failed
+     */
+    @Test
+    public void status() throws Exception {
+        application("b", "f");
+        start();
+        MockLauncher.status = 3;
+        assertThat(submit(environment, "b", "f", "e"), is(OptionalInt.of(3)));
+        MockLauncher.status = 0;
+        assertThat(submit(environment, "b", "f", "e"), is(OptionalInt.of(0)));
+    }
+
+    /**
+     * the token file is only readable from the owner.
+     * @throws Exception if failed
+     */
+    @Test
+    public void token_file() throws Exception {
+        start();
+        Path file = VanillaDaemon.getTokenFile(environment, daemon.getPort());
+        assertThat(Files.isRegularFile(file), is(true));
+        if (file.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            assertThat(Files.getPosixFilePermissions(file), is(PosixFilePermissions.fromString("rw-------")));
+        }
+        daemon.close();
+        running.get(10, TimeUnit.SECONDS);
+        daemon = null;
+        assertThat(Files.exists(file), is(false));
+    }
+
+    /**
+     * broken requests must not stop the daemon.
+     * @throws Exception if failed
+     */
+    @Test
+    public void bad_request() throws Exception {
+        application("b", "f");
+        start();
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort())) {
+            DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+            output.writeInt(0xcafebabe);
+            output.flush();
+            assertThat(socket.getInputStream().read(), is(-1));
+        }
+        assertThat(submit(environment, "b", "f", "e"), is(OptionalInt.of(0)));
+    }
+
+    /**
+     * requests without valid token are rejected.
+     * @throws Exception if failed
+     */
+    @Test
+    public void bad_token() throws Exception {
+        application("b", "f");
+        start();
+        Path file = VanillaDaemon.getTokenFile(environment, daemon.getPort());
+        Files.write(file, "invalid".getBytes(StandardCharsets.US_ASCII));
+        assertThat(submit(environment, "b", "f", "e"), is(OptionalInt.empty()));
+        assertThat(text(stderr), containsString("invalid token"));
+        assertThat(MockLauncher.arguments, is(nullValue()));
+    }
+
+    /**
+     * requests with invalid token are rejected before reading the rest of them.
+     * @throws Exception if failed
+     */
+    @Test
+    public void bad_token_partial() throws Exception {
+        application("b", "f");
+        start();
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort())) {
+            DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+            output.writeInt(VanillaDaemon.MAGIC);
+            output.writeUTF("invalid");
+            output.flush();
+            DataInputStream input = new DataInputStream(socket.getInputStream());
+            assertThat(input.readByte(), is(VanillaDaemon.FRAME_REJECT));
+            assertThat(input.readUTF(), is("invalid token"));
+        }
+        assertThat(submit(environment, "b", "f", "e"), is(OptionalInt.of(0)));
+    }
+
+    /**
+     * too large requests must not stop the daemon.
+     * @throws Exception if failed
+     */
+    @Test
+    public void too_large_request() throws Exception {
+        application("b", "f");
+        start();
+        String token = new String(
+                Files.readAllBytes(VanillaDaemon.getTokenFile(environment, daemon.getPort())),
+                StandardCharsets.US_ASCII);
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < 60_000; i++) {
+            buf.append('a');
+        }
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort())) {
+            DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+            output.writeInt(VanillaDaemon.MAGIC);
+            output.writeUTF(token);
+            output.writeUTF("/");
+            int entries = VanillaDaemon.MAX_REQUEST_SIZE / buf.length() + 1;
+            output.writeInt(entries);
+            for (int i = 0; i < entries; i++) {
+                output.writeUTF(String.valueOf(i));
+                output.writeUTF(buf.toString());
+            }
+            output.flush();
+            assertThat(socket.getInputStream().read(), is(-1));
+        } catch (IOException e) {
+            // the daemon may close the connection while sending the request
+        }
+        assertThat(submit(environment, "b", "f", "e"), is(OptionalInt.of(0)));
+        assertThat(MockLauncher.arguments, hasItemInArray("b"));
+    }
+
+    /**
+     * stalled clients must not block the daemon.
+     * @throws Exception if failed
+     */
+    @Test
+    public void stalled_request() throws Exception {
+        application("b", "f");
+        start(500);
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort())) {
+            DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+            output.writeInt(VanillaDaemon.MAGIC);
+            output.flush();
+            assertThat(submit(environment, "b", "f", "e"), is(OptionalInt.of(0)));
+            assertThat(socket.getInputStream().read(), is(-1));
+        }
+    }
+
+    /**
+     * requests from different environment are rejected.
+     * @throws Exception if failed
+     */
+    @Test
+    public void bad_environment() throws Exception {
+        application("b", "f");
+        start();
+        Environment other = new Environment();
+        other.entries().putAll(environment.entries());
+        other.entries().put(VanillaConstants.ENV_VANILLA_OPTIONS, "-Xmx1g");
+        assertThat(submit(other, "b", "f", "e"), is(OptionalInt.empty()));
+        assertThat(text(stderr), containsString(VanillaConstants.ENV_VANILLA_OPTIONS));
+        assertThat(MockLauncher.arguments, is(nullValue()));
+    }
+
+    /**
+     * IDs must be simple names.
+     * @throws Exception if failed
+     */
+    @Test
+    public void bad_id() throws Exception {
+        application("b", "f");
+        start();
+        assertThat(submit(environment, "../b", "f", "e"), is(OptionalInt.of(VanillaDaemon.STATUS_ERROR)));
+        assertThat(submit(environment, "b", "..", "e"), is(OptionalInt.of(VanillaDaemon.STATUS_ERROR)));
+        assertThat(submit(environment, "b", "f", "e/x"), is(OptionalInt.of(VanillaDaemon.STATUS_ERROR)));
+        assertThat(text(stderr), containsString("batch ID"));
+        assertThat(MockLauncher.arguments, is(nullValue()));
+    }
+
+    /**
+     * the target application is missing.
+     * @throws Exception if failed
+     */
+    @Test
+    public void missing_application() throws Exception {
+        start();
+        assertThat(submit(environment, "b", "f", "e"), is(OptionalInt.of(VanillaDaemon.STATUS_ERROR)));
+        assertThat(text(stderr), containsString("jobflow-f.jar"));
+        assertThat(MockLauncher.arguments, is(nullValue()));
+    }
+
+    /**
+     * the daemon is not running.
+     * @throws Exception if failed
+     */
+    @Test
+    public void unavailable() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0, 0, InetAddress.getLoopbackAddress())) {
+            port = socket.getLocalPort();
+        }
+        Files.write(VanillaDaemon.getTokenFile(environment, port), "dummy".getBytes(StandardCharsets.US_ASCII));
+        OptionalInt status = VanillaDaemonClient.submit(environment, port, stdout, stderr, args("b", "f", "e"));
+        assertThat(status, is(OptionalInt.empty()));
+        assertThat(text(stderr), containsString("not available"));
+    }
+
+    /**
+     * the token file is missing.
+     * @throws Exception if failed
+     */
+    @Test
+    public void unavailable_token() throws Exception {
+        start();
+        Files.delete(VanillaDaemon.getTokenFile(environment, daemon.getPort()));
+        assertThat(submit(environment, "b", "f", "e"), is(OptionalInt.empty()));
+        assertThat(text(stderr), containsString("not available"));
+    }
+
+    private void application(String batchId, String flowId) throws IOException {
+        Path file = CoreConstants.getAppJobflowLibFile(CoreConstants.getApplication(environment, batchId), flowId);
+        Files.createDirectories(file.getParent());
+        try (OutputStream output = new FileOutputStream(file.toFile());
+                ZipOutputStream zip = new ZipOutputStream(output)) {
+            zip.setComment("empty");
+        }
+    }
+
+    private void start() throws IOException {
+        start(VanillaDaemon.DEFAULT_REQUEST_TIMEOUT);
+    }
+
+    private void start(int requestTimeout) throws IOException {
+        daemon = new VanillaDaemon(
+                environment, getClass().getClassLoader(), 0,
+                MockLauncher.class.getName(), requestTimeout);
+        running = executor.submit(() -> {
+            daemon.run();
+            return null;
+        });
+    }
+
+    private OptionalInt submit(Environment env, String batchId, String flowId, String executionId) {
+        return VanillaDaemonClient.submit(env, daemon.getPort(), stdout, stderr, args(batchId, flowId, executionId));
+    }
+
+    private static String[] args(String batchId, String flowId, String executionId) {
+        return new String[] {
+                batchId, flowId, executionId, "a=b", "com.example.App",
+        };
+    }
+
+    private static String text(ByteArrayOutputStream output) {
+        return new String(output.toByteArray());
+    }
+
+    /**
+     * Mock launcher.
+     */
+    public static final class MockLauncher {
+
+        static volatile int status;
+
+        static volatile String[] arguments;
+
+        private MockLauncher() {
+            return;
+        }
+
+        /**
+         * Mock of launcher entry.
+         * @param loader the class loader
+         * @param args the arguments
+         * @return the exit status
+         */
+        public static int exec(ClassLoader loader, String... args) {
+            arguments = args;
+            System.out.println("Hello, daemon!");
+            return status;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.vanilla.client;
+
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.conf.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.asakusafw.bridge.broker.ResourceBroker;
+import com.asakusafw.bridge.launch.LaunchInfo;
+import com.asakusafw.dag.api.model.GraphInfo;
+import com.asakusafw.dag.api.processor.ProcessorContext;
+import com.asakusafw.dag.api.processor.basic.BasicSharedResourceRegistry;
+import com.asakusafw.dag.api.processor.extension.SharedResourceRegistry;
+import com.asakusafw.lang.utils.common.Arguments;
+import com.asakusafw.lang.utils.common.Lang;
+import com.asakusafw.vanilla.core.engine.AdmissionController;
+import com.asakusafw.vanilla.core.io.BasicBufferPool;
+import com.asakusafw.vanilla.core.io.BasicBufferStore;
+
+/**
+ * Executes iterative rounds concurrently in the current Java VM.
+ * All rounds share the application class loader, the DAG definition, the buffer pool,
+ * and the task admission controller.
+ * Each round runs in its own {@link ResourceBroker.Scope#THREAD thread scoped} resource session,
+ * so that individual rounds can see their own batch arguments.
+ * The rounds also share a {@link SharedResourceRegistry}, which holds the objects invariant between the rounds,
+ * like broadcast data tables built from the data sets which do not depend on the round parameters.
+ * The registered objects are released after the last round was finished.
+ * @since 0.5.5
+ */
+final class ConcurrentRoundExecutor {
+
+    static final Logger LOG = LoggerFactory.getLogger(ConcurrentRoundExecutor.class);
+
+    private final ClassLoader loader;
+
+    private final Configuration hadoop;
+
+    private final VanillaConfiguration configuration;
+
+    /**
+     * Creates a new instance.
+     * @param loader the application class loader
+     * @param hadoop the base Hadoop configuration
+     * @param configuration the engine configuration
+     */
+    ConcurrentRoundExecutor(ClassLoader loader, Configuration hadoop, VanillaConfiguration configuration) {
+        Arguments.requireNonNull(loader);
+        Arguments.requireNonNull(hadoop);
+        Arguments.requireNonNull(configuration);
+        this.loader = loader;
+        this.hadoop = hadoop;
+        this.configuration = configuration;
+    }
+
+    /**
+     * Executes the given rounds.
+     * @param rounds the launching information of individual rounds
+     * @return the exit code
+     * @see LaunchUtil#EXEC_SUCCESS
+     * @see LaunchUtil#EXEC_ERROR
+     * @see LaunchUtil#EXEC_INTERRUPTED
+     */
+    int exec(List<? extends LaunchInfo> rounds) {
+        Arguments.requireNonNull(rounds);
+        if (rounds.isEmpty()) {
+            return LaunchUtil.EXEC_SUCCESS;
+        }
+        LaunchInfo first = rounds.get(0);
+        GraphInfo graph = LaunchUtil.extract(first.getStageClient());
+        int concurrency = Math.min(configuration.getRoundConcurrency(), rounds.size());
+        LOG.info(MessageFormat.format(
+                "starting concurrent rounds: rounds={0}, concurrency={1}, pool={2}bytes",
+                rounds.size(),
+                concurrency,
+                configuration.getBufferPoolSize()));
+        ProcessorContext root = LaunchUtil.createProcessorContext(loader, first, newHadoopConfiguration());
+        BasicSharedResourceRegistry resources = new BasicSharedResourceRegistry();
+        try (BasicBufferStore store = VanillaLauncher.newBufferStore(root, configuration)) {
+            BasicBufferPool pool = new BasicBufferPool(configuration.getBufferPoolSize(), store);
+            AdmissionController admission = VanillaLauncher.newAdmissionController(configuration);
+            VanillaLauncher.GraphRunner runner = (context, conf, g) -> VanillaLauncher.execute(
+                    context, conf, g,
+                    pool, store.getBlobStore(), admission,
+                    ResourceBroker.Scope.THREAD);
+            return exec(rounds, graph, runner, resources, concurrency);
+        } catch (IOException e) {
+            LOG.error("failed to prepare concurrent rounds", e);
+            return LaunchUtil.EXEC_ERROR;
+        } catch (InterruptedException e) {
+            LOG.warn("interrupted while preparing concurrent rounds", e);
+            return LaunchUtil.EXEC_INTERRUPTED;
+        } finally {
+            // all rounds have been finished here
+            VanillaDirect.release(resources);
+        }
+    }
+
+    private int exec(
+            List<? extends LaunchInfo> rounds, GraphInfo graph,
+            VanillaLauncher.GraphRunner runner, SharedResourceRegistry resources,
+            int concurrency) throws InterruptedException {
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        int index = 0;
+        for (LaunchInfo round : rounds) {
+            int current = ++index;
+            tasks.add(() -> {
+                LOG.info("Round: {}/{}", current, rounds.size());
+                return new VanillaLauncher(round, newHadoopConfiguration(), graph, runner, resources).exec();
+            });
+        }
+        return exec(tasks, concurrency);
+    }
+
+    /**
+     * Executes the given rounds, and then waits for all of them even if some of them were failed.
+     * The first failing round cancels the rest rounds.
+     * @param rounds the rounds, which return their exit code
+     * @param concurrency the max number of concurrent rounds
+     * @return the exit code of the first failing round, or {@link LaunchUtil#EXEC_SUCCESS} if all rounds succeeded
+     * @throws InterruptedException if interrupted while waiting for the rounds
+     */
+    static int exec(List<? extends Callable<Integer>> rounds, int concurrency) throws InterruptedException {
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(
+                concurrency,
+                r -> Lang.let(new Thread(r), t -> {
+                    t.setName(String.format("vanilla-round-%d", counter.incrementAndGet())); //$NON-NLS-1$
+                    t.setDaemon(true);
+                }));
+        try {
+            CompletionService<Integer> results = new ExecutorCompletionService<>(executor);
+            AtomicBoolean canceled = new AtomicBoolean();
+            for (Callable<Integer> round : rounds) {
+                results.submit(() -> {
+                    if (canceled.get()) {
+                        return LaunchUtil.EXEC_INTERRUPTED;
+                    }
+                    return round.call();
+                });
+            }
+            for (int i = 0; i < rounds.size(); i++) {
+                int result = getResult(results);
+                if (result != LaunchUtil.EXEC_SUCCESS) {
+                    canceled.set(true);
+                    return result;
+                }
+            }
+            return LaunchUtil.EXEC_SUCCESS;
+        } finally {
+            executor.shutdownNow();
+            awaitTermination(executor);
+        }
+    }
+
+    private static void awaitTermination(ExecutorService executor) throws InterruptedException {
+        // NOTE: the running rounds share the buffer store, so that we must not close it until they are finished
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    break;
+                }
+                LOG.debug("waiting for running rounds");
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            throw new InterruptedException();
+        }
+    }
+
+    private static int getResult(CompletionService<Integer> results) throws InterruptedException {
+        try {
+            return results.take().get();
+        } catch (ExecutionException e) {
+            LOG.error("round execution failed", e.getCause());
+            return LaunchUtil.EXEC_ERROR;
+        }
+    }
+
+    private Configuration newHadoopConfiguration() {
+        Configuration result = new Configuration(hadoop);
+        result.setClassLoader(loader);
+        return result;
+    }
+}
@@ -43,6 +43,7 @@ import com.asakusafw.runtime.core.ResourceConfiguration;
 /**
  * Utilities about launching DAG applications.
  * @since 0.4.2
+ * @version 0.5.5
  */
 public final class LaunchUtil {
 
@@ -165,4 +166,37 @@ public final class LaunchUtil {
             ApiActivator.load(context.getClassLoader()).forEach(a -> s.schedule(a.activate()));
         });
     }
+
+    /**
+     * Decorates the given action to run it in a {@link ResourceSession}.
+     * If the session was not available, this raises an exception without running the action.
+     * @param context the current context created by
+     *      {@link #createProcessorContext(ClassLoader, LaunchInfo, Configuration)}
+     * @param scope the target session scope
+     * @param action the target action
+     * @return the decorated action
+     * @since 0.5.5
+     */
+    public static Runnable withSession(ProcessorContext context, ResourceBroker.Scope scope, Runnable action) {
+        Arguments.requireNonNull(context);
+        Arguments.requireNonNull(scope);
+        Arguments.requireNonNull(action);
+        return () -> {
+            ResourceSession session;
+            try {
+                session = attachSession(context, scope);
+            } catch (IOException | RuntimeException e) {
+                throw new IllegalStateException(MessageFormat.format(
+                        "failed to attach resource session: {0}",
+                        scope), e);
+            }
+            try (ResourceSession s = session) {
+                action.run();
+            } catch (IOException e) {
+                LOG.warn(MessageFormat.format(
+                        "error occurred while closing resource session: {0}",
+                        scope), e);
+            }
+        };
+    }
 }
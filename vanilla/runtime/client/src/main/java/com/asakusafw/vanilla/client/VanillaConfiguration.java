@@ -42,7 +42,7 @@ import com.asakusafw.vanilla.core.util.SystemProperty;
 /**
  * A configuration of Asakusa Vanilla runtime.
  * @since 0.4.0
- * @version 0.5.3
+ * @version 0.5.5
  */
 public class VanillaConfiguration {
 
@@ -116,6 +116,24 @@ public class VanillaConfiguration {
      */
     public static final String KEY_MERGE_FACTOR = KEY_ENGINE_PREFIX + "merge.factor"; //$NON-NLS-1$
 
+    /**
+     * The configuration key of the maximum number of iterative rounds which run concurrently
+     * ({@value}: {@value #DEFAULT_ROUND_CONCURRENCY}).
+     * Each running round has its own worker threads, and all rounds share the same buffer pool.
+     * @since 0.5.5
+     * @see VanillaDirect
+     */
+    public static final String KEY_ROUND_CONCURRENCY = KEY_ENGINE_PREFIX + "round.concurrency"; //$NON-NLS-1$
+
+    /**
+     * The configuration key of the ratio of buffer pool size which output buffers of running tasks can occupy,
+     * or {@code 0} to disable task admission control ({@value}: {@value #DEFAULT_ADMISSION_RATIO}).
+     * Each task is estimated to use {@link #KEY_OUTPUT_BUFFER_SIZE} bytes for each output,
+     * and it will wait for the other running tasks if the total exceeds the limit.
+     * @since 0.5.5
+     */
+    public static final String KEY_ADMISSION_RATIO = KEY_ENGINE_PREFIX + "admission.ratio"; //$NON-NLS-1$
+
     /**
      * The default value of {@link #KEY_THREAD_COUNT}.
      */
@@ -172,6 +190,18 @@ public class VanillaConfiguration {
      */
     public static final double DEFAULT_MERGE_FACTOR = 0.75;
 
+    /**
+     * The default value of {@link #KEY_ROUND_CONCURRENCY} (sequential).
+     * @since 0.5.5
+     */
+    public static final int DEFAULT_ROUND_CONCURRENCY = 1;
+
+    /**
+     * The default value of {@link #KEY_ADMISSION_RATIO}.
+     * @since 0.5.5
+     */
+    public static final double DEFAULT_ADMISSION_RATIO = 0.0;
+
     static final Logger LOG = LoggerFactory.getLogger(VanillaConfiguration.class);
 
     private OptionalInt numberOfThreads = OptionalInt.empty();
@@ -196,6 +226,10 @@ public class VanillaConfiguration {
 
     private OptionalDouble mergeFactor = OptionalDouble.empty();
 
+    private OptionalInt roundConcurrency = OptionalInt.empty();
+
+    private OptionalDouble admissionRatio = OptionalDouble.empty();
+
     /**
      * Returns the number of worker threads.
      * @return the number of worker threads
@@ -409,6 +443,58 @@ public class VanillaConfiguration {
         return mergeFactor.orElse(DEFAULT_MERGE_FACTOR);
     }
 
+    /**
+     * Sets the maximum number of iterative rounds which run concurrently.
+     * @param newValue the new value
+     * @since 0.5.5
+     */
+    public void setRoundConcurrency(int newValue) {
+        this.roundConcurrency = OptionalInt.of(newValue);
+    }
+
+    /**
+     * Returns the maximum number of iterative rounds which run concurrently.
+     * @return the maximum number of concurrent rounds
+     * @see #KEY_ROUND_CONCURRENCY
+     * @since 0.5.5
+     */
+    public int getRoundConcurrency() {
+        return Math.max(roundConcurrency.orElse(DEFAULT_ROUND_CONCURRENCY), 1);
+    }
+
+    /**
+     * Sets the ratio of buffer pool size which output buffers of running tasks can occupy.
+     * @param newValue the new value, or {@code 0} to disable task admission control
+     * @since 0.5.5
+     */
+    public void setAdmissionRatio(double newValue) {
+        this.admissionRatio = OptionalDouble.of(newValue);
+    }
+
+    /**
+     * Returns the ratio of buffer pool size which output buffers of running tasks can occupy.
+     * @return the ratio, or {@code 0} if task admission control is disabled
+     * @see #KEY_ADMISSION_RATIO
+     * @since 0.5.5
+     */
+    public double getAdmissionRatio() {
+        return Math.max(admissionRatio.orElse(DEFAULT_ADMISSION_RATIO), 0.0);
+    }
+
+    /**
+     * Returns the maximum total size of output buffers of running tasks.
+     * @return the size limit in bytes, or {@code 0} if task admission control is disabled
+     * @see #KEY_ADMISSION_RATIO
+     * @since 0.5.5
+     */
+    public long getAdmissionLimit() {
+        double ratio = getAdmissionRatio();
+        if (ratio <= 0.0) {
+            return 0L;
+        }
+        return Math.max((long) (getBufferPoolSize() * ratio), 1L);
+    }
+
     /**
      * Extracts configurations from the given options.
      * @param options the options
@@ -428,6 +514,8 @@ public class VanillaConfiguration {
         configureInt(conf::setOutputRecordSize, options, KEY_OUTPUT_RECORD_SIZE);
         configureInt(conf::setMergeThreshold, options, KEY_MERGE_THRESHOLD);
         configureDouble(conf::setMergeFactor, options, KEY_MERGE_FACTOR);
+        configureInt(conf::setRoundConcurrency, options, KEY_ROUND_CONCURRENCY);
+        configureDouble(conf::setAdmissionRatio, options, KEY_ADMISSION_RATIO);
         if (LOG.isDebugEnabled()) {
             LOG.debug(MessageFormat.format("{0}: {1}", //$NON-NLS-1$
                     KEY_THREAD_COUNT, conf.getNumberOfThreads()));
@@ -453,6 +541,10 @@ public class VanillaConfiguration {
                     KEY_MERGE_THRESHOLD, conf.getMergeThreshold()));
             LOG.debug(MessageFormat.format("{0}: {1}", //$NON-NLS-1$
                     KEY_MERGE_FACTOR, conf.getMergeFactor()));
+            LOG.debug(MessageFormat.format("{0}: {1}", //$NON-NLS-1$
+                    KEY_ROUND_CONCURRENCY, conf.getRoundConcurrency()));
+            LOG.debug(MessageFormat.format("{0}: {1}", //$NON-NLS-1$
+                    KEY_ADMISSION_RATIO, conf.getAdmissionRatio()));
         }
         return conf;
     }
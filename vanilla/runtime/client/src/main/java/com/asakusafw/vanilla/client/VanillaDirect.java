@@ -15,20 +15,29 @@
  */
 package com.asakusafw.vanilla.client;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.hadoop.conf.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.asakusafw.bridge.launch.LaunchConfigurationException;
+import com.asakusafw.bridge.launch.LaunchInfo;
+import com.asakusafw.dag.api.processor.basic.BasicSharedResourceRegistry;
 import com.asakusafw.dag.iterative.DirectLaunchConfiguration;
+import com.asakusafw.lang.utils.common.Optionals;
 import com.asakusafw.runtime.core.context.RuntimeContext;
 
 /**
  * Direct program entry of Asakusa Vanilla.
  * @since 0.4.1
+ * @version 0.5.5
  * @see VanillaLauncher
+ * @see VanillaConfiguration#KEY_ROUND_CONCURRENCY
  */
 public final class VanillaDirect {
 
@@ -70,15 +79,55 @@ public final class VanillaDirect {
         Configuration hadoop = new Configuration();
         hadoop.setClassLoader(loader);
         int numberOfRounds = conf.getStageInfo().getRoundCount();
-        int currentRound = 0;
-        DirectLaunchConfiguration.Cursor cursor = conf.newCursor();
-        while (cursor.next()) {
-            LOG.info("Round: {}/{}", ++currentRound, numberOfRounds);
-            int result = new VanillaLauncher(cursor.get(), hadoop).exec();
-            if (result != LaunchUtil.EXEC_SUCCESS) {
-                return result;
+        if (numberOfRounds >= 2) {
+            VanillaConfiguration engine = getEngineConfiguration(conf);
+            if (engine.getRoundConcurrency() >= 2) {
+                List<LaunchInfo> rounds = new ArrayList<>(numberOfRounds);
+                DirectLaunchConfiguration.Cursor cursor = conf.newCursor();
+                while (cursor.next()) {
+                    rounds.add(cursor.get());
+                }
+                return new ConcurrentRoundExecutor(loader, hadoop, engine).exec(rounds);
+            }
+        }
+        // the sequential rounds also share the objects which are invariant between the rounds
+        BasicSharedResourceRegistry resources = new BasicSharedResourceRegistry();
+        try {
+            int currentRound = 0;
+            DirectLaunchConfiguration.Cursor cursor = conf.newCursor();
+            while (cursor.next()) {
+                LOG.info("Round: {}/{}", ++currentRound, numberOfRounds);
+                int result = new VanillaLauncher(
+                        cursor.get(), hadoop, null, VanillaLauncher::execute,
+                        numberOfRounds >= 2 ? resources : null).exec();
+                if (result != LaunchUtil.EXEC_SUCCESS) {
+                    return result;
+                }
             }
+            return LaunchUtil.EXEC_SUCCESS;
+        } finally {
+            release(resources);
+        }
+    }
+
+    static void release(BasicSharedResourceRegistry resources) {
+        try {
+            resources.close();
+        } catch (IOException e) {
+            LOG.warn("error occurred while releasing shared resources", e);
+        } catch (InterruptedException e) {
+            LOG.warn("interrupted while releasing shared resources", e);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static VanillaConfiguration getEngineConfiguration(DirectLaunchConfiguration conf) {
+        DirectLaunchConfiguration.Cursor cursor = conf.newCursor();
+        if (cursor.next() == false) {
+            return new VanillaConfiguration();
         }
-        return LaunchUtil.EXEC_SUCCESS;
+        // engine properties are common in all rounds
+        Map<String, String> properties = cursor.get().getEngineProperties();
+        return VanillaConfiguration.extract(key -> Optionals.get(properties, key));
     }
 }
@@ -16,10 +16,12 @@
 package com.asakusafw.vanilla.client;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.text.MessageFormat;
 import java.util.Arrays;
 import java.util.Optional;
 import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 import org.apache.hadoop.conf.Configuration;
 import org.slf4j.Logger;
@@ -34,23 +36,28 @@ import com.asakusafw.dag.api.common.SupplierInfo;
 import com.asakusafw.dag.api.model.GraphInfo;
 import com.asakusafw.dag.api.processor.ProcessorContext;
 import com.asakusafw.dag.api.processor.basic.BasicProcessorContext;
+import com.asakusafw.dag.api.processor.extension.MetricsRecorder;
 import com.asakusafw.dag.api.processor.extension.ProcessorContextExtension;
+import com.asakusafw.dag.api.processor.extension.SharedResourceRegistry;
 import com.asakusafw.lang.utils.common.Arguments;
 import com.asakusafw.lang.utils.common.InterruptibleIo;
 import com.asakusafw.runtime.core.context.RuntimeContext;
+import com.asakusafw.vanilla.core.engine.AdmissionController;
 import com.asakusafw.vanilla.core.engine.BasicEdgeDriver;
 import com.asakusafw.vanilla.core.engine.BasicVertexScheduler;
 import com.asakusafw.vanilla.core.engine.GraphExecutor;
 import com.asakusafw.vanilla.core.engine.VertexScheduler;
 import com.asakusafw.vanilla.core.io.BasicBufferPool;
 import com.asakusafw.vanilla.core.io.BasicBufferStore;
+import com.asakusafw.vanilla.core.io.BlobStore;
+import com.asakusafw.vanilla.core.io.BufferPool;
 import com.asakusafw.vanilla.core.io.ByteChannelDecorator;
 import com.asakusafw.vanilla.core.mirror.GraphMirror;
 
 /**
  * Asakusa Vanilla application entry.
  * @since 0.4.0
- * @version 0.5.3
+ * @version 0.5.5
  */
 public class VanillaLauncher {
 
@@ -62,6 +69,12 @@ public class VanillaLauncher {
 
     private final Configuration hadoop;
 
+    private final GraphInfo graph;
+
+    private final GraphRunner runner;
+
+    private final SharedResourceRegistry resources;
+
     /**
      * Creates a new instance.
      * @param configuration the launching configuration
@@ -82,14 +95,28 @@ public class VanillaLauncher {
         this.applicationLoader = classLoader;
         this.hadoop = new Configuration();
         this.hadoop.setClassLoader(classLoader);
+        this.graph = null;
+        this.runner = VanillaLauncher::execute;
+        this.resources = null;
     }
 
     VanillaLauncher(LaunchInfo configuration, Configuration hadoop) {
+        this(configuration, hadoop, null, VanillaLauncher::execute, null);
+    }
+
+    VanillaLauncher(
+            LaunchInfo configuration, Configuration hadoop,
+            GraphInfo graph, GraphRunner runner,
+            SharedResourceRegistry resources) {
         Arguments.requireNonNull(configuration);
         Arguments.requireNonNull(hadoop);
+        Arguments.requireNonNull(runner);
         this.configuration = configuration;
         this.hadoop = hadoop;
         this.applicationLoader = hadoop.getClassLoader();
+        this.graph = graph;
+        this.runner = runner;
+        this.resources = resources;
     }
 
     /**
@@ -102,15 +129,18 @@ public class VanillaLauncher {
     public int exec() {
         BasicProcessorContext context =
                 LaunchUtil.createProcessorContext(applicationLoader, configuration, hadoop);
+        if (resources != null) {
+            context.withResource(SharedResourceRegistry.class, resources);
+        }
         VanillaConfiguration conf = VanillaConfiguration.extract(context::getProperty);
-        GraphInfo graph = LaunchUtil.extract(configuration.getStageClient());
+        GraphInfo graph = this.graph == null ? LaunchUtil.extract(configuration.getStageClient()) : this.graph;
         try (InterruptibleIo extension = extend(context)) {
             long start = System.currentTimeMillis();
             LOG.info(MessageFormat.format(
                     "DAG starting: {0}, vertices={1}",
                     configuration.getStageInfo(),
                     graph.getVertices().size()));
-            execute(context, conf, graph);
+            runner.execute(context, conf, graph);
             long finish = System.currentTimeMillis();
             LOG.info(MessageFormat.format(
                     "DAG finished: {0}, vertices={1}, elapsed={2}ms",
@@ -142,6 +172,7 @@ public class VanillaLauncher {
      * @throws LaunchConfigurationException if launching configuration is something wrong
      */
     public static void main(String... args) throws LaunchConfigurationException {
+        showStartup();
         showEnvironment();
         int status = exec(VanillaLauncher.class.getClassLoader(), args);
         if (status != 0) {
@@ -214,32 +245,75 @@ public class VanillaLauncher {
         Arguments.requireNonNull(context);
         Arguments.requireNonNull(configuration);
         Arguments.requireNonNull(graph);
-        BasicBufferStore.Builder storeBuilder = BasicBufferStore.builder()
+        try (BasicBufferStore store = newBufferStore(context, configuration)) {
+            execute(context, configuration, graph,
+                    new BasicBufferPool(configuration.getBufferPoolSize(), store), store.getBlobStore(),
+                    newAdmissionController(configuration),
+                    ResourceBroker.Scope.VM);
+        }
+    }
+
+    static BasicBufferStore newBufferStore(
+            ProcessorContext context,
+            VanillaConfiguration configuration) throws IOException, InterruptedException {
+        return BasicBufferStore.builder()
                 .withDirectory(configuration.getSwapDirectory())
                 .withDivision(configuration.getSwapDivision())
-                .withDecorator(loadByteChannelDecorator(context, configuration.getSwapDecorator()));
+                .withDecorator(loadByteChannelDecorator(context, configuration.getSwapDecorator()))
+                .build();
+    }
 
+    static AdmissionController newAdmissionController(VanillaConfiguration configuration) {
+        long limit = configuration.getAdmissionLimit();
+        if (limit <= 0L) {
+            return AdmissionController.UNLIMITED;
+        }
+        return new AdmissionController(limit, configuration.getOutputBufferSize());
+    }
+
+    static void execute(
+            ProcessorContext context,
+            VanillaConfiguration configuration,
+            GraphInfo graph,
+            BufferPool pool, BlobStore blobs, AdmissionController admission,
+            ResourceBroker.Scope scope) throws IOException, InterruptedException {
         GraphMirror mirror = GraphMirror.of(graph);
         VertexScheduler scheduler = new BasicVertexScheduler();
-        try (BasicBufferStore store = storeBuilder.build();
-                BasicEdgeDriver edges = new BasicEdgeDriver(
+        MetricsRecorder metrics = context.getResource(MetricsRecorder.class).orElse(MetricsRecorder.NULL);
+        long spillSize = getSpillSize(pool);
+        long spillTime = getSpillTime(pool);
+        try (BasicEdgeDriver edges = new BasicEdgeDriver(
                         context.getClassLoader(),
                         mirror,
-                        new BasicBufferPool(configuration.getBufferPoolSize(), store),
-                        store.getBlobStore(),
+                        pool,
+                        blobs,
                         configuration.getNumberOfPartitions(),
                         configuration.getOutputBufferSize(),
                         configuration.getOutputBufferMargin(),
                         configuration.getNumberOfOutputRecords(),
                         configuration.getMergeThreshold(),
-                        configuration.getMergeFactor());
-                ResourceSession session = LaunchUtil.attachSession(context, ResourceBroker.Scope.VM)) {
+                        configuration.getMergeFactor(),
+                        metrics);
+                ResourceSession session = LaunchUtil.attachSession(context, scope)) {
             if (RuntimeContext.get().isSimulation() == false) {
                 new GraphExecutor(context, mirror,
                         scheduler, edges,
-                        configuration.getNumberOfThreads()).run();
+                        configuration.getNumberOfThreads(),
+                        scope == ResourceBroker.Scope.THREAD
+                                ? worker -> LaunchUtil.withSession(context, scope, worker)
+                                : UnaryOperator.identity(),
+                        admission).run();
             }
         }
+        metrics.spilled(getSpillSize(pool) - spillSize, getSpillTime(pool) - spillTime);
+    }
+
+    private static long getSpillSize(BufferPool pool) {
+        return pool instanceof BasicBufferPool ? ((BasicBufferPool) pool).getSpillSize() : 0L;
+    }
+
+    private static long getSpillTime(BufferPool pool) {
+        return pool instanceof BasicBufferPool ? ((BasicBufferPool) pool).getSpillTime() : 0L;
     }
 
     private static ByteChannelDecorator loadByteChannelDecorator(
@@ -250,6 +324,39 @@ public class VanillaLauncher {
         return decorator;
     }
 
+    /**
+     * Executes DAG on the prepared engine.
+     * @since 0.5.5
+     */
+    @FunctionalInterface
+    interface GraphRunner {
+
+        /**
+         * Executes the given DAG.
+         * @param context the current context
+         * @param configuration the engine configuration
+         * @param graph the target DAG
+         * @throws IOException if I/O error was occurred while executing the given DAG
+         * @throws InterruptedException if interrupted while executing the given DAG
+         */
+        void execute(
+                ProcessorContext context,
+                VanillaConfiguration configuration,
+                GraphInfo graph) throws IOException, InterruptedException;
+    }
+
+    static void showStartup() {
+        if (LOG.isInfoEnabled()) {
+            // class data sharing is available only if the VM was launched with a compatible archive
+            String vmInfo = Optional.ofNullable(System.getProperty("java.vm.info")).orElse(""); //$NON-NLS-1$
+            LOG.info(MessageFormat.format(
+                    "JVM startup: {0}ms, loaded classes: {1}, class data sharing: {2}",
+                    ManagementFactory.getRuntimeMXBean().getUptime(),
+                    ManagementFactory.getClassLoadingMXBean().getLoadedClassCount(),
+                    vmInfo.contains("sharing") ? "enabled" : "disabled")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        }
+    }
+
     static void showEnvironment() {
         if (LOG.isDebugEnabled()) {
             showEnvironment(VanillaConstants.ENV_VANILLA_LAUNCHER);
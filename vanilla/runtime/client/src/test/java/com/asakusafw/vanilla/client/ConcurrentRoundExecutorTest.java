@@ -0,0 +1,109 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.vanilla.client;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Test for {@link ConcurrentRoundExecutor}.
+ */
+public class ConcurrentRoundExecutorTest {
+
+    /**
+     * simple case.
+     * @throws Exception if failed
+     */
+    @Test
+    public void simple() throws Exception {
+        AtomicInteger count = new AtomicInteger();
+        List<Callable<Integer>> rounds = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            rounds.add(() -> {
+                count.incrementAndGet();
+                return LaunchUtil.EXEC_SUCCESS;
+            });
+        }
+        int status = ConcurrentRoundExecutor.exec(rounds, 3);
+        assertThat(status, is(LaunchUtil.EXEC_SUCCESS));
+        assertThat(count.get(), is(10));
+    }
+
+    /**
+     * failed rounds must wait for the other running rounds.
+     * @throws Exception if failed
+     */
+    @Test
+    public void failure_while_running() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean finished = new AtomicBoolean();
+        Callable<Integer> running = () -> {
+            started.countDown();
+            try {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                // emulates releasing the shared resources
+                long until = System.currentTimeMillis() + 200;
+                while (System.currentTimeMillis() < until) {
+                    Thread.yield();
+                }
+                finished.set(true);
+                return LaunchUtil.EXEC_INTERRUPTED;
+            }
+            return LaunchUtil.EXEC_SUCCESS;
+        };
+        Callable<Integer> failure = () -> {
+            assertThat(started.await(10, TimeUnit.SECONDS), is(true));
+            throw new IOException("testing");
+        };
+        int status = ConcurrentRoundExecutor.exec(Arrays.asList(running, failure), 2);
+        assertThat(status, is(LaunchUtil.EXEC_ERROR));
+        assertThat(finished.get(), is(true));
+    }
+
+    /**
+     * the first failing round cancels the rest rounds.
+     * @throws Exception if failed
+     */
+    @Test
+    public void failure_cancel() throws Exception {
+        AtomicInteger count = new AtomicInteger();
+        List<Callable<Integer>> rounds = new ArrayList<>();
+        rounds.add(() -> LaunchUtil.EXEC_ERROR);
+        for (int i = 0; i < 100; i++) {
+            rounds.add(() -> {
+                count.incrementAndGet();
+                Thread.sleep(10);
+                return LaunchUtil.EXEC_SUCCESS;
+            });
+        }
+        int status = ConcurrentRoundExecutor.exec(rounds, 1);
+        assertThat(status, is(LaunchUtil.EXEC_ERROR));
+        assertThat(count.get(), is(lessThan(100)));
+    }
+}
@@ -53,6 +53,9 @@ public class VanillaConfigurationTest {
         assertThat(conf.getOutputRecordSize(), is(DEFAULT_OUTPUT_RECORD_SIZE));
         assertThat(conf.getMergeThreshold(), is(DEFAULT_MERGE_THRESHOLD));
         assertThat(conf.getMergeFactor(), is(DEFAULT_MERGE_FACTOR));
+        assertThat(conf.getRoundConcurrency(), is(DEFAULT_ROUND_CONCURRENCY));
+        assertThat(conf.getAdmissionRatio(), is(DEFAULT_ADMISSION_RATIO));
+        assertThat(conf.getAdmissionLimit(), is(0L));
     }
 
     /**
@@ -74,6 +77,8 @@ public class VanillaConfigurationTest {
         pairs.put(KEY_MERGE_THRESHOLD, 9);
         pairs.put(KEY_MERGE_FACTOR, 10);
         pairs.put(KEY_SWAP_DECORATOR, SnappyByteChannelDecorator.class.getName());
+        pairs.put(KEY_ROUND_CONCURRENCY, 11);
+        pairs.put(KEY_ADMISSION_RATIO, 0.5);
 
         VanillaConfiguration conf = VanillaConfiguration.extract(key -> Optionals.get(pairs, key)
                 .map(String::valueOf));
@@ -88,6 +93,9 @@ public class VanillaConfigurationTest {
         assertThat(conf.getSwapDirectory().getCanonicalFile(), is(f));
         assertThat(conf.getMergeThreshold(), is(9));
         assertThat(conf.getMergeFactor(), is(10d));
+        assertThat(conf.getRoundConcurrency(), is(11));
+        assertThat(conf.getAdmissionRatio(), is(0.5d));
+        assertThat(conf.getAdmissionLimit(), is(2L));
         assertThat(
                 conf.getSwapDecorator().newInstance(getClass().getClassLoader()).get(),
                 is(instanceOf(SnappyByteChannelDecorator.class)));
@@ -113,4 +121,14 @@ public class VanillaConfigurationTest {
         conf.setOutputRecordSize(1024);
         assertThat(conf.getNumberOfOutputRecords(), is(conf.getOutputBufferSize() / conf.getOutputRecordSize()));
     }
+
+    /**
+     * disable admission control.
+     */
+    @Test
+    public void admission_disabled() {
+        VanillaConfiguration conf = new VanillaConfiguration();
+        conf.setAdmissionRatio(0);
+        assertThat(conf.getAdmissionLimit(), is(0L));
+    }
 }
@@ -0,0 +1,221 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.vanilla.core.engine;
+
+import java.text.MessageFormat;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.asakusafw.dag.api.common.Reportable;
+import com.asakusafw.lang.utils.common.Arguments;
+import com.asakusafw.vanilla.core.mirror.VertexMirror;
+
+/**
+ * Limits the number of concurrent tasks so that their output buffers fit into the buffer pool.
+ * Each task is estimated to reserve an output buffer for each output port of its vertex,
+ * and it must wait until the other running tasks release their reservations if the total exceeds the limit.
+ * This always admits a task if there are no other running tasks, to avoid dead-locks.
+ * @since 0.5.5
+ */
+public class AdmissionController implements Reportable {
+
+    /**
+     * An instance which never throttles tasks.
+     */
+    public static final AdmissionController UNLIMITED = new AdmissionController(0L, 0L);
+
+    static final Logger LOG = LoggerFactory.getLogger(AdmissionController.class);
+
+    private final State state;
+
+    private final long outputBufferSize;
+
+    private final LongAdder stallCount = new LongAdder();
+
+    private final LongAdder stallNanos = new LongAdder();
+
+    /**
+     * Creates a new instance.
+     * @param limit the maximum total size of output buffers of running tasks in bytes,
+     *      or {@code 0} to disable the limit
+     * @param outputBufferSize the estimated buffer size of each output in bytes
+     */
+    public AdmissionController(long limit, long outputBufferSize) {
+        Arguments.require(limit >= 0);
+        Arguments.require(outputBufferSize >= 0);
+        this.state = new State(limit);
+        this.outputBufferSize = outputBufferSize;
+    }
+
+    private AdmissionController(State state, long outputBufferSize) {
+        this.state = state;
+        this.outputBufferSize = outputBufferSize;
+    }
+
+    /**
+     * Returns a new instance which shares the limit and the running tasks with this object.
+     * The returned object has its own stall statistics, so that each graph can report its own stalls
+     * even if the graphs share the same buffer pool.
+     * @return the created instance
+     */
+    public AdmissionController fork() {
+        return new AdmissionController(state, outputBufferSize);
+    }
+
+    /**
+     * Returns the estimated buffer size which a task of the given vertex will reserve.
+     * @param vertex the target vertex
+     * @return the estimated size in bytes
+     */
+    public long estimate(VertexMirror vertex) {
+        Arguments.requireNonNull(vertex);
+        return vertex.getOutputs().size() * outputBufferSize;
+    }
+
+    /**
+     * Acquires a permit for running a task.
+     * This blocks while the total size of running tasks would exceed the limit.
+     * @param size the estimated size of the task in bytes
+     * @return the acquired permit, which must be closed after the task was finished
+     * @throws InterruptedException if interrupted while waiting for other tasks
+     */
+    public Permit acquire(long size) throws InterruptedException {
+        Arguments.require(size >= 0);
+        long limit = state.limit;
+        if (limit == 0L || size == 0L) {
+            return new Permit(state, 0L, 0L);
+        }
+        long stall = 0L;
+        synchronized (state) {
+            if (state.running > 0L && state.running + size > limit) {
+                long start = System.nanoTime();
+                try {
+                    while (state.running > 0L && state.running + size > limit) {
+                        state.wait();
+                    }
+                } finally {
+                    stall = Math.max(System.nanoTime() - start, 1L);
+                    stallCount.increment();
+                    stallNanos.add(stall);
+                }
+            }
+            state.running += size;
+        }
+        return new Permit(state, size, stall);
+    }
+
+    /**
+     * Returns the number of tasks which had to wait for other tasks.
+     * @return the number of stalls
+     */
+    public long getStallCount() {
+        return stallCount.sum();
+    }
+
+    /**
+     * Returns the total elapsed time while tasks were waiting for other tasks.
+     * @return the elapsed time in milliseconds
+     */
+    public long getStallTime() {
+        return TimeUnit.NANOSECONDS.toMillis(stallNanos.sum());
+    }
+
+    @Override
+    public void report() {
+        long count = getStallCount();
+        if (count > 0L) {
+            LOG.info(MessageFormat.format(
+                    "task admission stalls: count={0}, elapsed={1}ms, limit={2}bytes",
+                    count,
+                    getStallTime(),
+                    state.limit));
+        } else if (LOG.isDebugEnabled()) {
+            LOG.debug("task admission stalls: count=0, limit={}bytes", state.limit);
+        }
+    }
+
+    @Override
+    public String toString() {
+        long running;
+        synchronized (state) {
+            running = state.running;
+        }
+        return String.format("admission(running=%,dbytes, limit=%,dbytes, stalls=%,d)", //$NON-NLS-1$
+                running, state.limit, getStallCount());
+    }
+
+    private static final class State {
+
+        final long limit;
+
+        long running;
+
+        State(long limit) {
+            this.limit = limit;
+        }
+
+        synchronized void release(long size) {
+            running -= size;
+            notifyAll();
+        }
+    }
+
+    /**
+     * A permit of running a task.
+     * @since 0.5.5
+     */
+    public static final class Permit implements AutoCloseable {
+
+        private final State owner;
+
+        private final long stallNanos;
+
+        private long size;
+
+        Permit(State owner, long size, long stallNanos) {
+            this.owner = owner;
+            this.size = size;
+            this.stallNanos = stallNanos;
+        }
+
+        /**
+         * Returns the reserved size by this permit.
+         * @return the reserved size in bytes, or {@code 0} if this permit has been already closed
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Returns the elapsed time while waiting for other tasks before this permit was acquired.
+         * @return the elapsed time in nanoseconds, or {@code 0} if the task was admitted without waiting
+         */
+        public long getStallNanos() {
+            return stallNanos;
+        }
+
+        @Override
+        public void close() {
+            if (size > 0L) {
+                owner.release(size);
+                size = 0L;
+            }
+        }
+    }
+}
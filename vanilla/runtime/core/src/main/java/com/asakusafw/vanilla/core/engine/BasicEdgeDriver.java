@@ -25,8 +25,10 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -44,6 +46,7 @@ import com.asakusafw.dag.api.model.basic.BasicEdgeDescriptor.Movement;
 import com.asakusafw.dag.api.processor.GroupReader;
 import com.asakusafw.dag.api.processor.ObjectReader;
 import com.asakusafw.dag.api.processor.ObjectWriter;
+import com.asakusafw.dag.api.processor.extension.MetricsRecorder;
 import com.asakusafw.lang.utils.common.Arguments;
 import com.asakusafw.lang.utils.common.InterruptibleIo;
 import com.asakusafw.lang.utils.common.Invariants;
@@ -58,10 +61,13 @@ import com.asakusafw.vanilla.core.io.BufferPool;
 import com.asakusafw.vanilla.core.io.DataReader;
 import com.asakusafw.vanilla.core.io.DataReader.Provider;
 import com.asakusafw.vanilla.core.io.DataWriter;
+import com.asakusafw.vanilla.core.io.KeyAccessor;
 import com.asakusafw.vanilla.core.io.KeyValueCursor;
 import com.asakusafw.vanilla.core.io.KeyValueMerger;
 import com.asakusafw.vanilla.core.io.KeyValuePartitioner;
+import com.asakusafw.vanilla.core.io.KeyValueSink;
 import com.asakusafw.vanilla.core.io.RecordCursor;
+import com.asakusafw.vanilla.core.io.RecordSink;
 import com.asakusafw.vanilla.core.io.SharedBuffer;
 import com.asakusafw.vanilla.core.io.StreamGroupWriter;
 import com.asakusafw.vanilla.core.io.StreamObjectReader;
@@ -77,7 +83,7 @@ import com.asakusafw.vanilla.core.util.Buffers;
 /**
  * A basic implementation of {@link EdgeDriver}.
  * @since 0.4.0
- * @version 0.5.3
+ * @version 0.5.5
  */
 public class BasicEdgeDriver extends EdgeDriver.Abstract {
 
@@ -105,6 +111,10 @@ public class BasicEdgeDriver extends EdgeDriver.Abstract {
 
     private final Map<OutputPortMirror, PartitionedSink> partSinks;
 
+    private final MetricsRecorder metrics;
+
+    private final Map<OutputPortMirror, OutputCounter> outputCounters = new ConcurrentHashMap<>();
+
     /**
      * Creates a new instance.
      * @param classLoader the current class loader
@@ -124,12 +134,42 @@ public class BasicEdgeDriver extends EdgeDriver.Abstract {
             int numberOfPartitions,
             int bufferSizeLimit, int bufferMarginSize, int recordCountLimit,
             int mergeThreshold, double mergeFactor) {
+        this(classLoader, graph, pool, blobs,
+                numberOfPartitions,
+                bufferSizeLimit, bufferMarginSize, recordCountLimit,
+                mergeThreshold, mergeFactor,
+                MetricsRecorder.NULL);
+    }
+
+    /**
+     * Creates a new instance.
+     * @param classLoader the current class loader
+     * @param graph the target graph
+     * @param pool the buffer pool
+     * @param blobs the BLOB store
+     * @param numberOfPartitions the number of partitions in scatter-gather operations
+     * @param bufferSizeLimit each output buffer size threshold in bytes
+     * @param bufferMarginSize the output buffer margin size
+     * @param recordCountLimit the number of limit records in each output buffer
+     * @param mergeThreshold the maximum number of merging scatter/gather input chunks
+     * @param mergeFactor the fraction to merge scatter/gather input with {@code mergeThreshold}
+     * @param metrics the metrics recorder which accepts the number of records and bytes of each output
+     * @since 0.5.5
+     */
+    public BasicEdgeDriver(
+            ClassLoader classLoader,
+            GraphMirror graph, BufferPool pool, BlobStore blobs,
+            int numberOfPartitions,
+            int bufferSizeLimit, int bufferMarginSize, int recordCountLimit,
+            int mergeThreshold, double mergeFactor,
+            MetricsRecorder metrics) {
         Arguments.requireNonNull(classLoader);
         Arguments.requireNonNull(graph);
         Arguments.requireNonNull(pool);
         Arguments.require(numberOfPartitions > 0);
         Arguments.require(bufferSizeLimit >= 0);
         Arguments.require(recordCountLimit > 0);
+        Arguments.requireNonNull(metrics);
         this.classLoader = classLoader;
         this.graph = graph;
         this.pool = pool;
@@ -137,9 +177,12 @@ public class BasicEdgeDriver extends EdgeDriver.Abstract {
         this.bufferSizeLimit = bufferSizeLimit;
         this.bufferMarginSize = bufferMarginSize;
         this.recordCountLimit = recordCountLimit;
+        this.metrics = metrics;
         int mergeCount = Math.max(2, Math.min(mergeThreshold, (int) (mergeThreshold * mergeFactor)));
-        Function<PortMirror, Supplier<FragmentStore>> fstore =
-                p -> () -> new FragmentStore(blobs, p.newComparator(classLoader), mergeThreshold, mergeCount);
+        Function<PortMirror, Supplier<FragmentStore>> fstore = p -> {
+            KeyAccessor keys = KeyAccessor.of(p.newKeyValueSerDe(classLoader));
+            return () -> new FragmentStore(blobs, p.newComparator(classLoader), keys, mergeThreshold, mergeCount);
+        };
         this.sources = edges(graph, VertexMirror::getInputs,
                 p -> new FragmentSource());
         this.sinks = edges(graph, VertexMirror::getOutputs,
@@ -198,7 +241,7 @@ public class BasicEdgeDriver extends EdgeDriver.Abstract {
     protected ObjectWriter acquireOneToOneOutput(OutputPortMirror port) throws IOException, InterruptedException {
         ValueSerDe serde = port.newValueSerDe(classLoader);
         return new StreamObjectWriter(
-                BasicRecordSink.stream(Invariants.requireNonNull(sinks.get(port))),
+                count(port, BasicRecordSink.stream(Invariants.requireNonNull(sinks.get(port)))),
                 serde,
                 bufferSizeLimit, bufferMarginSize, recordCountLimit,
                 pool.reserve(bufferSizeLimit));
@@ -207,16 +250,15 @@ public class BasicEdgeDriver extends EdgeDriver.Abstract {
     @Override
     protected ObjectReader acquireBroadcastInput(InputPortMirror port) throws IOException, InterruptedException {
         ValueSerDe serde = port.newValueSerDe(classLoader);
-        return new StreamObjectReader(
-                Invariants.requireNonNull(sources.get(port)).openBroadcast(),
-                serde);
+        FragmentSource source = Invariants.requireNonNull(sources.get(port));
+        return new StreamObjectReader(source.openBroadcast(), serde, source.records.sum());
     }
 
     @Override
     protected ObjectWriter acquireBroadcastOutput(OutputPortMirror port) throws IOException, InterruptedException {
         ValueSerDe serde = port.newValueSerDe(classLoader);
         return new StreamObjectWriter(
-                BasicRecordSink.stream(Invariants.requireNonNull(sinks.get(port))),
+                count(port, Invariants.requireNonNull(sinks.get(port)).countingStream()),
                 serde,
                 bufferSizeLimit, bufferMarginSize, recordCountLimit,
                 pool.reserve(bufferSizeLimit));
@@ -229,7 +271,8 @@ public class BasicEdgeDriver extends EdgeDriver.Abstract {
         KeyValueSerDe serde = port.newKeyValueSerDe(classLoader);
         DataComparator comparator = port.newComparator(classLoader);
         return new BasicGroupReader(
-                Invariants.requireNonNull(partSources.get(port)).openScatterGather(comparator, taskIndex),
+                Invariants.requireNonNull(partSources.get(port))
+                        .openScatterGather(comparator, KeyAccessor.of(serde), taskIndex),
                 serde);
     }
 
@@ -238,7 +281,9 @@ public class BasicEdgeDriver extends EdgeDriver.Abstract {
         KeyValueSerDe serde = port.newKeyValueSerDe(classLoader);
         DataComparator comparator = port.newComparator(classLoader);
         return new StreamGroupWriter(
-                KeyValuePartitioner.stream(Arrays.asList(Invariants.requireNonNull(partSinks.get(port)).partitions)),
+                count(port, KeyValuePartitioner.stream(
+                        Arrays.asList(Invariants.requireNonNull(partSinks.get(port)).partitions),
+                        KeyAccessor.of(serde))),
                 serde, comparator,
                 bufferSizeLimit, bufferMarginSize, recordCountLimit,
                 pool.reserve(bufferSizeLimit));
@@ -252,6 +297,7 @@ public class BasicEdgeDriver extends EdgeDriver.Abstract {
     @Override
     protected void completeOneToOneOutput(OutputPortMirror port) throws IOException, InterruptedException {
         complete(port);
+        report(port);
     }
 
     @Override
@@ -262,6 +308,7 @@ public class BasicEdgeDriver extends EdgeDriver.Abstract {
     @Override
     protected void completeBroadcastOutput(OutputPortMirror port) throws IOException, InterruptedException {
         complete(port);
+        report(port);
     }
 
     private void complete(InputPortMirror port) throws IOException, InterruptedException {
@@ -294,6 +341,41 @@ public class BasicEdgeDriver extends EdgeDriver.Abstract {
         try (PartitionedSink sink = partSinks.remove(port)) {
             sink.migrateTo(destinations);
         }
+        report(port);
+    }
+
+    private RecordSink.Stream count(OutputPortMirror port, RecordSink.Stream stream) {
+        if (metrics == MetricsRecorder.NULL) {
+            return stream;
+        }
+        OutputCounter counter = outputCounters.computeIfAbsent(port, p -> new OutputCounter());
+        return (recordCount, contentSize) -> {
+            counter.add(recordCount, contentSize);
+            return stream.offer(recordCount, contentSize);
+        };
+    }
+
+    private KeyValueSink.Stream count(OutputPortMirror port, KeyValueSink.Stream stream) {
+        if (metrics == MetricsRecorder.NULL) {
+            return stream;
+        }
+        OutputCounter counter = outputCounters.computeIfAbsent(port, p -> new OutputCounter());
+        return (recordCount, keySize, valueSize) -> {
+            counter.add(recordCount, (long) keySize + valueSize);
+            return stream.offer(recordCount, keySize, valueSize);
+        };
+    }
+
+    private void report(OutputPortMirror port) {
+        if (metrics == MetricsRecorder.NULL) {
+            return;
+        }
+        OutputCounter counter = outputCounters.remove(port);
+        metrics.outputFinished(
+                port.getOwner().getId().getName(),
+                port.getId().getName(),
+                counter == null ? 0L : counter.records.sum(),
+                counter == null ? 0L : counter.bytes.sum());
     }
 
     @Override
@@ -319,10 +401,25 @@ public class BasicEdgeDriver extends EdgeDriver.Abstract {
                 pool.getSize());
     }
 
+    private static final class OutputCounter {
+
+        final LongAdder records = new LongAdder();
+
+        final LongAdder bytes = new LongAdder();
+
+        void add(long recordCount, long size) {
+            records.add(recordCount);
+            bytes.add(size);
+        }
+    }
+
     private static final class FragmentSource implements InterruptibleIo {
 
         private final FragmentStore store;
 
+        // the number of records from the counting upstream sinks
+        final LongAdder records = new LongAdder();
+
         FragmentSource() {
             this(new FragmentStore());
         }
@@ -359,7 +456,8 @@ public class BasicEdgeDriver extends EdgeDriver.Abstract {
             };
         }
 
-        public KeyValueCursor openScatterGather(DataComparator comparator) throws IOException, InterruptedException {
+        public KeyValueCursor openScatterGather(
+                DataComparator comparator, KeyAccessor keys) throws IOException, InterruptedException {
             // only once per fragment
             List<KeyValueCursor> cursors = new ArrayList<>();
             long size = 0;
@@ -385,7 +483,7 @@ public class BasicEdgeDriver extends EdgeDriver.Abstract {
             case 1:
                 return cursors.get(0);
             default:
-                return new KeyValueMerger(cursors, comparator);
+                return new KeyValueMerger(cursors, comparator, keys);
             }
         }
 
@@ -403,6 +501,8 @@ public class BasicEdgeDriver extends EdgeDriver.Abstract {
 
         private final FragmentStore store;
 
+        private final LongAdder records = new LongAdder();
+
         FragmentSink(BufferPool pool, int numberOfConsumers) {
             this(pool, numberOfConsumers, new FragmentStore());
         }
@@ -427,7 +527,19 @@ public class BasicEdgeDriver extends EdgeDriver.Abstract {
             store.offer(writer.save(pool, priority));
         }
 
+        RecordSink.Stream countingStream() {
+            RecordSink.Stream stream = BasicRecordSink.stream(this);
+            return (recordCount, contentSize) -> {
+                records.add(recordCount);
+                return stream.offer(recordCount, contentSize);
+            };
+        }
+
         public void migrateTo(List<FragmentSource> downstreams) throws IOException, InterruptedException {
+            long count = records.sum();
+            for (FragmentSource downstream : downstreams) {
+                downstream.records.add(count);
+            }
             while (true) {
                 Fragment next = store.poll();
                 if (next == null) {
@@ -453,6 +565,8 @@ public class BasicEdgeDriver extends EdgeDriver.Abstract {
 
         private final DataComparator comparator;
 
+        private final KeyAccessor keys;
+
         private final int mergeThreshold;
 
         private final int mergeCount;
@@ -462,12 +576,15 @@ public class BasicEdgeDriver extends EdgeDriver.Abstract {
         private final AtomicInteger count = new AtomicInteger();
 
         FragmentStore() {
-            this(null, null, 0, 0);
+            this(null, null, KeyAccessor.GENERIC, 0, 0);
         }
 
-        FragmentStore(BlobStore blobs, DataComparator comparator, int mergeThreshold, int mergeCount) {
+        FragmentStore(
+                BlobStore blobs, DataComparator comparator, KeyAccessor keys,
+                int mergeThreshold, int mergeCount) {
             this.blobs = blobs;
             this.comparator = comparator;
+            this.keys = keys;
             this.mergeThreshold = mergeThreshold;
             this.mergeCount = mergeCount;
         }
@@ -533,7 +650,7 @@ public class BasicEdgeDriver extends EdgeDriver.Abstract {
                         fragments.size(),
                         fragments.stream().mapToLong(it -> it.size).sum());
             }
-            try (KeyValueMerger merger = new KeyValueMerger(cursors, comparator);
+            try (KeyValueMerger merger = new KeyValueMerger(cursors, comparator, keys);
                     DataWriter writer = blobs.create()) {
                 long size = BasicKeyValueSink.copy(merger, writer);
                 if (LOG.isDebugEnabled()) {
@@ -589,11 +706,11 @@ public class BasicEdgeDriver extends EdgeDriver.Abstract {
         }
 
         KeyValueCursor openScatterGather(
-                DataComparator comparator, int taskIndex) throws IOException, InterruptedException {
+                DataComparator comparator, KeyAccessor keys, int taskIndex) throws IOException, InterruptedException {
             if (taskIndex >= partitions.length) {
                 return new VoidKeyValueCursor();
             }
-            return partitions[taskIndex].openScatterGather(comparator);
+            return partitions[taskIndex].openScatterGather(comparator, keys);
         }
 
         @Override
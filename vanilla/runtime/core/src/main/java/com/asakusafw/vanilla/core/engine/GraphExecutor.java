@@ -19,9 +19,17 @@ import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,6 +46,7 @@ import com.asakusafw.vanilla.core.mirror.VertexMirror;
 /**
  * Executes graphs.
  * @since 0.4.0
+ * @version 0.5.5
  */
 public class GraphExecutor implements InterruptibleIo.IoRunnable {
 
@@ -53,6 +62,10 @@ public class GraphExecutor implements InterruptibleIo.IoRunnable {
 
     private final int numberOfThreads;
 
+    private final UnaryOperator<Runnable> workerDecorator;
+
+    private final AdmissionController admission;
+
     /**
      * Creates a new instance.
      * @param context the root context
@@ -64,16 +77,59 @@ public class GraphExecutor implements InterruptibleIo.IoRunnable {
     public GraphExecutor(
             ProcessorContext context, GraphMirror graph,
             VertexScheduler scheduler, EdgeDriver edges, int numberOfThreads) {
+        this(context, graph, scheduler, edges, numberOfThreads, UnaryOperator.identity());
+    }
+
+    /**
+     * Creates a new instance.
+     * @param context the root context
+     * @param graph the target graph
+     * @param scheduler the scheduler
+     * @param edges the edge driver
+     * @param numberOfThreads the number of available {@code threads}
+     * @param workerDecorator decorates the main loop of each worker thread,
+     *      this is typically used for preparing thread local resources,
+     *      and tasks on the thread will fail if it raises an exception before running the main loop
+     * @since 0.5.5
+     */
+    public GraphExecutor(
+            ProcessorContext context, GraphMirror graph,
+            VertexScheduler scheduler, EdgeDriver edges, int numberOfThreads,
+            UnaryOperator<Runnable> workerDecorator) {
+        this(context, graph, scheduler, edges, numberOfThreads, workerDecorator, AdmissionController.UNLIMITED);
+    }
+
+    /**
+     * Creates a new instance.
+     * @param context the root context
+     * @param graph the target graph
+     * @param scheduler the scheduler
+     * @param edges the edge driver
+     * @param numberOfThreads the number of available {@code threads}
+     * @param workerDecorator decorates the main loop of each worker thread,
+     *      this is typically used for preparing thread local resources,
+     *      and tasks on the thread will fail if it raises an exception before running the main loop
+     * @param admission the task admission controller, which may be shared between graphs on the same buffer pool
+     * @since 0.5.5
+     */
+    public GraphExecutor(
+            ProcessorContext context, GraphMirror graph,
+            VertexScheduler scheduler, EdgeDriver edges, int numberOfThreads,
+            UnaryOperator<Runnable> workerDecorator, AdmissionController admission) {
         Arguments.requireNonNull(context);
         Arguments.requireNonNull(graph);
         Arguments.requireNonNull(scheduler);
         Arguments.requireNonNull(edges);
         Arguments.require(numberOfThreads >= 1);
+        Arguments.requireNonNull(workerDecorator);
+        Arguments.requireNonNull(admission);
         this.context = context;
         this.graph = graph;
         this.scheduler = scheduler;
         this.edges = edges;
         this.numberOfThreads = numberOfThreads;
+        this.workerDecorator = workerDecorator;
+        this.admission = admission;
     }
 
     @Override
@@ -84,8 +140,10 @@ public class GraphExecutor implements InterruptibleIo.IoRunnable {
                 "start graph: vertices={0}",
                 numberOfVertices));
         Set<VertexMirror> finished = new HashSet<>();
+        // the controller may be shared between graphs, so that we only report stalls of this graph
+        AdmissionController local = admission.fork();
         try (VertexScheduler.Stream schedule = scheduler.schedule(graph);
-                ThreadPool threads = new ThreadPool(numberOfThreads)) {
+                ThreadPool threads = new ThreadPool(numberOfThreads, workerDecorator)) {
             while (true) {
                 VertexMirror vertex = schedule.poll();
                 if (vertex == null) {
@@ -96,7 +154,8 @@ public class GraphExecutor implements InterruptibleIo.IoRunnable {
                         .flatMap(p -> p.getOpposites().stream())
                         .map(PortMirror::getOwner)
                         .allMatch(finished::contains));
-                VertexExecutor child = new VertexExecutor(context, vertex, edges, threads.executor, numberOfThreads);
+                VertexExecutor child = new VertexExecutor(
+                        context, vertex, edges, threads.executor, numberOfThreads, local);
                 child.run();
                 finished.add(vertex);
                 if (LOG.isDebugEnabled()) {
@@ -105,6 +164,7 @@ public class GraphExecutor implements InterruptibleIo.IoRunnable {
             }
         }
         Invariants.require(finished.size() == numberOfVertices);
+        local.report();
         LOG.info(MessageFormat.format(
                 "finish graph: vertices={0}, elapsed={1}ms",
                 numberOfVertices,
@@ -115,14 +175,61 @@ public class GraphExecutor implements InterruptibleIo.IoRunnable {
 
         final ExecutorService executor;
 
-        ThreadPool(int numberOfThreads) {
+        final ThreadLocal<Throwable> failure = new ThreadLocal<>();
+
+        ThreadPool(int numberOfThreads, UnaryOperator<Runnable> decorator) {
             AtomicInteger counter = new AtomicInteger();
-            this.executor = Executors.newFixedThreadPool(
-                    numberOfThreads,
-                    r -> Lang.let(new Thread(r), t -> {
-                        t.setName(String.format("vanilla-%d", counter.incrementAndGet())); //$NON-NLS-1$
-                        t.setDaemon(true);
-                    }));
+            ThreadFactory factory = r -> Lang.let(new Thread(guard(decorator, r)), t -> {
+                t.setName(String.format("vanilla-%d", counter.incrementAndGet())); //$NON-NLS-1$
+                t.setDaemon(true);
+            });
+            this.executor = new ThreadPoolExecutor(
+                    numberOfThreads, numberOfThreads,
+                    0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(),
+                    factory) {
+                @Override
+                protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+                    return newTaskFor(Executors.callable(runnable, value));
+                }
+                @Override
+                protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+                    return super.newTaskFor(check(callable));
+                }
+            };
+        }
+
+        private Runnable guard(UnaryOperator<Runnable> decorator, Runnable worker) {
+            AtomicBoolean started = new AtomicBoolean();
+            Runnable decorated = decorator.apply(() -> {
+                started.set(true);
+                worker.run();
+            });
+            return () -> {
+                try {
+                    decorated.run();
+                } catch (RuntimeException | Error e) {
+                    if (started.get()) {
+                        throw e;
+                    }
+                    LOG.error("failed to prepare worker thread", e);
+                    // keeps the worker alive, so that its tasks are completed with the failure
+                    failure.set(e);
+                    worker.run();
+                }
+            };
+        }
+
+        <T> Callable<T> check(Callable<T> callable) {
+            return () -> {
+                Throwable cause = failure.get();
+                if (cause != null) {
+                    throw new IllegalStateException(MessageFormat.format(
+                            "worker thread is not available: {0}",
+                            Thread.currentThread().getName()), cause);
+                }
+                return callable.call();
+            };
         }
 
         @Override
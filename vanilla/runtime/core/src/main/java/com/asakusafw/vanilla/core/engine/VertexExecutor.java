@@ -16,21 +16,30 @@
 package com.asakusafw.vanilla.core.engine;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.text.MessageFormat;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -53,6 +62,7 @@ import com.asakusafw.dag.api.processor.VertexProcessor;
 import com.asakusafw.dag.api.processor.VertexProcessorContext;
 import com.asakusafw.dag.api.processor.basic.ForwardEdgeIoProcessorContext;
 import com.asakusafw.dag.api.processor.basic.ForwardProcessorContext;
+import com.asakusafw.dag.api.processor.extension.MetricsRecorder;
 import com.asakusafw.dag.api.processor.extension.ProcessorContextDecorator;
 import com.asakusafw.lang.utils.common.Arguments;
 import com.asakusafw.lang.utils.common.InterruptibleIo;
@@ -60,17 +70,21 @@ import com.asakusafw.lang.utils.common.InterruptibleIo.Closer;
 import com.asakusafw.lang.utils.common.Invariants;
 import com.asakusafw.lang.utils.common.Lang;
 import com.asakusafw.lang.utils.common.Optionals;
+import com.asakusafw.vanilla.core.mirror.InputPortMirror;
 import com.asakusafw.vanilla.core.mirror.PortMirror;
 import com.asakusafw.vanilla.core.mirror.VertexMirror;
 
 /**
  * Executes vertices.
  * @since 0.4.0
+ * @version 0.5.5
  */
 public class VertexExecutor implements InterruptibleIo.IoRunnable {
 
     static final Logger LOG = LoggerFactory.getLogger(VertexExecutor.class);
 
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
     private final EdgeIoContext context;
 
     private final VertexMirror vertex;
@@ -81,6 +95,12 @@ public class VertexExecutor implements InterruptibleIo.IoRunnable {
 
     private final ProcessorContextDecorator decorator;
 
+    private final AdmissionController admission;
+
+    private final MetricsRecorder metrics;
+
+    private final LongAdder cpuTime = new LongAdder();
+
     /**
      * Creates a new instance.
      * @param context the root context
@@ -95,22 +115,47 @@ public class VertexExecutor implements InterruptibleIo.IoRunnable {
             EdgeDriver edges,
             ExecutorService threads,
             int numberOfThreads) {
+        this(context, vertex, edges, threads, numberOfThreads, AdmissionController.UNLIMITED);
+    }
+
+    /**
+     * Creates a new instance.
+     * @param context the root context
+     * @param vertex the target vertex
+     * @param edges the edge driver
+     * @param threads the task executor
+     * @param numberOfThreads the number of available {@code threads}
+     * @param admission the task admission controller
+     * @since 0.5.5
+     */
+    public VertexExecutor(
+            ProcessorContext context,
+            VertexMirror vertex,
+            EdgeDriver edges,
+            ExecutorService threads,
+            int numberOfThreads,
+            AdmissionController admission) {
         Arguments.requireNonNull(context);
         Arguments.requireNonNull(vertex);
         Arguments.requireNonNull(edges);
         Arguments.requireNonNull(threads);
         Arguments.require(numberOfThreads >= 1);
+        Arguments.requireNonNull(admission);
         this.context = new EdgeIoContext(context, vertex, edges);
         this.vertex = vertex;
         this.executor = threads;
         this.numberOfThreads = numberOfThreads;
         this.decorator = context.getResource(ProcessorContextDecorator.class)
                 .orElse(ProcessorContextDecorator.NULL);
+        this.admission = admission;
+        this.metrics = context.getResource(MetricsRecorder.class)
+                .orElse(MetricsRecorder.NULL);
     }
 
     @Override
     public void run() throws IOException, InterruptedException {
         long start = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
         String label = "N/A"; //$NON-NLS-1$
         try (VertexProcessor processor = vertex.newProcessor(context.getClassLoader())) {
             label = processor.toString();
@@ -125,6 +170,12 @@ public class VertexExecutor implements InterruptibleIo.IoRunnable {
         }
 
         doFinalize(label);
+        if (metrics != MetricsRecorder.NULL) {
+            metrics.vertexFinished(
+                    vertex.getId().getName(),
+                    System.nanoTime() - startNanos,
+                    getCpuTime() < 0L ? -1L : cpuTime.sum());
+        }
 
         if (LOG.isInfoEnabled()) {
             LOG.info(MessageFormat.format(
@@ -137,7 +188,8 @@ public class VertexExecutor implements InterruptibleIo.IoRunnable {
 
     private List<TaskProcessorContext> doInitialize(
             VertexProcessor processor) throws IOException, InterruptedException {
-        VertexProcessorContext vContext = decorator.bless(new VertexContext(context, vertex));
+        VertexProcessorContext vContext = decorator.bless(
+                new VertexContext(context, vertex, executor, numberOfThreads));
 
         if (LOG.isDebugEnabled()) {
             LOG.debug("initialize vertex: processor={}, vertex={}",
@@ -188,8 +240,9 @@ public class VertexExecutor implements InterruptibleIo.IoRunnable {
                     numberOfThreads);
         }
         BlockingQueue<TaskProcessorContext> queue = new LinkedBlockingQueue<>(tasks);
+        long reservation = admission.estimate(vertex);
         runTasks(Lang.let(new ArrayList<>(), it -> Lang.repeat(concurrency, () -> {
-            it.add(new TaskExecutor(vertex, processor, queue));
+            it.add(new TaskExecutor(vertex, processor, queue, admission, reservation, metrics, cpuTime));
         })));
     }
 
@@ -253,6 +306,13 @@ public class VertexExecutor implements InterruptibleIo.IoRunnable {
         return result;
     }
 
+    static long getCpuTime() {
+        if (THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled()) {
+            return THREADS.getCurrentThreadCpuTime();
+        }
+        return -1L;
+    }
+
     private static class EdgeIoContext implements EdgeIoProcessorContext, ForwardProcessorContext {
 
         private final ProcessorContext forward;
@@ -263,11 +323,43 @@ public class VertexExecutor implements InterruptibleIo.IoRunnable {
 
         private final Map<String, PortId> outputs;
 
+        private final Map<String, Object> sources = new HashMap<>();
+
+        private final Map<String, Integer> sourceReaders = new HashMap<>();
+
+        private final Set<String> invariantSources = new HashSet<>();
+
         EdgeIoContext(ProcessorContext forward, VertexMirror vertex, EdgeDriver driver) {
             this.forward = forward;
             this.driver = driver;
             this.inputs = names(vertex.getInputs());
             this.outputs = names(vertex.getOutputs());
+            for (InputPortMirror port : vertex.getInputs()) {
+                if (port.getMovement() == Movement.BROADCAST) {
+                    // broadcast inputs from the same upstream ports always have the same contents
+                    Set<PortId> upstreams = getUpstreams(port);
+                    if (port.isInvariant()) {
+                        // the same upstream ports also have the same contents in the other rounds
+                        sources.put(port.getId().getName(), upstreams);
+                        invariantSources.add(port.getId().getName());
+                    } else {
+                        sources.put(port.getId().getName(), Arrays.asList(driver, upstreams));
+                    }
+                    sourceReaders.put(port.getId().getName(), port.getOpposites().stream()
+                            .flatMap(upstream -> upstream.getOpposites().stream())
+                            .filter(p -> p.getMovement() == Movement.BROADCAST)
+                            .filter(p -> getUpstreams(p).equals(upstreams))
+                            .map(p -> p.getOwner().getId())
+                            .collect(Collectors.toSet())
+                            .size());
+                }
+            }
+        }
+
+        private static Set<PortId> getUpstreams(InputPortMirror port) {
+            return port.getOpposites().stream()
+                    .map(PortMirror::getId)
+                    .collect(Collectors.toSet());
         }
 
         private static Map<String, PortId> names(Collection<? extends PortMirror> ports) {
@@ -297,6 +389,23 @@ public class VertexExecutor implements InterruptibleIo.IoRunnable {
             return driver.acquireOutput(id);
         }
 
+        @Override
+        public Optional<Object> getInputSource(String name) {
+            return Optionals.get(sources, name);
+        }
+
+        @Override
+        public OptionalInt getInputSourceReaders(String name) {
+            return Optionals.get(sourceReaders, name)
+                    .map(OptionalInt::of)
+                    .orElse(OptionalInt.empty());
+        }
+
+        @Override
+        public boolean isInputSourceInvariant(String name) {
+            return invariantSources.contains(name);
+        }
+
         int getNumberOfPartitions() {
             return driver.getNumberOfPartitions();
         }
@@ -312,9 +421,15 @@ public class VertexExecutor implements InterruptibleIo.IoRunnable {
 
         private final String id;
 
-        VertexContext(EdgeIoContext forward, VertexMirror vertex) {
+        private final ExecutorService executor;
+
+        private final int numberOfThreads;
+
+        VertexContext(EdgeIoContext forward, VertexMirror vertex, ExecutorService executor, int numberOfThreads) {
             this.forward = forward;
             this.id = vertex.getId().getName();
+            this.executor = executor;
+            this.numberOfThreads = numberOfThreads;
         }
 
         @Override
@@ -326,6 +441,17 @@ public class VertexExecutor implements InterruptibleIo.IoRunnable {
         public String getVertexId() {
             return id;
         }
+
+        @Override
+        public Optional<Executor> getExecutor() {
+            // the task threads are idle while initializing vertices
+            return Optionals.of(executor);
+        }
+
+        @Override
+        public int getExecutorParallelism() {
+            return numberOfThreads;
+        }
     }
 
     private static class TaskContext implements TaskProcessorContext, ForwardEdgeIoProcessorContext {
@@ -385,16 +511,33 @@ public class VertexExecutor implements InterruptibleIo.IoRunnable {
 
         private final BlockingQueue<? extends TaskProcessorContext> queue;
 
+        private final AdmissionController admission;
+
+        private final long reservation;
+
+        private final MetricsRecorder metrics;
+
+        private final LongAdder cpuTime;
+
         TaskExecutor(
                 VertexMirror vertex,
                 VertexProcessor processor,
-                BlockingQueue<? extends TaskProcessorContext> queue) {
+                BlockingQueue<? extends TaskProcessorContext> queue,
+                AdmissionController admission,
+                long reservation,
+                MetricsRecorder metrics,
+                LongAdder cpuTime) {
             Arguments.requireNonNull(vertex);
             Arguments.requireNonNull(processor);
             Arguments.requireNonNull(queue);
+            Arguments.requireNonNull(admission);
             this.vertex = vertex;
             this.processor = processor;
             this.queue = queue;
+            this.admission = admission;
+            this.reservation = reservation;
+            this.metrics = metrics;
+            this.cpuTime = cpuTime;
         }
 
         @Override
@@ -413,9 +556,18 @@ public class VertexExecutor implements InterruptibleIo.IoRunnable {
                         }
                         taskProcessor = closer.add(processor.createTaskProcessor());
                     }
-                    LOG.trace("start task: {} ({})", processor, next.getTaskId());
-                    taskProcessor.run(next);
-                    LOG.trace("finish task: {} ({})", processor, next.getTaskId());
+                    try (AdmissionController.Permit permit = admission.acquire(reservation)) {
+                        if (permit.getStallNanos() > 0L) {
+                            metrics.admissionStalled(next.getVertexId(), permit.getStallNanos());
+                        }
+                        LOG.trace("start task: {} ({})", processor, next.getTaskId());
+                        if (metrics == MetricsRecorder.NULL) {
+                            taskProcessor.run(next);
+                        } else {
+                            runWithMetrics(taskProcessor, next);
+                        }
+                        LOG.trace("finish task: {} ({})", processor, next.getTaskId());
+                    }
                 }
                 if (taskProcessor != null) {
                     if (LOG.isTraceEnabled()) {
@@ -425,5 +577,18 @@ public class VertexExecutor implements InterruptibleIo.IoRunnable {
                 }
             }
         }
+
+        private void runWithMetrics(
+                TaskProcessor taskProcessor, TaskProcessorContext next) throws IOException, InterruptedException {
+            long startNanos = System.nanoTime();
+            long startCpu = getCpuTime();
+            taskProcessor.run(next);
+            long elapsed = System.nanoTime() - startNanos;
+            long cpu = startCpu < 0L ? -1L : getCpuTime() - startCpu;
+            if (cpu >= 0L) {
+                cpuTime.add(cpu);
+            }
+            metrics.taskFinished(next.getVertexId(), next.getTaskId(), elapsed, cpu);
+        }
     }
 }
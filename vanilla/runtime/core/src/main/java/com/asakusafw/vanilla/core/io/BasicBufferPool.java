@@ -39,6 +39,7 @@ import com.asakusafw.vanilla.core.util.SystemProperty;
 /**
  * A basic implementation of {@link BufferPool}.
  * @since 0.4.0
+ * @version 0.5.5
  */
 public class BasicBufferPool implements BufferPool, Reportable {
 
@@ -62,6 +63,10 @@ public class BasicBufferPool implements BufferPool, Reportable {
 
     private final Statistics statistics;
 
+    private final LongAdder spillBytes = new LongAdder();
+
+    private final LongAdder spillNanos = new LongAdder();
+
     /**
      * Creates a new instance.
      * @param limit the soft limit size of the buffer pool in bytes
@@ -122,7 +127,12 @@ public class BasicBufferPool implements BufferPool, Reportable {
             if (next == null) {
                 break;
             }
+            long start = System.nanoTime();
             long size = next.storeTo(store);
+            if (size >= 0L) {
+                spillBytes.add(size);
+                spillNanos.add(System.nanoTime() - start);
+            }
             if (LOG.isDebugEnabled()) {
                 statistics.stored(size);
             }
@@ -135,6 +145,24 @@ public class BasicBufferPool implements BufferPool, Reportable {
         }
     }
 
+    /**
+     * Returns the total size of buffers which have been spilled out to the buffer store.
+     * @return the spilled size in bytes
+     * @since 0.5.5
+     */
+    public long getSpillSize() {
+        return spillBytes.sum();
+    }
+
+    /**
+     * Returns the total elapsed time for spilling buffers out to the buffer store.
+     * @return the elapsed time in nanoseconds
+     * @since 0.5.5
+     */
+    public long getSpillTime() {
+        return spillNanos.sum();
+    }
+
     @Override
     public void report() {
         if (LOG.isDebugEnabled()) {
@@ -17,9 +17,9 @@ package com.asakusafw.vanilla.core.io;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.util.Objects;
 
 import com.asakusafw.dag.api.common.KeyValueDeserializer;
+import com.asakusafw.dag.api.common.PrimitiveKeySerializer;
 import com.asakusafw.dag.api.processor.GroupReader;
 import com.asakusafw.dag.api.processor.ObjectReader;
 import com.asakusafw.lang.utils.buffer.nio.NioDataBuffer;
@@ -29,7 +29,9 @@ import com.asakusafw.vanilla.core.util.Buffers;
 
 /**
  * A basic implementation of {@link ObjectReader} using {@link KeyValueCursor}.
+ * If the deserializer is also a {@link PrimitiveKeySerializer}, this compares keys as primitive values.
  * @since 0.4.0
+ * @version 0.5.5
  */
 public class BasicGroupReader implements GroupReader {
 
@@ -37,6 +39,8 @@ public class BasicGroupReader implements GroupReader {
 
     private final KeyValueDeserializer deserializer;
 
+    private final KeyAccessor keys;
+
     private final Group group;
 
     private final NioDataBuffer keyWrapper = new NioDataBuffer();
@@ -57,7 +61,8 @@ public class BasicGroupReader implements GroupReader {
         Arguments.requireNonNull(deserializer);
         this.input = input;
         this.deserializer = deserializer;
-        this.group = new Group(deserializer);
+        this.keys = KeyAccessor.of(deserializer);
+        this.group = new Group(deserializer, keys);
     }
 
     private Status prepare() throws IOException, InterruptedException {
@@ -69,7 +74,7 @@ public class BasicGroupReader implements GroupReader {
         if (input.next()) {
             ByteBuffer lastKey = group.key;
             ByteBuffer nextKey = input.getKey();
-            if (lastKey == null || lastKey.equals(nextKey) == false) {
+            if (lastKey == null || keys.equals(lastKey, nextKey) == false) {
                 group.put(nextKey);
                 return Status.GROUP_BEGIN;
             } else {
@@ -162,12 +167,15 @@ public class BasicGroupReader implements GroupReader {
 
         private final KeyValueDeserializer deserializer;
 
+        private final KeyAccessor keys;
+
         private final NioDataBuffer wrapper = new NioDataBuffer();
 
         ByteBuffer key;
 
-        Group(KeyValueDeserializer deserializer) {
+        Group(KeyValueDeserializer deserializer, KeyAccessor keys) {
             this.deserializer = deserializer;
+            this.keys = keys;
         }
 
         void put(ByteBuffer newKey) {
@@ -192,14 +200,14 @@ public class BasicGroupReader implements GroupReader {
 
         @Override
         public int compareTo(GroupInfo o) {
-            return key.compareTo(((Group) o).key);
+            return keys.compare(key, ((Group) o).key);
         }
 
         @Override
         public int hashCode() {
             final int prime = 31;
             int result = 1;
-            result = prime * result + Objects.hashCode(key);
+            result = prime * result + (key == null ? 0 : keys.hash(key));
             return result;
         }
 
@@ -215,7 +223,10 @@ public class BasicGroupReader implements GroupReader {
                 return false;
             }
             Group other = (Group) obj;
-            if (!Objects.equals(key, other.key)) {
+            if (key == null || other.key == null) {
+                return key == other.key;
+            }
+            if (keys.equals(key, other.key) == false) {
                 return false;
             }
             return true;
@@ -0,0 +1,241 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.vanilla.core.io;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import com.asakusafw.dag.api.common.PrimitiveKeySerializer;
+
+/**
+ * Compares and hashes serialized keys of key-value pairs.
+ * All implementations are consistent with {@link ByteBuffer#compareTo(ByteBuffer)},
+ * {@link ByteBuffer#equals(Object)}, and {@link ByteBuffer#hashCode()}, so that they can be mixed with each other.
+ * @since 0.5.5
+ */
+public abstract class KeyAccessor {
+
+    /**
+     * The generic implementation, which treats each key as an opaque byte sequence.
+     */
+    public static final KeyAccessor GENERIC = new Generic();
+
+    /**
+     * Returns a {@link KeyAccessor} for the given key-value serializer or deserializer.
+     * @param serde the key-value ser/de (nullable)
+     * @return the corresponded key accessor, or {@link #GENERIC} if it is not specialized
+     */
+    public static KeyAccessor of(Object serde) {
+        if (serde instanceof PrimitiveKeySerializer) {
+            return of(((PrimitiveKeySerializer) serde).getKeyFormat());
+        }
+        return GENERIC;
+    }
+
+    /**
+     * Returns a {@link KeyAccessor} for the given primitive key format.
+     * @param format the key format
+     * @return the corresponded key accessor
+     */
+    public static KeyAccessor of(PrimitiveKeySerializer.Format format) {
+        int headerSize = format.hasHeader() ? 1 : 0;
+        switch (format.getBodySize()) {
+        case Integer.BYTES:
+            return new IntKey(headerSize);
+        case Long.BYTES:
+            return new LongKey(headerSize);
+        default:
+            return GENERIC;
+        }
+    }
+
+    /**
+     * Compares between the two keys.
+     * This never changes the position, limit, nor mark of the given buffers.
+     * @param a the first key
+     * @param b the second key
+     * @return {@code 0} - the two keys are both equivalent,
+     *   {@code < 0} - the first key is less than the second one, or
+     *   {@code > 0} - the second key is less than the second one
+     * @see ByteBuffer#compareTo(ByteBuffer)
+     */
+    public abstract int compare(ByteBuffer a, ByteBuffer b);
+
+    /**
+     * Returns whether or not the two keys are equivalent.
+     * This never changes the position, limit, nor mark of the given buffers.
+     * @param a the first key
+     * @param b the second key
+     * @return {@code true} if they are equivalent, otherwise {@code false}
+     * @see ByteBuffer#equals(Object)
+     */
+    public abstract boolean equals(ByteBuffer a, ByteBuffer b);
+
+    /**
+     * Returns the hash code of the key.
+     * This never changes the position, limit, nor mark of the given buffer.
+     * @param key the target key
+     * @return the hash code
+     * @see ByteBuffer#hashCode()
+     */
+    public abstract int hash(ByteBuffer key);
+
+    private static final class Generic extends KeyAccessor {
+
+        Generic() {
+            return;
+        }
+
+        @Override
+        public int compare(ByteBuffer a, ByteBuffer b) {
+            return a.compareTo(b);
+        }
+
+        @Override
+        public boolean equals(ByteBuffer a, ByteBuffer b) {
+            return a.equals(b);
+        }
+
+        @Override
+        public int hash(ByteBuffer key) {
+            return key.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "KeyAccessor(generic)"; //$NON-NLS-1$
+        }
+    }
+
+    private static final class IntKey extends KeyAccessor {
+
+        // flips the sign bit of each byte, to compare signed bytes as unsigned bytes
+        private static final int SIGN_FLIP = 0x80808080;
+
+        private final int headerSize;
+
+        private final int keySize;
+
+        IntKey(int headerSize) {
+            this.headerSize = headerSize;
+            this.keySize = headerSize + Integer.BYTES;
+        }
+
+        private int body(ByteBuffer key) {
+            // returns the body bytes as big-endian, independent of the buffer byte order
+            int value = key.getInt(key.position() + headerSize);
+            return key.order() == ByteOrder.BIG_ENDIAN ? value : Integer.reverseBytes(value);
+        }
+
+        @Override
+        public int compare(ByteBuffer a, ByteBuffer b) {
+            if (a.remaining() != keySize || b.remaining() != keySize) {
+                return a.compareTo(b);
+            }
+            // the header bytes of non-null keys are always same
+            return Integer.compareUnsigned(body(a) ^ SIGN_FLIP, body(b) ^ SIGN_FLIP);
+        }
+
+        @Override
+        public boolean equals(ByteBuffer a, ByteBuffer b) {
+            if (a.remaining() != keySize || b.remaining() != keySize) {
+                return a.equals(b);
+            }
+            return body(a) == body(b);
+        }
+
+        @Override
+        public int hash(ByteBuffer key) {
+            if (key.remaining() != keySize) {
+                return key.hashCode();
+            }
+            int body = body(key);
+            int h = 1;
+            h = 31 * h + (byte) body;
+            h = 31 * h + (byte) (body >>> 8);
+            h = 31 * h + (byte) (body >>> 16);
+            h = 31 * h + (byte) (body >>> 24);
+            if (headerSize != 0) {
+                h = 31 * h + key.get(key.position());
+            }
+            return h;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("KeyAccessor(int, header=%d)", headerSize); //$NON-NLS-1$
+        }
+    }
+
+    private static final class LongKey extends KeyAccessor {
+
+        // flips the sign bit of each byte, to compare signed bytes as unsigned bytes
+        private static final long SIGN_FLIP = 0x8080808080808080L;
+
+        private final int headerSize;
+
+        private final int keySize;
+
+        LongKey(int headerSize) {
+            this.headerSize = headerSize;
+            this.keySize = headerSize + Long.BYTES;
+        }
+
+        private long body(ByteBuffer key) {
+            // returns the body bytes as big-endian, independent of the buffer byte order
+            long value = key.getLong(key.position() + headerSize);
+            return key.order() == ByteOrder.BIG_ENDIAN ? value : Long.reverseBytes(value);
+        }
+
+        @Override
+        public int compare(ByteBuffer a, ByteBuffer b) {
+            if (a.remaining() != keySize || b.remaining() != keySize) {
+                return a.compareTo(b);
+            }
+            // the header bytes of non-null keys are always same
+            return Long.compareUnsigned(body(a) ^ SIGN_FLIP, body(b) ^ SIGN_FLIP);
+        }
+
+        @Override
+        public boolean equals(ByteBuffer a, ByteBuffer b) {
+            if (a.remaining() != keySize || b.remaining() != keySize) {
+                return a.equals(b);
+            }
+            return body(a) == body(b);
+        }
+
+        @Override
+        public int hash(ByteBuffer key) {
+            if (key.remaining() != keySize) {
+                return key.hashCode();
+            }
+            long body = body(key);
+            int h = 1;
+            for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+                h = 31 * h + (byte) (body >>> shift);
+            }
+            if (headerSize != 0) {
+                h = 31 * h + key.get(key.position());
+            }
+            return h;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("KeyAccessor(long, header=%d)", headerSize); //$NON-NLS-1$
+        }
+    }
+}
@@ -20,6 +20,7 @@ import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.List;
 
+import com.asakusafw.dag.api.common.ByteBufferComparator;
 import com.asakusafw.dag.api.common.DataComparator;
 import com.asakusafw.lang.utils.buffer.nio.NioDataBuffer;
 import com.asakusafw.lang.utils.common.Arguments;
@@ -29,6 +30,7 @@ import com.asakusafw.lang.utils.common.Lang;
 /**
  * Merges set of sorted {@link KeyValueCursor}.
  * @since 0.4.0
+ * @version 0.5.5
  */
 public class KeyValueMerger implements KeyValueCursor {
 
@@ -36,6 +38,10 @@ public class KeyValueMerger implements KeyValueCursor {
 
     private final DataComparator comparator;
 
+    private final ByteBufferComparator bufferComparator;
+
+    private final KeyAccessor keys;
+
     private boolean firstTime = true;
 
     /**
@@ -44,12 +50,29 @@ public class KeyValueMerger implements KeyValueCursor {
      * @param comparator the value comparator (nullable)
      */
     public KeyValueMerger(List<? extends KeyValueCursor> sortedCursors, DataComparator comparator) {
+        this(sortedCursors, comparator, KeyAccessor.GENERIC);
+    }
+
+    /**
+     * Creates a new instance.
+     * @param sortedCursors the sorted key-value cursors, must not be empty, and recommended {@code >= 2} cursors
+     * @param comparator the value comparator (nullable)
+     * @param keys the key accessor
+     * @since 0.5.5
+     */
+    public KeyValueMerger(
+            List<? extends KeyValueCursor> sortedCursors, DataComparator comparator, KeyAccessor keys) {
         Arguments.requireNonNull(sortedCursors);
         Arguments.require(sortedCursors.isEmpty() == false);
+        Arguments.requireNonNull(keys);
         this.heap = sortedCursors.stream()
                 .map(HeapElement::new)
                 .toArray(HeapElement[]::new);
+        this.keys = keys;
         this.comparator = comparator;
+        this.bufferComparator = comparator instanceof ByteBufferComparator
+                ? (ByteBufferComparator) comparator
+                : null;
     }
 
     @Override
@@ -97,7 +120,10 @@ public class KeyValueMerger implements KeyValueCursor {
     }
 
     private boolean isViolate(HeapElement parent, HeapElement node) throws IOException {
-        return parent.isViolate(comparator, node);
+        if (bufferComparator != null) {
+            return parent.isViolate(keys, bufferComparator, node);
+        }
+        return parent.isViolate(keys, comparator, node);
     }
 
     private void swap(int i, int j) {
@@ -162,22 +188,12 @@ public class KeyValueMerger implements KeyValueCursor {
             }
         }
 
-        boolean isViolate(DataComparator comparator, HeapElement node) throws IOException {
-            ByteBuffer k1 = key;
-            ByteBuffer k2 = node.key;
-            if (k1 == null) {
-                if (k2 == null) {
-                    return false;
-                }
-                return true;
-            } else if (k2 == null) {
-                return false;
-            }
-            int kDiff = k1.compareTo(k2);
+        boolean isViolate(KeyAccessor keys, DataComparator comparator, HeapElement node) throws IOException {
+            int kDiff = compareKey(keys, node);
             if (kDiff != 0) {
                 return kDiff > 0;
             }
-            if (comparator == null) {
+            if (key == null || comparator == null) {
                 return false;
             }
             NioDataBuffer v1 = wrapper;
@@ -188,6 +204,32 @@ public class KeyValueMerger implements KeyValueCursor {
             return violate;
         }
 
+        boolean isViolate(KeyAccessor keys, ByteBufferComparator bufferComparator, HeapElement node) {
+            int kDiff = compareKey(keys, node);
+            if (kDiff != 0) {
+                return kDiff > 0;
+            }
+            if (key == null) {
+                return false;
+            }
+            ByteBuffer v1 = value;
+            ByteBuffer v2 = node.value;
+            return bufferComparator.compare(
+                    v1, v1.position(), v1.remaining(),
+                    v2, v2.position(), v2.remaining()) > 0;
+        }
+
+        private int compareKey(KeyAccessor keys, HeapElement node) {
+            ByteBuffer k1 = key;
+            ByteBuffer k2 = node.key;
+            if (k1 == null) {
+                return k2 == null ? 0 : +1;
+            } else if (k2 == null) {
+                return -1;
+            }
+            return keys.compare(k1, k2);
+        }
+
         @Override
         public void close() throws IOException, InterruptedException {
             if (closed == false) {
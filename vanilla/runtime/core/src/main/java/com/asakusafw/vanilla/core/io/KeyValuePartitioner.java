@@ -26,6 +26,7 @@ import com.asakusafw.lang.utils.common.Lang;
  * An implementation of {@link KeyValueSink} which sort key-value pairs into individual partitions.
  * Each partition layout equals to {@link BasicKeyValueSink}.
  * @since 0.4.0
+ * @version 0.5.5
  */
 public class KeyValuePartitioner implements KeyValueSink {
 
@@ -33,6 +34,8 @@ public class KeyValuePartitioner implements KeyValueSink {
 
     private final KeyValueSink[] partitions;
 
+    private final KeyAccessor keys;
+
     private int lastPartition = -1;
 
     /**
@@ -45,8 +48,25 @@ public class KeyValuePartitioner implements KeyValueSink {
     public KeyValuePartitioner(
             List<? extends DataWriter.Channel> channels,
             int size) throws IOException, InterruptedException {
+        this(channels, size, KeyAccessor.GENERIC);
+    }
+
+    /**
+     * Creates a new instance.
+     * @param channels the destination channels of individual partitions
+     * @param size the maximum data size of each partition
+     * @param keys the key accessor
+     * @throws IOException if I/O error was occurred while initializing this object
+     * @throws InterruptedException if interrupted while initializing this object
+     * @since 0.5.5
+     */
+    public KeyValuePartitioner(
+            List<? extends DataWriter.Channel> channels,
+            int size, KeyAccessor keys) throws IOException, InterruptedException {
         Arguments.require(channels.isEmpty() == false);
+        Arguments.requireNonNull(keys);
         this.numberOfPartitions = channels.size();
+        this.keys = keys;
         this.partitions = new KeyValueSink[channels.size()];
         try (Closer closer = new Closer()) {
             int index = 0;
@@ -64,7 +84,19 @@ public class KeyValuePartitioner implements KeyValueSink {
      * @return the created stream
      */
     public static Stream stream(List<? extends DataWriter.Channel> channels) {
+        return stream(channels, KeyAccessor.GENERIC);
+    }
+
+    /**
+     * Creates a new stream of {@link KeyValuePartitioner}.
+     * @param channels the destination channels of individual partitions
+     * @param keys the key accessor
+     * @return the created stream
+     * @since 0.5.5
+     */
+    public static Stream stream(List<? extends DataWriter.Channel> channels, KeyAccessor keys) {
         Arguments.requireNonNull(channels);
+        Arguments.requireNonNull(keys);
         Arguments.require(channels.isEmpty() == false);
         if (channels.size() == 1) {
             return BasicKeyValueSink.stream(channels.get(0));
@@ -76,7 +108,7 @@ public class KeyValuePartitioner implements KeyValueSink {
             total += valueSize;
             total += Integer.BYTES; // EOF
             Arguments.require(total <= Integer.MAX_VALUE);
-            return new KeyValuePartitioner(channels, (int) total);
+            return new KeyValuePartitioner(channels, (int) total, keys);
         };
     }
 
@@ -88,7 +120,7 @@ public class KeyValuePartitioner implements KeyValueSink {
     }
 
     private int computeIndex(ByteBuffer key) {
-        return (key.hashCode() & Integer.MAX_VALUE) % numberOfPartitions;
+        return (keys.hash(key) & Integer.MAX_VALUE) % numberOfPartitions;
     }
 
     @Override
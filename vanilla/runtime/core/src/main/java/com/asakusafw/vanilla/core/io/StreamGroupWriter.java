@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 
+import com.asakusafw.dag.api.common.ByteBufferComparator;
 import com.asakusafw.dag.api.common.DataComparator;
 import com.asakusafw.dag.api.common.KeyValueSerializer;
 import com.asakusafw.dag.api.processor.ObjectWriter;
@@ -31,6 +32,7 @@ import com.asakusafw.vanilla.core.util.ExtensibleDataBuffer;
 /**
  * An implementation of {@link ObjectWriter} using {@link KeyValueSink}.
  * @since 0.4.0
+ * @version 0.5.5
  */
 public class StreamGroupWriter implements ObjectWriter {
 
@@ -42,6 +44,8 @@ public class StreamGroupWriter implements ObjectWriter {
 
     private final DataComparator comparator;
 
+    private final KeyAccessor keys;
+
     private final int bufferSizeThreshold;
 
     private final int recordCountLimit;
@@ -93,6 +97,7 @@ public class StreamGroupWriter implements ObjectWriter {
         this.sinks = sinks;
         this.serializer = serializer;
         this.comparator = comparator;
+        this.keys = KeyAccessor.of(serializer);
         this.bufferSizeThreshold = Util.getBufferThreshold(bufferSizeLimit, bufferMarginSize);
         this.recordCountLimit = recordCountLimit;
         this.buffer = Util.newDataBuffer(bufferSizeLimit);
@@ -147,13 +152,28 @@ public class StreamGroupWriter implements ObjectWriter {
         ByteBuffer buf = buffer.buffer();
         ByteBuffer aBuf = Buffers.duplicate(buf);
         ByteBuffer bBuf = Buffers.duplicate(buf);
+        KeyAccessor ks = keys;
+        if (comparator instanceof ByteBufferComparator) {
+            // compares values directly on the buffer, without wrapping them with DataInput
+            ByteBufferComparator cmp = (ByteBufferComparator) comparator;
+            Arrays.sort(positions, 0, recordCount, (a, b) -> {
+                int keyDiff = ks.compare(a.setKeyRange(aBuf), b.setKeyRange(bBuf));
+                if (keyDiff != 0) {
+                    return keyDiff;
+                }
+                return cmp.compare(
+                        buf, a.getValueOffset(), a.getValueSize(),
+                        buf, b.getValueOffset(), b.getValueSize());
+            });
+            return;
+        }
         NioDataBuffer aWrapper = new NioDataBuffer();
         NioDataBuffer bWrapper = new NioDataBuffer();
         aWrapper.contents = aBuf;
         bWrapper.contents = bBuf;
         DataComparator cmp = comparator;
         Arrays.sort(positions, 0, recordCount, (a, b) -> {
-            int keyDiff = a.setKeyRange(aBuf).compareTo(b.setKeyRange(bBuf));
+            int keyDiff = ks.compare(a.setKeyRange(aBuf), b.setKeyRange(bBuf));
             if (cmp == null || keyDiff != 0) {
                 return keyDiff;
             }
@@ -181,10 +201,11 @@ public class StreamGroupWriter implements ObjectWriter {
         ByteBuffer keyBuf = Buffers.duplicate(buf);
         ByteBuffer valueBuf = Buffers.duplicate(buf);
         ByteBuffer lastKeyBuf = Buffers.duplicate(buf);
+        KeyAccessor ks = keys;
         try (KeyValueSink sink = sinks.offer(records, keySize, valueSize)) {
             for (int i = 0; i < records; i++) {
                 Position p = ps[i];
-                if (i != 0 && lastKeyBuf.equals(p.setKeyRange(keyBuf))) {
+                if (i != 0 && ks.equals(lastKeyBuf, p.setKeyRange(keyBuf))) {
                     if (sink.accept(p.setValueRange(valueBuf))) {
                         continue;
                     }
@@ -229,6 +250,10 @@ public class StreamGroupWriter implements ObjectWriter {
             return keyEnd - recordBegin;
         }
 
+        int getValueOffset() {
+            return keyEnd;
+        }
+
         int getValueSize() {
             return recordEnd - keyEnd;
         }
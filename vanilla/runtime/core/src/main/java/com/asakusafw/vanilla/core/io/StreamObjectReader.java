@@ -16,6 +16,7 @@
 package com.asakusafw.vanilla.core.io;
 
 import java.io.IOException;
+import java.util.OptionalLong;
 
 import com.asakusafw.dag.api.common.Deserializer;
 import com.asakusafw.dag.api.processor.ObjectReader;
@@ -25,6 +26,7 @@ import com.asakusafw.lang.utils.common.Arguments;
 /**
  * An implementation of {@link ObjectReader} using {@link RecordCursor}.
  * @since 0.4.0
+ * @version 0.5.5
  */
 public class StreamObjectReader implements ObjectReader {
 
@@ -32,6 +34,8 @@ public class StreamObjectReader implements ObjectReader {
 
     private final Deserializer deserializer;
 
+    private final long objectCount;
+
     private final NioDataBuffer wrapper = new NioDataBuffer();
 
     private RecordCursor current;
@@ -44,10 +48,22 @@ public class StreamObjectReader implements ObjectReader {
      * @param deserializer the object deserializer
      */
     public StreamObjectReader(RecordCursor.Stream input, Deserializer deserializer) {
+        this(input, deserializer, -1L);
+    }
+
+    /**
+     * Creates a new instance.
+     * @param input the cursor stream
+     * @param deserializer the object deserializer
+     * @param objectCount the total number of objects in the stream, or {@code -1} if it is not known
+     * @since 0.5.5
+     */
+    public StreamObjectReader(RecordCursor.Stream input, Deserializer deserializer, long objectCount) {
         Arguments.requireNonNull(input);
         Arguments.requireNonNull(deserializer);
         this.cursors = input;
         this.deserializer = deserializer;
+        this.objectCount = objectCount;
     }
 
     private boolean prepare() throws IOException, InterruptedException {
@@ -85,6 +101,11 @@ public class StreamObjectReader implements ObjectReader {
         return object;
     }
 
+    @Override
+    public OptionalLong getObjectCount() {
+        return objectCount < 0 ? OptionalLong.empty() : OptionalLong.of(objectCount);
+    }
+
     @Override
     public void close() throws IOException, InterruptedException {
         closeCurrent();
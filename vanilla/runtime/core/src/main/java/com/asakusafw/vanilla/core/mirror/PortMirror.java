@@ -35,6 +35,7 @@ import com.asakusafw.lang.utils.common.Invariants;
 /**
  * An abstract implementation of I/O port mirror of vertices.
  * @since 0.4.0
+ * @version 0.5.5
  */
 public abstract class PortMirror {
 
@@ -80,6 +81,15 @@ public abstract class PortMirror {
         return descriptor.getMovement();
     }
 
+    /**
+     * Returns whether the data on this port is invariant between iterative rounds or not.
+     * @return {@code true} if it is invariant, otherwise {@code false}
+     * @since 0.5.5
+     */
+    public boolean isInvariant() {
+        return descriptor.isInvariant();
+    }
+
     /**
      * Returns the opposites of this port.
      * @return the opposite ports
@@ -0,0 +1,163 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.vanilla.core.engine;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.asakusafw.vanilla.core.engine.AdmissionController.Permit;
+
+/**
+ * Test for {@link AdmissionController}.
+ */
+public class AdmissionControllerTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    /**
+     * Cleans up the test.
+     */
+    @After
+    public void teardown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * simple case.
+     * @throws Exception if failed
+     */
+    @Test
+    public void simple() throws Exception {
+        AdmissionController admission = new AdmissionController(100, 10);
+        try (Permit a = admission.acquire(50);
+                Permit b = admission.acquire(50)) {
+            assertThat(a.getSize(), is(50L));
+            assertThat(b.getSize(), is(50L));
+        }
+        assertThat(admission.getStallCount(), is(0L));
+    }
+
+    /**
+     * tasks must wait while the limit is exceeded.
+     * @throws Exception if failed
+     */
+    @Test
+    public void stall() throws Exception {
+        AdmissionController admission = new AdmissionController(100, 10);
+        Future<Long> waiting;
+        try (Permit a = admission.acquire(60)) {
+            assertThat(a.getStallNanos(), is(0L));
+            waiting = executor.submit(() -> {
+                try (Permit b = admission.acquire(60)) {
+                    return b.getStallNanos();
+                }
+            });
+            try {
+                waiting.get(100, TimeUnit.MILLISECONDS);
+                fail();
+            } catch (TimeoutException e) {
+                // ok.
+            }
+        }
+        assertThat(waiting.get(10, TimeUnit.SECONDS), greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(100)));
+        assertThat(admission.getStallCount(), is(1L));
+        assertThat(admission.getStallTime(), greaterThanOrEqualTo(100L));
+    }
+
+    /**
+     * forked controllers share the limit, but count their own stalls.
+     * @throws Exception if failed
+     */
+    @Test
+    public void fork() throws Exception {
+        AdmissionController admission = new AdmissionController(100, 10);
+        AdmissionController a = admission.fork();
+        AdmissionController b = admission.fork();
+        Future<?> waiting;
+        try (Permit p = a.acquire(60)) {
+            waiting = executor.submit(() -> {
+                try (Permit q = b.acquire(60)) {
+                    return q.getSize();
+                }
+            });
+            try {
+                waiting.get(100, TimeUnit.MILLISECONDS);
+                fail();
+            } catch (TimeoutException e) {
+                // ok.
+            }
+        }
+        assertThat(waiting.get(10, TimeUnit.SECONDS), is(60L));
+        assertThat(a.getStallCount(), is(0L));
+        assertThat(b.getStallCount(), is(1L));
+        assertThat(admission.getStallCount(), is(0L));
+    }
+
+    /**
+     * a task must be admitted if there are no other tasks, even if it exceeds the limit.
+     * @throws Exception if failed
+     */
+    @Test
+    public void oversized() throws Exception {
+        AdmissionController admission = new AdmissionController(100, 10);
+        try (Permit a = admission.acquire(1000)) {
+            assertThat(a.getSize(), is(1000L));
+            try (Permit b = admission.acquire(0)) {
+                assertThat(b.getSize(), is(0L));
+            }
+        }
+        assertThat(admission.getStallCount(), is(0L));
+    }
+
+    /**
+     * unlimited.
+     * @throws Exception if failed
+     */
+    @Test
+    public void unlimited() throws Exception {
+        AdmissionController admission = AdmissionController.UNLIMITED;
+        try (Permit a = admission.acquire(Long.MAX_VALUE);
+                Permit b = admission.acquire(Long.MAX_VALUE)) {
+            assertThat(a.getSize(), is(0L));
+        }
+        assertThat(admission.getStallCount(), is(0L));
+    }
+
+    /**
+     * permits can be closed twice.
+     * @throws Exception if failed
+     */
+    @Test
+    public void close_twice() throws Exception {
+        AdmissionController admission = new AdmissionController(100, 10);
+        Permit a = admission.acquire(100);
+        a.close();
+        a.close();
+        try (Permit b = admission.acquire(100)) {
+            assertThat(b.getSize(), is(100L));
+        }
+        assertThat(admission.getStallCount(), is(0L));
+    }
+}
@@ -27,6 +27,7 @@ import java.util.BitSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.OptionalLong;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -136,6 +137,7 @@ public class BasicEdgeDriverTest {
             }
             complete(driver, upstream);
             try (ObjectReader reader = (ObjectReader) driver.acquireInput(downstream, 0, 1)) {
+                assertThat(reader.getObjectCount(), is(OptionalLong.of(1)));
                 check(reader, object(1, 0, "Hello, world!"));
             }
             complete(driver, downstream);
@@ -176,6 +178,7 @@ public class BasicEdgeDriverTest {
             complete(driver, u2);
 
             try (ObjectReader reader = (ObjectReader) driver.acquireInput(d0, 0, 1)) {
+                assertThat(reader.getObjectCount(), is(OptionalLong.of(3)));
                 check(reader,
                         object(0, 0, "Hello0"),
                         object(1, 0, "Hello1"),
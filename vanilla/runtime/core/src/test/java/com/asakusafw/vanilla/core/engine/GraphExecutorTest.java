@@ -108,6 +108,41 @@ public class GraphExecutorTest {
         }
     }
 
+    /**
+     * worker threads are not available.
+     * @throws Exception if failed
+     */
+    @Test
+    public void worker_failure() throws Exception {
+        GraphInfo graph = new GraphInfo();
+        graph.addVertex("v0", vertex(() -> new VertexProcessor() {
+            @Override
+            public Optional<? extends TaskSchedule> initialize(VertexProcessorContext context) {
+                return Optionals.of(new BasicTaskSchedule(new BasicTaskInfo()));
+            }
+            @Override
+            public TaskProcessor createTaskProcessor() throws IOException, InterruptedException {
+                return c -> {
+                    return;
+                };
+            }
+        }));
+        GraphMirror mirror = GraphMirror.of(graph);
+        try (MockEdgeDriver edges = new MockEdgeDriver()) {
+            ProcessorContext context = new BasicProcessorContext(getClass().getClassLoader());
+            GraphExecutor executor = new GraphExecutor(context, mirror, new BasicVertexScheduler(), edges, 2,
+                    worker -> () -> {
+                        throw new IllegalStateException("testing");
+                    });
+            try {
+                executor.run();
+                fail();
+            } catch (IllegalStateException e) {
+                // ok.
+            }
+        }
+    }
+
     private void run(GraphMirror mirror, MockEdgeDriver edges) throws IOException, InterruptedException {
         ProcessorContext context = new BasicProcessorContext(getClass().getClassLoader());
         VertexScheduler sched = new BasicVertexScheduler();
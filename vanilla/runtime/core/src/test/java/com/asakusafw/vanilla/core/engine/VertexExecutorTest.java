@@ -48,6 +48,7 @@ import com.asakusafw.dag.api.processor.VertexProcessorContext;
 import com.asakusafw.dag.api.processor.basic.BasicProcessorContext;
 import com.asakusafw.dag.api.processor.basic.BasicTaskInfo;
 import com.asakusafw.dag.api.processor.basic.BasicTaskSchedule;
+import com.asakusafw.dag.api.processor.extension.MetricsRecorder;
 import com.asakusafw.dag.runtime.skeleton.VoidVertexProcessor;
 import com.asakusafw.dag.runtime.testing.MockDataModel;
 import com.asakusafw.dag.runtime.testing.MockDataModelUtil;
@@ -181,8 +182,49 @@ public class VertexExecutorTest {
         }
     }
 
+    /**
+     * w/ metrics.
+     * @throws Exception if failed
+     */
+    @Test
+    public void metrics() throws Exception {
+        Queue<MockDataModel> results = new ConcurrentLinkedQueue<>();
+
+        GraphInfo graph = new GraphInfo();
+        VertexInfo v = graph.addVertex("v", vertex(() -> new SimpleProcessor(results::offer,
+                object(0, "0.0", "hello0"),
+                object(1, "1.0", "hello1"))));
+
+        Queue<String> vertices = new ConcurrentLinkedQueue<>();
+        Queue<String> tasks = new ConcurrentLinkedQueue<>();
+        MetricsRecorder metrics = new MetricsRecorder() {
+            @Override
+            public void vertexFinished(String vertexId, long elapsedNanos, long cpuNanos) {
+                vertices.add(vertexId);
+            }
+            @Override
+            public void taskFinished(String vertexId, String taskId, long elapsedNanos, long cpuNanos) {
+                tasks.add(taskId);
+            }
+        };
+        GraphMirror mirror = GraphMirror.of(graph);
+        try (MockEdgeDriver edges = new MockEdgeDriver()) {
+            run(new BasicProcessorContext(getClass().getClassLoader())
+                    .withResource(MetricsRecorder.class, metrics),
+                    mirror.getVertex(v.getId()), edges);
+            assertThat(results, hasSize(2));
+            assertThat(vertices, contains("v"));
+            assertThat(tasks, containsInAnyOrder("v-0", "v-1"));
+        }
+    }
+
     private void run(VertexMirror vertex, MockEdgeDriver edges) throws IOException, InterruptedException {
-        ProcessorContext context = new BasicProcessorContext(getClass().getClassLoader());
+        run(new BasicProcessorContext(getClass().getClassLoader()), vertex, edges);
+    }
+
+    private void run(
+            ProcessorContext context,
+            VertexMirror vertex, MockEdgeDriver edges) throws IOException, InterruptedException {
         int concurrency = Math.max(Runtime.getRuntime().availableProcessors() / 2, 1);
         ExecutorService threads = Executors.newFixedThreadPool(concurrency, r -> {
             Thread t = new Thread(r);
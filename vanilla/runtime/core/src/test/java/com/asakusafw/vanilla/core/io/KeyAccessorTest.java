@@ -0,0 +1,169 @@
+/**
+ * Copyright 2011-2021 Asakusa Framework Team.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.asakusafw.vanilla.core.io;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.asakusafw.dag.api.common.PrimitiveKeySerializer;
+
+/**
+ * Test for {@link KeyAccessor}.
+ */
+public class KeyAccessorTest {
+
+    /**
+     * generic keys.
+     */
+    @Test
+    public void generic() {
+        KeyAccessor keys = KeyAccessor.of(new Object());
+        assertThat(keys, is(sameInstance(KeyAccessor.GENERIC)));
+        check(keys, nullableInts(ByteOrder.BIG_ENDIAN));
+    }
+
+    /**
+     * nullable int keys.
+     */
+    @Test
+    public void nullable_int() {
+        KeyAccessor keys = KeyAccessor.of(PrimitiveKeySerializer.Format.NULLABLE_INT);
+        check(keys, nullableInts(ByteOrder.BIG_ENDIAN));
+        check(keys, nullableInts(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    /**
+     * nullable long keys.
+     */
+    @Test
+    public void nullable_long() {
+        KeyAccessor keys = KeyAccessor.of(PrimitiveKeySerializer.Format.NULLABLE_LONG);
+        check(keys, nullableLongs(ByteOrder.BIG_ENDIAN));
+        check(keys, nullableLongs(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    /**
+     * int keys.
+     */
+    @Test
+    public void int_keys() {
+        KeyAccessor keys = KeyAccessor.of(PrimitiveKeySerializer.Format.INT);
+        check(keys, ints(ByteOrder.BIG_ENDIAN));
+        check(keys, ints(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    /**
+     * long keys.
+     */
+    @Test
+    public void long_keys() {
+        KeyAccessor keys = KeyAccessor.of(PrimitiveKeySerializer.Format.LONG);
+        check(keys, longs(ByteOrder.BIG_ENDIAN));
+        check(keys, longs(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    private static void check(KeyAccessor keys, List<ByteBuffer> values) {
+        for (ByteBuffer a : values) {
+            for (ByteBuffer b : values) {
+                int position = a.position();
+                assertThat(String.format("%s <=> %s", a, b),
+                        Integer.signum(keys.compare(a, b)), is(Integer.signum(a.compareTo(b))));
+                assertThat(keys.equals(a, b), is(a.equals(b)));
+                assertThat(a.position(), is(position));
+            }
+            assertThat(keys.hash(a), is(a.hashCode()));
+        }
+    }
+
+    private static List<ByteBuffer> nullableInts(ByteOrder order) {
+        List<ByteBuffer> results = new ArrayList<>();
+        results.add(key(order, 1).put((byte) 0));
+        for (int value : intValues()) {
+            results.add(key(order, 1 + Integer.BYTES).put((byte) 1).putInt(value));
+        }
+        return flip(results);
+    }
+
+    private static List<ByteBuffer> nullableLongs(ByteOrder order) {
+        List<ByteBuffer> results = new ArrayList<>();
+        results.add(key(order, 1).put((byte) 0));
+        for (long value : longValues()) {
+            results.add(key(order, 1 + Long.BYTES).put((byte) 1).putLong(value));
+        }
+        return flip(results);
+    }
+
+    private static List<ByteBuffer> ints(ByteOrder order) {
+        List<ByteBuffer> results = new ArrayList<>();
+        for (int value : intValues()) {
+            results.add(key(order, Integer.BYTES).putInt(value));
+        }
+        return flip(results);
+    }
+
+    private static List<ByteBuffer> longs(ByteOrder order) {
+        List<ByteBuffer> results = new ArrayList<>();
+        for (long value : longValues()) {
+            results.add(key(order, Long.BYTES).putLong(value));
+        }
+        return flip(results);
+    }
+
+    private static ByteBuffer key(ByteOrder order, int size) {
+        // puts a margin before the key, to test keys at non-zero positions
+        ByteBuffer buffer = ByteBuffer.allocate(size + 3).order(order);
+        buffer.put(new byte[3]);
+        return buffer;
+    }
+
+    private static List<ByteBuffer> flip(List<ByteBuffer> buffers) {
+        for (ByteBuffer buffer : buffers) {
+            buffer.flip();
+            buffer.position(3);
+        }
+        return buffers;
+    }
+
+    private static int[] intValues() {
+        Random random = new Random(6502);
+        int[] results = new int[40];
+        int[] fixed = { 0, 1, -1, 0x7f, 0x80, 0xff, 0x7fff, 0x8000, Integer.MAX_VALUE, Integer.MIN_VALUE };
+        System.arraycopy(fixed, 0, results, 0, fixed.length);
+        for (int i = fixed.length; i < results.length; i++) {
+            results[i] = random.nextInt();
+        }
+        return results;
+    }
+
+    private static long[] longValues() {
+        Random random = new Random(6502);
+        long[] results = new long[40];
+        long[] fixed = { 0, 1, -1, 0x7f, 0x80, 0xff, 0x80000000L, 0xffffffffL, Long.MAX_VALUE, Long.MIN_VALUE };
+        System.arraycopy(fixed, 0, results, 0, fixed.length);
+        for (int i = fixed.length; i < results.length; i++) {
+            results[i] = random.nextLong();
+        }
+        return results;
+    }
+}
@@ -25,6 +25,7 @@ import java.util.Random;
 
 import org.junit.Test;
 
+import com.asakusafw.dag.api.common.BinarySortKeyComparator;
 import com.asakusafw.vanilla.core.testing.ShortPairSerDe;
 import com.asakusafw.vanilla.core.util.Buffers;
 
@@ -77,6 +78,22 @@ public class KeyValueMergerTest {
                 random(6502 + 4, base * 4));
     }
 
+    /**
+     * w/ binary sort keys.
+     * @throws Exception if failed
+     */
+    @Test
+    public void binary_sort_key() throws Exception {
+        KeyValueCursor[] cursors = new KeyValueCursor[] {
+                binary(random(6502 + 1, 1_000)),
+                binary(random(6502 + 2, 2_000)),
+                binary(random(6502 + 3, 3_000)),
+        };
+        try (KeyValueMerger merger = new KeyValueMerger(Arrays.asList(cursors), new BinarySortKeyComparator())) {
+            check(unbinary(merger), 6_000);
+        }
+    }
+
     private static void checkMerge(int records, KeyValueCursor... cursors) throws IOException, InterruptedException {
         try (KeyValueMerger merger = merger(cursors)) {
             check(merger, records);
@@ -140,6 +157,68 @@ public class KeyValueMergerTest {
                 .toArray());
     }
 
+    private static KeyValueCursor binary(KeyValueCursor cursor) {
+        ByteBuffer value = Buffers.allocate(Integer.BYTES + Short.BYTES);
+        return new KeyValueCursor() {
+            @Override
+            public boolean next() throws IOException, InterruptedException {
+                if (cursor.next()) {
+                    value.clear();
+                    value.putInt(Short.BYTES);
+                    int sortKey = cursor.getValue().getShort() ^ Short.MIN_VALUE;
+                    value.put((byte) (sortKey >> Byte.SIZE));
+                    value.put((byte) sortKey);
+                    value.flip();
+                    return true;
+                }
+                return false;
+            }
+            @Override
+            public ByteBuffer getKey() throws IOException, InterruptedException {
+                return cursor.getKey();
+            }
+            @Override
+            public ByteBuffer getValue() throws IOException, InterruptedException {
+                return value;
+            }
+            @Override
+            public void close() throws IOException, InterruptedException {
+                cursor.close();
+            }
+        };
+    }
+
+    private static KeyValueCursor unbinary(KeyValueCursor cursor) {
+        ByteBuffer value = Buffers.allocate(Short.BYTES);
+        return new KeyValueCursor() {
+            @Override
+            public boolean next() throws IOException, InterruptedException {
+                if (cursor.next()) {
+                    ByteBuffer source = cursor.getValue();
+                    int offset = source.position() + Integer.BYTES;
+                    int sortKey = (source.get(offset) & 0xff) << Byte.SIZE | (source.get(offset + 1) & 0xff);
+                    value.clear();
+                    value.putShort((short) (sortKey ^ Short.MIN_VALUE));
+                    value.flip();
+                    return true;
+                }
+                return false;
+            }
+            @Override
+            public ByteBuffer getKey() throws IOException, InterruptedException {
+                return cursor.getKey();
+            }
+            @Override
+            public ByteBuffer getValue() throws IOException, InterruptedException {
+                return value;
+            }
+            @Override
+            public void close() throws IOException, InterruptedException {
+                cursor.close();
+            }
+        };
+    }
+
     private static KeyValueCursor cursor(int... values) {
         return ShortPairSerDe.cursor(values, 0, values.length);
     }
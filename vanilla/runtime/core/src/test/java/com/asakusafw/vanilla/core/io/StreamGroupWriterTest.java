@@ -18,6 +18,8 @@ package com.asakusafw.vanilla.core.io;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
@@ -27,6 +29,8 @@ import java.util.function.IntConsumer;
 
 import org.junit.Test;
 
+import com.asakusafw.dag.api.common.BinarySortKeyComparator;
+import com.asakusafw.dag.api.common.KeyValueSerDe;
 import com.asakusafw.lang.utils.common.Lang;
 import com.asakusafw.vanilla.core.testing.ShortPairSerDe;
 
@@ -173,11 +177,95 @@ public class StreamGroupWriterTest {
         }
     }
 
+    /**
+     * records should be sorted by their binary sort keys.
+     * @throws Exception if failed
+     */
+    @Test
+    public void binary_sort_key() throws Exception {
+        List<Integer> inputs = new ArrayList<>();
+        Random rnd = new Random(6502);
+        for (int i = 0; i < 10_000; i++) {
+            inputs.add(rnd.nextInt());
+        }
+        List<Integer> results = new ArrayList<>();
+        try (StreamGroupWriter writer = new StreamGroupWriter(
+                new BinaryStream(results::add),
+                new BinarySortKeySerDe(), new BinarySortKeyComparator(),
+                1_000_001, 100_000)) {
+            for (Integer o : inputs) {
+                writer.putObject(o);
+            }
+        }
+        assertThat(results, is(sort(inputs)));
+    }
+
     private static List<Integer> sort(List<Integer> values) {
         values.sort(ShortPairSerDe.comparator());
         return values;
     }
 
+    private static class BinarySortKeySerDe implements KeyValueSerDe {
+
+        BinarySortKeySerDe() {
+            return;
+        }
+
+        @Override
+        public void serializeKey(Object object, DataOutput output) throws IOException, InterruptedException {
+            int pair = (Integer) object;
+            output.writeShort((short) (pair >> Short.SIZE));
+        }
+
+        @Override
+        public void serializeValue(Object object, DataOutput output) throws IOException, InterruptedException {
+            int pair = (Integer) object;
+            int sortKey = (short) pair ^ Short.MIN_VALUE;
+            output.writeInt(Short.BYTES);
+            output.writeByte(sortKey >> Byte.SIZE);
+            output.writeByte(sortKey);
+        }
+
+        @Override
+        public Object deserializeKey(DataInput keyInput) throws IOException, InterruptedException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object deserializePair(
+                DataInput keyInput, DataInput valueInput) throws IOException, InterruptedException {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class BinaryStream implements KeyValueSink.Stream {
+        final IntConsumer sink;
+        BinaryStream(IntConsumer sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public KeyValueSink offer(int recordCount, int keySize, int valueSize) throws IOException, InterruptedException {
+            return new KeyValueSink() {
+                @Override
+                public void accept(ByteBuffer key, ByteBuffer value) throws IOException, InterruptedException {
+                    assertThat(value.getInt(), is(Short.BYTES));
+                    short sortKey = (short) (((value.get() & 0xff) << Byte.SIZE | (value.get() & 0xff))
+                            ^ Short.MIN_VALUE);
+                    sink.accept((key.getShort() << Short.SIZE) | (sortKey & 0xffff));
+                }
+                @Override
+                public boolean accept(ByteBuffer value) throws IOException, InterruptedException {
+                    return false;
+                }
+                @Override
+                public void close() throws IOException, InterruptedException {
+                    return;
+                }
+            };
+        }
+    }
+
     private static class MockStream implements KeyValueSink.Stream {
         final IntConsumer sink;
         MockStream(IntConsumer sink) {